@@ -187,6 +187,21 @@ public interface OperationContext extends Serializable {
      */
     void setCacheEnabled(boolean cacheEnabled);
 
+    /**
+     * Returns if objects returned by list operations are added to the cache.
+     */
+    boolean isCacheThroughEnabled();
+
+    /**
+     * Enables or disables adding the objects returned by list operations
+     * (children, descendants, folder trees and query objects) to the cache.
+     * 
+     * These objects are only admitted if the cache has free room, so a large
+     * list doesn't displace the objects that are already cached. Whether the
+     * cache is read is still controlled by {@link #setCacheEnabled(boolean)}.
+     */
+    void setCacheThroughEnabled(boolean cacheThroughEnabled);
+
     /**
      * Returns a key for this OperationContext object that is used for caching.
      */
@@ -207,4 +222,26 @@ public interface OperationContext extends Serializable {
      * Returns the current max number of items per batch.
      */
     int getMaxItemsPerPage();
+
+    /**
+     * Sets the number of pages that are fetched in the background while the
+     * current page of a list is consumed.
+     * 
+     * Prefetching only applies to lists that are paged by skip count
+     * (children, checked out documents, query results and relationships).
+     * The default is 0, which turns prefetching off.
+     * 
+     * The background requests of all lists in the JVM share a small, fixed
+     * pool of threads. A large prefetch depth delays the prefetching of other
+     * lists, also of other sessions.
+     * 
+     * @param prefetchDepth
+     *            number of pages to fetch ahead (must not be negative)
+     */
+    void setPrefetchDepth(int prefetchDepth);
+
+    /**
+     * Returns the number of pages that are fetched in the background.
+     */
+    int getPrefetchDepth();
 }
@@ -444,6 +444,55 @@ public interface Session extends Serializable {
      */
     CmisObject getObject(String objectId, OperationContext context);
 
+    /**
+     * Returns several CMIS objects. Objects that are in the session cache are
+     * taken from there, the others are loaded from the repository in batches
+     * and put into the cache.
+     * <p>
+     * This method uses the default {@link OperationContext}. See
+     * {@link #getObjects(Collection, OperationContext)} for details.
+     * 
+     * @param objectIds
+     *            the object IDs
+     * 
+     * @return the requested objects in the order of the object IDs,
+     *         {@code null} for objects that don't exist
+     * 
+     * @cmis 1.0
+     */
+    List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds);
+
+    /**
+     * Returns several CMIS objects. Objects that are in the session cache are
+     * taken from there, the others are loaded from the repository in batches
+     * and put into the cache, if the given {@link OperationContext} has caching
+     * turned on.
+     * <p>
+     * If the repository supports queries and the operation context only
+     * selects properties of the base types, objects are loaded with
+     * {@code cmis:objectId IN (...)} queries. All remaining objects are loaded
+     * with parallel {@code getObject} calls. The session parameters
+     * {@link org.apache.chemistry.opencmis.commons.SessionParameter#GET_OBJECTS_BATCH_SIZE}
+     * and
+     * {@link org.apache.chemistry.opencmis.commons.SessionParameter#GET_OBJECTS_THREADS}
+     * control the number of objects per query and the number of parallel
+     * calls.
+     * <p>
+     * This method might return stale objects. See
+     * {@link #getObject(ObjectId, OperationContext)}.
+     * 
+     * @param objectIds
+     *            the object IDs
+     * @param context
+     *            the {@link OperationContext} to use
+     * 
+     * @return the requested objects in the order of the object IDs,
+     *         {@code null} for objects that don't exist
+     * 
+     * @cmis 1.0
+     */
+    List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context);
+
     /**
      * Returns a CMIS object from the session cache. If the object is not in the
      * cache or the cache is turned off per default {@link OperationContext}, it
@@ -25,6 +25,8 @@ import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
 import org.apache.chemistry.opencmis.client.bindings.spi.SessionAwareAuthenticationProvider;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.AsyncBrowserBindingService;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.CmisBrowserBindingSpi;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
@@ -147,7 +149,12 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
         }
 
         // set up caches
-        clearAllCaches();
+        if (SharedBindingCaches.isEnabled(session)) {
+            // don't clear the caches other sessions are using
+            session.put(CmisBindingsHelper.REPOSITORY_INFO_CACHE, SharedBindingCaches.getRepositoryInfoCache(session));
+        } else {
+            clearAllCaches();
+        }
 
         // initialize the SPI
         CmisBindingsHelper.getSPI(session);
@@ -203,6 +210,11 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
     public ObjectService getObjectService() {
         checkSession();
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
+        RequestCoalescer coalescer = CmisBindingsHelper.getRequestCoalescer(session);
+        if (coalescer.isEnabled(RequestCoalescer.GET_OBJECT)
+                || coalescer.isEnabled(RequestCoalescer.GET_OBJECT_BY_PATH)) {
+            return CoalescingObjectService.wrap(spi.getObjectService(), coalescer);
+        }
         return spi.getObjectService();
     }
 
@@ -248,6 +260,27 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
         return spi.getPolicyService();
     }
 
+    /**
+     * Returns the request coalescer of this binding. It provides the
+     * coalescing counters.
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        checkSession();
+        return CmisBindingsHelper.getRequestCoalescer(session);
+    }
+
+    /**
+     * Returns the asynchronous Browser Binding operations of this binding, or
+     * {@code null} if this binding doesn't use the Browser Binding.
+     */
+    public AsyncBrowserBindingService getAsyncBrowserBindingService() {
+        checkSession();
+        if (!(CmisBindingsHelper.getSPI(session) instanceof CmisBrowserBindingSpi)) {
+            return null;
+        }
+        return new AsyncBrowserBindingService(session);
+    }
+
     @Override
     public BindingsObjectFactory getObjectFactory() {
         return objectFactory;
@@ -264,7 +297,13 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
 
         session.writeLock();
         try {
-            session.put(CmisBindingsHelper.REPOSITORY_INFO_CACHE, new RepositoryInfoCache(session));
+            if (SharedBindingCaches.isEnabled(session)) {
+                RepositoryInfoCache repInfoCache = SharedBindingCaches.getRepositoryInfoCache(session);
+                repInfoCache.removeAll();
+                session.put(CmisBindingsHelper.REPOSITORY_INFO_CACHE, repInfoCache);
+            } else {
+                session.put(CmisBindingsHelper.REPOSITORY_INFO_CACHE, new RepositoryInfoCache(session));
+            }
             TypeDefinitionCache typeDefCache = CmisBindingsHelper.getTypeDefinitionCache(session);
             typeDefCache.removeAll();
 
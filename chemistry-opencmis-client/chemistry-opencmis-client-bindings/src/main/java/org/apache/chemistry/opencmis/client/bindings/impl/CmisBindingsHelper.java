@@ -45,6 +45,7 @@ public final class CmisBindingsHelper {
     public static final String AUTHENTICATION_PROVIDER_OBJECT = "org.apache.chemistry.opencmis.binding.auth.object";
     public static final String ACCEPT_LANGUAGE = "org.apache.chemistry.opencmis.binding.acceptLanguage";
     public static final String FORCE_CMIS_VERSION = "org.apache.chemistry.opencmis.cmisversion";
+    public static final String REQUEST_COALESCER_OBJECT = "org.apache.chemistry.opencmis.binding.coalescer.object";
 
     /**
      * Private constructor.
@@ -103,6 +104,38 @@ public final class CmisBindingsHelper {
         return spi;
     }
 
+    /**
+     * Gets the request coalescer object from the session.
+     */
+    public static RequestCoalescer getRequestCoalescer(BindingSession session) {
+        assert session != null;
+
+        RequestCoalescer coalescer = (RequestCoalescer) session.get(REQUEST_COALESCER_OBJECT);
+
+        if (coalescer != null) {
+            return coalescer;
+        }
+
+        session.writeLock();
+        try {
+            // try again
+            coalescer = (RequestCoalescer) session.get(REQUEST_COALESCER_OBJECT);
+            if (coalescer != null) {
+                return coalescer;
+            }
+
+            String operations = (String) session.get(SessionParameter.COALESCE_REQUESTS);
+            long timeout = session.get(SessionParameter.COALESCE_TIMEOUT, (int) RequestCoalescer.DEFAULT_TIMEOUT);
+            coalescer = new RequestCoalescer(operations, timeout);
+
+            session.put(REQUEST_COALESCER_OBJECT, coalescer, true);
+        } finally {
+            session.writeUnlock();
+        }
+
+        return coalescer;
+    }
+
     /**
      * Gets the HTTP Invoker object from the session.
      */
@@ -193,14 +226,10 @@ public final class CmisBindingsHelper {
             }
 
             // ok, we have to create it...
-            try {
-                String cacheName = (String) session.get(SessionParameter.TYPE_DEFINITION_CACHE_CLASS);
-                cache = (TypeDefinitionCache) ClassLoaderUtil.loadClass(cacheName).newInstance();
-                cache.initialize(session);
-            } catch (CmisBaseException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new CmisRuntimeException("Type definition cache cannot be initialized: " + e.getMessage(), e);
+            if (SharedBindingCaches.isEnabled(session)) {
+                cache = SharedBindingCaches.getTypeDefinitionCache(session);
+            } else {
+                cache = createTypeDefinitionCache(session);
             }
 
             // we have a cache object -> put it into the session
@@ -213,4 +242,21 @@ public final class CmisBindingsHelper {
 
         return cache;
     }
+
+    /**
+     * Creates and initializes the type definition cache configured in the
+     * session.
+     */
+    static TypeDefinitionCache createTypeDefinitionCache(BindingSession session) {
+        try {
+            String cacheName = (String) session.get(SessionParameter.TYPE_DEFINITION_CACHE_CLASS);
+            TypeDefinitionCache cache = (TypeDefinitionCache) ClassLoaderUtil.loadClass(cacheName).newInstance();
+            cache.initialize(session);
+            return cache;
+        } catch (CmisBaseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CmisRuntimeException("Type definition cache cannot be initialized: " + e.getMessage(), e);
+        }
+    }
 }
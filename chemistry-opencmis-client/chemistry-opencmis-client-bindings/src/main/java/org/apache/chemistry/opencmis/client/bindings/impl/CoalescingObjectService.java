@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.LinkAccess;
+import org.apache.chemistry.opencmis.commons.data.Acl;
+import org.apache.chemistry.opencmis.commons.data.AllowableActions;
+import org.apache.chemistry.opencmis.commons.data.BulkUpdateObjectIdAndChangeToken;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.FailedToDeleteData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.RenditionData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+
+/**
+ * Object service wrapper that coalesces identical concurrent
+ * {@code getObject} and {@code getObjectByPath} calls.
+ */
+class CoalescingObjectService implements ObjectService {
+
+    private final ObjectService service;
+    private final RequestCoalescer coalescer;
+
+    /**
+     * Wraps the given object service. If the service provides link access,
+     * the wrapper does, too.
+     */
+    static ObjectService wrap(ObjectService service, RequestCoalescer coalescer) {
+        if (service instanceof LinkAccess) {
+            return new LinkAccessObjectService(service, coalescer);
+        }
+
+        return new CoalescingObjectService(service, coalescer);
+    }
+
+    CoalescingObjectService(ObjectService service, RequestCoalescer coalescer) {
+        this.service = service;
+        this.coalescer = coalescer;
+    }
+
+    ObjectService getService() {
+        return service;
+    }
+
+    @Override
+    public ObjectData getObject(final String repositoryId, final String objectId, final String filter,
+            final Boolean includeAllowableActions, final IncludeRelationships includeRelationships,
+            final String renditionFilter, final Boolean includePolicyIds, final Boolean includeAcl,
+            final ExtensionsData extension) {
+        if (extension != null || !coalescer.isEnabled(RequestCoalescer.GET_OBJECT)) {
+            return service.getObject(repositoryId, objectId, filter, includeAllowableActions, includeRelationships,
+                    renditionFilter, includePolicyIds, includeAcl, extension);
+        }
+
+        List<Object> key = Arrays.<Object> asList(RequestCoalescer.GET_OBJECT, repositoryId, objectId, filter,
+                includeAllowableActions, includeRelationships, renditionFilter, includePolicyIds, includeAcl);
+
+        return coalescer.execute(key, new RequestCoalescer.Request<ObjectData>() {
+            @Override
+            public ObjectData execute() {
+                return service.getObject(repositoryId, objectId, filter, includeAllowableActions,
+                        includeRelationships, renditionFilter, includePolicyIds, includeAcl, null);
+            }
+        });
+    }
+
+    @Override
+    public ObjectData getObjectByPath(final String repositoryId, final String path, final String filter,
+            final Boolean includeAllowableActions, final IncludeRelationships includeRelationships,
+            final String renditionFilter, final Boolean includePolicyIds, final Boolean includeAcl,
+            final ExtensionsData extension) {
+        if (extension != null || !coalescer.isEnabled(RequestCoalescer.GET_OBJECT_BY_PATH)) {
+            return service.getObjectByPath(repositoryId, path, filter, includeAllowableActions, includeRelationships,
+                    renditionFilter, includePolicyIds, includeAcl, extension);
+        }
+
+        List<Object> key = Arrays.<Object> asList(RequestCoalescer.GET_OBJECT_BY_PATH, repositoryId, path, filter,
+                includeAllowableActions, includeRelationships, renditionFilter, includePolicyIds, includeAcl);
+
+        return coalescer.execute(key, new RequestCoalescer.Request<ObjectData>() {
+            @Override
+            public ObjectData execute() {
+                return service.getObjectByPath(repositoryId, path, filter, includeAllowableActions,
+                        includeRelationships, renditionFilter, includePolicyIds, includeAcl, null);
+            }
+        });
+    }
+
+    @Override
+    public String createDocument(String repositoryId, Properties properties, String folderId,
+            ContentStream contentStream, VersioningState versioningState, List<String> policies, Acl addAces,
+            Acl removeAces, ExtensionsData extension) {
+        return service.createDocument(repositoryId, properties, folderId, contentStream, versioningState, policies,
+                addAces, removeAces, extension);
+    }
+
+    @Override
+    public String createDocumentFromSource(String repositoryId, String sourceId, Properties properties, String folderId,
+            VersioningState versioningState, List<String> policies, Acl addAces, Acl removeAces,
+            ExtensionsData extension) {
+        return service.createDocumentFromSource(repositoryId, sourceId, properties, folderId, versioningState, policies,
+                addAces, removeAces, extension);
+    }
+
+    @Override
+    public String createFolder(String repositoryId, Properties properties, String folderId, List<String> policies,
+            Acl addAces, Acl removeAces, ExtensionsData extension) {
+        return service.createFolder(repositoryId, properties, folderId, policies, addAces, removeAces, extension);
+    }
+
+    @Override
+    public String createRelationship(String repositoryId, Properties properties, List<String> policies, Acl addAces,
+            Acl removeAces, ExtensionsData extension) {
+        return service.createRelationship(repositoryId, properties, policies, addAces, removeAces, extension);
+    }
+
+    @Override
+    public String createPolicy(String repositoryId, Properties properties, String folderId, List<String> policies,
+            Acl addAces, Acl removeAces, ExtensionsData extension) {
+        return service.createPolicy(repositoryId, properties, folderId, policies, addAces, removeAces, extension);
+    }
+
+    @Override
+    public String createItem(String repositoryId, Properties properties, String folderId, List<String> policies,
+            Acl addAces, Acl removeAces, ExtensionsData extension) {
+        return service.createItem(repositoryId, properties, folderId, policies, addAces, removeAces, extension);
+    }
+
+    @Override
+    public AllowableActions getAllowableActions(String repositoryId, String objectId, ExtensionsData extension) {
+        return service.getAllowableActions(repositoryId, objectId, extension);
+    }
+
+    @Override
+    public Properties getProperties(String repositoryId, String objectId, String filter, ExtensionsData extension) {
+        return service.getProperties(repositoryId, objectId, filter, extension);
+    }
+
+    @Override
+    public List<RenditionData> getRenditions(String repositoryId, String objectId, String renditionFilter,
+            BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+        return service.getRenditions(repositoryId, objectId, renditionFilter, maxItems, skipCount, extension);
+    }
+
+    @Override
+    public ContentStream getContentStream(String repositoryId, String objectId, String streamId, BigInteger offset,
+            BigInteger length, ExtensionsData extension) {
+        return service.getContentStream(repositoryId, objectId, streamId, offset, length, extension);
+    }
+
+    @Override
+    public void updateProperties(String repositoryId, Holder<String> objectId, Holder<String> changeToken,
+            Properties properties, ExtensionsData extension) {
+        service.updateProperties(repositoryId, objectId, changeToken, properties, extension);
+    }
+
+    @Override
+    public List<BulkUpdateObjectIdAndChangeToken> bulkUpdateProperties(String repositoryId,
+            List<BulkUpdateObjectIdAndChangeToken> objectIdsAndChangeTokens, Properties properties,
+            List<String> addSecondaryTypeIds, List<String> removeSecondaryTypeIds, ExtensionsData extension) {
+        return service.bulkUpdateProperties(repositoryId, objectIdsAndChangeTokens, properties, addSecondaryTypeIds,
+                removeSecondaryTypeIds, extension);
+    }
+
+    @Override
+    public void moveObject(String repositoryId, Holder<String> objectId, String targetFolderId, String sourceFolderId,
+            ExtensionsData extension) {
+        service.moveObject(repositoryId, objectId, targetFolderId, sourceFolderId, extension);
+    }
+
+    @Override
+    public void deleteObject(String repositoryId, String objectId, Boolean allVersions, ExtensionsData extension) {
+        service.deleteObject(repositoryId, objectId, allVersions, extension);
+    }
+
+    @Override
+    public FailedToDeleteData deleteTree(String repositoryId, String folderId, Boolean allVersions,
+            UnfileObject unfileObjects, Boolean continueOnFailure, ExtensionsData extension) {
+        return service.deleteTree(repositoryId, folderId, allVersions, unfileObjects, continueOnFailure, extension);
+    }
+
+    @Override
+    public void setContentStream(String repositoryId, Holder<String> objectId, Boolean overwriteFlag,
+            Holder<String> changeToken, ContentStream contentStream, ExtensionsData extension) {
+        service.setContentStream(repositoryId, objectId, overwriteFlag, changeToken, contentStream, extension);
+    }
+
+    @Override
+    public void deleteContentStream(String repositoryId, Holder<String> objectId, Holder<String> changeToken,
+            ExtensionsData extension) {
+        service.deleteContentStream(repositoryId, objectId, changeToken, extension);
+    }
+
+    @Override
+    public void appendContentStream(String repositoryId, Holder<String> objectId, Holder<String> changeToken,
+            ContentStream contentStream, boolean isLastChunk, ExtensionsData extension) {
+        service.appendContentStream(repositoryId, objectId, changeToken, contentStream, isLastChunk, extension);
+    }
+
+    /**
+     * Variant for services that provide link access.
+     */
+    static class LinkAccessObjectService extends CoalescingObjectService implements LinkAccess {
+
+        LinkAccessObjectService(ObjectService service, RequestCoalescer coalescer) {
+            super(service, coalescer);
+        }
+
+        @Override
+        public String loadLink(String repositoryId, String objectId, String rel, String type) {
+            return ((LinkAccess) getService()).loadLink(repositoryId, objectId, rel, type);
+        }
+
+        @Override
+        public String loadContentLink(String repositoryId, String documentId) {
+            return ((LinkAccess) getService()).loadContentLink(repositoryId, documentId);
+        }
+
+        @Override
+        public String loadRenditionContentLink(String repositoryId, String documentId, String streamId) {
+            return ((LinkAccess) getService()).loadRenditionContentLink(repositoryId, documentId, streamId);
+        }
+    }
+}
@@ -94,6 +94,13 @@ public class RepositoryInfoCache implements Serializable {
         cache.remove(repositoryId);
     }
 
+    /**
+     * Removes all repository info objects from the cache.
+     */
+    public void removeAll() {
+        cache.removeAll();
+    }
+
     @Override
     public String toString() {
         return cache.toString();
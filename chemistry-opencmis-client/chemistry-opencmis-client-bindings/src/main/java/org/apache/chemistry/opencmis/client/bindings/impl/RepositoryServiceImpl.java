@@ -22,6 +22,7 @@ import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNot
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
@@ -70,7 +71,7 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
             }
         }
 
-        // it was not in the cache -> get the SPI and fetch the repository info
+        // get the SPI and fetch the repository info
         CmisSpi spi = CmisBindingsHelper.getSPI(session);
         result = spi.getRepositoryService().getRepositoryInfo(repositoryId, extension);
 
@@ -79,6 +80,11 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
             cache.put(result);
         }
 
+        // fill the type definition cache from the snapshot
+        if (!hasExtension && result != null && RepositorySnapshot.isEnabled(session)) {
+            RepositorySnapshot.restore(session, repositoryId, result);
+        }
+
         return result;
     }
 
@@ -132,8 +138,8 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
     }
 
     @Override
-    public TypeDefinition getTypeDefinition(String repositoryId, String typeId, ExtensionsData extension,
-            boolean useCache) {
+    public TypeDefinition getTypeDefinition(final String repositoryId, final String typeId,
+            final ExtensionsData extension, boolean useCache) {
         TypeDefinition result = null;
         boolean hasExtension = (extension != null) && isNotEmpty(extension.getExtensions());
 
@@ -149,8 +155,19 @@ public class RepositoryServiceImpl implements RepositoryService, ExtendedReposit
         }
 
         // it was not in the cache -> get the SPI and fetch the type definition
-        CmisSpi spi = CmisBindingsHelper.getSPI(session);
-        result = spi.getRepositoryService().getTypeDefinition(repositoryId, typeId, extension);
+        final CmisSpi spi = CmisBindingsHelper.getSPI(session);
+        RequestCoalescer coalescer = CmisBindingsHelper.getRequestCoalescer(session);
+        if (!hasExtension && coalescer.isEnabled(RequestCoalescer.GET_TYPE_DEFINITION)) {
+            List<String> key = Arrays.asList(RequestCoalescer.GET_TYPE_DEFINITION, repositoryId, typeId);
+            result = coalescer.execute(key, new RequestCoalescer.Request<TypeDefinition>() {
+                @Override
+                public TypeDefinition execute() {
+                    return spi.getRepositoryService().getTypeDefinition(repositoryId, typeId, extension);
+                }
+            });
+        } else {
+            result = spi.getRepositoryService().getTypeDefinition(repositoryId, typeId, extension);
+        }
 
         // put it into the cache
         if (!hasExtension && (result != null)) {
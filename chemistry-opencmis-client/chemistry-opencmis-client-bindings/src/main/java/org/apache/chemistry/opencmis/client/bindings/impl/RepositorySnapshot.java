@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk snapshot of a repository info and the type definitions of a
+ * repository.
+ * <p>
+ * Snapshots are stored in the JSON format of the Browser Binding.
+ * <p>
+ * If {@link SessionParameter#CACHE_SNAPSHOT_DIRECTORY} is set, a new type
+ * definition cache is filled with the type definitions of the snapshot when
+ * the repository info is fetched from the repository for the first time. A
+ * cache is filled only once per repository, caches that have been cleared are
+ * filled by the repository again. The repository info itself is always
+ * fetched, the snapshot only tells whether its type definitions still fit:
+ * they are ignored if the product name, product version or CMIS version of the
+ * repository have changed, or if the repository reports a latest change log
+ * token that differs from the one of the snapshot.
+ * <p>
+ * The snapshot is then refreshed in the background, at most once per
+ * {@link #REFRESH_INTERVAL} for an endpoint and repository: the type
+ * definitions are fetched from the repository, replace the cached ones, and
+ * are written back to disk together with the repository info.
+ */
+final class RepositorySnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositorySnapshot.class);
+
+    private static final String SUFFIX = ".snapshot.json";
+    private static final String JSON_REPOSITORY_INFO = "repositoryInfo";
+    private static final String JSON_TYPES = "types";
+
+    /** Minimum time between two refreshes of a snapshot in milliseconds. */
+    static final long REFRESH_INTERVAL = 60 * 60 * 1000L;
+
+    private static final Map<String, Long> REFRESHED = new HashMap<String, Long>();
+
+    /** The repositories whose snapshot has been restored into a cache. */
+    private static final Map<TypeDefinitionCache, Set<String>> RESTORED = new WeakHashMap<TypeDefinitionCache, Set<String>>();
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "OpenCMIS Repository Snapshot");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private RepositorySnapshot() {
+    }
+
+    /**
+     * Returns whether snapshots are turned on for this session.
+     */
+    static boolean isEnabled(BindingSession session) {
+        return session.get(SessionParameter.CACHE_SNAPSHOT_DIRECTORY) != null;
+    }
+
+    /**
+     * Adds the type definitions of the snapshot of a repository to the type
+     * definition cache if the snapshot has been taken from the same
+     * repository version and state and the cache hasn't been filled from the
+     * snapshot before, and schedules a refresh.
+     *
+     * @param repositoryInfo
+     *            the repository info that has just been fetched from the
+     *            repository
+     */
+    static void restore(BindingSession session, String repositoryId, RepositoryInfo repositoryInfo) {
+        File file = getFile(session, repositoryId);
+        TypeDefinitionCache cache = CmisBindingsHelper.getTypeDefinitionCache(session);
+
+        if (markRestored(cache, repositoryId) && file.isFile()) {
+            List<TypeDefinition> typeDefinitions = new ArrayList<TypeDefinition>();
+            RepositoryInfo snapshotInfo = null;
+            try {
+                snapshotInfo = read(file, typeDefinitions);
+            } catch (Exception e) {
+                // broken or written by an incompatible version
+                LOG.debug("Cannot read repository snapshot {}: {}", file, e.toString(), e);
+                file.delete();
+            }
+
+            if (snapshotInfo != null && repositoryId.equals(snapshotInfo.getId())) {
+                if (isSameRepositoryState(snapshotInfo, repositoryInfo)) {
+                    for (TypeDefinition typeDefinition : typeDefinitions) {
+                        cache.put(repositoryId, typeDefinition);
+                    }
+                } else {
+                    // the repository has been upgraded or changed, cached
+                    // type definitions may be outdated
+                    cache.remove(repositoryId);
+                }
+            }
+        }
+
+        scheduleRefresh(session, repositoryId, repositoryInfo, file);
+    }
+
+    /**
+     * Records that the snapshot of a repository is restored into a cache.
+     *
+     * @return {@code true} if the cache hasn't been filled from the snapshot
+     *         of the repository before
+     */
+    private static boolean markRestored(TypeDefinitionCache cache, String repositoryId) {
+        synchronized (RESTORED) {
+            Set<String> repositoryIds = RESTORED.get(cache);
+            if (repositoryIds == null) {
+                repositoryIds = new HashSet<String>();
+                RESTORED.put(cache, repositoryIds);
+            }
+            return repositoryIds.add(repositoryId);
+        }
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param typeDefinitions
+     *            the list the type definitions of the snapshot are added to
+     * @return the repository info of the snapshot or {@code null} if the file
+     *         doesn't contain a snapshot
+     */
+    static RepositoryInfo read(File file, List<TypeDefinition> typeDefinitions) throws Exception {
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), IOUtils.UTF8));
+        try {
+            Object json = new JSONParser().parse(reader);
+            if (!(json instanceof Map)) {
+                return null;
+            }
+
+            Map<?, ?> snapshot = (Map<?, ?>) json;
+            if (snapshot.get(JSON_TYPES) instanceof List) {
+                for (Object type : (List<?>) snapshot.get(JSON_TYPES)) {
+                    TypeDefinition typeDefinition = JSONConverter.convertTypeDefinition(getMap(type));
+                    if (typeDefinition != null) {
+                        typeDefinitions.add(typeDefinition);
+                    }
+                }
+            }
+
+            return JSONConverter.convertRepositoryInfo(getMap(snapshot.get(JSON_REPOSITORY_INFO)));
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Refreshes the snapshot of a repository in the background unless that has
+     * happened less than {@link #REFRESH_INTERVAL} ago.
+     */
+    private static void scheduleRefresh(final BindingSession session, final String repositoryId,
+            final RepositoryInfo repositoryInfo, final File file) {
+        final String key = file.getAbsolutePath();
+
+        synchronized (REFRESHED) {
+            long now = System.currentTimeMillis();
+            Long lastRefresh = REFRESHED.get(key);
+            if (lastRefresh != null && now - lastRefresh.longValue() < REFRESH_INTERVAL) {
+                return;
+            }
+            REFRESHED.put(key, now);
+        }
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh(session, repositoryId, repositoryInfo, file);
+                } catch (Exception e) {
+                    // try again with the next session
+                    synchronized (REFRESHED) {
+                        REFRESHED.remove(key);
+                    }
+                    LOG.debug("Cannot refresh repository snapshot {}: {}", file, e.toString(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetches the type definitions of a repository, puts them into the type
+     * definition cache and writes the snapshot file.
+     */
+    static void refresh(BindingSession session, String repositoryId, RepositoryInfo repositoryInfo, File file)
+            throws IOException {
+        CmisSpi spi = CmisBindingsHelper.getSPI(session);
+
+        List<TypeDefinitionContainer> types = spi.getRepositoryService().getTypeDescendants(repositoryId, null,
+                BigInteger.valueOf(-1), Boolean.TRUE, null);
+
+        List<TypeDefinition> typeDefinitions = new ArrayList<TypeDefinition>();
+        collectTypeDefinitions(types, typeDefinitions);
+
+        TypeDefinitionCache typeCache = CmisBindingsHelper.getTypeDefinitionCache(session);
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            typeCache.put(repositoryId, typeDefinition);
+        }
+
+        JSONArray jsonTypes = new JSONArray();
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            jsonTypes.add(JSONConverter.convert(typeDefinition, DateTimeFormat.SIMPLE));
+        }
+
+        JSONObject json = new JSONObject();
+        json.put(JSON_REPOSITORY_INFO, JSONConverter.convert(repositoryInfo, null, null, false));
+        json.put(JSON_TYPES, jsonTypes);
+
+        // write to a temporary file first, readers never see a partial
+        // snapshot
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), IOUtils.UTF8));
+        try {
+            json.writeJSONString(writer);
+            writer.close();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(writer);
+            tempFile.delete();
+            throw e;
+        }
+
+        // renaming replaces the file atomically on most platforms, others
+        // (Windows) don't rename over an existing file
+        if (!tempFile.renameTo(file)) {
+            file.delete();
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                throw new IOException("Cannot write repository snapshot: " + file);
+            }
+        }
+    }
+
+    /**
+     * Compares the repository info of a snapshot with the current one. The
+     * change log token is only compared if the repository reports one.
+     */
+    private static boolean isSameRepositoryState(RepositoryInfo snapshotInfo, RepositoryInfo currentInfo) {
+        return isEqual(snapshotInfo.getProductName(), currentInfo.getProductName())
+                && isEqual(snapshotInfo.getProductVersion(), currentInfo.getProductVersion())
+                && isEqual(snapshotInfo.getCmisVersionSupported(), currentInfo.getCmisVersionSupported())
+                && (currentInfo.getLatestChangeLogToken() == null || isEqual(
+                        snapshotInfo.getLatestChangeLogToken(), currentInfo.getLatestChangeLogToken()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getMap(Object json) {
+        return json instanceof Map ? (Map<String, Object>) json : null;
+    }
+
+    private static boolean isEqual(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    private static void collectTypeDefinitions(List<TypeDefinitionContainer> containers,
+            List<TypeDefinition> typeDefinitions) {
+        if (containers == null) {
+            return;
+        }
+
+        for (TypeDefinitionContainer container : containers) {
+            if (container.getTypeDefinition() != null) {
+                typeDefinitions.add(container.getTypeDefinition());
+            }
+            collectTypeDefinitions(container.getChildren(), typeDefinitions);
+        }
+    }
+
+    /**
+     * Returns the snapshot file of a repository. The file name is derived
+     * from the endpoint, the user and the repository id.
+     */
+    static File getFile(BindingSession session, String repositoryId) {
+        File directory = new File(session.get(SessionParameter.CACHE_SNAPSHOT_DIRECTORY).toString());
+        if (!directory.isDirectory()) {
+            directory.mkdirs();
+        }
+
+        String key = SharedBindingCaches.getEndpointKey(session, true) + repositoryId;
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (byte b : md.digest(IOUtils.toUTF8Bytes(key))) {
+                sb.append(Character.forDigit((b >> 4) & 0x0F, 16));
+                sb.append(Character.forDigit(b & 0x0F, 16));
+            }
+        } catch (Exception e) {
+            // SHA-1 is always available
+            sb.append(Integer.toHexString(key.hashCode()));
+        }
+        sb.append(SUFFIX);
+
+        return new File(directory, sb.toString());
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Coalesces identical read requests that are in flight at the same time.
+ * <p>
+ * The first thread that issues a request (the leader) sends it to the
+ * repository. Threads that issue the same request while the leader is waiting
+ * for the response (the followers) get the leader's result or exception
+ * instead of sending their own request. Followers that have waited longer
+ * than the timeout send their own request.
+ * <p>
+ * Followers and the leader share the returned data objects. Callers must not
+ * modify them.
+ */
+public class RequestCoalescer {
+
+    public static final String GET_OBJECT = "getObject";
+    public static final String GET_OBJECT_BY_PATH = "getObjectByPath";
+    public static final String GET_TYPE_DEFINITION = "getTypeDefinition";
+
+    /** Default time in milliseconds a follower waits for the leader. */
+    public static final long DEFAULT_TIMEOUT = 30 * 1000;
+
+    private final Set<String> enabledOperations;
+    private final long timeout;
+
+    private final ConcurrentMap<Object, Flight<?>> flights = new ConcurrentHashMap<Object, Flight<?>>();
+
+    private final AtomicLong leaderCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * 
+     * @param operations
+     *            comma separated list of the operations that should be
+     *            coalesced, for example {@code "getObject,getTypeDefinition"}
+     * @param timeout
+     *            time in milliseconds a follower waits for the leader
+     */
+    public RequestCoalescer(String operations, long timeout) {
+        Set<String> ops = new HashSet<String>();
+        if (operations != null) {
+            for (String op : operations.split(",")) {
+                op = op.trim();
+                if (op.length() > 0) {
+                    ops.add(op);
+                }
+            }
+        }
+
+        this.enabledOperations = Collections.unmodifiableSet(ops);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns whether requests of the given operation are coalesced.
+     */
+    public boolean isEnabled(String operation) {
+        return enabledOperations.contains(operation);
+    }
+
+    /**
+     * Returns whether requests of any operation are coalesced.
+     */
+    public boolean isEnabled() {
+        return !enabledOperations.isEmpty();
+    }
+
+    /**
+     * Returns the number of requests that have been sent to the repository
+     * by a leader.
+     */
+    public long getLeaderCount() {
+        return leaderCount.get();
+    }
+
+    /**
+     * Returns the number of requests that have been answered with the result
+     * of a leader.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of followers that have stopped waiting and have sent
+     * their own request.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Returns the number of followers that are currently waiting for a leader.
+     */
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    /**
+     * Executes a request or waits for an identical request that is already in
+     * flight.
+     * 
+     * @param key
+     *            the request key, requests with equal keys must return equal
+     *            results
+     * @param request
+     *            the request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Request<T> request) {
+        Flight<T> flight = new Flight<T>();
+        Flight<T> leader = (Flight<T>) flights.putIfAbsent(key, flight);
+
+        if (leader == null) {
+            leaderCount.incrementAndGet();
+            try {
+                T result = request.execute();
+                flight.complete(result, null);
+                return result;
+            } catch (RuntimeException e) {
+                flight.complete(null, e);
+                throw e;
+            } catch (Error e) {
+                flight.fail();
+                throw e;
+            } finally {
+                flights.remove(key, flight);
+            }
+        }
+
+        waitingCount.incrementAndGet();
+        try {
+            if (leader.await(timeout)) {
+                coalescedCount.incrementAndGet();
+                return leader.getResult();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Interrupted while waiting for a response!", e);
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+
+        timeoutCount.incrementAndGet();
+        return request.execute();
+    }
+
+    /**
+     * A request that can be coalesced.
+     */
+    public interface Request<T> {
+        T execute();
+    }
+
+    /**
+     * The state of a request in flight.
+     */
+    private static class Flight<T> {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile T result;
+        private volatile RuntimeException exception;
+        private volatile boolean failed;
+
+        void complete(T result, RuntimeException exception) {
+            this.result = result;
+            this.exception = exception;
+            done.countDown();
+        }
+
+        void fail() {
+            failed = true;
+            done.countDown();
+        }
+
+        /**
+         * Waits for the leader.
+         * 
+         * @return {@code false} if the leader didn't deliver a result in time
+         */
+        boolean await(long timeout) throws InterruptedException {
+            return done.await(timeout, TimeUnit.MILLISECONDS) && !failed;
+        }
+
+        T getResult() {
+            if (exception != null) {
+                throw exception;
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+/**
+ * Process-wide type definition and repository info caches.
+ * <p>
+ * Sessions that have {@link SessionParameter#CACHE_SHARED} turned on share one
+ * type definition cache and one repository info cache if they connect to the
+ * same endpoint with the same binding, forced CMIS version, locale and cache
+ * settings. Repositories may return type definitions and repository infos in
+ * different languages. The caches are keyed by repository id internally.
+ * <p>
+ * By default the caches are shared across users. Sessions that connect to a
+ * repository that returns different type definitions or repository infos to
+ * different users turn on {@link SessionParameter#CACHE_SHARED_PER_USER}. They
+ * then only share the caches with sessions of the same user (taken from
+ * {@link SessionParameter#USER}) and authentication provider.
+ * <p>
+ * The caches are held weakly and are dropped when the last session that uses
+ * them is gone.
+ * <p>
+ * Cached type definitions and repository infos are handed out to all these
+ * sessions and must not be modified.
+ */
+public final class SharedBindingCaches {
+
+    private static final String[] ENDPOINT_PARAMETERS = new String[] { SessionParameter.BINDING_SPI_CLASS,
+            SessionParameter.ATOMPUB_URL, SessionParameter.BROWSER_URL,
+            SessionParameter.WEBSERVICES_REPOSITORY_SERVICE, SessionParameter.WEBSERVICES_REPOSITORY_SERVICE_ENDPOINT,
+            SessionParameter.LOCAL_FACTORY, SessionParameter.FORCE_CMIS_VERSION,
+            SessionParameter.LOCALE_ISO639_LANGUAGE, SessionParameter.LOCALE_ISO3166_COUNTRY,
+            SessionParameter.LOCALE_VARIANT, SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+            SessionParameter.CACHE_SIZE_REPOSITORIES, SessionParameter.CACHE_SIZE_TYPES };
+
+    private static final String[] USER_PARAMETERS = new String[] { SessionParameter.USER,
+            SessionParameter.AUTHENTICATION_PROVIDER_CLASS };
+
+    private static final Map<String, WeakReference<TypeDefinitionCache>> TYPE_DEFINITION_CACHES = new HashMap<String, WeakReference<TypeDefinitionCache>>();
+    private static final Map<String, WeakReference<RepositoryInfoCache>> REPOSITORY_INFO_CACHES = new HashMap<String, WeakReference<RepositoryInfoCache>>();
+
+    /**
+     * Private constructor.
+     */
+    private SharedBindingCaches() {
+    }
+
+    /**
+     * Returns whether the session uses the shared caches.
+     */
+    public static boolean isEnabled(BindingSession session) {
+        return session.get(SessionParameter.CACHE_SHARED, false);
+    }
+
+    /**
+     * Returns the shared type definition cache for the endpoint of the
+     * session.
+     */
+    public static TypeDefinitionCache getTypeDefinitionCache(BindingSession session) {
+        String key = getEndpointKey(session, session.get(SessionParameter.CACHE_SHARED_PER_USER, false));
+
+        synchronized (TYPE_DEFINITION_CACHES) {
+            WeakReference<TypeDefinitionCache> ref = TYPE_DEFINITION_CACHES.get(key);
+            TypeDefinitionCache cache = (ref == null ? null : ref.get());
+            if (cache == null) {
+                removeCollected(TYPE_DEFINITION_CACHES);
+                cache = CmisBindingsHelper.createTypeDefinitionCache(session);
+                TYPE_DEFINITION_CACHES.put(key, new WeakReference<TypeDefinitionCache>(cache));
+            }
+
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the shared repository info cache for the endpoint of the
+     * session.
+     */
+    public static RepositoryInfoCache getRepositoryInfoCache(BindingSession session) {
+        String key = getEndpointKey(session, session.get(SessionParameter.CACHE_SHARED_PER_USER, false));
+
+        synchronized (REPOSITORY_INFO_CACHES) {
+            WeakReference<RepositoryInfoCache> ref = REPOSITORY_INFO_CACHES.get(key);
+            RepositoryInfoCache cache = (ref == null ? null : ref.get());
+            if (cache == null) {
+                removeCollected(REPOSITORY_INFO_CACHES);
+                cache = new RepositoryInfoCache(session);
+                REPOSITORY_INFO_CACHES.put(key, new WeakReference<RepositoryInfoCache>(cache));
+            }
+
+            return cache;
+        }
+    }
+
+    /**
+     * Removes all shared caches.
+     */
+    public static void clear() {
+        synchronized (TYPE_DEFINITION_CACHES) {
+            TYPE_DEFINITION_CACHES.clear();
+        }
+        synchronized (REPOSITORY_INFO_CACHES) {
+            REPOSITORY_INFO_CACHES.clear();
+        }
+    }
+
+    /**
+     * Removes the entries of caches no session uses anymore.
+     */
+    private static <T> void removeCollected(Map<String, WeakReference<T>> caches) {
+        Iterator<WeakReference<T>> iter = caches.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().get() == null) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Builds a key that identifies the endpoint, the locale and the cache
+     * settings of the session and, if requested, the user.
+     */
+    static String getEndpointKey(BindingSession session, boolean perUser) {
+        StringBuilder sb = new StringBuilder();
+        appendParameters(sb, session, ENDPOINT_PARAMETERS);
+        if (perUser) {
+            appendParameters(sb, session, USER_PARAMETERS);
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendParameters(StringBuilder sb, BindingSession session, String[] parameters) {
+        for (String parameter : parameters) {
+            Object value = session.get(parameter);
+            sb.append(value == null ? "" : value.toString()).append('\n');
+        }
+    }
+}
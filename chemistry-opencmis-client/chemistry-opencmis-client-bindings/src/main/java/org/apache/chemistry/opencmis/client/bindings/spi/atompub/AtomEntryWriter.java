@@ -37,6 +37,7 @@ import java.util.TimeZone;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.chemistry.opencmis.client.bindings.spi.http.ContentAwareOutput;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
@@ -54,7 +55,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.BulkUpdateImpl;
 /**
  * Writes a CMIS Atom entry to an output stream.
  */
-public class AtomEntryWriter {
+public class AtomEntryWriter implements ContentAwareOutput {
 
     private static final int BUFFER_SIZE = 64 * 1024;
 
@@ -135,11 +136,44 @@ public class AtomEntryWriter {
         this.stream = null;
     }
 
+    @Override
+    public String getPayloadMimeType() {
+        return contentStream == null ? null : contentStream.getMimeType();
+    }
+
+    /**
+     * Returns a rough estimate of the entry length.
+     */
+    @Override
+    public long getLength() {
+        if (object == null) {
+            return -1;
+        }
+
+        long length = 512;
+        if (object.getProperties().getPropertyList() != null) {
+            length += 128L * object.getProperties().getPropertyList().size();
+        }
+
+        if (contentStream != null) {
+            long contentLength = contentStream.getLength();
+            if (contentLength < 0) {
+                return -1;
+            }
+
+            // Base64 encoded
+            length += (contentLength + 2) / 3 * 4;
+        }
+
+        return length;
+    }
+
     /**
      * Writes the entry to an output stream.
      * 
      * @throws XMLStreamException
      */
+    @Override
     public void write(OutputStream out) throws XMLStreamException, IOException {
         XMLStreamWriter writer = XMLUtils.createWriter(out);
 
@@ -18,13 +18,7 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
 
-import java.io.IOException;
-import java.io.OutputStream;
-
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
@@ -65,12 +59,7 @@ public class MultiFilingServiceImpl extends AbstractAtomPubService implements Mu
         final AtomEntryWriter entryWriter = new AtomEntryWriter(createIdObject(objectId), getCmisVersion(repositoryId));
 
         // post addObjectToFolder request
-        postAndConsume(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        postAndConsume(url, Constants.MEDIATYPE_ENTRY, entryWriter);
     }
 
     @Override
@@ -93,11 +82,6 @@ public class MultiFilingServiceImpl extends AbstractAtomPubService implements Mu
         final AtomEntryWriter entryWriter = new AtomEntryWriter(createIdObject(objectId), getCmisVersion(repositoryId));
 
         // post removeObjectFromFolder request
-        postAndConsume(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        postAndConsume(url, Constants.MEDIATYPE_ENTRY, entryWriter);
     }
 }
@@ -27,15 +27,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomAllowableActions;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.ContentAwareOutput;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
@@ -119,12 +117,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 getCmisVersion(repositoryId), contentStream);
 
         // post the new folder object
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -161,12 +154,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 getCmisVersion(repositoryId));
 
         // post the new folder object
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -210,12 +198,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 getCmisVersion(repositoryId));
 
         // post the new folder object
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -255,12 +238,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 getCmisVersion(repositoryId));
 
         // post the new folder object
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -301,12 +279,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 getCmisVersion(repositoryId));
 
         // post the new folder object
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -349,12 +322,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 : changeToken.getValue(), null), getCmisVersion(repositoryId));
 
         // update
-        Response resp = put(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = put(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse new entry
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -421,12 +389,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
         final AtomEntryWriter entryWriter = new AtomEntryWriter(bulkUpdate);
 
         // post the new folder object
-        Response resp = post(new UrlBuilder(link), Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(new UrlBuilder(link), Constants.MEDIATYPE_ENTRY, entryWriter);
 
         AtomFeed feed = parse(resp.getStream(), AtomFeed.class);
         List<BulkUpdateObjectIdAndChangeToken> result = new ArrayList<BulkUpdateObjectIdAndChangeToken>(feed
@@ -713,12 +676,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
                 getCmisVersion(repositoryId));
 
         // post move request
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // workaround for SharePoint 2010 - see CMIS-839
         if (objectIdOnMove) {
@@ -844,6 +802,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
         }
 
         final InputStream stream = contentStream.getStream();
+        final long length = contentStream.getLength();
 
         // Content-Disposition header for the filename
         Map<String, String> headers = null;
@@ -856,7 +815,17 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
         }
 
         // send content
-        Response resp = put(url, contentStream.getMimeType(), headers, new Output() {
+        Response resp = put(url, contentStream.getMimeType(), headers, new ContentAwareOutput() {
+            @Override
+            public String getPayloadMimeType() {
+                return null;
+            }
+
+            @Override
+            public long getLength() {
+                return length;
+            }
+
             @Override
             public void write(OutputStream out) throws IOException {
                 IOUtils.copy(stream, out);
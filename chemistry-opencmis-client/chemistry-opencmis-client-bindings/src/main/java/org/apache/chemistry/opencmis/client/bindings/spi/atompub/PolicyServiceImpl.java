@@ -18,19 +18,14 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
@@ -67,12 +62,7 @@ public class PolicyServiceImpl extends AbstractAtomPubService implements PolicyS
         final AtomEntryWriter entryWriter = new AtomEntryWriter(createIdObject(policyId), getCmisVersion(repositoryId));
 
         // post applyPolicy request
-        postAndConsume(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        postAndConsume(url, Constants.MEDIATYPE_ENTRY, entryWriter);
     }
 
     @Override
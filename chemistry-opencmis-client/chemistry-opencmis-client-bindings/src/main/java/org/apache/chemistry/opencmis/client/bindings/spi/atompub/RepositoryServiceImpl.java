@@ -18,22 +18,17 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
@@ -249,12 +244,7 @@ public class RepositoryServiceImpl extends AbstractAtomPubService implements Rep
         final AtomEntryWriter entryWriter = new AtomEntryWriter(type, getCmisVersion(repositoryId));
 
         // post the new type definition
-        Response resp = post(new UrlBuilder(link), Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(new UrlBuilder(link), Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -309,12 +299,7 @@ public class RepositoryServiceImpl extends AbstractAtomPubService implements Rep
         final AtomEntryWriter entryWriter = new AtomEntryWriter(type, getCmisVersion(repositoryId));
 
         // post the new type definition
-        Response resp = put(new UrlBuilder(link), Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = put(new UrlBuilder(link), Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -18,19 +18,14 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.stream.XMLStreamException;
-
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
@@ -93,12 +88,7 @@ public class VersioningServiceImpl extends AbstractAtomPubService implements Ver
                 getCmisVersion(repositoryId));
 
         // post move request
-        Response resp = post(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = post(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse the response
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
@@ -212,12 +202,7 @@ public class VersioningServiceImpl extends AbstractAtomPubService implements Ver
                 getCmisVersion(repositoryId), contentStream);
 
         // update
-        Response resp = put(url, Constants.MEDIATYPE_ENTRY, new Output() {
-            @Override
-            public void write(OutputStream out) throws XMLStreamException, IOException {
-                entryWriter.write(out);
-            }
-        });
+        Response resp = put(url, Constants.MEDIATYPE_ENTRY, entryWriter);
 
         // parse new entry
         AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
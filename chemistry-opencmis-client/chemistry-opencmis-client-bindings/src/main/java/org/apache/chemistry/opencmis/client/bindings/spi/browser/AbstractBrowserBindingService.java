@@ -18,6 +18,7 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
@@ -36,6 +37,8 @@ import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.PropertyString;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
@@ -60,16 +63,19 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisTooManyRequestsExcep
 import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisUpdateConflictException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisVersioningException;
+import org.apache.chemistry.opencmis.commons.impl.DeferringTypeCache;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoBrowserBindingImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.ContainerFactory;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONStreamReader;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 
 /**
@@ -397,6 +403,94 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
         return obj;
     }
 
+    /**
+     * Parses an object list from an input stream. The objects are converted
+     * while the stream is read. Objects that need a type definition that is
+     * not cached yet are converted after the stream has been consumed.
+     */
+    protected ObjectList parseObjectList(InputStream stream, String charset, final TypeCache typeCache,
+            final boolean isQueryResult, final Holder<String> changeLogToken) {
+        final TypeCache streamTypeCache = deferTypeCache(typeCache);
+        ObjectList result = parse(stream, charset, new StreamConverter<ObjectList>() {
+            @Override
+            public ObjectList convert(JSONStreamReader reader) throws IOException, JSONParseException {
+                return JSONConverter.convertObjectList(reader, streamTypeCache, isQueryResult, changeLogToken);
+            }
+        });
+        convertDeferred(streamTypeCache);
+        return result;
+    }
+
+    /**
+     * Parses a folder list from an input stream. The entries are converted
+     * while the stream is read. Entries that need a type definition that is
+     * not cached yet are converted after the stream has been consumed.
+     */
+    protected ObjectInFolderList parseObjectInFolderList(InputStream stream, String charset,
+            final TypeCache typeCache) {
+        final TypeCache streamTypeCache = deferTypeCache(typeCache);
+        ObjectInFolderList result = parse(stream, charset, new StreamConverter<ObjectInFolderList>() {
+            @Override
+            public ObjectInFolderList convert(JSONStreamReader reader) throws IOException, JSONParseException {
+                return JSONConverter.convertObjectInFolderList(reader, streamTypeCache);
+            }
+        });
+        convertDeferred(streamTypeCache);
+        return result;
+    }
+
+    /**
+     * Wraps a client type cache so that no type definition is fetched while a
+     * response stream is still open.
+     */
+    private static TypeCache deferTypeCache(final TypeCache typeCache) {
+        if (!(typeCache instanceof ClientTypeCacheImpl)) {
+            return typeCache;
+        }
+
+        return new DeferringTypeCache(typeCache) {
+            @Override
+            protected TypeDefinition getCachedTypeDefinition(String typeId) {
+                return ((ClientTypeCacheImpl) typeCache).getCachedTypeDefinition(typeId);
+            }
+        };
+    }
+
+    private static void convertDeferred(TypeCache typeCache) {
+        if (typeCache instanceof DeferringTypeCache) {
+            ((DeferringTypeCache) typeCache).convertDeferred();
+        }
+    }
+
+    private interface StreamConverter<T> {
+        T convert(JSONStreamReader reader) throws IOException, JSONParseException;
+    }
+
+    private <T> T parse(InputStream stream, String charset, StreamConverter<T> converter) {
+
+        InputStreamReader reader = null;
+
+        T result = null;
+        try {
+            reader = new InputStreamReader(stream, charset);
+            result = converter.convert(new JSONStreamReader(reader, SIMPLE_CONTAINER_FACTORY));
+        } catch (JSONParseException e) {
+            throw new CmisConnectionException("Parsing exception: " + e.getMessage(), e);
+        } catch (CmisBaseException e) {
+            // conversion errors
+            throw e;
+        } catch (Exception e) {
+            throw new CmisConnectionException("Parsing exception!", e);
+        } finally {
+            IOUtils.consumeAndClose(reader);
+            if (reader == null) {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Performs a GET on an URL, checks the response code and returns the
      * result.
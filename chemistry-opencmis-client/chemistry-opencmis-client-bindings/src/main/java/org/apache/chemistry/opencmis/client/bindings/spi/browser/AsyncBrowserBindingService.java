@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.browser;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.AsyncCallback;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.AsyncHttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.CallbackFuture;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.data.Acl;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+/**
+ * Asynchronous variants of a few Browser Binding operations.
+ * <p>
+ * If the HTTP invoker of the session is an {@link AsyncHttpInvoker}, the
+ * requests are sent without blocking the calling thread. The responses are
+ * parsed and the callbacks are called on a separate pool of conversion
+ * threads, not on the callback threads of the invoker. Otherwise the requests
+ * are sent synchronously and the returned futures are already done.
+ * <p>
+ * The repository URLs are looked up synchronously the first time a repository
+ * is used. Type definitions that are needed to parse a response and are not
+ * cached yet are fetched synchronously on the conversion thread.
+ */
+public class AsyncBrowserBindingService extends AbstractBrowserBindingService {
+
+    private static final ExecutorService CONVERTER_EXECUTOR;
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        CONVERTER_EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "OpenCMIS Browser Binding Converter " + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        ((ThreadPoolExecutor) CONVERTER_EXECUTOR).allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Constructor.
+     */
+    public AsyncBrowserBindingService(BindingSession session) {
+        setSession(session);
+    }
+
+    /**
+     * Returns whether the requests are sent without blocking the calling
+     * thread and without occupying a thread while they wait for the server.
+     */
+    public boolean isNonBlocking() {
+        HttpInvoker invoker = getHttpInvoker();
+        String serviceUrl = getServiceUrl();
+        return invoker instanceof AsyncHttpInvoker && serviceUrl != null
+                && ((AsyncHttpInvoker) invoker).isNonBlocking(new UrlBuilder(serviceUrl));
+    }
+
+    /**
+     * Gets an object.
+     *
+     * @see org.apache.chemistry.opencmis.commons.spi.ObjectService#getObject(String,
+     *      String, String, Boolean, IncludeRelationships, String, Boolean,
+     *      Boolean, org.apache.chemistry.opencmis.commons.data.ExtensionsData)
+     */
+    public Future<ObjectData> getObject(final String repositoryId, String objectId, String filter,
+            Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+            Boolean includePolicyIds, Boolean includeAcl, AsyncCallback<ObjectData> callback) {
+        CallbackFuture<ObjectData> future = new CallbackFuture<ObjectData>(callback);
+
+        try {
+            // build URL
+            UrlBuilder url = getObjectUrl(repositoryId, objectId, Constants.SELECTOR_OBJECT);
+            url.addParameter(Constants.PARAM_FILTER, filter);
+            url.addParameter(Constants.PARAM_ALLOWABLE_ACTIONS, includeAllowableActions);
+            url.addParameter(Constants.PARAM_RELATIONSHIPS, includeRelationships);
+            url.addParameter(Constants.PARAM_RENDITION_FILTER, renditionFilter);
+            url.addParameter(Constants.PARAM_POLICY_IDS, includePolicyIds);
+            url.addParameter(Constants.PARAM_ACL, includeAcl);
+            url.addParameter(Constants.PARAM_SUCCINCT, getSuccinctParameter());
+            url.addParameter(Constants.PARAM_DATETIME_FORMAT, getDateTimeFormatParameter());
+
+            // read and parse
+            read(url, new ResponseConverter<ObjectData>(future) {
+                @Override
+                protected ObjectData convert(Response resp) {
+                    Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
+
+                    TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, AsyncBrowserBindingService.this);
+
+                    return JSONConverter.convertObject(json, typeCache);
+                }
+            });
+        } catch (Exception e) {
+            future.failed(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Executes a query.
+     *
+     * @see org.apache.chemistry.opencmis.commons.spi.DiscoveryService#query(String,
+     *      String, Boolean, Boolean, IncludeRelationships, String, BigInteger,
+     *      BigInteger, org.apache.chemistry.opencmis.commons.data.ExtensionsData)
+     */
+    public Future<ObjectList> query(final String repositoryId, String statement, Boolean searchAllVersions,
+            Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+            BigInteger maxItems, BigInteger skipCount, AsyncCallback<ObjectList> callback) {
+        CallbackFuture<ObjectList> future = new CallbackFuture<ObjectList>(callback);
+
+        try {
+            // build URL
+            UrlBuilder url = getRepositoryUrl(repositoryId);
+
+            // prepare form data
+            FormDataWriter formData = new FormDataWriter(Constants.CMISACTION_QUERY);
+            formData.addParameter(Constants.PARAM_STATEMENT, statement);
+            formData.addParameter(Constants.PARAM_SEARCH_ALL_VERSIONS, searchAllVersions);
+            formData.addParameter(Constants.PARAM_ALLOWABLE_ACTIONS, includeAllowableActions);
+            formData.addParameter(Constants.PARAM_RELATIONSHIPS, includeRelationships);
+            formData.addParameter(Constants.PARAM_RENDITION_FILTER, renditionFilter);
+            formData.addParameter(Constants.PARAM_MAX_ITEMS, maxItems);
+            formData.addParameter(Constants.PARAM_SKIP_COUNT, skipCount);
+            formData.addParameter(Constants.PARAM_DATETIME_FORMAT, getDateTimeFormatParameter());
+            // Important: No succinct flag here!!!
+
+            // send and parse
+            post(url, formData, new ResponseConverter<ObjectList>(future) {
+                @Override
+                protected ObjectList convert(Response resp) {
+                    TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, AsyncBrowserBindingService.this);
+
+                    return parseObjectList(resp.getStream(), resp.getCharset(), typeCache, true, null);
+                }
+            });
+        } catch (Exception e) {
+            future.failed(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Creates a document. The content stream is read before this method
+     * returns.
+     *
+     * @return the future of the ID of the new document
+     *
+     * @see org.apache.chemistry.opencmis.commons.spi.ObjectService#createDocument(String,
+     *      Properties, String, ContentStream, VersioningState, List, Acl, Acl,
+     *      org.apache.chemistry.opencmis.commons.data.ExtensionsData)
+     */
+    public Future<String> createDocument(final String repositoryId, Properties properties, String folderId,
+            ContentStream contentStream, VersioningState versioningState, List<String> policies, Acl addAces,
+            Acl removeAces, AsyncCallback<String> callback) {
+        CallbackFuture<String> future = new CallbackFuture<String>(callback);
+
+        try {
+            // build URL
+            UrlBuilder url = folderId != null ? getObjectUrl(repositoryId, folderId) : getRepositoryUrl(repositoryId);
+
+            // prepare form data
+            FormDataWriter formData = new FormDataWriter(Constants.CMISACTION_CREATE_DOCUMENT, contentStream);
+            formData.addPropertiesParameters(properties, getDateTimeFormat());
+            formData.addParameter(Constants.PARAM_VERSIONIG_STATE, versioningState);
+            formData.addPoliciesParameters(policies);
+            formData.addAddAcesParameters(addAces);
+            formData.addRemoveAcesParameters(removeAces);
+            formData.addSuccinctFlag(getSuccinct());
+
+            // send and parse
+            post(url, formData, new ResponseConverter<String>(future) {
+                @Override
+                protected String convert(Response resp) {
+                    Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
+
+                    TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, AsyncBrowserBindingService.this);
+
+                    ObjectData newObj = JSONConverter.convertObject(json, typeCache);
+
+                    return newObj == null ? null : newObj.getId();
+                }
+            });
+        } catch (Exception e) {
+            future.failed(e);
+        }
+
+        return future;
+    }
+
+    // ---- HTTP ----
+
+    private void read(UrlBuilder url, ResponseConverter<?> converter) {
+        HttpInvoker invoker = getHttpInvoker();
+        if (invoker instanceof AsyncHttpInvoker) {
+            ((AsyncHttpInvoker) invoker).invokeGETAsync(url, getSession(), new HandOff(converter));
+        } else {
+            converter.completed(invoker.invokeGET(url, getSession()));
+        }
+    }
+
+    private void post(UrlBuilder url, FormDataWriter formData, ResponseConverter<?> converter) {
+        HttpInvoker invoker = getHttpInvoker();
+        if (invoker instanceof AsyncHttpInvoker) {
+            ((AsyncHttpInvoker) invoker).invokePOSTAsync(url, formData.getContentType(), formData, getSession(),
+                    new HandOff(converter));
+        } else {
+            converter.completed(invoker.invokePOST(url, formData.getContentType(), formData, getSession()));
+        }
+    }
+
+    /**
+     * Passes the response of an asynchronous request from the callback thread
+     * of the HTTP invoker to a conversion thread. Converting may fetch type
+     * definitions and the callbacks of the caller may block, neither must
+     * happen on the callback threads of the invoker.
+     */
+    private static class HandOff implements AsyncCallback<Response> {
+
+        private final AsyncCallback<Response> converter;
+
+        HandOff(AsyncCallback<Response> converter) {
+            this.converter = converter;
+        }
+
+        @Override
+        public void completed(final Response resp) {
+            CONVERTER_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    converter.completed(resp);
+                }
+            });
+        }
+
+        @Override
+        public void failed(final Exception exception) {
+            CONVERTER_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    converter.failed(exception);
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks the response code, converts the response and completes a future.
+     */
+    private abstract class ResponseConverter<T> implements AsyncCallback<Response> {
+
+        private final CallbackFuture<T> future;
+
+        ResponseConverter(CallbackFuture<T> future) {
+            this.future = future;
+        }
+
+        protected abstract T convert(Response resp);
+
+        @Override
+        public void completed(Response resp) {
+            try {
+                // check response code
+                if (resp.getResponseCode() != 200 && resp.getResponseCode() != 201) {
+                    throw convertStatusCode(resp.getResponseCode(), resp.getResponseMessage(),
+                            resp.getErrorContent(), null);
+                }
+
+                future.completed(convert(resp));
+            } catch (Exception e) {
+                future.failed(e);
+            }
+        }
+
+        @Override
+        public void failed(Exception exception) {
+            future.failed(exception);
+        }
+    }
+}
@@ -50,6 +50,14 @@ public class ClientTypeCacheImpl implements TypeCache {
         return type;
     }
 
+    /**
+     * Returns the type definition if it is in the binding type cache,
+     * {@code null} otherwise. This never contacts the repository.
+     */
+    public TypeDefinition getCachedTypeDefinition(String typeId) {
+        return CmisBindingsHelper.getTypeDefinitionCache(service.getSession()).get(repositoryId, typeId);
+    }
+
     @Override
     public TypeDefinition reloadTypeDefinition(String typeId) {
 
@@ -18,20 +18,14 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.math.BigInteger;
-import java.util.Map;
 
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
-import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
-import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
@@ -69,17 +63,11 @@ public class DiscoveryServiceImpl extends AbstractBrowserBindingService implemen
         // Important: No succinct flag here!!!
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-        return JSONConverter.convertObjectList(json, typeCache, true);
+        return parseObjectList(resp.getStream(), resp.getCharset(), typeCache, true, null);
     }
 
     @Override
@@ -97,17 +85,9 @@ public class DiscoveryServiceImpl extends AbstractBrowserBindingService implemen
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
-        if (changeLogToken != null && json != null) {
-            Object token = json.get(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN);
-            if (token instanceof String) {
-                changeLogToken.setValue((String) token);
-            }
-        }
 
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertObjectList(json, typeCache, false);
+        return parseObjectList(resp.getStream(), resp.getCharset(), typeCache, false, changeLogToken);
     }
 }
@@ -30,6 +30,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.chemistry.opencmis.client.bindings.spi.http.ContentAwareOutput;
 import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.BulkUpdateObjectIdAndChangeToken;
@@ -43,7 +44,7 @@ import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 
-public final class FormDataWriter {
+public final class FormDataWriter implements ContentAwareOutput {
 
     private static final String CONTENT_TYPE_URLENCODED = "application/x-www-form-urlencoded;charset=utf-8";
     private static final String CONTENT_TYPE_FORMDATA = "multipart/form-data; boundary=";
@@ -233,6 +234,32 @@ public final class FormDataWriter {
         return contentStream == null ? CONTENT_TYPE_URLENCODED : CONTENT_TYPE_FORMDATA + boundary;
     }
 
+    @Override
+    public String getPayloadMimeType() {
+        return contentStream == null ? null : contentStream.getMimeType();
+    }
+
+    @Override
+    public long getLength() {
+        long length = 0;
+        for (Map.Entry<String, String> param : parameters.entrySet()) {
+            length += param.getKey().length() + param.getValue().length() + 1;
+        }
+
+        if (contentStream == null) {
+            return length;
+        }
+
+        long contentLength = contentStream.getLength();
+        if (contentLength < 0) {
+            return -1;
+        }
+
+        // multipart headers
+        return length + contentLength + (parameters.size() + 1) * (2 * boundary.length() + 100);
+    }
+
+    @Override
     public void write(OutputStream out) throws IOException {
         InputStream stream = contentStream == null ? null : contentStream.getStream();
 
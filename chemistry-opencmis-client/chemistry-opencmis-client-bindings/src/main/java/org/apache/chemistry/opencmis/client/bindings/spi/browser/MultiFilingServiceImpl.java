@@ -18,11 +18,7 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
-import java.io.IOException;
-import java.io.OutputStream;
-
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
@@ -52,12 +48,7 @@ public class MultiFilingServiceImpl extends AbstractBrowserBindingService implem
         formData.addParameter(Constants.PARAM_ALL_VERSIONS, allVersions);
 
         // send and parse
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 
     @Override
@@ -70,11 +61,6 @@ public class MultiFilingServiceImpl extends AbstractBrowserBindingService implem
         formData.addParameter(Constants.PARAM_FOLDER_ID, folderId);
 
         // send and parse
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 }
@@ -68,11 +68,9 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertObjectInFolderList(json, typeCache);
+        return parseObjectInFolderList(resp.getStream(), resp.getCharset(), typeCache);
     }
 
     @Override
@@ -182,10 +180,8 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertObjectList(json, typeCache, false);
+        return parseObjectList(resp.getStream(), resp.getCharset(), typeCache, false, null);
     }
 }
@@ -22,13 +22,11 @@ import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNul
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -86,12 +84,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -120,12 +113,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -151,12 +139,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -182,12 +165,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -213,12 +191,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -244,12 +217,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -415,12 +383,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -453,12 +416,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.removeSecondaryTypeIds(removeSecondaryTypeIds);
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         List<Object> json = parseArray(resp.getStream(), resp.getCharset());
 
@@ -483,12 +441,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -509,12 +462,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addParameter(Constants.PARAM_ALL_VERSIONS, allVersions);
 
         // send
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 
     @Override
@@ -530,12 +478,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addParameter(Constants.PARAM_CONTINUE_ON_FAILURE, continueOnFailure);
 
         // send
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         if (resp.hasResponseStream()) {
             try {
@@ -572,12 +515,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -610,12 +548,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -647,12 +580,7 @@ public class ObjectServiceImpl extends AbstractBrowserBindingService implements
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -18,12 +18,9 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.util.List;
 
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
@@ -55,12 +52,7 @@ public class PolicyServiceImpl extends AbstractBrowserBindingService implements
         formData.addPolicyIdParameter(policyId);
 
         // send
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 
     @Override
@@ -73,12 +65,7 @@ public class PolicyServiceImpl extends AbstractBrowserBindingService implements
         formData.addPolicyIdParameter(policyId);
 
         // send
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 
     @Override
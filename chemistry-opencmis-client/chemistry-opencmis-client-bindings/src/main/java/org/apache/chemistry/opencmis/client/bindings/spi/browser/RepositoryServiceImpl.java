@@ -18,14 +18,11 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
@@ -130,12 +127,7 @@ public class RepositoryServiceImpl extends AbstractBrowserBindingService impleme
         }
 
         // send
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -155,12 +147,7 @@ public class RepositoryServiceImpl extends AbstractBrowserBindingService impleme
         }
 
         // send
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -177,11 +164,6 @@ public class RepositoryServiceImpl extends AbstractBrowserBindingService impleme
         formData.addParameter(Constants.CONTROL_TYPE_ID, typeId);
 
         // send
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 }
@@ -18,13 +18,10 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
-import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
@@ -69,12 +66,7 @@ public class VersioningServiceImpl extends AbstractBrowserBindingService impleme
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -94,12 +86,7 @@ public class VersioningServiceImpl extends AbstractBrowserBindingService impleme
         final FormDataWriter formData = new FormDataWriter(Constants.CMISACTION_CANCEL_CHECK_OUT);
 
         // send
-        postAndConsume(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        postAndConsume(url, formData.getContentType(), formData);
     }
 
     @Override
@@ -125,12 +112,7 @@ public class VersioningServiceImpl extends AbstractBrowserBindingService impleme
         formData.addSuccinctFlag(getSuccinct());
 
         // send and parse
-        Response resp = post(url, formData.getContentType(), new Output() {
-            @Override
-            public void write(OutputStream out) throws IOException {
-                formData.write(out);
-            }
-        });
+        Response resp = post(url, formData.getContentType(), formData);
 
         Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
 
@@ -20,7 +20,6 @@ package org.apache.chemistry.opencmis.client.bindings.spi.http;
 
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
 
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,7 +30,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLException;
@@ -103,8 +101,9 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
         return invoke(url, "DELETE", null, null, null, session, null, null);
     }
 
-    protected Response invoke(UrlBuilder url, String method, String contentType, Map<String, String> headers,
-            final Output writer, final BindingSession session, BigInteger offset, BigInteger length) {
+    protected Response invoke(final UrlBuilder url, final String method, String contentType,
+            Map<String, String> headers, final Output writer, final BindingSession session, BigInteger offset,
+            BigInteger length) {
         int respCode = -1;
 
         try {
@@ -128,16 +127,19 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
                 }
             }
 
+            // the URL builder encodes the URL again on every call
+            String urlString = url.toString();
+
             HttpRequestBase request = null;
 
             if ("GET".equals(method)) {
-                request = new HttpGet(url.toString());
+                request = new HttpGet(urlString);
             } else if ("POST".equals(method)) {
-                request = new HttpPost(url.toString());
+                request = new HttpPost(urlString);
             } else if ("PUT".equals(method)) {
-                request = new HttpPut(url.toString());
+                request = new HttpPut(urlString);
             } else if ("DELETE".equals(method)) {
-                request = new HttpDelete(url.toString());
+                request = new HttpDelete(urlString);
             } else {
                 throw new CmisRuntimeException("Invalid HTTP method!");
             }
@@ -156,7 +158,7 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
             // authenticate
             AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
             if (authProvider != null) {
-                Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(url.toString());
+                Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(urlString);
                 if (httpHeaders != null) {
                     for (Map.Entry<String, List<String>> header : httpHeaders.entrySet()) {
                         if (header.getKey() != null && isNotEmpty(header.getValue())) {
@@ -200,15 +202,14 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
             }
 
             // locale
-            if (session.get(CmisBindingsHelper.ACCEPT_LANGUAGE) instanceof String) {
-                request.setHeader("Accept-Language", session.get(CmisBindingsHelper.ACCEPT_LANGUAGE).toString());
+            Object acceptLanguage = session.get(CmisBindingsHelper.ACCEPT_LANGUAGE);
+            if (acceptLanguage instanceof String) {
+                request.setHeader("Accept-Language", (String) acceptLanguage);
             }
 
             // send data
             if (writer != null) {
-                Object clientCompression = session.get(SessionParameter.CLIENT_COMPRESSION);
-                final boolean clientCompressionFlag = (clientCompression != null)
-                        && Boolean.parseBoolean(clientCompression.toString());
+                final boolean clientCompressionFlag = RequestCompression.shouldCompress(session, contentType, writer);
                 if (clientCompressionFlag) {
                     request.setHeader("Content-Encoding", "gzip");
                 }
@@ -242,25 +243,35 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
                     @Override
                     public void writeTo(final OutputStream outstream) throws IOException {
                         OutputStream connOut = null;
+                        PooledGZIPOutputStream gzipOut = null;
 
                         if (clientCompressionFlag) {
-                            connOut = new GZIPOutputStream(outstream, 4096);
+                            gzipOut = new PooledGZIPOutputStream(outstream, RequestCompression.getLevel(session));
+                            connOut = gzipOut;
                         } else {
                             connOut = outstream;
                         }
 
-                        OutputStream out = new BufferedOutputStream(connOut, BUFFER_SIZE);
+                        PooledBufferedOutputStream out = new PooledBufferedOutputStream(connOut);
                         try {
-                            writer.write(out);
-                        } catch (IOException ioe) {
-                            throw ioe;
-                        } catch (Exception e) {
-                            throw new IOException(e);
-                        }
-                        out.flush();
+                            try {
+                                writer.write(out);
+                            } catch (IOException ioe) {
+                                throw ioe;
+                            } catch (Exception e) {
+                                throw new IOException(e);
+                            }
+                            out.flush();
 
-                        if (connOut instanceof GZIPOutputStream) {
-                            ((GZIPOutputStream) connOut).finish();
+                            if (gzipOut != null) {
+                                gzipOut.finish();
+                                RequestCompression.record(session, method, url, gzipOut);
+                            }
+                        } finally {
+                            out.release();
+                            if (gzipOut != null) {
+                                gzipOut.release();
+                            }
                         }
                     }
                 };
@@ -309,7 +320,7 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
 
             // forward response HTTP headers
             if (authProvider != null) {
-                authProvider.putResponseHeaders(url.toString(), respCode, responseHeaders);
+                authProvider.putResponseHeaders(urlString, respCode, responseHeaders);
             }
 
             // get the response
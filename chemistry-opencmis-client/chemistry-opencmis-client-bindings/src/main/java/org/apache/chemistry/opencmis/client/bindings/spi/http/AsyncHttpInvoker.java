@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+/**
+ * Asynchronous HTTP Invoker Interface.
+ * <p>
+ * The methods of this interface return immediately. The returned future is
+ * completed and the callback is called when the response has been received.
+ * The callback may be {@code null}. Failures are reported as
+ * {@link org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException}
+ * .
+ * <p>
+ * Callbacks must not block for long, other responses may have to wait for
+ * them.
+ */
+public interface AsyncHttpInvoker extends HttpInvoker {
+
+    /**
+     * Returns whether requests to the given URL are sent without occupying a
+     * thread while they wait for the server. Other requests run on a thread
+     * pool of the invoker.
+     */
+    boolean isNonBlocking(UrlBuilder url);
+
+    /**
+     * Executes a HTTP GET request asynchronously.
+     */
+    Future<Response> invokeGETAsync(UrlBuilder url, BindingSession session, AsyncCallback<Response> callback);
+
+    /**
+     * Executes a HTTP GET request asynchronously.
+     */
+    Future<Response> invokeGETAsync(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length,
+            AsyncCallback<Response> callback);
+
+    /**
+     * Executes a HTTP POST request asynchronously. The request body is written
+     * before this method returns.
+     */
+    Future<Response> invokePOSTAsync(UrlBuilder url, String contentType, Output writer, BindingSession session,
+            AsyncCallback<Response> callback);
+
+    /**
+     * Executes a HTTP PUT request asynchronously. The request body is written
+     * before this method returns.
+     */
+    Future<Response> invokePUTAsync(UrlBuilder url, String contentType, Map<String, String> headers,
+            Output writer, BindingSession session, AsyncCallback<Response> callback);
+
+    /**
+     * Executes a HTTP DELETE request asynchronously.
+     */
+    Future<Response> invokeDELETEAsync(UrlBuilder url, BindingSession session, AsyncCallback<Response> callback);
+}
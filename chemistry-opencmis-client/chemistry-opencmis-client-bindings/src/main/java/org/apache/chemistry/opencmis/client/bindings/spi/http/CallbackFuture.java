@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Future} that is completed through the {@link AsyncCallback}
+ * interface.
+ * <p>
+ * Only the first call of {@link #completed(Object)}, {@link #failed(Exception)}
+ * or {@link #cancel(boolean)} has an effect. A callback that has been passed
+ * to the constructor is called after the future has been completed.
+ */
+public class CallbackFuture<T> implements Future<T>, AsyncCallback<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CallbackFuture.class);
+
+    private final AsyncCallback<T> callback;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private boolean finished;
+    private boolean cancelled;
+    private T result;
+    private Exception exception;
+
+    public CallbackFuture() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param callback
+     *            the callback that is called after the future has been
+     *            completed, may be {@code null}
+     */
+    public CallbackFuture(AsyncCallback<T> callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void completed(T result) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            this.result = result;
+        }
+        done.countDown();
+
+        if (callback != null) {
+            try {
+                callback.completed(result);
+            } catch (RuntimeException e) {
+                LOG.warn("Callback failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void failed(Exception exception) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            this.exception = exception;
+        }
+        done.countDown();
+
+        if (callback != null) {
+            try {
+                callback.failed(exception);
+            } catch (RuntimeException e) {
+                LOG.warn("Callback failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Cancels the future. The operation itself is not aborted, its result is
+     * discarded.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            cancelled = true;
+        }
+        done.countDown();
+
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        done.await();
+        return getResult();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    private synchronized T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisTooManyRequestsException;
+
+/**
+ * Limits the number of concurrent requests to an endpoint and adapts the limit
+ * to the load of the server (additive increase, multiplicative decrease).
+ * <p>
+ * The limit grows by about one for every limit's worth of successful requests
+ * that have been sent while the limit was nearly used up. It is cut in half
+ * when the server is overloaded (HTTP status 429 or 503, or a timeout), and
+ * reduced by 10% when the short-term average latency exceeds twice the
+ * long-term average latency, which means that requests queue up at the server.
+ * The limit is reduced at most once per round trip, so that a burst of
+ * overload responses counts as one signal.
+ * <p>
+ * Requests that exceed the limit wait in a queue. Freed slots are handed to the
+ * waiting requests in the order they arrived, and a new request doesn't
+ * overtake waiting ones. If the queue is full, or if
+ * a request has waited for the maximum wait time, a
+ * {@link CmisTooManyRequestsException} is thrown. If the server sends a
+ * {@code Retry-After} header, no request is sent to the endpoint before that
+ * time.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double LATENCY_DECREASE_FACTOR = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double SHORT_LATENCY_WEIGHT = 0.2;
+    private static final double LONG_LATENCY_WEIGHT = 0.01;
+    private static final long MIN_SIGNIFICANT_LATENCY = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueLength;
+    private final long maxWaitTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedList<Waiter> waiters = new LinkedList<Waiter>();
+
+    private double limit;
+    private int inFlight;
+    private long blockedUntil;
+    private long lastDecrease;
+    private long lastLatency;
+    private double shortLatency = -1;
+    private double longLatency = -1;
+    private long rejectedCount;
+    private long overloadCount;
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit
+     *            the initial number of concurrent requests
+     * @param minLimit
+     *            the lowest number of concurrent requests
+     * @param maxLimit
+     *            the highest number of concurrent requests
+     * @param maxQueueLength
+     *            the maximum number of waiting requests
+     * @param maxWaitTime
+     *            the maximum time in milliseconds a request waits
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueLength, long maxWaitTime) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException("Min limit must be positive!");
+        }
+        if (maxLimit < minLimit) {
+            throw new IllegalArgumentException("Max limit must not be lower than the min limit!");
+        }
+        if (maxQueueLength < 0) {
+            throw new IllegalArgumentException("Max queue length must not be negative!");
+        }
+        if (maxWaitTime < 0) {
+            throw new IllegalArgumentException("Max wait time must not be negative!");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueLength = maxQueueLength;
+        this.maxWaitTime = maxWaitTime;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Waits until a request may be sent.
+     *
+     * @throws CmisTooManyRequestsException
+     *             if the queue is full or the request has waited too long
+     */
+    public void acquire() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (waiters.isEmpty() && inFlight < (int) limit && now >= blockedUntil) {
+                inFlight++;
+                return;
+            }
+
+            if (waiters.size() >= maxQueueLength) {
+                rejectedCount++;
+                throw new CmisTooManyRequestsException("Too many requests are waiting for this endpoint!");
+            }
+
+            long deadline = now + maxWaitTime;
+            Waiter waiter = new Waiter(lock.newCondition());
+            waiters.addLast(waiter);
+            try {
+                while (!waiter.granted) {
+                    if (now >= deadline) {
+                        waiters.remove(waiter);
+                        rejectedCount++;
+                        throw new CmisTooManyRequestsException("Request has waited too long for this endpoint!");
+                    }
+
+                    long wait = deadline - now;
+                    if (now < blockedUntil) {
+                        wait = Math.min(wait, blockedUntil - now);
+                    }
+
+                    waiter.condition.await(wait, TimeUnit.MILLISECONDS);
+                    now = System.currentTimeMillis();
+
+                    // the Retry-After time may have passed
+                    dispatch(now);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // pass the slot on
+                    inFlight--;
+                    dispatch(System.currentTimeMillis());
+                } else {
+                    waiters.remove(waiter);
+                }
+
+                Thread.currentThread().interrupt();
+                throw new CmisConnectionException("Interrupted while waiting for this endpoint!", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a request that has been answered by the server.
+     *
+     * @param latency
+     *            the time the request took in milliseconds
+     * @param overloaded
+     *            {@code true} if the server signaled that it is overloaded
+     * @param retryAfter
+     *            the time in milliseconds the server asked the client to wait,
+     *            or a value less than 1
+     */
+    public void release(long latency, boolean overloaded, long retryAfter) {
+        lock.lock();
+        try {
+            inFlight--;
+
+            long now = System.currentTimeMillis();
+            lastLatency = latency;
+
+            if (retryAfter > 0) {
+                blockedUntil = Math.max(blockedUntil, now + retryAfter);
+            }
+
+            if (overloaded) {
+                overloadCount++;
+                decrease(now, DECREASE_FACTOR);
+            } else {
+                if (longLatency < 0) {
+                    shortLatency = latency;
+                    longLatency = latency;
+                } else {
+                    shortLatency += SHORT_LATENCY_WEIGHT * (latency - shortLatency);
+                    longLatency += LONG_LATENCY_WEIGHT * (latency - longLatency);
+                }
+
+                if (shortLatency > LATENCY_TOLERANCE * longLatency && shortLatency > MIN_SIGNIFICANT_LATENCY) {
+                    decrease(now, LATENCY_DECREASE_FACTOR);
+                } else if (inFlight + 1 >= (int) limit / 2) {
+                    // only grow if the limit is actually used
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+
+            dispatch(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a request that failed without a response.
+     *
+     * @param timeout
+     *            {@code true} if the request timed out, which counts as a
+     *            sign of overload
+     */
+    public void release(boolean timeout) {
+        lock.lock();
+        try {
+            inFlight--;
+
+            long now = System.currentTimeMillis();
+            if (timeout) {
+                overloadCount++;
+                decrease(now, DECREASE_FACTOR);
+            }
+
+            dispatch(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands free slots to the waiting requests in the order they arrived.
+     */
+    private void dispatch(long now) {
+        while (!waiters.isEmpty() && inFlight < (int) limit && now >= blockedUntil) {
+            Waiter waiter = waiters.removeFirst();
+            waiter.granted = true;
+            inFlight++;
+            waiter.condition.signal();
+        }
+    }
+
+    private void decrease(long now, double factor) {
+        // at most once per round trip
+        if (now - lastDecrease < lastLatency) {
+            return;
+        }
+
+        limit = Math.max(minLimit, limit * factor);
+        lastDecrease = now;
+    }
+
+    /**
+     * Returns the current number of concurrent requests that are allowed.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that are currently sent.
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that are currently waiting.
+     */
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that have been rejected because the
+     * queue was full or they waited too long.
+     */
+    public long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejectedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how often the server signaled that it is overloaded.
+     */
+    public long getOverloadCount() {
+        lock.lock();
+        try {
+            return overloadCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "Concurrency limiter [limit=" + (int) limit + ", in flight=" + inFlight + ", queue length="
+                    + waiters.size() + ", rejected=" + rejectedCount + ", overloaded=" + overloadCount + "]";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A waiting request.
+     */
+    private static class Waiter {
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
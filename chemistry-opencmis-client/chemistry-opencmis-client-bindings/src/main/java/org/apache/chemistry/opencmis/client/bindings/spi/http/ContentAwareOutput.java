@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+/**
+ * An {@link Output} that knows what it writes.
+ * <p>
+ * HTTP invokers use this information to decide whether a request body is worth
+ * compressing. For other {@link Output} implementations only the content type
+ * of the request is known.
+ */
+public interface ContentAwareOutput extends Output {
+
+    /**
+     * Returns the MIME type of the main payload, for example the MIME type of
+     * the document content in a multipart request, or {@code null} if the
+     * request content type describes the payload.
+     */
+    String getPayloadMimeType();
+
+    /**
+     * Returns the (estimated) length of the body in bytes, or -1 if it is
+     * unknown.
+     */
+    long getLength();
+}
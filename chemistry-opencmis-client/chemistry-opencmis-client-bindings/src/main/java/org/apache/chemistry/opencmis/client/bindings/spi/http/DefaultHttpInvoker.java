@@ -20,7 +20,6 @@ package org.apache.chemistry.opencmis.client.bindings.spi.http;
 
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
 
-import java.io.BufferedOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
@@ -28,7 +27,6 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -48,8 +46,6 @@ public class DefaultHttpInvoker implements HttpInvoker {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultHttpInvoker.class);
 
-    private static final int BUFFER_SIZE = 2 * 1024 * 1024;
-
     public DefaultHttpInvoker() {
     }
 
@@ -89,8 +85,11 @@ public class DefaultHttpInvoker implements HttpInvoker {
                 LOG.debug("Session {}: {} {}", session.getSessionId(), method, url);
             }
 
+            // the URL builder encodes the URL again on every call
+            String urlString = url.toString();
+
             // connect
-            HttpURLConnection conn = (HttpURLConnection) (new URL(url.toString())).openConnection();
+            HttpURLConnection conn = (HttpURLConnection) (new URL(urlString)).openConnection();
             conn.setRequestMethod(method);
             conn.setDoInput(true);
             conn.setDoOutput(writer != null);
@@ -125,7 +124,7 @@ public class DefaultHttpInvoker implements HttpInvoker {
             // authenticate
             AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
             if (authProvider != null) {
-                Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(url.toString());
+                Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(urlString);
                 if (httpHeaders != null) {
                     for (Map.Entry<String, List<String>> header : httpHeaders.entrySet()) {
                         if (header.getKey() != null && isNotEmpty(header.getValue())) {
@@ -181,8 +180,9 @@ public class DefaultHttpInvoker implements HttpInvoker {
             }
 
             // locale
-            if (session.get(CmisBindingsHelper.ACCEPT_LANGUAGE) instanceof String) {
-                conn.setRequestProperty("Accept-Language", session.get(CmisBindingsHelper.ACCEPT_LANGUAGE).toString());
+            Object acceptLanguage = session.get(CmisBindingsHelper.ACCEPT_LANGUAGE);
+            if (acceptLanguage instanceof String) {
+                conn.setRequestProperty("Accept-Language", (String) acceptLanguage);
             }
 
             // send data
@@ -190,18 +190,31 @@ public class DefaultHttpInvoker implements HttpInvoker {
                 conn.setChunkedStreamingMode((64 * 1024) - 1);
 
                 OutputStream connOut = null;
+                PooledGZIPOutputStream gzipOut = null;
 
-                Object clientCompression = session.get(SessionParameter.CLIENT_COMPRESSION);
-                if ((clientCompression != null) && Boolean.parseBoolean(clientCompression.toString())) {
+                if (RequestCompression.shouldCompress(session, contentType, writer)) {
                     conn.setRequestProperty("Content-Encoding", "gzip");
-                    connOut = new GZIPOutputStream(conn.getOutputStream(), 4096);
+                    gzipOut = new PooledGZIPOutputStream(conn.getOutputStream(), RequestCompression.getLevel(session));
+                    connOut = gzipOut;
                 } else {
                     connOut = conn.getOutputStream();
                 }
 
-                OutputStream out = new BufferedOutputStream(connOut, BUFFER_SIZE);
-                writer.write(out);
-                out.close();
+                PooledBufferedOutputStream out = new PooledBufferedOutputStream(connOut);
+                try {
+                    writer.write(out);
+                    out.close();
+
+                    if (gzipOut != null) {
+                        RequestCompression.record(session, method, url, gzipOut);
+                    }
+                } finally {
+                    // return the buffers if writing failed
+                    out.release();
+                    if (gzipOut != null) {
+                        gzipOut.release();
+                    }
+                }
             }
 
             // connect
@@ -222,7 +235,7 @@ public class DefaultHttpInvoker implements HttpInvoker {
 
             // forward response HTTP headers
             if (authProvider != null) {
-                authProvider.putResponseHeaders(url.toString(), respCode, conn.getHeaderFields());
+                authProvider.putResponseHeaders(urlString, respCode, conn.getHeaderFields());
             }
 
             // get the response
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+/**
+ * A HTTP Invoker that limits the number of concurrent requests per endpoint
+ * and adapts the limit to the load of the server.
+ *
+ * This HTTP Invoker is only a wrapper that delegates the work to another HTTP
+ * Invoker, which is defined with the session parameter
+ * {@link #DELEGATE_HTTP_INVOKER_CLASS}.
+ *
+ * All sessions of the JVM that use this invoker share one
+ * {@link ConcurrencyLimiter} per endpoint (protocol, host and port). The
+ * settings of the first session that talks to an endpoint apply. See
+ * {@link ConcurrencyLimiter} for the algorithm.
+ *
+ * A request holds its slot until the delegate invoker returns the response,
+ * that is, until the response headers have arrived. Reading the response body
+ * doesn't count against the limit, and the measured latency is the time to the
+ * response headers. Large downloads are therefore not limited by this invoker.
+ */
+public class LimitingHttpInvoker implements HttpInvoker {
+
+    /**
+     * Session parameter: class name of the HTTP Invoker doing the the real
+     * work. (Optional. Default is the {@link DefaultHttpInvoker}.)
+     */
+    public static final String DELEGATE_HTTP_INVOKER_CLASS = "org.apache.chemistry.opencmis.binding.httpinvoker.limit.delegate.classname";
+    /**
+     * Session parameter: initial number of concurrent requests. (Optional.
+     * Default is 4.)
+     */
+    public static final String INITIAL_LIMIT = "org.apache.chemistry.opencmis.binding.httpinvoker.limit.initial";
+    /**
+     * Session parameter: lowest number of concurrent requests. (Optional.
+     * Default is 1.)
+     */
+    public static final String MIN_LIMIT = "org.apache.chemistry.opencmis.binding.httpinvoker.limit.min";
+    /**
+     * Session parameter: highest number of concurrent requests. (Optional.
+     * Default is 64.)
+     */
+    public static final String MAX_LIMIT = "org.apache.chemistry.opencmis.binding.httpinvoker.limit.max";
+    /**
+     * Session parameter: maximum number of requests that wait. (Optional.
+     * Default is 1000.)
+     */
+    public static final String MAX_QUEUE_LENGTH = "org.apache.chemistry.opencmis.binding.httpinvoker.limit.maxqueuelength";
+    /**
+     * Session parameter: maximum time in milliseconds a request waits.
+     * (Optional. Default is 60000.)
+     */
+    public static final String MAX_WAIT_TIME = "org.apache.chemistry.opencmis.binding.httpinvoker.limit.maxwaittime";
+
+    protected static final String DELEGATE_HTTP_INVOKER = "org.apache.chemistry.opencmis.client.bindings.spi.http.limit.httpInvoker";
+
+    private static final Map<String, ConcurrencyLimiter> LIMITERS = new HashMap<String, ConcurrencyLimiter>();
+
+    public LimitingHttpInvoker() {
+    }
+
+    @Override
+    public Response invokeGET(final UrlBuilder url, final BindingSession session) {
+        return invoke(url, session, new Call() {
+            @Override
+            public Response invoke(HttpInvoker invoker) {
+                return invoker.invokeGET(url, session);
+            }
+        });
+    }
+
+    @Override
+    public Response invokeGET(final UrlBuilder url, final BindingSession session, final BigInteger offset,
+            final BigInteger length) {
+        return invoke(url, session, new Call() {
+            @Override
+            public Response invoke(HttpInvoker invoker) {
+                return invoker.invokeGET(url, session, offset, length);
+            }
+        });
+    }
+
+    @Override
+    public Response invokePOST(final UrlBuilder url, final String contentType, final Output writer,
+            final BindingSession session) {
+        return invoke(url, session, new Call() {
+            @Override
+            public Response invoke(HttpInvoker invoker) {
+                return invoker.invokePOST(url, contentType, writer, session);
+            }
+        });
+    }
+
+    @Override
+    public Response invokePUT(final UrlBuilder url, final String contentType, final Map<String, String> headers,
+            final Output writer, final BindingSession session) {
+        return invoke(url, session, new Call() {
+            @Override
+            public Response invoke(HttpInvoker invoker) {
+                return invoker.invokePUT(url, contentType, headers, writer, session);
+            }
+        });
+    }
+
+    @Override
+    public Response invokeDELETE(final UrlBuilder url, final BindingSession session) {
+        return invoke(url, session, new Call() {
+            @Override
+            public Response invoke(HttpInvoker invoker) {
+                return invoker.invokeDELETE(url, session);
+            }
+        });
+    }
+
+    /**
+     * Returns the limiter of the endpoint of an URL, or {@code null} if no
+     * request has been sent to this endpoint yet.
+     */
+    public static ConcurrencyLimiter getLimiter(String url) {
+        synchronized (LIMITERS) {
+            return LIMITERS.get(getEndpoint(url));
+        }
+    }
+
+    private interface Call {
+        Response invoke(HttpInvoker invoker);
+    }
+
+    private Response invoke(UrlBuilder url, BindingSession session, Call call) {
+        HttpInvoker invoker = getHttpInvoker(session);
+        ConcurrencyLimiter limiter = getLimiter(url, session);
+
+        limiter.acquire();
+
+        long start = System.currentTimeMillis();
+        boolean released = false;
+        try {
+            Response resp = call.invoke(invoker);
+
+            int code = resp.getResponseCode();
+            boolean overloaded = code == 429 || code == 503;
+            limiter.release(System.currentTimeMillis() - start, overloaded,
+                    overloaded ? getRetryAfter(resp.getHeader("Retry-After")) : 0);
+            released = true;
+
+            return resp;
+        } catch (RuntimeException e) {
+            limiter.release(e.getCause() instanceof SocketTimeoutException);
+            released = true;
+            throw e;
+        } finally {
+            if (!released) {
+                limiter.release(false);
+            }
+        }
+    }
+
+    /**
+     * Parses a {@code Retry-After} header, which is either a number of seconds
+     * or a HTTP date.
+     *
+     * @return the time to wait in milliseconds or 0 if unknown
+     */
+    static long getRetryAfter(String value) {
+        if (value == null || value.trim().length() == 0) {
+            return 0;
+        }
+
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = DateTimeHelper.parseHttpDateTime(value);
+            return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    private ConcurrencyLimiter getLimiter(UrlBuilder url, BindingSession session) {
+        String endpoint = getEndpoint(url.toString());
+
+        synchronized (LIMITERS) {
+            ConcurrencyLimiter limiter = LIMITERS.get(endpoint);
+            if (limiter == null) {
+                limiter = new ConcurrencyLimiter(session.get(INITIAL_LIMIT, 4), session.get(MIN_LIMIT, 1),
+                        session.get(MAX_LIMIT, 64), session.get(MAX_QUEUE_LENGTH, 1000), session.get(MAX_WAIT_TIME,
+                                60000));
+                LIMITERS.put(endpoint, limiter);
+            }
+
+            return limiter;
+        }
+    }
+
+    private static String getEndpoint(String url) {
+        try {
+            URL u = new URL(url);
+            int port = u.getPort() == -1 ? u.getDefaultPort() : u.getPort();
+            return (u.getProtocol() + "://" + u.getHost() + ":" + port).toLowerCase(Locale.ENGLISH);
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    protected HttpInvoker getHttpInvoker(BindingSession session) {
+        HttpInvoker invoker = (HttpInvoker) session.get(DELEGATE_HTTP_INVOKER);
+
+        if (invoker != null) {
+            return invoker;
+        }
+
+        session.writeLock();
+        try {
+            // try again
+            invoker = (HttpInvoker) session.get(DELEGATE_HTTP_INVOKER);
+            if (invoker != null) {
+                return invoker;
+            }
+
+            // ok, we have to create it...
+            try {
+                String invokerName = (String) session.get(DELEGATE_HTTP_INVOKER_CLASS);
+                if (invokerName == null) {
+                    invoker = new DefaultHttpInvoker();
+                } else {
+                    invoker = (HttpInvoker) ClassLoaderUtil.loadClass(invokerName).newInstance();
+                }
+            } catch (CmisBaseException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CmisRuntimeException("Delegate HTTP invoker cannot be initialized: " + e.getMessage(), e);
+            }
+
+            // we have an Invoker object -> put it into the session
+            session.put(DELEGATE_HTTP_INVOKER, invoker, true);
+        } finally {
+            session.writeUnlock();
+        }
+
+        return invoker;
+    }
+}
@@ -0,0 +1,1035 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.ClientVersion;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.spi.AuthenticationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP Invoker that uses non-blocking sockets for asynchronous requests.
+ * <p>
+ * All asynchronous requests of the JVM are driven by one selector thread. A
+ * request doesn't occupy a thread while it waits for the server, so the number
+ * of concurrent requests is only limited by the number of sockets. Connections
+ * are kept alive and reused per host and port. Responses are completed and the
+ * callbacks are called on a small pool of callback threads. Callbacks must not
+ * block for long; in particular they must not wait for other asynchronous
+ * requests.
+ * <p>
+ * Request bodies and responses are buffered in memory. This invoker is meant
+ * for many small requests, not for large content streams.
+ * <p>
+ * Synchronous requests are delegated to the {@link DefaultHttpInvoker}. So are
+ * asynchronous HTTPS requests and requests that go through a proxy (see
+ * {@link #isNonBlocking(UrlBuilder)}); those run on a separate pool of at most
+ * 16 threads, shared by the JVM, and occupy a thread while they are running.
+ * Further requests wait in a queue.
+ * <p>
+ * A request on a kept-alive connection that the server has closed in the
+ * meantime is sent again on a new connection, but only if it is a
+ * {@code GET}, {@code HEAD} or {@code DELETE} request or if no byte of it has
+ * been sent.
+ * <p>
+ * To use this invoker, set {@link SessionParameter#HTTP_INVOKER_CLASS} to the
+ * name of this class.
+ */
+public class NioHttpInvoker implements AsyncHttpInvoker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioHttpInvoker.class);
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS_PER_HOST = 32;
+    private static final long IDLE_TIMEOUT = 30 * 1000;
+    private static final long SELECT_TIMEOUT = 250;
+    private static final String HEADER_CHARSET = "ISO-8859-1";
+
+    private static Reactor reactor;
+
+    private static final ExecutorService CALLBACK_EXECUTOR;
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        CALLBACK_EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "OpenCMIS NIO HTTP Callback " + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        ((ThreadPoolExecutor) CALLBACK_EXECUTOR).allowCoreThreadTimeOut(true);
+    }
+
+    private static final int FALLBACK_THREADS = 16;
+
+    private static final ExecutorService FALLBACK_EXECUTOR;
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        FALLBACK_EXECUTOR = new ThreadPoolExecutor(FALLBACK_THREADS, FALLBACK_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "OpenCMIS NIO HTTP Fallback " + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        ((ThreadPoolExecutor) FALLBACK_EXECUTOR).allowCoreThreadTimeOut(true);
+    }
+
+    private final DefaultHttpInvoker fallback = new DefaultHttpInvoker();
+
+    public NioHttpInvoker() {
+    }
+
+    @Override
+    public Response invokeGET(UrlBuilder url, BindingSession session) {
+        return fallback.invokeGET(url, session);
+    }
+
+    @Override
+    public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+        return fallback.invokeGET(url, session, offset, length);
+    }
+
+    @Override
+    public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+        return fallback.invokePOST(url, contentType, writer, session);
+    }
+
+    @Override
+    public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
+            BindingSession session) {
+        return fallback.invokePUT(url, contentType, headers, writer, session);
+    }
+
+    @Override
+    public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+        return fallback.invokeDELETE(url, session);
+    }
+
+    @Override
+    public boolean isNonBlocking(UrlBuilder url) {
+        return isDirectHttp(url);
+    }
+
+    @Override
+    public Future<Response> invokeGETAsync(UrlBuilder url, BindingSession session, AsyncCallback<Response> callback) {
+        return invokeGETAsync(url, session, null, null, callback);
+    }
+
+    @Override
+    public Future<Response> invokeGETAsync(UrlBuilder url, BindingSession session, BigInteger offset,
+            BigInteger length, AsyncCallback<Response> callback) {
+        return invoke(url, "GET", null, null, null, session, offset, length, callback);
+    }
+
+    @Override
+    public Future<Response> invokePOSTAsync(UrlBuilder url, String contentType, Output writer,
+            BindingSession session, AsyncCallback<Response> callback) {
+        return invoke(url, "POST", contentType, null, writer, session, null, null, callback);
+    }
+
+    @Override
+    public Future<Response> invokePUTAsync(UrlBuilder url, String contentType, Map<String, String> headers,
+            Output writer, BindingSession session, AsyncCallback<Response> callback) {
+        return invoke(url, "PUT", contentType, headers, writer, session, null, null, callback);
+    }
+
+    @Override
+    public Future<Response> invokeDELETEAsync(UrlBuilder url, BindingSession session,
+            AsyncCallback<Response> callback) {
+        return invoke(url, "DELETE", null, null, null, session, null, null, callback);
+    }
+
+    private Future<Response> invoke(final UrlBuilder url, final String method, final String contentType,
+            final Map<String, String> headers, final Output writer, final BindingSession session,
+            final BigInteger offset, final BigInteger length, AsyncCallback<Response> callback) {
+        final CallbackFuture<Response> future = new CallbackFuture<Response>(callback);
+
+        if (!isDirectHttp(url)) {
+            FALLBACK_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.completed(invokeFallback(url, method, contentType, headers, writer, session, offset,
+                                length));
+                    } catch (Exception e) {
+                        future.failed(e);
+                    }
+                }
+            });
+
+            return future;
+        }
+
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Session {}: {} {}", session.getSessionId(), method, url);
+            }
+
+            Exchange exchange = new Exchange(url, method, session, future);
+            exchange.request = ByteBuffer.wrap(createRequest(url, method, contentType, headers, writer, session,
+                    offset, length));
+
+            getReactor().submit(exchange);
+        } catch (Exception e) {
+            future.failed(new CmisConnectionException("Cannot access \"" + url + "\": " + e.getMessage(), e));
+        }
+
+        return future;
+    }
+
+    private Response invokeFallback(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+            Output writer, BindingSession session, BigInteger offset, BigInteger length) {
+        if ("POST".equals(method)) {
+            return fallback.invokePOST(url, contentType, writer, session);
+        } else if ("PUT".equals(method)) {
+            return fallback.invokePUT(url, contentType, headers, writer, session);
+        } else if ("DELETE".equals(method)) {
+            return fallback.invokeDELETE(url, session);
+        }
+
+        return fallback.invokeGET(url, session, offset, length);
+    }
+
+    /**
+     * Builds the request header and body. The headers are the same as the
+     * ones the {@link DefaultHttpInvoker} sends.
+     */
+    private byte[] createRequest(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+            Output writer, BindingSession session, BigInteger offset, BigInteger length) throws Exception {
+        URL u = new URL(url.toString());
+
+        Map<String, List<String>> requestHeaders = new LinkedHashMap<String, List<String>>();
+        setHeader(requestHeaders, "Host", u.getPort() == -1 ? u.getHost() : u.getHost() + ":" + u.getPort());
+        setHeader(requestHeaders, "User-Agent",
+                (String) session.get(SessionParameter.USER_AGENT, ClientVersion.OPENCMIS_USER_AGENT));
+
+        // set content type
+        if (contentType != null) {
+            setHeader(requestHeaders, "Content-Type", contentType);
+        }
+        // set other headers
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                addHeader(requestHeaders, header.getKey(), header.getValue());
+            }
+        }
+
+        // authenticate
+        AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
+        if (authProvider != null) {
+            Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(url.toString());
+            if (httpHeaders != null) {
+                for (Map.Entry<String, List<String>> header : httpHeaders.entrySet()) {
+                    if (header.getKey() != null && isNotEmpty(header.getValue())) {
+                        String key = header.getKey();
+                        if (key.equalsIgnoreCase("user-agent")) {
+                            setHeader(requestHeaders, "User-Agent", header.getValue().get(0));
+                        } else {
+                            for (String value : header.getValue()) {
+                                if (value != null) {
+                                    addHeader(requestHeaders, key, value);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // range
+        if ((offset != null) || (length != null)) {
+            StringBuilder sb = new StringBuilder("bytes=");
+
+            if ((offset == null) || (offset.signum() == -1)) {
+                offset = BigInteger.ZERO;
+            }
+
+            sb.append(offset.toString());
+            sb.append('-');
+
+            if ((length != null) && (length.signum() == 1)) {
+                sb.append(offset.add(length.subtract(BigInteger.ONE)).toString());
+            }
+
+            setHeader(requestHeaders, "Range", sb.toString());
+        }
+
+        // compression
+        Object compression = session.get(SessionParameter.COMPRESSION);
+        if ((compression != null) && Boolean.parseBoolean(compression.toString())) {
+            setHeader(requestHeaders, "Accept-Encoding", "gzip,deflate");
+        }
+
+        // locale
+        if (session.get(CmisBindingsHelper.ACCEPT_LANGUAGE) instanceof String) {
+            setHeader(requestHeaders, "Accept-Language", session.get(CmisBindingsHelper.ACCEPT_LANGUAGE).toString());
+        }
+
+        // body
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (writer != null) {
+            if (RequestCompression.shouldCompress(session, contentType, writer)) {
+                setHeader(requestHeaders, "Content-Encoding", "gzip");
+
+                PooledGZIPOutputStream gzipOut = new PooledGZIPOutputStream(body, RequestCompression.getLevel(session));
+                try {
+                    writer.write(gzipOut);
+                    gzipOut.close();
+                    RequestCompression.record(session, method, url, gzipOut);
+                } finally {
+                    gzipOut.release();
+                }
+            } else {
+                writer.write(body);
+            }
+        }
+        if (writer != null || "POST".equals(method) || "PUT".equals(method)) {
+            setHeader(requestHeaders, "Content-Length", String.valueOf(body.size()));
+        }
+
+        // request line and headers
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(method).append(' ').append(u.getFile().length() == 0 ? "/" : u.getFile()).append(" HTTP/1.1\r\n");
+        for (Map.Entry<String, List<String>> header : requestHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                sb.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        sb.append("\r\n");
+
+        byte[] head = sb.toString().getBytes(HEADER_CHARSET);
+        byte[] request = new byte[head.length + body.size()];
+        System.arraycopy(head, 0, request, 0, head.length);
+        System.arraycopy(body.toByteArray(), 0, request, head.length, body.size());
+
+        return request;
+    }
+
+    private static void setHeader(Map<String, List<String>> headers, String name, String value) {
+        for (Iterator<String> iter = headers.keySet().iterator(); iter.hasNext();) {
+            if (iter.next().equalsIgnoreCase(name)) {
+                iter.remove();
+            }
+        }
+        addHeader(headers, name, value);
+    }
+
+    private static void addHeader(Map<String, List<String>> headers, String name, String value) {
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Returns whether the URL is a plain HTTP URL that is not accessed through
+     * a proxy.
+     */
+    private static boolean isDirectHttp(UrlBuilder url) {
+        String s = url.toString();
+        if (!s.regionMatches(true, 0, "http:", 0, 5)) {
+            return false;
+        }
+
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) {
+            return true;
+        }
+
+        try {
+            for (Proxy proxy : selector.select(new URI(s))) {
+                if (proxy.type() != Proxy.Type.DIRECT) {
+                    return false;
+                }
+            }
+        } catch (URISyntaxException e) {
+            return false;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static synchronized Reactor getReactor() throws IOException {
+        if (reactor == null) {
+            reactor = new Reactor();
+            Thread thread = new Thread(reactor, "OpenCMIS NIO HTTP Selector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        return reactor;
+    }
+
+    // ---- exchanges ----
+
+    /**
+     * One request and its response. The response parser state is only
+     * accessed by the selector thread.
+     */
+    private static class Exchange {
+
+        private static final int HEADERS = 0;
+        private static final int BODY_LENGTH = 1;
+        private static final int BODY_EOF = 2;
+        private static final int CHUNK_SIZE = 3;
+        private static final int CHUNK_DATA = 4;
+        private static final int CHUNK_END = 5;
+        private static final int TRAILERS = 6;
+        private static final int DONE = 7;
+
+        final UrlBuilder url;
+        final String method;
+        final BindingSession session;
+        final CallbackFuture<Response> future;
+        final String hostKey;
+        final InetSocketAddress address;
+        final int connectTimeout;
+        final int readTimeout;
+        ByteBuffer request;
+        boolean retried;
+        long deadline;
+
+        private byte[] data = new byte[8 * 1024];
+        private int size;
+        private boolean received;
+        private int state = HEADERS;
+        private int code;
+        private String message;
+        private Map<String, List<String>> headers;
+        private boolean keepAlive;
+        private long remaining;
+        private ByteArrayOutputStream body;
+
+        Exchange(UrlBuilder url, String method, BindingSession session, CallbackFuture<Response> future)
+                throws IOException {
+            this.url = url;
+            this.method = method;
+            this.session = session;
+            this.future = future;
+
+            URL u = new URL(url.toString());
+            int port = u.getPort() == -1 ? 80 : u.getPort();
+            this.hostKey = u.getHost().toLowerCase(Locale.ENGLISH) + ":" + port;
+            // resolve the host name here, not on the selector thread
+            this.address = new InetSocketAddress(u.getHost(), port);
+            if (address.isUnresolved()) {
+                throw new IOException("Unknown host: " + u.getHost());
+            }
+
+            this.connectTimeout = session.get(SessionParameter.CONNECT_TIMEOUT, -1);
+            this.readTimeout = session.get(SessionParameter.READ_TIMEOUT, -1);
+        }
+
+        /**
+         * Returns whether the request can be sent again without the risk of
+         * executing it twice on the server.
+         */
+        boolean isRepeatable() {
+            return "GET".equals(method) || "HEAD".equals(method) || "DELETE".equals(method)
+                    || request.position() == 0;
+        }
+
+        /**
+         * Returns whether any part of the response has been received.
+         */
+        boolean hasReceived() {
+            return received;
+        }
+
+        boolean isDone() {
+            return state == DONE;
+        }
+
+        boolean isKeepAlive() {
+            return keepAlive;
+        }
+
+        /**
+         * Processes received bytes.
+         */
+        void received(ByteBuffer buffer) throws IOException {
+            received = true;
+
+            int n = buffer.remaining();
+            if (size + n > data.length) {
+                byte[] newData = new byte[Math.max(size + n, data.length * 2)];
+                System.arraycopy(data, 0, newData, 0, size);
+                data = newData;
+            }
+            buffer.get(data, size, n);
+            size += n;
+
+            int pos = parse();
+
+            // compact
+            if (pos > 0) {
+                System.arraycopy(data, pos, data, 0, size - pos);
+                size -= pos;
+            }
+        }
+
+        /**
+         * Processes the end of the stream.
+         */
+        void closed() throws IOException {
+            if (state == BODY_EOF) {
+                state = DONE;
+                return;
+            }
+
+            throw new IOException("Connection closed by server!");
+        }
+
+        private int parse() throws IOException {
+            int pos = 0;
+
+            while (true) {
+                switch (state) {
+                case HEADERS:
+                    int end = indexOf(pos, "\r\n\r\n");
+                    if (end < 0) {
+                        return pos;
+                    }
+                    parseHeaders(new String(data, pos, end - pos, HEADER_CHARSET));
+                    pos = end + 4;
+                    break;
+                case BODY_LENGTH:
+                case CHUNK_DATA:
+                    int n = (int) Math.min(size - pos, remaining);
+                    body.write(data, pos, n);
+                    pos += n;
+                    remaining -= n;
+                    if (remaining > 0) {
+                        return pos;
+                    }
+                    state = (state == BODY_LENGTH ? DONE : CHUNK_END);
+                    break;
+                case BODY_EOF:
+                    body.write(data, pos, size - pos);
+                    return size;
+                case CHUNK_SIZE:
+                    int eol = indexOf(pos, "\r\n");
+                    if (eol < 0) {
+                        return pos;
+                    }
+                    String line = new String(data, pos, eol - pos, HEADER_CHARSET);
+                    int semicolon = line.indexOf(';');
+                    try {
+                        remaining = Long.parseLong((semicolon < 0 ? line : line.substring(0, semicolon)).trim(), 16);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid chunk size: " + line);
+                    }
+                    pos = eol + 2;
+                    state = (remaining == 0 ? TRAILERS : CHUNK_DATA);
+                    break;
+                case CHUNK_END:
+                    if (size - pos < 2) {
+                        return pos;
+                    }
+                    pos += 2;
+                    state = CHUNK_SIZE;
+                    break;
+                case TRAILERS:
+                    int trailerEnd = indexOf(pos, "\r\n");
+                    if (trailerEnd < 0) {
+                        return pos;
+                    }
+                    state = (trailerEnd == pos ? DONE : TRAILERS);
+                    pos = trailerEnd + 2;
+                    break;
+                default:
+                    return pos;
+                }
+            }
+        }
+
+        private void parseHeaders(String head) throws IOException {
+            String[] lines = head.split("\r\n");
+
+            // status line: HTTP/1.1 200 OK
+            String[] status = lines[0].split(" ", 3);
+            if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+                throw new IOException("Invalid status line: " + lines[0]);
+            }
+            try {
+                code = Integer.parseInt(status[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid status line: " + lines[0]);
+            }
+            message = status.length > 2 ? status[2] : "";
+
+            headers = new HashMap<String, List<String>>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    addHeader(headers, lines[i].substring(0, colon).trim().toLowerCase(Locale.ENGLISH), lines[i]
+                            .substring(colon + 1).trim());
+                }
+            }
+
+            if (code >= 100 && code < 200) {
+                // interim response, the real one follows
+                state = HEADERS;
+                return;
+            }
+
+            String connection = getHeader("connection");
+            if (status[0].equals("HTTP/1.0")) {
+                keepAlive = connection != null && connection.equalsIgnoreCase("keep-alive");
+            } else {
+                keepAlive = connection == null || !connection.equalsIgnoreCase("close");
+            }
+
+            String transferEncoding = getHeader("transfer-encoding");
+            String contentLength = getHeader("content-length");
+
+            body = new ByteArrayOutputStream();
+            if ("HEAD".equals(method) || code == 204 || code == 304) {
+                state = DONE;
+            } else if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ENGLISH).contains("chunked")) {
+                state = CHUNK_SIZE;
+            } else if (contentLength != null) {
+                try {
+                    remaining = Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid content length: " + contentLength);
+                }
+                if (remaining > Integer.MAX_VALUE) {
+                    throw new IOException("Response too large: " + contentLength);
+                }
+                body = new ByteArrayOutputStream((int) Math.min(remaining, READ_BUFFER_SIZE));
+                state = (remaining == 0 ? DONE : BODY_LENGTH);
+            } else {
+                // the body ends when the connection is closed
+                keepAlive = false;
+                state = BODY_EOF;
+            }
+        }
+
+        private String getHeader(String name) {
+            List<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        private int indexOf(int from, String pattern) {
+            int last = size - pattern.length();
+            outer: for (int i = from; i <= last; i++) {
+                for (int j = 0; j < pattern.length(); j++) {
+                    if (data[i + j] != pattern.charAt(j)) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Completes the future on a callback thread.
+         */
+        void complete() {
+            final int respCode = code;
+            final String respMessage = message;
+            final Map<String, List<String>> respHeaders = headers;
+            final byte[] respBody = body == null ? new byte[0] : body.toByteArray();
+
+            CALLBACK_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (LOG.isTraceEnabled()) {
+                            LOG.trace("Session {}: {} {} > Headers: {}", session.getSessionId(), method, url,
+                                    respHeaders.toString());
+                        }
+
+                        // forward response HTTP headers
+                        AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
+                        if (authProvider != null) {
+                            authProvider.putResponseHeaders(url.toString(), respCode, respHeaders);
+                        }
+
+                        InputStream stream = new ByteArrayInputStream(respBody);
+                        boolean success = (respCode == 200) || (respCode == 201) || (respCode == 203)
+                                || (respCode == 206);
+
+                        future.completed(new Response(respCode, respMessage, respHeaders, success ? stream : null,
+                                success ? null : stream));
+                    } catch (Exception e) {
+                        future.failed(new CmisConnectionException("Cannot access \"" + url + "\" (HTTP status code "
+                                + respCode + "): " + e.getMessage(), e));
+                    }
+                }
+            });
+        }
+
+        /**
+         * Fails the future on a callback thread.
+         */
+        void fail(final Exception exception) {
+            final String status = code > 0 ? " (HTTP status code " + code + ")" : "";
+
+            CALLBACK_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    future.failed(new CmisConnectionException("Cannot access \"" + url + "\"" + status + ": "
+                            + exception.getMessage(), exception));
+                }
+            });
+        }
+    }
+
+    /**
+     * A connection to a host. A connection handles one exchange at a time.
+     */
+    private static class Connection {
+        final String hostKey;
+        final SocketChannel channel;
+        SelectionKey key;
+        Exchange exchange;
+        boolean reused;
+        long idleSince;
+
+        Connection(String hostKey, SocketChannel channel) {
+            this.hostKey = hostKey;
+            this.channel = channel;
+        }
+
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    // ---- selector thread ----
+
+    /**
+     * Runs the selector loop. Everything but {@link #submit(Exchange)} is
+     * only called on the selector thread.
+     */
+    private static class Reactor implements Runnable {
+
+        private final Selector selector;
+        private final Queue<Exchange> pending = new ConcurrentLinkedQueue<Exchange>();
+        private final Map<String, LinkedList<Connection>> idle = new HashMap<String, LinkedList<Connection>>();
+        private final Set<Connection> active = new HashSet<Connection>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        Reactor() throws IOException {
+            selector = Selector.open();
+        }
+
+        void submit(Exchange exchange) {
+            pending.add(exchange);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select(SELECT_TIMEOUT);
+
+                    Exchange exchange;
+                    while ((exchange = pending.poll()) != null) {
+                        start(exchange);
+                    }
+
+                    Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                    while (iter.hasNext()) {
+                        SelectionKey key = iter.next();
+                        iter.remove();
+                        handle(key);
+                    }
+
+                    checkTimeouts();
+                } catch (Throwable t) {
+                    LOG.error("Selector loop failed: {}", t.getMessage(), t);
+                }
+            }
+        }
+
+        private void start(Exchange exchange) {
+            exchange.deadline = exchange.connectTimeout > 0 ? System.currentTimeMillis() + exchange.connectTimeout
+                    : 0;
+
+            Connection connection = exchange.retried ? null : takeIdle(exchange.hostKey);
+            if (connection != null) {
+                connection.reused = true;
+                connection.exchange = exchange;
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                active.add(connection);
+                return;
+            }
+
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                connection = new Connection(exchange.hostKey, channel);
+                connection.exchange = exchange;
+                connection.key = channel.register(selector, 0, connection);
+                active.add(connection);
+
+                if (channel.connect(exchange.address)) {
+                    connection.key.interestOps(SelectionKey.OP_WRITE);
+                } else {
+                    connection.key.interestOps(SelectionKey.OP_CONNECT);
+                }
+            } catch (IOException e) {
+                if (connection != null) {
+                    active.remove(connection);
+                    connection.close();
+                } else if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ce) {
+                        // ignore
+                    }
+                }
+                exchange.fail(e);
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+
+            try {
+                if (key.isValid() && key.isConnectable()) {
+                    if (connection.channel.finishConnect()) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                }
+
+                if (key.isValid() && key.isWritable()) {
+                    Exchange exchange = connection.exchange;
+                    connection.channel.write(exchange.request);
+                    if (!exchange.request.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                    touch(exchange);
+                }
+
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+            } catch (IOException e) {
+                failed(connection, e);
+            } catch (RuntimeException e) {
+                failed(connection, e);
+            }
+        }
+
+        private void read(Connection connection) throws IOException {
+            Exchange exchange = connection.exchange;
+
+            if (exchange == null) {
+                // idle connection, the server closed it or sent garbage
+                removeIdle(connection);
+                connection.close();
+                return;
+            }
+
+            while (true) {
+                readBuffer.clear();
+                int n = connection.channel.read(readBuffer);
+                if (n == 0) {
+                    break;
+                }
+
+                if (n < 0) {
+                    if (!exchange.hasReceived()) {
+                        throw new IOException("Connection closed by server!");
+                    }
+                    exchange.closed();
+                    break;
+                }
+
+                readBuffer.flip();
+                exchange.received(readBuffer);
+                touch(exchange);
+
+                if (exchange.isDone()) {
+                    break;
+                }
+            }
+
+            if (exchange.isDone()) {
+                active.remove(connection);
+                connection.exchange = null;
+
+                if (exchange.isKeepAlive() && connection.channel.isOpen()) {
+                    release(connection);
+                } else {
+                    connection.close();
+                }
+
+                exchange.complete();
+            }
+        }
+
+        private void failed(Connection connection, Exception e) {
+            active.remove(connection);
+            connection.close();
+
+            Exchange exchange = connection.exchange;
+            connection.exchange = null;
+            if (exchange == null) {
+                removeIdle(connection);
+                return;
+            }
+
+            if (connection.reused && !exchange.hasReceived() && !exchange.retried && exchange.isRepeatable()) {
+                // the server has closed the kept-alive connection,
+                // try again with a new one
+                exchange.retried = true;
+                exchange.request.rewind();
+                start(exchange);
+                return;
+            }
+
+            exchange.fail(e);
+        }
+
+        private void touch(Exchange exchange) {
+            exchange.deadline = exchange.readTimeout > 0 ? System.currentTimeMillis() + exchange.readTimeout : 0;
+        }
+
+        private void checkTimeouts() {
+            long now = System.currentTimeMillis();
+
+            for (Connection connection : new ArrayList<Connection>(active)) {
+                Exchange exchange = connection.exchange;
+                if (exchange != null && exchange.deadline > 0 && now > exchange.deadline) {
+                    exchange.retried = true;
+                    failed(connection, new SocketTimeoutException(connection.channel.isConnected() ? "Read timed out"
+                            : "Connect timed out"));
+                }
+            }
+
+            for (Iterator<LinkedList<Connection>> iter = idle.values().iterator(); iter.hasNext();) {
+                LinkedList<Connection> connections = iter.next();
+                while (!connections.isEmpty() && now - connections.getFirst().idleSince > IDLE_TIMEOUT) {
+                    connections.removeFirst().close();
+                }
+                if (connections.isEmpty()) {
+                    iter.remove();
+                }
+            }
+        }
+
+        private Connection takeIdle(String hostKey) {
+            LinkedList<Connection> connections = idle.get(hostKey);
+            while (connections != null && !connections.isEmpty()) {
+                Connection connection = connections.removeLast();
+                if (connection.channel.isOpen() && connection.key.isValid()) {
+                    return connection;
+                }
+                connection.close();
+            }
+
+            return null;
+        }
+
+        private void release(Connection connection) {
+            LinkedList<Connection> connections = idle.get(connection.hostKey);
+            if (connections == null) {
+                connections = new LinkedList<Connection>();
+                idle.put(connection.hostKey, connections);
+            }
+
+            if (connections.size() >= MAX_IDLE_CONNECTIONS_PER_HOST) {
+                connection.close();
+                return;
+            }
+
+            // keep reading to notice when the server closes the connection
+            connection.idleSince = System.currentTimeMillis();
+            connection.key.interestOps(SelectionKey.OP_READ);
+            connections.addLast(connection);
+        }
+
+        private void removeIdle(Connection connection) {
+            LinkedList<Connection> connections = idle.get(connection.hostKey);
+            if (connections != null) {
+                connections.remove(connection);
+            }
+        }
+    }
+}
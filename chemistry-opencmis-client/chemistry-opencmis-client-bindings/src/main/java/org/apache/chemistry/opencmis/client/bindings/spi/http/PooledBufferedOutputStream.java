@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A buffered output stream for request bodies that takes its buffer from a
+ * pool and grows it with the body.
+ * <p>
+ * The stream starts with a small buffer. When the buffer is full, it is
+ * replaced by a buffer of the next size, up to the largest size. Small bodies
+ * therefore never touch a large buffer. Only when the largest buffer is full,
+ * the data is written to the underlying stream.
+ * <p>
+ * The buffer is returned to the pool by {@link #close()} or
+ * {@link #release()}. {@link #release()} must be called if the stream is not
+ * closed, for example when writing fails.
+ */
+class PooledBufferedOutputStream extends FilterOutputStream {
+
+    private static final int[] SIZES = new int[] { 8 * 1024, 64 * 1024, 2 * 1024 * 1024 };
+    private static final int[] POOL_SIZES = new int[] { 64, 16, 4 };
+
+    private static final BlockingQueue<byte[]>[] POOLS = createPools();
+
+    private byte[] buf;
+    private int count;
+    private int tier;
+
+    PooledBufferedOutputStream(OutputStream out) {
+        super(out);
+        buf = take(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BlockingQueue<byte[]>[] createPools() {
+        BlockingQueue<byte[]>[] pools = new BlockingQueue[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            pools[i] = new ArrayBlockingQueue<byte[]>(POOL_SIZES[i]);
+        }
+        return pools;
+    }
+
+    private static byte[] take(int tier) {
+        byte[] buffer = POOLS[tier].poll();
+        return buffer == null ? new byte[SIZES[tier]] : buffer;
+    }
+
+    private static void give(int tier, byte[] buffer) {
+        // if the pool is full, the buffer is left to the garbage collector
+        POOLS[tier].offer(buffer);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == ensureBuffer().length) {
+            makeRoom(1);
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureBuffer();
+        if (count + len > buf.length) {
+            makeRoom(len);
+        }
+
+        if (len >= buf.length) {
+            // larger than the largest buffer, don't copy
+            out.write(b, off, len);
+            return;
+        }
+
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Grows the buffer or, if it is already the largest one, flushes it.
+     */
+    private void makeRoom(int len) throws IOException {
+        while (count + len > buf.length && tier < SIZES.length - 1) {
+            byte[] larger = take(tier + 1);
+            System.arraycopy(buf, 0, larger, 0, count);
+            give(tier, buf);
+            buf = larger;
+            tier++;
+        }
+
+        if (count + len > buf.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    private byte[] ensureBuffer() throws IOException {
+        if (buf == null) {
+            throw new IOException("Stream closed!");
+        }
+        return buf;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureBuffer();
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buf == null) {
+            return;
+        }
+
+        try {
+            flush();
+        } finally {
+            release();
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the buffer to the pool without writing it. Further writes
+     * fail.
+     */
+    public void release() {
+        if (buf != null) {
+            give(tier, buf);
+            buf = null;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A GZIP output stream that takes its {@link Deflater} from a pool.
+ * <p>
+ * {@link java.util.zip.GZIPOutputStream} creates a new {@code Deflater}, and
+ * with it a native zlib stream, for every request. This stream writes the
+ * same format but reuses the {@code Deflater}s.
+ * <p>
+ * The {@code Deflater} is returned to the pool by {@link #close()} or
+ * {@link #release()}. {@link #release()} must be called if the stream is not
+ * closed, for example when writing fails.
+ */
+class PooledGZIPOutputStream extends DeflaterOutputStream {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int POOL_SIZE = 16;
+
+    private static final BlockingQueue<Deflater> POOL = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+
+    private static final byte[] HEADER = new byte[] { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0,
+            0, 0 };
+
+    private final CRC32 crc = new CRC32();
+    private boolean finished;
+    private boolean released;
+    private long bytesRead;
+    private long bytesWritten;
+    private long deflateTime;
+
+    PooledGZIPOutputStream(OutputStream out) throws IOException {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    PooledGZIPOutputStream(OutputStream out, int level) throws IOException {
+        super(out, takeDeflater(level), BUFFER_SIZE);
+        out.write(HEADER);
+    }
+
+    private static Deflater takeDeflater(int level) {
+        Deflater deflater = POOL.poll();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+
+        // the deflater has been reset, no input is pending
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (released) {
+            throw new IOException("Stream closed!");
+        }
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    protected void deflate() throws IOException {
+        long start = System.nanoTime();
+        super.deflate();
+        deflateTime += System.nanoTime() - start;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (released) {
+            throw new IOException("Stream closed!");
+        }
+
+        super.finish();
+
+        byte[] trailer = new byte[8];
+        writeInt((int) crc.getValue(), trailer, 0);
+        writeInt(def.getTotalIn(), trailer, 4);
+        out.write(trailer);
+
+        bytesRead = def.getBytesRead();
+        bytesWritten = HEADER.length + def.getBytesWritten() + trailer.length;
+        finished = true;
+    }
+
+    private static void writeInt(int i, byte[] buf, int offset) {
+        buf[offset] = (byte) (i & 0xff);
+        buf[offset + 1] = (byte) ((i >> 8) & 0xff);
+        buf[offset + 2] = (byte) ((i >> 16) & 0xff);
+        buf[offset + 3] = (byte) ((i >> 24) & 0xff);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (released) {
+            return;
+        }
+
+        try {
+            finish();
+        } finally {
+            release();
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the number of uncompressed bytes, available after
+     * {@link #finish()}.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the number of compressed bytes including the GZIP header and
+     * trailer, available after {@link #finish()}.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the time spent in the {@code Deflater} in nanoseconds.
+     */
+    public long getDeflateTime() {
+        return deflateTime;
+    }
+
+    /**
+     * Returns the {@code Deflater} to the pool. Further writes fail.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+
+        def.reset();
+        if (!POOL.offer(def)) {
+            def.end();
+        }
+    }
+}
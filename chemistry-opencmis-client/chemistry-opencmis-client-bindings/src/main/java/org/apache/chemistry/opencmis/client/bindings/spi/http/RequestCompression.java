@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
+import org.apache.chemistry.opencmis.commons.impl.MimeTypes;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides which request bodies are compressed and keeps statistics about the
+ * compression.
+ * <p>
+ * If {@link SessionParameter#CLIENT_COMPRESSION} is set, a request body is
+ * compressed if its MIME type is compressible (see
+ * {@link MimeTypes#isCompressible(String)}) and it is not smaller than
+ * {@link SessionParameter#CLIENT_COMPRESSION_THRESHOLD}. The MIME type and the
+ * length are taken from {@link ContentAwareOutput} if the output provides
+ * them. Otherwise the content type of the request is used and bodies of
+ * unknown length are compressed.
+ * <p>
+ * The statistics cover all sessions of the JVM. Each compressed request is also
+ * logged on debug level.
+ */
+public final class RequestCompression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestCompression.class);
+
+    private static final AtomicLong COMPRESSED_REQUESTS = new AtomicLong();
+    private static final AtomicLong SKIPPED_REQUESTS = new AtomicLong();
+    private static final AtomicLong UNCOMPRESSED_BYTES = new AtomicLong();
+    private static final AtomicLong COMPRESSED_BYTES = new AtomicLong();
+    private static final AtomicLong DEFLATE_TIME = new AtomicLong();
+
+    private RequestCompression() {
+    }
+
+    /**
+     * Returns whether a request body should be compressed.
+     *
+     * @param session
+     *            the binding session
+     * @param contentType
+     *            the content type of the request, may be {@code null}
+     * @param writer
+     *            the output that writes the body
+     */
+    public static boolean shouldCompress(BindingSession session, String contentType, Output writer) {
+        Object clientCompression = session.get(SessionParameter.CLIENT_COMPRESSION);
+        if ((clientCompression == null) || !Boolean.parseBoolean(clientCompression.toString())) {
+            return false;
+        }
+
+        String mimeType = contentType;
+        long length = -1;
+        if (writer instanceof ContentAwareOutput) {
+            ContentAwareOutput output = (ContentAwareOutput) writer;
+            if (output.getPayloadMimeType() != null) {
+                mimeType = output.getPayloadMimeType();
+            }
+            length = output.getLength();
+        }
+
+        int threshold = session.get(SessionParameter.CLIENT_COMPRESSION_THRESHOLD,
+                SessionParameterDefaults.CLIENT_COMPRESSION_THRESHOLD);
+
+        if (!MimeTypes.isCompressible(mimeType) || (length > -1 && length < threshold)) {
+            SKIPPED_REQUESTS.incrementAndGet();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the deflate level of the session.
+     */
+    static int getLevel(BindingSession session) {
+        int level = session.get(SessionParameter.CLIENT_COMPRESSION_LEVEL,
+                SessionParameterDefaults.CLIENT_COMPRESSION_LEVEL);
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+
+        return level;
+    }
+
+    /**
+     * Records a compressed request body. The stream must be finished.
+     */
+    static void record(BindingSession session, String method, UrlBuilder url, PooledGZIPOutputStream out) {
+        COMPRESSED_REQUESTS.incrementAndGet();
+        UNCOMPRESSED_BYTES.addAndGet(out.getBytesRead());
+        COMPRESSED_BYTES.addAndGet(out.getBytesWritten());
+        DEFLATE_TIME.addAndGet(out.getDeflateTime());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Session {}: {} {} > Request body compressed from {} to {} bytes in {} us",
+                    session.getSessionId(), method, url, out.getBytesRead(), out.getBytesWritten(),
+                    out.getDeflateTime() / 1000);
+        }
+    }
+
+    /**
+     * Returns the number of compressed request bodies.
+     */
+    public static long getCompressedRequests() {
+        return COMPRESSED_REQUESTS.get();
+    }
+
+    /**
+     * Returns the number of request bodies that have not been compressed
+     * although compression was switched on, because they were too small or
+     * their content is not compressible.
+     */
+    public static long getSkippedRequests() {
+        return SKIPPED_REQUESTS.get();
+    }
+
+    /**
+     * Returns the total size of the compressed request bodies before
+     * compression.
+     */
+    public static long getUncompressedBytes() {
+        return UNCOMPRESSED_BYTES.get();
+    }
+
+    /**
+     * Returns the total size of the compressed request bodies after
+     * compression.
+     */
+    public static long getCompressedBytes() {
+        return COMPRESSED_BYTES.get();
+    }
+
+    /**
+     * Returns the number of bytes compression has saved. A negative value
+     * means that compression made the request bodies larger.
+     */
+    public static long getBytesSaved() {
+        return UNCOMPRESSED_BYTES.get() - COMPRESSED_BYTES.get();
+    }
+
+    /**
+     * Returns the total time spent compressing in nanoseconds.
+     */
+    public static long getDeflateTime() {
+        return DEFLATE_TIME.get();
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public static void resetStatistics() {
+        COMPRESSED_REQUESTS.set(0);
+        SKIPPED_REQUESTS.set(0);
+        UNCOMPRESSED_BYTES.set(0);
+        COMPRESSED_BYTES.set(0);
+        DEFLATE_TIME.set(0);
+    }
+}
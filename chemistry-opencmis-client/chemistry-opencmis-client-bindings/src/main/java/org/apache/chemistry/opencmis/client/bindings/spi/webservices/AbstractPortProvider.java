@@ -27,11 +27,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
@@ -51,6 +49,7 @@ import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
@@ -92,8 +91,6 @@ public abstract class AbstractPortProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractPortProvider.class);
 
-    private static final int PORT_CACHE_SIZE = 5;
-
     protected static final int CHUNK_SIZE = (64 * 1024) - 1;
 
     protected enum CmisWebSerivcesService {
@@ -241,8 +238,13 @@ public abstract class AbstractPortProvider {
     private boolean useClientCompression;
     private String acceptLanguage;
 
+    private int portPoolMinSize;
+    private int portPoolMaxSize;
+    private int portPoolMaxWait;
+    private int portPoolIdleTimeout;
+
     private final ReentrantLock portObjectLock = new ReentrantLock();
-    private final EnumMap<CmisWebSerivcesService, ArrayDeque<SoftReference<BindingProvider>>> portObjectCache = new EnumMap<CmisWebSerivcesService, ArrayDeque<SoftReference<BindingProvider>>>(
+    private final EnumMap<CmisWebSerivcesService, PortPool> portPools = new EnumMap<CmisWebSerivcesService, PortPool>(
             CmisWebSerivcesService.class);
 
     public BindingSession getSession() {
@@ -261,6 +263,16 @@ public abstract class AbstractPortProvider {
         if (session.get(CmisBindingsHelper.ACCEPT_LANGUAGE) instanceof String) {
             acceptLanguage = session.get(CmisBindingsHelper.ACCEPT_LANGUAGE).toString();
         }
+
+        portPoolMaxSize = Math.max(1, session.get(SessionParameter.WEBSERVICES_PORT_POOL_MAX_SIZE,
+                SessionParameterDefaults.WEBSERVICES_PORT_POOL_MAX_SIZE));
+        portPoolMinSize = Math.max(0, Math.min(portPoolMaxSize, session.get(
+                SessionParameter.WEBSERVICES_PORT_POOL_MIN_SIZE, SessionParameterDefaults.WEBSERVICES_PORT_POOL_MIN_SIZE)));
+        portPoolMaxWait = Math.max(0, session.get(SessionParameter.WEBSERVICES_PORT_POOL_MAX_WAIT,
+                SessionParameterDefaults.WEBSERVICES_PORT_POOL_MAX_WAIT));
+        // shorter timeouts would discard every port object that is given back
+        portPoolIdleTimeout = Math.max(1000, session.get(SessionParameter.WEBSERVICES_PORT_POOL_IDLE_TIMEOUT,
+                SessionParameterDefaults.WEBSERVICES_PORT_POOL_IDLE_TIMEOUT));
     }
 
     public boolean useCompression() {
@@ -366,9 +378,14 @@ public abstract class AbstractPortProvider {
     }
 
     public void endCall(Object portObject) {
+        if (!(portObject instanceof BindingProvider)) {
+            return;
+        }
+
+        BindingProvider bp = (BindingProvider) portObject;
+
         AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
-        if (authProvider != null && portObject instanceof BindingProvider) {
-            BindingProvider bp = (BindingProvider) portObject;
+        if (authProvider != null) {
             String url = (String) bp.getRequestContext().get(BindingProvider.ENDPOINT_ADDRESS_PROPERTY);
             if (bp.getResponseContext() != null) {
                 @SuppressWarnings("unchecked")
@@ -377,63 +394,90 @@ public abstract class AbstractPortProvider {
                 Integer statusCode = (Integer) bp.getResponseContext().get(MessageContext.HTTP_RESPONSE_CODE);
                 authProvider.putResponseHeaders(url, statusCode == null ? -1 : statusCode, headers);
             }
+        }
 
-            CmisWebSerivcesService service = null;
-
-            if (portObject instanceof RepositoryServicePort) {
-                service = CmisWebSerivcesService.REPOSITORY_SERVICE;
-            } else if (portObject instanceof NavigationServicePort) {
-                service = CmisWebSerivcesService.NAVIGATION_SERVICE;
-            } else if (portObject instanceof ObjectServicePort) {
-                service = CmisWebSerivcesService.OBJECT_SERVICE;
-            } else if (portObject instanceof VersioningServicePort) {
-                service = CmisWebSerivcesService.VERSIONING_SERVICE;
-            } else if (portObject instanceof DiscoveryServicePort) {
-                service = CmisWebSerivcesService.DISCOVERY_SERVICE;
-            } else if (portObject instanceof MultiFilingServicePort) {
-                service = CmisWebSerivcesService.MULTIFILING_SERVICE;
-            } else if (portObject instanceof RelationshipServicePort) {
-                service = CmisWebSerivcesService.RELATIONSHIP_SERVICE;
-            } else if (portObject instanceof PolicyServicePort) {
-                service = CmisWebSerivcesService.POLICY_SERVICE;
-            } else if (portObject instanceof ACLServicePort) {
-                service = CmisWebSerivcesService.ACL_SERVICE;
-            }
+        CmisWebSerivcesService service = null;
+
+        if (portObject instanceof RepositoryServicePort) {
+            service = CmisWebSerivcesService.REPOSITORY_SERVICE;
+        } else if (portObject instanceof NavigationServicePort) {
+            service = CmisWebSerivcesService.NAVIGATION_SERVICE;
+        } else if (portObject instanceof ObjectServicePort) {
+            service = CmisWebSerivcesService.OBJECT_SERVICE;
+        } else if (portObject instanceof VersioningServicePort) {
+            service = CmisWebSerivcesService.VERSIONING_SERVICE;
+        } else if (portObject instanceof DiscoveryServicePort) {
+            service = CmisWebSerivcesService.DISCOVERY_SERVICE;
+        } else if (portObject instanceof MultiFilingServicePort) {
+            service = CmisWebSerivcesService.MULTIFILING_SERVICE;
+        } else if (portObject instanceof RelationshipServicePort) {
+            service = CmisWebSerivcesService.RELATIONSHIP_SERVICE;
+        } else if (portObject instanceof PolicyServicePort) {
+            service = CmisWebSerivcesService.POLICY_SERVICE;
+        } else if (portObject instanceof ACLServicePort) {
+            service = CmisWebSerivcesService.ACL_SERVICE;
+        }
 
-            if (service == null) {
-                return;
-            }
+        if (service == null) {
+            return;
+        }
 
-            portObjectLock.lock();
-            try {
-                ArrayDeque<SoftReference<BindingProvider>> queue = portObjectCache.get(service);
-                if (queue == null) {
-                    throw new CmisRuntimeException("This is a bug!");
-                }
+        getPortPool(service).giveBack(bp);
+    }
 
-                if (queue.size() < PORT_CACHE_SIZE) {
-                    queue.push(new SoftReference<BindingProvider>(bp));
-                } else {
-                    Iterator<SoftReference<BindingProvider>> iter = queue.iterator();
-                    while (iter.hasNext()) {
-                        SoftReference<BindingProvider> ref = iter.next();
-                        if (ref.get() == null) {
-                            iter.remove();
-                            queue.push(new SoftReference<BindingProvider>(bp));
-                            break;
-                        }
+    /**
+     * Creates the minimum number of port objects of all services, as defined
+     * by {@link SessionParameter#WEBSERVICES_PORT_POOL_MIN_SIZE}. Failures are
+     * logged and ignored; the port objects are then created on first use.
+     */
+    public void prewarmPortPools() {
+        if (portPoolMinSize == 0) {
+            return;
+        }
+
+        for (CmisWebSerivcesService service : CmisWebSerivcesService.values()) {
+            try {
+                final CmisServiceHolder serviceHolder = getServiceHolder(service);
+                getPortPool(service).prewarm(new PortPool.PortFactory() {
+                    @Override
+                    public BindingProvider createPort() throws Exception {
+                        return createRawPortObject(serviceHolder, getPortFeatures());
                     }
-                }
-            } finally {
-                portObjectLock.unlock();
+                });
+            } catch (Exception e) {
+                LOG.warn("Session {}: Cannot create port objects of {}: {}", getSession().getSessionId(),
+                        service.getServiceName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the port object pools by service name.
+     */
+    public Map<String, PortPool> getPortPools() {
+        portObjectLock.lock();
+        try {
+            Map<String, PortPool> result = new HashMap<String, PortPool>();
+            for (PortPool pool : portPools.values()) {
+                result.put(pool.getName(), pool);
             }
+            return result;
+        } finally {
+            portObjectLock.unlock();
         }
     }
 
     // ---- internal ----
 
-    @SuppressWarnings("unchecked")
     protected BindingProvider getPortObject(final CmisWebSerivcesService service) {
+        return createPortObject(getServiceHolder(service));
+    }
+
+    /**
+     * Returns the service holder of a service and creates it if necessary.
+     */
+    @SuppressWarnings("unchecked")
+    protected CmisServiceHolder getServiceHolder(final CmisWebSerivcesService service) {
         Map<CmisWebSerivcesService, CmisServiceHolder> serviceMap = (Map<CmisWebSerivcesService, CmisServiceHolder>) session
                 .get(SpiSessionParameter.SERVICES);
 
@@ -449,15 +493,14 @@ public abstract class AbstractPortProvider {
                 }
 
                 if (serviceMap.containsKey(service)) {
-                    return createPortObject(serviceMap.get(service));
+                    return serviceMap.get(service);
                 }
 
                 // create service object
                 CmisServiceHolder serviceholder = initServiceObject(service);
                 serviceMap.put(service, serviceholder);
 
-                // create port object
-                return createPortObject(serviceholder);
+                return serviceholder;
             } finally {
                 session.writeUnlock();
             }
@@ -469,20 +512,39 @@ public abstract class AbstractPortProvider {
             try {
                 // try again
                 if (serviceMap.containsKey(service)) {
-                    return createPortObject(serviceMap.get(service));
+                    return serviceMap.get(service);
                 }
 
                 // create object
                 CmisServiceHolder serviceholder = initServiceObject(service);
                 serviceMap.put(service, serviceholder);
 
-                return createPortObject(serviceholder);
+                return serviceholder;
             } finally {
                 session.writeUnlock();
             }
         }
 
-        return createPortObject(serviceMap.get(service));
+        return serviceMap.get(service);
+    }
+
+    /**
+     * Returns the port object pool of a service.
+     */
+    protected PortPool getPortPool(final CmisWebSerivcesService service) {
+        portObjectLock.lock();
+        try {
+            PortPool pool = portPools.get(service);
+            if (pool == null) {
+                pool = new PortPool(service.getServiceName(), portPoolMinSize, portPoolMaxSize, portPoolMaxWait,
+                        portPoolIdleTimeout);
+                portPools.put(service, pool);
+            }
+
+            return pool;
+        } finally {
+            portObjectLock.unlock();
+        }
     }
 
     /**
@@ -696,32 +758,46 @@ public abstract class AbstractPortProvider {
     }
 
     /**
-     * Creates a simple port object from a CmisServiceHolder object.
+     * Takes a port object from the pool or creates a simple port object from
+     * a CmisServiceHolder object.
      */
     protected BindingProvider createPortObjectFromServiceHolder(final CmisServiceHolder serviceHolder,
-            WebServiceFeature... features) throws Exception {
-        portObjectLock.lock();
-        try {
-            ArrayDeque<SoftReference<BindingProvider>> queue = portObjectCache.get(serviceHolder.getService());
-            if (queue == null) {
-                queue = new ArrayDeque<SoftReference<BindingProvider>>();
-                portObjectCache.put(serviceHolder.getService(), queue);
+            final WebServiceFeature... features) throws Exception {
+        return getPortPool(serviceHolder.getService()).borrow(new PortPool.PortFactory() {
+            @Override
+            public BindingProvider createPort() throws Exception {
+                return createRawPortObject(serviceHolder, features);
             }
+        });
+    }
 
-            while (!queue.isEmpty()) {
-                BindingProvider bp = queue.pop().get();
-                if (bp != null) {
-                    return bp;
-                }
-            }
-        } finally {
-            portObjectLock.unlock();
-        }
-
+    /**
+     * Creates a simple port object from a CmisServiceHolder object, bypassing
+     * the pool.
+     */
+    protected BindingProvider createRawPortObject(final CmisServiceHolder serviceHolder,
+            WebServiceFeature... features) throws Exception {
         return (BindingProvider) serviceHolder.getServiceObject().getPort(serviceHolder.getService().getPortClass(),
                 features);
     }
 
+    /**
+     * Removes a port object from the pool that could not be set up. Does
+     * nothing if the port object is {@code null}.
+     */
+    protected void discardPortObject(final CmisServiceHolder serviceHolder, BindingProvider portObject) {
+        if (portObject != null) {
+            getPortPool(serviceHolder.getService()).discard(portObject);
+        }
+    }
+
+    /**
+     * Returns the features of new port objects.
+     */
+    protected WebServiceFeature[] getPortFeatures() {
+        return new WebServiceFeature[0];
+    }
+
     /**
      * Creates a port object.
      */
@@ -27,6 +27,7 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.xml.namespace.QName;
 import javax.xml.ws.Binding;
 import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceFeature;
 import javax.xml.ws.soap.MTOMFeature;
 import javax.xml.ws.soap.SOAPBinding;
 
@@ -78,9 +79,10 @@ public class CXFPortProvider extends AbstractPortProvider {
                     serviceHolder.getServiceName());
         }
 
+        BindingProvider portObject = null;
         try {
             // create port object
-            BindingProvider portObject = createPortObjectFromServiceHolder(serviceHolder, new MTOMFeature());
+            portObject = createPortObjectFromServiceHolder(serviceHolder, getPortFeatures());
 
             Binding binding = portObject.getBinding();
             ((SOAPBinding) binding).setMTOMEnabled(true);
@@ -164,9 +166,16 @@ public class CXFPortProvider extends AbstractPortProvider {
 
             return portObject;
         } catch (CmisBaseException ce) {
+            discardPortObject(serviceHolder, portObject);
             throw ce;
         } catch (Exception e) {
+            discardPortObject(serviceHolder, portObject);
             throw new CmisConnectionException("Cannot initalize Web Services port object: " + e.getMessage(), e);
         }
     }
+
+    @Override
+    protected WebServiceFeature[] getPortFeatures() {
+        return new WebServiceFeature[] { new MTOMFeature() };
+    }
 }
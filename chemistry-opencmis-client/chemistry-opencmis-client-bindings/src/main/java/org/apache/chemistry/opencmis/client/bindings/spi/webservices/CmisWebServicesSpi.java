@@ -50,6 +50,7 @@ public class CmisWebServicesSpi implements CmisSpi {
 
     private static final Logger LOG = LoggerFactory.getLogger(CmisWebServicesSpi.class);
 
+    private final AbstractPortProvider portProvider;
     private final RepositoryService repositoryService;
     private final NavigationService navigationService;
     private final ObjectService objectService;
@@ -143,6 +144,16 @@ public class CmisWebServicesSpi implements CmisSpi {
         relationshipService = new RelationshipServiceImpl(session, portProvider);
         policyService = new PolicyServiceImpl(session, portProvider);
         aclService = new AclServiceImpl(session, portProvider);
+
+        portProvider.prewarmPortPools();
+        this.portProvider = portProvider;
+    }
+
+    /**
+     * Returns the port provider, which holds the port object pools.
+     */
+    public AbstractPortProvider getPortProvider() {
+        return portProvider;
     }
 
     @Override
@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.xml.ws.BindingProvider;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisTooManyRequestsException;
+
+/**
+ * A bounded pool of port objects of one Web Service.
+ * <p>
+ * Creating a port object is expensive, so port objects are reused. The pool
+ * holds at most {@code maxSize} port objects, idle or in use. If all of them
+ * are in use, a call either waits up to {@code maxWaitTime} milliseconds for a
+ * port object or, if {@code maxWaitTime} is 0, gets an additional port object
+ * that is discarded after the call.
+ * <p>
+ * Idle port objects that have not been used for {@code idleTimeout}
+ * milliseconds are discarded, but the pool keeps at least {@code minSize}
+ * port objects. Idle port objects are reused in LIFO order, so that rarely
+ * needed port objects age out.
+ */
+public class PortPool {
+
+    /**
+     * Creates port objects.
+     */
+    interface PortFactory {
+        BindingProvider createPort() throws Exception;
+    }
+
+    private static final class IdlePort {
+        final BindingProvider port;
+        final long lastUsed;
+
+        IdlePort(BindingProvider port, long lastUsed) {
+            this.port = port;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final String name;
+    private final int minSize;
+    private final int maxSize;
+    private final long maxWaitTime;
+    private final long idleTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private final ArrayDeque<IdlePort> idle = new ArrayDeque<IdlePort>();
+    private final Set<BindingProvider> borrowed = Collections
+            .newSetFromMap(new IdentityHashMap<BindingProvider, Boolean>());
+    private int creating;
+
+    private long createdCount;
+    private long borrowCount;
+    private long waitCount;
+    private long totalWaitTime;
+    private long longestWaitTime;
+    private long timeoutCount;
+    private long overflowCount;
+    private long evictedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param name
+     *            the name of the service
+     * @param minSize
+     *            the number of port objects that are kept when idle
+     * @param maxSize
+     *            the maximum number of port objects
+     * @param maxWaitTime
+     *            the maximum time in milliseconds a call waits for a port
+     *            object, 0 to create an additional port object instead
+     * @param idleTimeout
+     *            the time in milliseconds after which an idle port object is
+     *            discarded
+     */
+    public PortPool(String name, int minSize, int maxSize, long maxWaitTime, long idleTimeout) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be positive!");
+        }
+        if (minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Min size must be between 0 and the max size!");
+        }
+        if (maxWaitTime < 0) {
+            throw new IllegalArgumentException("Max wait time must not be negative!");
+        }
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("Idle timeout must not be negative!");
+        }
+
+        this.name = name;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxWaitTime = maxWaitTime;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Takes an idle port object or creates a new one.
+     *
+     * @throws CmisTooManyRequestsException
+     *             if the call has waited too long for a port object
+     */
+    BindingProvider borrow(PortFactory factory) throws Exception {
+        boolean overflow = false;
+
+        lock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            long now = start;
+            long deadline = start + maxWaitTime;
+            boolean waited = false;
+
+            try {
+                while (true) {
+                    evictIdle(now);
+
+                    IdlePort idlePort = idle.pollFirst();
+                    if (idlePort != null) {
+                        borrowed.add(idlePort.port);
+                        borrowCount++;
+                        return idlePort.port;
+                    }
+
+                    if (size() < maxSize) {
+                        creating++;
+                        break;
+                    }
+
+                    if (maxWaitTime == 0) {
+                        overflow = true;
+                        overflowCount++;
+                        break;
+                    }
+
+                    if (now >= deadline) {
+                        timeoutCount++;
+                        throw new CmisTooManyRequestsException("No port object of the " + name
+                                + " available: all " + maxSize + " port objects are in use!");
+                    }
+
+                    if (!waited) {
+                        waited = true;
+                        waitCount++;
+                    }
+
+                    available.await(deadline - now, TimeUnit.MILLISECONDS);
+                    now = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CmisConnectionException("Interrupted while waiting for a port object!", e);
+            } finally {
+                if (waited) {
+                    long waitTime = now - start;
+                    totalWaitTime += waitTime;
+                    longestWaitTime = Math.max(longestWaitTime, waitTime);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // create the port object outside the lock
+        BindingProvider port = null;
+        try {
+            port = factory.createPort();
+        } finally {
+            lock.lock();
+            try {
+                if (!overflow) {
+                    creating--;
+                    if (port != null) {
+                        borrowed.add(port);
+                    } else {
+                        available.signal();
+                    }
+                }
+                if (port != null) {
+                    createdCount++;
+                    borrowCount++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return port;
+    }
+
+    /**
+     * Creates port objects until the pool holds the minimum number.
+     */
+    void prewarm(PortFactory factory) throws Exception {
+        while (true) {
+            lock.lock();
+            try {
+                if (size() >= minSize) {
+                    return;
+                }
+                creating++;
+            } finally {
+                lock.unlock();
+            }
+
+            BindingProvider port = null;
+            try {
+                port = factory.createPort();
+            } finally {
+                lock.lock();
+                try {
+                    creating--;
+                    if (port != null) {
+                        createdCount++;
+                        idle.addFirst(new IdlePort(port, System.currentTimeMillis()));
+                    }
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a port object to the pool after a call. Port objects that
+     * don't belong to the pool are ignored.
+     */
+    void giveBack(BindingProvider port) {
+        lock.lock();
+        try {
+            if (!borrowed.remove(port)) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            idle.addFirst(new IdlePort(port, now));
+            evictIdle(now);
+
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a port object that is broken, for example because it couldn't
+     * be configured.
+     */
+    void discard(BindingProvider port) {
+        lock.lock();
+        try {
+            if (borrowed.remove(port)) {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        return idle.size() + borrowed.size() + creating;
+    }
+
+    private void evictIdle(long now) {
+        Iterator<IdlePort> iter = idle.descendingIterator();
+        while (iter.hasNext() && size() > minSize) {
+            IdlePort idlePort = iter.next();
+            if (now - idlePort.lastUsed < idleTimeout) {
+                // all newer ports are in front of this one
+                break;
+            }
+
+            iter.remove();
+            evictedCount++;
+            available.signal();
+        }
+    }
+
+    /**
+     * Returns the name of the service.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of port objects that are idle.
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of pooled port objects that are in use.
+     */
+    public int getBorrowedCount() {
+        lock.lock();
+        try {
+            return borrowed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of port objects that have been created, including
+     * additional port objects.
+     */
+    public long getCreatedCount() {
+        lock.lock();
+        try {
+            return createdCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of calls that got a port object.
+     */
+    public long getBorrowCount() {
+        lock.lock();
+        try {
+            return borrowCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of calls that had to wait for a port object.
+     */
+    public long getWaitCount() {
+        lock.lock();
+        try {
+            return waitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the total time in milliseconds calls have waited for a port
+     * object.
+     */
+    public long getTotalWaitTime() {
+        lock.lock();
+        try {
+            return totalWaitTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the longest time in milliseconds a call has waited for a port
+     * object.
+     */
+    public long getLongestWaitTime() {
+        lock.lock();
+        try {
+            return longestWaitTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of calls that have waited too long for a port object.
+     */
+    public long getTimeoutCount() {
+        lock.lock();
+        try {
+            return timeoutCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of additional port objects that have been created
+     * because all pooled port objects were in use.
+     */
+    public long getOverflowCount() {
+        lock.lock();
+        try {
+            return overflowCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of idle port objects that have been discarded.
+     */
+    public long getEvictedCount() {
+        lock.lock();
+        try {
+            return evictedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "Port pool " + name + " [idle=" + idle.size() + ", borrowed=" + borrowed.size() + ", created="
+                    + createdCount + ", borrows=" + borrowCount + ", waits=" + waitCount + ", total wait time="
+                    + totalWaitTime + "ms, timeouts=" + timeoutCount + ", overflows=" + overflowCount
+                    + ", evicted=" + evictedCount + "]";
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceFeature;
 import javax.xml.ws.soap.MTOMFeature;
 
 import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
@@ -57,9 +58,10 @@ public class WebSpherePortProvider extends AbstractPortProvider {
             LOG.debug("Creating Web Service port object of " + serviceHolder.getServiceName() + "...");
         }
 
+        BindingProvider portObject = null;
         try {
             // create port object
-            BindingProvider portObject = createPortObjectFromServiceHolder(serviceHolder, new MTOMFeature());
+            portObject = createPortObjectFromServiceHolder(serviceHolder, getPortFeatures());
 
             // add SOAP and HTTP authentication headers
             AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(getSession());
@@ -108,9 +110,16 @@ public class WebSpherePortProvider extends AbstractPortProvider {
 
             return portObject;
         } catch (CmisBaseException ce) {
+            discardPortObject(serviceHolder, portObject);
             throw ce;
         } catch (Exception e) {
+            discardPortObject(serviceHolder, portObject);
             throw new CmisConnectionException("Cannot initalize Web Services port object: " + e.getMessage(), e);
         }
     }
+
+    @Override
+    protected WebServiceFeature[] getPortFeatures() {
+        return new WebServiceFeature[] { new MTOMFeature() };
+    }
 }
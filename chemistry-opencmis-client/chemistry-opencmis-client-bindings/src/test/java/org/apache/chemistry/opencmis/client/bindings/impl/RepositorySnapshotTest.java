@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractTypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+
+public class RepositorySnapshotTest extends TestCase {
+
+    private static final String REPOSITORY_ID = "test";
+
+    private static final AtomicInteger TYPE_DESCENDANTS_CALLS = new AtomicInteger();
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        TYPE_DESCENDANTS_CALLS.set(0);
+
+        dir = File.createTempFile("snapshot", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    public void testRoundTrip() throws Exception {
+        BindingSession session = createSession();
+        RepositoryInfo info = createRepositoryInfo("1.0", "token1");
+        File file = RepositorySnapshot.getFile(session, REPOSITORY_ID);
+
+        RepositorySnapshot.refresh(session, REPOSITORY_ID, info, file);
+        assertTrue(file.isFile());
+
+        List<TypeDefinition> typeDefinitions = new ArrayList<TypeDefinition>();
+        RepositoryInfo restored = RepositorySnapshot.read(file, typeDefinitions);
+
+        assertEquals(REPOSITORY_ID, restored.getId());
+        assertEquals("Product", restored.getProductName());
+        assertEquals("1.0", restored.getProductVersion());
+        assertEquals("token1", restored.getLatestChangeLogToken());
+        assertEquals(CmisVersion.CMIS_1_1, restored.getCmisVersion());
+
+        assertEquals(2, typeDefinitions.size());
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            TypeDefinition expected = createType(typeDefinition.getBaseTypeId());
+            assertEquals(expected.getId(), typeDefinition.getId());
+            assertEquals(expected.getDisplayName(), typeDefinition.getDisplayName());
+            assertEquals(expected.getPropertyDefinitions().size(), typeDefinition.getPropertyDefinitions().size());
+            for (PropertyDefinition<?> propDef : expected.getPropertyDefinitions().values()) {
+                PropertyDefinition<?> restoredPropDef = typeDefinition.getPropertyDefinitions().get(propDef.getId());
+                assertNotNull(restoredPropDef);
+                assertEquals(propDef.getPropertyType(), restoredPropDef.getPropertyType());
+                assertEquals(propDef.getCardinality(), restoredPropDef.getCardinality());
+                assertEquals(propDef.getUpdatability(), restoredPropDef.getUpdatability());
+            }
+        }
+
+        // a new snapshot replaces the old one
+        RepositorySnapshot.refresh(session, REPOSITORY_ID, createRepositoryInfo("1.0", "token2"), file);
+        assertEquals("token2", RepositorySnapshot.read(file, new ArrayList<TypeDefinition>())
+                .getLatestChangeLogToken());
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    public void testRestore() throws Exception {
+        // no snapshot yet, the refresh writes it in the background
+        BindingSession session1 = createSession();
+        RepositorySnapshot.restore(session1, REPOSITORY_ID, createRepositoryInfo("1.0", "token1"));
+
+        File file = RepositorySnapshot.getFile(session1, REPOSITORY_ID);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!file.isFile()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(1, TYPE_DESCENDANTS_CALLS.get());
+
+        // the type definitions come from the snapshot, the snapshot has just
+        // been refreshed
+        BindingSession session2 = createSession();
+        RepositorySnapshot.restore(session2, REPOSITORY_ID, createRepositoryInfo("1.0", "token1"));
+        TypeDefinitionCache cache2 = CmisBindingsHelper.getTypeDefinitionCache(session2);
+        assertNotNull(cache2.get(REPOSITORY_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        assertNotNull(cache2.get(REPOSITORY_ID, BaseTypeId.CMIS_FOLDER.value()));
+        assertEquals(1, TYPE_DESCENDANTS_CALLS.get());
+
+        // a cleared cache is not filled from the snapshot again
+        cache2.removeAll();
+        RepositorySnapshot.restore(session2, REPOSITORY_ID, createRepositoryInfo("1.0", "token1"));
+        assertNull(cache2.get(REPOSITORY_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+
+        // the type definitions of another repository version are not used
+        BindingSession session3 = createSession();
+        RepositorySnapshot.restore(session3, REPOSITORY_ID, createRepositoryInfo("2.0", "token1"));
+        TypeDefinitionCache cache3 = CmisBindingsHelper.getTypeDefinitionCache(session3);
+        assertNull(cache3.get(REPOSITORY_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+
+        // nor those of a repository that has changed since the snapshot
+        BindingSession session4 = createSession();
+        RepositorySnapshot.restore(session4, REPOSITORY_ID, createRepositoryInfo("1.0", "token2"));
+        TypeDefinitionCache cache4 = CmisBindingsHelper.getTypeDefinitionCache(session4);
+        assertNull(cache4.get(REPOSITORY_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+    }
+
+    private BindingSession createSession() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.BINDING_SPI_CLASS, MockSpi.class.getName());
+        session.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        session.put(SessionParameter.CACHE_SNAPSHOT_DIRECTORY, dir.getAbsolutePath());
+        return session;
+    }
+
+    private static RepositoryInfo createRepositoryInfo(String productVersion, String latestChangeLogToken) {
+        RepositoryInfoImpl info = new RepositoryInfoImpl();
+        info.setId(REPOSITORY_ID);
+        info.setName(REPOSITORY_ID);
+        info.setProductName("Product");
+        info.setProductVersion(productVersion);
+        info.setCmisVersion(CmisVersion.CMIS_1_1);
+        info.setCapabilities(new RepositoryCapabilitiesImpl());
+        info.setLatestChangeLogToken(latestChangeLogToken);
+        return info;
+    }
+
+    private static TypeDefinition createType(BaseTypeId baseTypeId) {
+        AbstractTypeDefinition type = baseTypeId == BaseTypeId.CMIS_FOLDER ? new FolderTypeDefinitionImpl()
+                : new DocumentTypeDefinitionImpl();
+        type.setBaseTypeId(baseTypeId);
+        type.setId(baseTypeId.value());
+        type.setLocalName(baseTypeId.value());
+        type.setQueryName(baseTypeId.value());
+        type.setDisplayName("Type " + baseTypeId.value());
+        type.setIsCreatable(Boolean.TRUE);
+        type.setIsFileable(Boolean.TRUE);
+        type.setIsQueryable(Boolean.TRUE);
+        type.setIsFulltextIndexed(Boolean.FALSE);
+        type.setIsIncludedInSupertypeQuery(Boolean.TRUE);
+        type.setIsControllableAcl(Boolean.FALSE);
+        type.setIsControllablePolicy(Boolean.FALSE);
+        if (type instanceof DocumentTypeDefinitionImpl) {
+            ((DocumentTypeDefinitionImpl) type).setIsVersionable(Boolean.FALSE);
+        }
+        type.addPropertyDefinition(createPropertyDefinition(new PropertyIdDefinitionImpl(), PropertyIds.OBJECT_ID,
+                PropertyType.ID, Updatability.READONLY));
+        type.addPropertyDefinition(createPropertyDefinition(new PropertyStringDefinitionImpl(), PropertyIds.NAME,
+                PropertyType.STRING, Updatability.READWRITE));
+        return type;
+    }
+
+    private static AbstractPropertyDefinition<?> createPropertyDefinition(AbstractPropertyDefinition<?> propDef,
+            String id, PropertyType propertyType, Updatability updatability) {
+        propDef.setId(id);
+        propDef.setLocalName(id);
+        propDef.setQueryName(id);
+        propDef.setDisplayName(id);
+        propDef.setPropertyType(propertyType);
+        propDef.setCardinality(Cardinality.SINGLE);
+        propDef.setUpdatability(updatability);
+        propDef.setIsInherited(Boolean.FALSE);
+        propDef.setIsRequired(Boolean.FALSE);
+        propDef.setIsQueryable(Boolean.TRUE);
+        propDef.setIsOrderable(Boolean.TRUE);
+        return propDef;
+    }
+
+    /**
+     * Binding SPI that only provides the type descendants.
+     */
+    public static class MockSpi implements CmisSpi {
+
+        public MockSpi(BindingSession session) {
+        }
+
+        @Override
+        public RepositoryService getRepositoryService() {
+            return (RepositoryService) Proxy.newProxyInstance(RepositorySnapshotTest.class.getClassLoader(),
+                    new Class<?>[] { RepositoryService.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (!method.getName().equals("getTypeDescendants")) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+
+                            TYPE_DESCENDANTS_CALLS.incrementAndGet();
+                            List<TypeDefinitionContainer> result = new ArrayList<TypeDefinitionContainer>();
+                            result.add(new TypeDefinitionContainerImpl(createType(BaseTypeId.CMIS_DOCUMENT)));
+                            result.add(new TypeDefinitionContainerImpl(createType(BaseTypeId.CMIS_FOLDER)));
+                            return result;
+                        }
+                    });
+        }
+
+        @Override
+        public NavigationService getNavigationService() {
+            return null;
+        }
+
+        @Override
+        public ObjectService getObjectService() {
+            return null;
+        }
+
+        @Override
+        public VersioningService getVersioningService() {
+            return null;
+        }
+
+        @Override
+        public RelationshipService getRelationshipService() {
+            return null;
+        }
+
+        @Override
+        public DiscoveryService getDiscoveryService() {
+            return null;
+        }
+
+        @Override
+        public MultiFilingService getMultiFilingService() {
+            return null;
+        }
+
+        @Override
+        public AclService getAclService() {
+            return null;
+        }
+
+        @Override
+        public PolicyService getPolicyService() {
+            return null;
+        }
+
+        @Override
+        public void clearAllCaches() {
+        }
+
+        @Override
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
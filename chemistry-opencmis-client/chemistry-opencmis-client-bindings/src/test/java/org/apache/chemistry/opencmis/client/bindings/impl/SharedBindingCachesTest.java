@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.lang.ref.WeakReference;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+public class SharedBindingCachesTest extends TestCase {
+
+    @Override
+    protected void tearDown() {
+        SharedBindingCaches.clear();
+    }
+
+    public void testSameEndpointAndUser() {
+        SessionImpl session1 = createSession("alice", "en");
+        SessionImpl session2 = createSession("alice", "en");
+
+        assertSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(session2));
+        assertSame(SharedBindingCaches.getRepositoryInfoCache(session1),
+                SharedBindingCaches.getRepositoryInfoCache(session2));
+    }
+
+    public void testDifferentUsers() {
+        SessionImpl session1 = createSession("alice", "en");
+        SessionImpl session2 = createSession("bob", "en");
+        SessionImpl anonymous = createSession(null, "en");
+
+        assertSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(session2));
+        assertSame(SharedBindingCaches.getRepositoryInfoCache(session1),
+                SharedBindingCaches.getRepositoryInfoCache(anonymous));
+    }
+
+    public void testPerUser() {
+        SessionImpl session1 = createSession("alice", "en");
+        session1.put(SessionParameter.CACHE_SHARED_PER_USER, "true");
+        SessionImpl session2 = createSession("bob", "en");
+        session2.put(SessionParameter.CACHE_SHARED_PER_USER, "true");
+        SessionImpl session3 = createSession("alice", "en");
+        session3.put(SessionParameter.CACHE_SHARED_PER_USER, "true");
+
+        assertNotSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(session2));
+        assertNotSame(SharedBindingCaches.getRepositoryInfoCache(session1),
+                SharedBindingCaches.getRepositoryInfoCache(session2));
+        assertSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(session3));
+
+        // sessions that share across users don't get a per-user cache
+        assertNotSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(createSession("alice", "en")));
+    }
+
+    public void testUnusedCachesAreCollected() throws InterruptedException {
+        WeakReference<TypeDefinitionCache> ref = new WeakReference<TypeDefinitionCache>(
+                SharedBindingCaches.getTypeDefinitionCache(createSession("alice", "en")));
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertNotNull(SharedBindingCaches.getTypeDefinitionCache(createSession("alice", "en")));
+    }
+
+    public void testDifferentLocales() {
+        SessionImpl session1 = createSession("alice", "en");
+        SessionImpl session2 = createSession("alice", "de");
+
+        assertNotSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(session2));
+
+        session2 = createSession("alice", "en");
+        session2.put(SessionParameter.LOCALE_ISO3166_COUNTRY, "GB");
+        assertNotSame(SharedBindingCaches.getRepositoryInfoCache(session1),
+                SharedBindingCaches.getRepositoryInfoCache(session2));
+    }
+
+    public void testDifferentCacheSizes() {
+        SessionImpl session1 = createSession("alice", "en");
+        SessionImpl session2 = createSession("alice", "en");
+        session2.put(SessionParameter.CACHE_SIZE_TYPES, "10");
+
+        assertNotSame(SharedBindingCaches.getTypeDefinitionCache(session1),
+                SharedBindingCaches.getTypeDefinitionCache(session2));
+    }
+
+    private static SessionImpl createSession(String user, String language) {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.BROWSER_URL, "http://localhost/cmis/browser");
+        session.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        session.put(SessionParameter.CACHE_SHARED, "true");
+        if (user != null) {
+            session.put(SessionParameter.USER, user);
+        }
+        session.put(SessionParameter.LOCALE_ISO639_LANGUAGE, language);
+        return session;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.misc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.http.ConcurrencyLimiter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisTooManyRequestsException;
+
+public class ConcurrencyLimiterTest extends TestCase {
+
+    public void testIncreaseAndDecrease() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 8, 10, 1000);
+        assertEquals(4, limiter.getLimit());
+
+        // the limit grows while it is used
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < limiter.getLimit(); j++) {
+                limiter.acquire();
+            }
+            int inFlight = limiter.getInFlight();
+            for (int j = 0; j < inFlight; j++) {
+                limiter.release(1, false, 0);
+            }
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        // overload halves the limit
+        limiter.acquire();
+        limiter.release(0, true, 0);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.getOverloadCount());
+
+        // the minimum is kept
+        limiter.acquire();
+        limiter.release(true);
+        limiter.acquire();
+        limiter.release(true);
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    public void testRejection() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 0, 1000);
+
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail("Queue is full!");
+        } catch (CmisTooManyRequestsException e) {
+            // expected
+        }
+        assertEquals(1, limiter.getRejectedCount());
+
+        limiter.release(1, false, 0);
+        limiter.acquire();
+        limiter.release(1, false, 0);
+    }
+
+    public void testRetryAfter() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 2, 10, 5000);
+
+        limiter.acquire();
+        limiter.release(1, true, 300);
+
+        long start = System.currentTimeMillis();
+        limiter.acquire();
+        limiter.release(1, false, 0);
+        assertTrue(System.currentTimeMillis() - start >= 250);
+    }
+
+    public void testFifo() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 10, 5000);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        limiter.acquire();
+
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                limiter.acquire();
+                order.add("waiting");
+                limiter.release(1, false, 0);
+            }
+        });
+        waiting.start();
+
+        while (limiter.getQueueLength() == 0) {
+            Thread.sleep(10);
+        }
+
+        // the freed slot goes to the waiting request, not to the new one
+        limiter.release(1, false, 0);
+        limiter.acquire();
+        order.add("new");
+        limiter.release(1, false, 0);
+
+        waiting.join(5000);
+        assertEquals(Arrays.asList("waiting", "new"), order);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    public void testMaxWaitTime() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 10, 100);
+
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail("Request should have waited too long!");
+        } catch (CmisTooManyRequestsException e) {
+            // expected
+        }
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(0, limiter.getQueueLength());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.misc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.RequestCoalescer;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+
+public class RequestCoalescerTest extends TestCase {
+
+    public void testCoalescing() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer("getObject, getTypeDefinition", 10000);
+
+        assertTrue(coalescer.isEnabled(RequestCoalescer.GET_OBJECT));
+        assertFalse(coalescer.isEnabled(RequestCoalescer.GET_OBJECT_BY_PATH));
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+
+        final RequestCoalescer.Request<String> request = new RequestCoalescer.Request<String>() {
+            @Override
+            public String execute() {
+                executions.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "result";
+            }
+        };
+
+        final String[] results = new String[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    results[index] = coalescer.execute("key", request);
+                }
+            };
+        }
+
+        threads[0].start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        // release the leader when all followers wait for it
+        long deadline = System.currentTimeMillis() + 10000;
+        while (coalescer.getWaitingCount() < threads.length - 1) {
+            assertTrue("Followers didn't join the flight!", System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+        release.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (String result : results) {
+            assertEquals("result", result);
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, coalescer.getLeaderCount());
+        assertEquals(threads.length - 1, coalescer.getCoalescedCount());
+        assertEquals(0, coalescer.getTimeoutCount());
+        assertEquals(0, coalescer.getWaitingCount());
+
+        // the flight is over, the next request is executed again
+        assertEquals("result", coalescer.execute("key", request));
+        assertEquals(2, executions.get());
+    }
+
+    public void testException() {
+        RequestCoalescer coalescer = new RequestCoalescer(RequestCoalescer.GET_OBJECT, 1000);
+
+        try {
+            coalescer.execute("key", new RequestCoalescer.Request<String>() {
+                @Override
+                public String execute() {
+                    throw new CmisObjectNotFoundException("not found");
+                }
+            });
+            fail("Exception expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        assertEquals(1, coalescer.getLeaderCount());
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the request body path of the HTTP invokers.
+ * <p>
+ * This is not a unit test. Run it with
+ * {@code java -cp ... HttpInvokerBenchmark [body size] [operations]}. It
+ * writes request bodies (1 KiB by default) with the old body path (a new 2 MiB
+ * {@link BufferedOutputStream} and a new {@link GZIPOutputStream} per request)
+ * and with the pooled streams, into a stream that discards the data. Then it
+ * sends POST requests through the {@link DefaultHttpInvoker} to a local HTTP
+ * server. For each run it prints the time per operation and the number and
+ * time of garbage collections.
+ */
+public class HttpInvokerBenchmark {
+
+    private static final int OLD_BUFFER_SIZE = 2 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        final byte[] body = new byte[size];
+        Arrays.fill(body, (byte) 'x');
+
+        System.out.println("Body size " + size + " bytes, " + operations + " operations");
+
+        // warm up, then measure
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            run("old body path", operations, print, new Operation() {
+                @Override
+                public void run() throws IOException {
+                    OutputStream out = new BufferedOutputStream(new NullOutputStream(), OLD_BUFFER_SIZE);
+                    out.write(body);
+                    out.close();
+                }
+            });
+            run("pooled body path", operations, print, new Operation() {
+                @Override
+                public void run() throws IOException {
+                    PooledBufferedOutputStream out = new PooledBufferedOutputStream(new NullOutputStream());
+                    out.write(body);
+                    out.close();
+                }
+            });
+            run("old gzip body path", operations, print, new Operation() {
+                @Override
+                public void run() throws IOException {
+                    OutputStream out = new BufferedOutputStream(new GZIPOutputStream(new NullOutputStream(), 4096),
+                            OLD_BUFFER_SIZE);
+                    out.write(body);
+                    out.close();
+                }
+            });
+            run("pooled gzip body path", operations, print, new Operation() {
+                @Override
+                public void run() throws IOException {
+                    PooledGZIPOutputStream gzipOut = new PooledGZIPOutputStream(new NullOutputStream());
+                    PooledBufferedOutputStream out = new PooledBufferedOutputStream(gzipOut);
+                    out.write(body);
+                    out.close();
+                    gzipOut.release();
+                }
+            });
+        }
+
+        // without TCP_NODELAY every request waits for the delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 50);
+        server.createContext("/cmis", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange.getRequestBody());
+                byte[] response = "ok".getBytes("US-ASCII");
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        try {
+            final UrlBuilder url = new UrlBuilder("http://127.0.0.1:" + server.getAddress().getPort() + "/cmis");
+            final DefaultHttpInvoker invoker = new DefaultHttpInvoker();
+            final Output writer = new Output() {
+                @Override
+                public void write(OutputStream out) throws IOException {
+                    out.write(body);
+                }
+            };
+
+            final SessionImpl session = new SessionImpl();
+            final SessionImpl gzipSession = new SessionImpl();
+            gzipSession.put(SessionParameter.CLIENT_COMPRESSION, "true");
+
+            int requests = Math.max(1, operations / 10);
+            for (int round = 0; round < 2; round++) {
+                boolean print = round == 1;
+                run("DefaultHttpInvoker POST", requests, print, new Operation() {
+                    @Override
+                    public void run() throws IOException {
+                        drain(invoker.invokePOST(url, "text/plain", writer, session).getStream());
+                    }
+                });
+                run("DefaultHttpInvoker gzip POST", requests, print, new Operation() {
+                    @Override
+                    public void run() throws IOException {
+                        drain(invoker.invokePOST(url, "text/plain", writer, gzipSession).getStream());
+                    }
+                });
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void run(String name, int operations, boolean print, Operation operation) throws IOException {
+        long gcCount = getGcCount();
+        long gcTime = getGcTime();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < operations; i++) {
+            operation.run();
+        }
+
+        long time = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("  %-30s %10.2f us/op, %6d GCs, %6d ms GC", name,
+                    time / 1000.0 / operations, getGcCount() - gcCount, getGcTime() - gcTime));
+        }
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+
+        try {
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) > -1) {
+                // discard
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+public class NioHttpInvokerTest extends TestCase {
+
+    private static final long TIMEOUT = 10;
+
+    private final NioHttpInvoker invoker = new NioHttpInvoker();
+    private SessionImpl session;
+    private Server server;
+
+    @Override
+    protected void setUp() {
+        session = new SessionImpl();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    public void testChunked() throws Exception {
+        server = new Server(new Handler() {
+            @Override
+            public void handle(int connection, Socket socket) throws IOException {
+                readRequest(socket.getInputStream());
+                write(socket, "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nHel");
+                write(socket, "lo\r\n7;ext=1\r\n, World\r\n");
+                write(socket, "0\r\nX-Trailer: x\r\n\r\n");
+                readRequest(socket.getInputStream());
+            }
+        });
+
+        Response resp = get(invoker.invokeGETAsync(server.getUrl(), session, null));
+
+        assertEquals(200, resp.getResponseCode());
+        assertEquals("Hello, World", readBody(resp));
+    }
+
+    public void testKeepAlive() throws Exception {
+        server = new Server(new Handler() {
+            @Override
+            public void handle(int connection, Socket socket) throws IOException {
+                String request;
+                while ((request = readRequest(socket.getInputStream())) != null) {
+                    writeResponse(socket, request);
+                }
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            Response resp = get(invoker.invokeGETAsync(server.getUrl(), session, null));
+            assertEquals("GET", readBody(resp));
+        }
+
+        assertEquals(1, server.getConnections());
+    }
+
+    public void testReadTimeout() throws Exception {
+        session.put(SessionParameter.READ_TIMEOUT, "200");
+
+        server = new Server(new Handler() {
+            @Override
+            public void handle(int connection, Socket socket) throws IOException {
+                // never answer
+                readRequest(socket.getInputStream());
+                readRequest(socket.getInputStream());
+            }
+        });
+
+        try {
+            get(invoker.invokeGETAsync(server.getUrl(), session, null));
+            fail("Exception expected!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CmisConnectionException);
+            assertTrue(e.getCause().getCause() instanceof SocketTimeoutException);
+        }
+
+        assertEquals(1, server.getConnections());
+    }
+
+    public void testClosedMidResponse() throws Exception {
+        server = new Server(new Handler() {
+            @Override
+            public void handle(int connection, Socket socket) throws IOException {
+                readRequest(socket.getInputStream());
+                write(socket, "HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\n0123456789");
+            }
+        });
+
+        try {
+            get(invoker.invokeGETAsync(server.getUrl(), session, null));
+            fail("Exception expected!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CmisConnectionException);
+        }
+    }
+
+    public void testRetryOnClosedConnection() throws Exception {
+        server = new Server(new ClosingHandler());
+
+        assertEquals("GET", readBody(get(invoker.invokeGETAsync(server.getUrl(), session, null))));
+        assertEquals("GET", readBody(get(invoker.invokeGETAsync(server.getUrl(), session, null))));
+
+        assertEquals(2, server.getConnections());
+    }
+
+    public void testNoRetryOfPost() throws Exception {
+        server = new Server(new ClosingHandler());
+
+        assertEquals("GET", readBody(get(invoker.invokeGETAsync(server.getUrl(), session, null))));
+
+        try {
+            get(invoker.invokePOSTAsync(server.getUrl(), "text/plain", new Output() {
+                @Override
+                public void write(OutputStream out) throws IOException {
+                    out.write("data".getBytes("UTF-8"));
+                }
+            }, session, null));
+            fail("Exception expected!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CmisConnectionException);
+        }
+
+        assertEquals(1, server.getConnections());
+    }
+
+    // ---- helpers ----
+
+    private static Response get(Future<Response> future) throws Exception {
+        return future.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private static String readBody(Response resp) throws IOException {
+        InputStream stream = resp.getStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int b;
+        while ((b = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, b);
+        }
+        stream.close();
+        return out.toString("ISO-8859-1");
+    }
+
+    /**
+     * Reads a request and returns its method, or {@code null} if the client
+     * has closed the connection.
+     */
+    private static String readRequest(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (head.length() < 4 || !head.substring(head.length() - 4).equals("\r\n\r\n")) {
+            int b = in.read();
+            if (b == -1) {
+                return null;
+            }
+            head.append((char) b);
+        }
+
+        int length = 0;
+        for (String line : head.toString().split("\r\n")) {
+            if (line.toLowerCase(Locale.ENGLISH).startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (in.read() == -1) {
+                return null;
+            }
+        }
+
+        return head.substring(0, head.indexOf(" "));
+    }
+
+    private static void writeResponse(Socket socket, String body) throws IOException {
+        write(socket, "HTTP/1.1 200 OK\r\nContent-Length: " + body.length() + "\r\n\r\n" + body);
+    }
+
+    private static void write(Socket socket, String data) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(data.getBytes("ISO-8859-1"));
+        out.flush();
+    }
+
+    private interface Handler {
+        void handle(int connection, Socket socket) throws IOException;
+    }
+
+    /**
+     * Answers the first request of the first connection and closes the
+     * connection after reading the second one. Answers all requests of the
+     * other connections.
+     */
+    private static class ClosingHandler implements Handler {
+        @Override
+        public void handle(int connection, Socket socket) throws IOException {
+            String request;
+            while ((request = readRequest(socket.getInputStream())) != null) {
+                writeResponse(socket, request);
+                if (connection == 1) {
+                    readRequest(socket.getInputStream());
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A local HTTP server that runs each connection on its own thread.
+     */
+    private static class Server implements Runnable {
+
+        private final ServerSocket serverSocket;
+        private final Handler handler;
+        private final AtomicInteger connections = new AtomicInteger();
+
+        Server(Handler handler) throws IOException {
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            this.handler = handler;
+
+            Thread thread = new Thread(this, "Test HTTP Server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        UrlBuilder getUrl() {
+            return new UrlBuilder("http://127.0.0.1:" + serverSocket.getLocalPort() + "/cmis");
+        }
+
+        int getConnections() {
+            return connections.get();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+
+                final int connection = connections.incrementAndGet();
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            handler.handle(connection, socket);
+                        } catch (IOException e) {
+                            // the client has closed the connection
+                        } finally {
+                            try {
+                                socket.close();
+                            } catch (IOException e) {
+                                // ignore
+                            }
+                        }
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+public class PooledOutputStreamTest extends TestCase {
+
+    private static final int[] SIZES = new int[] { 0, 1, 100, 8 * 1024, 8 * 1024 + 1, 100 * 1024,
+            3 * 1024 * 1024 + 7 };
+
+    public void testBufferedStream() throws IOException {
+        for (int size : SIZES) {
+            byte[] data = createData(size);
+
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            PooledBufferedOutputStream out = new PooledBufferedOutputStream(target);
+            writeMixed(out, data);
+            out.close();
+            out.release();
+
+            assertTrue("Size " + size, Arrays.equals(data, target.toByteArray()));
+        }
+    }
+
+    public void testGZIPStream() throws IOException {
+        // twice to reuse pooled deflaters
+        for (int round = 0; round < 2; round++) {
+            for (int size : SIZES) {
+                byte[] data = createData(size);
+
+                ByteArrayOutputStream target = new ByteArrayOutputStream();
+                PooledGZIPOutputStream gzipOut = new PooledGZIPOutputStream(target);
+                PooledBufferedOutputStream out = new PooledBufferedOutputStream(gzipOut);
+                writeMixed(out, data);
+                out.close();
+
+                InputStream in = new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()));
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int b;
+                while ((b = in.read(buffer)) > -1) {
+                    result.write(buffer, 0, b);
+                }
+
+                assertTrue("Size " + size, Arrays.equals(data, result.toByteArray()));
+            }
+        }
+    }
+
+    public void testRelease() throws IOException {
+        PooledGZIPOutputStream gzipOut = new PooledGZIPOutputStream(new ByteArrayOutputStream());
+        PooledBufferedOutputStream out = new PooledBufferedOutputStream(gzipOut);
+        out.write(createData(1000));
+        out.release();
+        gzipOut.release();
+
+        try {
+            out.write(1);
+            fail("Stream should be closed!");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static byte[] createData(int size) {
+        // compressible, but not trivially
+        byte[] data = new byte[size];
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    private static void writeMixed(PooledBufferedOutputStream out, byte[] data) throws IOException {
+        int pos = 0;
+        int chunk = 1;
+        while (pos < data.length) {
+            if (chunk == 1) {
+                out.write(data[pos++]);
+            } else {
+                int len = Math.min(chunk, data.length - pos);
+                out.write(data, pos, len);
+                pos += len;
+            }
+            chunk = chunk * 7 % 100003;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.FormDataWriter;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.impl.MimeTypes;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+
+public class RequestCompressionTest extends TestCase {
+
+    public void testMimeTypes() {
+        assertTrue(MimeTypes.isCompressible(null));
+        assertTrue(MimeTypes.isCompressible("text/plain; charset=UTF-8"));
+        assertTrue(MimeTypes.isCompressible("application/json"));
+        assertTrue(MimeTypes.isCompressible("image/svg+xml"));
+        assertTrue(MimeTypes.isCompressible("application/x-www-form-urlencoded;charset=utf-8"));
+
+        assertFalse(MimeTypes.isCompressible("image/jpeg"));
+        assertFalse(MimeTypes.isCompressible("VIDEO/MP4"));
+        assertFalse(MimeTypes.isCompressible("application/zip"));
+        assertFalse(MimeTypes.isCompressible("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+    }
+
+    public void testShouldCompress() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.CLIENT_COMPRESSION_THRESHOLD, "1000");
+
+        FormDataWriter small = new FormDataWriter("update");
+        FormDataWriter text = createWriter("text/plain", 5000);
+        FormDataWriter jpeg = createWriter("image/jpeg", 5000);
+
+        // switched off
+        assertFalse(RequestCompression.shouldCompress(session, small.getContentType(), text));
+
+        session.put(SessionParameter.CLIENT_COMPRESSION, "true");
+
+        assertFalse(RequestCompression.shouldCompress(session, small.getContentType(), small));
+        assertTrue(RequestCompression.shouldCompress(session, text.getContentType(), text));
+        assertFalse(RequestCompression.shouldCompress(session, jpeg.getContentType(), jpeg));
+
+        // unknown length
+        assertTrue(RequestCompression.shouldCompress(session, "application/xml", new Output() {
+            @Override
+            public void write(OutputStream out) {
+            }
+        }));
+    }
+
+    private static FormDataWriter createWriter(String mimeType, int length) {
+        return new FormDataWriter("createDocument", new ContentStreamImpl("file", BigInteger.valueOf(length),
+                mimeType, new ByteArrayInputStream(new byte[length])));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.xml.ws.BindingProvider;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisTooManyRequestsException;
+
+public class PortPoolTest extends TestCase {
+
+    private static final PortPool.PortFactory FACTORY = new PortPool.PortFactory() {
+        @Override
+        public BindingProvider createPort() {
+            return (BindingProvider) Proxy.newProxyInstance(PortPoolTest.class.getClassLoader(),
+                    new Class<?>[] { BindingProvider.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("equals")) {
+                                return proxy == args[0];
+                            } else if (method.getName().equals("hashCode")) {
+                                return System.identityHashCode(proxy);
+                            }
+                            return null;
+                        }
+                    });
+        }
+    };
+
+    public void testReuse() throws Exception {
+        PortPool pool = new PortPool("test", 0, 2, 0, 60000);
+
+        BindingProvider port1 = pool.borrow(FACTORY);
+        pool.giveBack(port1);
+        assertSame(port1, pool.borrow(FACTORY));
+
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+        assertEquals(1, pool.getBorrowedCount());
+    }
+
+    public void testOverflow() throws Exception {
+        PortPool pool = new PortPool("test", 0, 1, 0, 60000);
+
+        BindingProvider port1 = pool.borrow(FACTORY);
+        BindingProvider port2 = pool.borrow(FACTORY);
+        assertNotSame(port1, port2);
+        assertEquals(1, pool.getOverflowCount());
+
+        // the additional port is not pooled
+        pool.giveBack(port2);
+        pool.giveBack(port1);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    public void testWait() throws Exception {
+        final PortPool pool = new PortPool("test", 0, 1, 5000, 60000);
+
+        final BindingProvider port1 = pool.borrow(FACTORY);
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                pool.giveBack(port1);
+            }
+        }.start();
+
+        assertSame(port1, pool.borrow(FACTORY));
+        assertEquals(1, pool.getWaitCount());
+        assertTrue(pool.getTotalWaitTime() > 0);
+    }
+
+    public void testTimeout() throws Exception {
+        PortPool pool = new PortPool("test", 0, 1, 20, 60000);
+
+        pool.borrow(FACTORY);
+        try {
+            pool.borrow(FACTORY);
+            fail("Timeout expected!");
+        } catch (CmisTooManyRequestsException e) {
+            // expected
+        }
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    public void testEvictionAndPrewarm() throws Exception {
+        PortPool pool = new PortPool("test", 1, 4, 0, 0);
+
+        pool.prewarm(FACTORY);
+        assertEquals(1, pool.getIdleCount());
+
+        BindingProvider port1 = pool.borrow(FACTORY);
+        BindingProvider port2 = pool.borrow(FACTORY);
+        pool.giveBack(port1);
+        pool.giveBack(port2);
+
+        // idle timeout is 0, but the min size is kept
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getEvictedCount());
+
+        // broken ports free their slot
+        BindingProvider port3 = pool.borrow(FACTORY);
+        pool.discard(port3);
+        assertEquals(0, pool.getBorrowedCount());
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.util.ThreadUtils;
+import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the change log of the repository and removes changed objects from the
+ * object cache of a session.
+ * <p>
+ * Objects and paths reported by the change log are removed from the cache. The
+ * whole cache is cleared if a folder has been updated or deleted (the paths of
+ * its descendants may have changed), if the change log token has expired, if
+ * there are more changes than can be processed in one round, or if the
+ * repository reports that its change log is incomplete.
+ * <p>
+ * If the change log cannot be read, the invalidator skips an increasing
+ * number of rounds. It stops if the repository denies access to the change
+ * log or doesn't support it.
+ * <p>
+ * The invalidator only holds a weak reference to the session and stops when
+ * the session has been garbage collected.
+ */
+class ChangeLogCacheInvalidator implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogCacheInvalidator.class);
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    private static final OperationContext CHANGES_CONTEXT = OperationContextUtils
+            .createMinimumOperationContext(PropertyIds.PATH);
+
+    private static final ScheduledExecutorService EXECUTOR;
+    static {
+        CHANGES_CONTEXT.setCacheEnabled(false);
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                ThreadUtils.createDaemonThreadFactory("OpenCMIS Cache Invalidator"));
+        EXECUTOR = executor;
+    }
+
+    private final WeakReference<SessionImpl> sessionRef;
+    private final int maxChanges;
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean stopped;
+    private String changeLogToken;
+
+    // only accessed by run()
+    private int failures;
+    private int skippedRounds;
+
+    private ChangeLogCacheInvalidator(SessionImpl session, int maxChanges) {
+        this.sessionRef = new WeakReference<SessionImpl>(session);
+        this.maxChanges = maxChanges;
+        this.changeLogToken = session.getRepositoryInfo().getLatestChangeLogToken();
+    }
+
+    /**
+     * Starts polling the change log.
+     *
+     * @param interval
+     *            the time between two polls in milliseconds
+     * @param maxChanges
+     *            the number of changes per poll up to which objects are
+     *            removed individually
+     * @return the invalidator or {@code null} if the repository doesn't
+     *         provide a change log
+     */
+    static ChangeLogCacheInvalidator start(SessionImpl session, long interval, int maxChanges) {
+        RepositoryInfo info = session.getRepositoryInfo();
+        if (info.getCapabilities() == null || info.getCapabilities().getChangesCapability() == null
+                || info.getLatestChangeLogToken() == null) {
+            LOG.warn("Repository {} doesn't provide a change log. Cache invalidation is disabled.", info.getId());
+            return null;
+        }
+
+        switch (info.getCapabilities().getChangesCapability()) {
+        case NONE:
+            LOG.warn("Repository {} doesn't provide a change log. Cache invalidation is disabled.", info.getId());
+            return null;
+        default:
+            break;
+        }
+
+        ChangeLogCacheInvalidator invalidator = new ChangeLogCacheInvalidator(session, maxChanges);
+        invalidator.future = EXECUTOR.scheduleWithFixedDelay(invalidator, interval, interval, TimeUnit.MILLISECONDS);
+
+        return invalidator;
+    }
+
+    /**
+     * Stops polling.
+     */
+    void stop() {
+        stopped = true;
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (stopped) {
+            return;
+        }
+
+        SessionImpl session = sessionRef.get();
+        if (session == null) {
+            stop();
+            return;
+        }
+
+        if (skippedRounds > 0) {
+            skippedRounds--;
+            return;
+        }
+
+        try {
+            poll(session);
+            failures = 0;
+        } catch (CmisConstraintException e) {
+            // the change log token has expired
+            LOG.debug("Change log token has expired, clearing the cache: {}", e.getMessage(), e);
+            clearAfterFailure(session);
+        } catch (CmisInvalidArgumentException e) {
+            // the change log token is not valid (anymore)
+            LOG.debug("Change log token is invalid, clearing the cache: {}", e.getMessage(), e);
+            clearAfterFailure(session);
+        } catch (CmisPermissionDeniedException e) {
+            LOG.warn("Cannot read the change log. Cache invalidation is disabled: {}", e.getMessage(), e);
+            stop();
+        } catch (CmisNotSupportedException e) {
+            LOG.warn("Cannot read the change log. Cache invalidation is disabled: {}", e.getMessage(), e);
+            stop();
+        } catch (CmisConnectionException e) {
+            // the repository is not reachable, try again later
+            LOG.debug("Cannot poll the change log: {}", e.getMessage(), e);
+            backOff();
+        } catch (RuntimeException e) {
+            LOG.warn("Cache invalidation failed: {}", e.getMessage(), e);
+            backOff();
+        }
+    }
+
+    /**
+     * Clears the cache after the change log token has been rejected.
+     */
+    private void clearAfterFailure(SessionImpl session) {
+        try {
+            clear(session);
+            failures = 0;
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot clear the cache: {}", e.getMessage(), e);
+            backOff();
+        }
+    }
+
+    /**
+     * Skips 1, 3, 7, ... rounds after consecutive failures.
+     */
+    private void backOff() {
+        failures++;
+        skippedRounds = (1 << Math.min(failures, MAX_BACKOFF_SHIFT)) - 1;
+    }
+
+    /**
+     * Reads all changes since the last poll and removes the changed objects
+     * from the cache.
+     */
+    synchronized void poll(SessionImpl session) {
+        String token = changeLogToken;
+
+        Set<String> objectIds = new HashSet<String>();
+        Set<String> paths = new HashSet<String>();
+        boolean clear = false;
+        int count = 0;
+
+        while (true) {
+            ChangeEvents changes = session.getContentChanges(token, true, PAGE_SIZE, CHANGES_CONTEXT);
+
+            for (ChangeEvent event : changes.getChangeEvents()) {
+                if (event.getObjectId() != null) {
+                    objectIds.add(event.getObjectId());
+                }
+
+                String path = getFirstValue(event, PropertyIds.PATH);
+                if (path != null) {
+                    paths.add(path);
+                }
+
+                boolean isFolder = path != null
+                        || BaseTypeId.CMIS_FOLDER.value().equals(getFirstValue(event, PropertyIds.BASE_TYPE_ID));
+                if (isFolder && event.getChangeType() != ChangeType.CREATED) {
+                    clear = true;
+                }
+            }
+            count += changes.getChangeEvents().size();
+
+            String latest = changes.getLatestChangeLogToken();
+            if (latest == null || latest.equals(token) || !changes.getHasMoreItems()) {
+                if (latest != null) {
+                    token = latest;
+                }
+                break;
+            }
+            token = latest;
+
+            if (count > maxChanges) {
+                clear = true;
+                break;
+            }
+        }
+
+        if (token == null || token.equals(changeLogToken)) {
+            // the change log starts with the change of the last token,
+            // which has been processed in the last round
+            return;
+        }
+
+        if (clear || count > maxChanges || Boolean.TRUE.equals(fetchRepositoryInfo(session).getChangesIncomplete())) {
+            clear(session);
+            return;
+        }
+
+        Cache cache = session.getCache();
+        for (String path : paths) {
+            cache.removePath(path);
+        }
+        for (String objectId : objectIds) {
+            cache.remove(objectId);
+        }
+
+        changeLogToken = token;
+    }
+
+    /**
+     * Clears the object cache and continues with the latest change log token.
+     */
+    private synchronized void clear(SessionImpl session) {
+        String token = fetchRepositoryInfo(session).getLatestChangeLogToken();
+
+        // type definitions may have changed, too
+        session.getBinding().clearRepositoryCache(session.getRepositoryInfo().getId());
+        session.getCache().clear();
+
+        changeLogToken = token;
+    }
+
+    /**
+     * Fetches the current repository info, bypassing the repository info
+     * cache of the binding.
+     */
+    private static RepositoryInfo fetchRepositoryInfo(SessionImpl session) {
+        String repositoryId = session.getRepositoryInfo().getId();
+
+        List<RepositoryInfo> infos = session.getBinding().getRepositoryService().getRepositoryInfos(null);
+        if (infos != null) {
+            for (RepositoryInfo info : infos) {
+                if (repositoryId.equals(info.getId())) {
+                    return info;
+                }
+            }
+        }
+
+        throw new CmisObjectNotFoundException("Repository " + repositoryId + " not found!");
+    }
+
+    private static String getFirstValue(ChangeEvent event, String propertyId) {
+        if (event.getProperties() == null) {
+            return null;
+        }
+
+        List<?> values = event.getProperties().get(propertyId);
+        if (values == null || values.isEmpty() || !(values.get(0) instanceof String)) {
+            return null;
+        }
+
+        return (String) values.get(0);
+    }
+}
@@ -216,7 +216,8 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
         final ObjectFactory objectFactory = getSession().getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<Document> fetchPage(long skipCount) {
@@ -258,8 +259,10 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
         final NavigationService navigationService = getBinding().getNavigationService();
         final ObjectFactory objectFactory = getSession().getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
+        final String path = ctxt.isCacheThroughEnabled() ? (String) getPropertyValue(PropertyIds.PATH) : null;
 
-        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<CmisObject> fetchPage(long skipCount) {
@@ -276,7 +279,10 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
                 if (childObjects != null) {
                     for (ObjectInFolderData objectData : childObjects) {
                         if (objectData.getObject() != null) {
-                            page.add(objectFactory.convertObject(objectData.getObject(), ctxt));
+                            CmisObject child = objectFactory.convertObject(objectData.getObject(), ctxt);
+                            getSession().cacheListObject(child, getChildPath(path, objectData.getPathSegment()),
+                                    ctxt);
+                            page.add(child);
                         }
                     }
                 }
@@ -301,7 +307,8 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
                 context.isIncludeAllowableActions(), context.getIncludeRelationships(),
                 context.getRenditionFilterString(), context.isIncludePathSegments(), null);
 
-        return convertBindingContainer(providerContainerList, context);
+        return convertBindingContainer(providerContainerList, context,
+                context.isCacheThroughEnabled() ? (String) getPropertyValue(PropertyIds.PATH) : null);
     }
 
     @Override
@@ -319,14 +326,18 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
                 context.isIncludeAllowableActions(), context.getIncludeRelationships(),
                 context.getRenditionFilterString(), context.isIncludePathSegments(), null);
 
-        return convertBindingContainer(providerContainerList, context);
+        return convertBindingContainer(providerContainerList, context,
+                context.isCacheThroughEnabled() ? (String) getPropertyValue(PropertyIds.PATH) : null);
     }
 
     /**
      * Converts a binding container into an API container.
+     * 
+     * @param path
+     *            the path of the parent folder or {@code null} if it is unknown
      */
     private List<Tree<FileableCmisObject>> convertBindingContainer(List<ObjectInFolderContainer> bindingContainerList,
-            OperationContext context) {
+            OperationContext context, String path) {
         if (bindingContainerList == null) {
             return null;
         }
@@ -348,8 +359,15 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
                 continue;
             }
 
+            String objectPath = getChildPath(path, oifc.getObject().getPathSegment());
+            getSession().cacheListObject(object, objectPath, context);
+            if (objectPath == null) {
+                objectPath = object.getPropertyValue(PropertyIds.PATH);
+            }
+
             // convert the children
-            List<Tree<FileableCmisObject>> children = convertBindingContainer(oifc.getChildren(), context);
+            List<Tree<FileableCmisObject>> children = convertBindingContainer(oifc.getChildren(), context,
+                    objectPath);
 
             // add both to current container
             result.add(new TreeImpl<FileableCmisObject>((FileableCmisObject) object, children));
@@ -358,6 +376,21 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
         return result;
     }
 
+    /**
+     * Returns the path of a child or {@code null} if it cannot be determined.
+     */
+    private static String getChildPath(String parentPath, String pathSegment) {
+        if (parentPath == null || pathSegment == null) {
+            return null;
+        }
+
+        if (parentPath.endsWith("/")) {
+            return parentPath + pathSegment;
+        }
+
+        return parentPath + "/" + pathSegment;
+    }
+
     @Override
     public boolean isRootFolder() {
         String objectId = getObjectId();
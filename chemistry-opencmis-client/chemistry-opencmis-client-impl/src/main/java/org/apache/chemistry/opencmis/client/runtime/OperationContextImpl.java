@@ -47,8 +47,10 @@ public class OperationContextImpl implements OperationContext, Serializable {
     private boolean includePathSegments;
     private String orderBy;
     private boolean cacheEnabled;
+    private boolean cacheThroughEnabled;
     private String cacheKey;
     private int maxItemsPerPage;
+    private int prefetchDepth;
 
     /**
      * Default constructor.
@@ -84,9 +86,11 @@ public class OperationContextImpl implements OperationContext, Serializable {
         setIncludePathSegments(source.isIncludePathSegments());
         setOrderBy(source.getOrderBy());
         setCacheEnabled(source.isCacheEnabled());
+        setCacheThroughEnabled(source.isCacheThroughEnabled());
         generateCacheKey();
 
         setMaxItemsPerPage(source.getMaxItemsPerPage());
+        setPrefetchDepth(source.getPrefetchDepth());
     }
 
     /**
@@ -362,6 +366,16 @@ public class OperationContextImpl implements OperationContext, Serializable {
         this.cacheEnabled = cacheEnabled;
     }
 
+    @Override
+    public final boolean isCacheThroughEnabled() {
+        return cacheThroughEnabled;
+    }
+
+    @Override
+    public final void setCacheThroughEnabled(boolean cacheThroughEnabled) {
+        this.cacheThroughEnabled = cacheThroughEnabled;
+    }
+
     @Override
     public final String getCacheKey() {
         return cacheKey;
@@ -405,4 +419,18 @@ public class OperationContextImpl implements OperationContext, Serializable {
 
         this.maxItemsPerPage = maxItemsPerPage;
     }
+
+    @Override
+    public final int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    @Override
+    public final void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("prefetchDepth must be >= 0!");
+        }
+
+        this.prefetchDepth = prefetchDepth;
+    }
 }
@@ -20,17 +20,26 @@ package org.apache.chemistry.opencmis.client.runtime;
 
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNullOrEmpty;
 
+import java.io.File;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.client.api.ChangeEvent;
@@ -53,9 +62,12 @@ import org.apache.chemistry.opencmis.client.api.Tree;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.DiskContentCache;
+import org.apache.chemistry.opencmis.client.runtime.cache.LowPriorityCache;
 import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
+import org.apache.chemistry.opencmis.client.runtime.util.ThreadUtils;
 import org.apache.chemistry.opencmis.client.runtime.util.TreeImpl;
 import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
@@ -66,22 +78,28 @@ import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.BulkUpdateObjectIdAndChangeToken;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.data.FailedToDeleteData;
+import org.apache.chemistry.opencmis.commons.data.MutableContentStream;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
 import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
@@ -89,6 +107,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.BulkUpdateObjectIdAndChangeTokenImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.spi.AclService;
 import org.apache.chemistry.opencmis.commons.spi.AuthenticationProvider;
 import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
@@ -109,6 +128,22 @@ public class SessionImpl implements Session {
     private static final OperationContext DEFAULT_CONTEXT = new OperationContextImpl(null, false, true, false,
             IncludeRelationships.NONE, null, true, null, true, 100);
 
+    private static final OperationContext CONTENT_CACHE_CONTEXT = OperationContextUtils
+            .createMinimumOperationContext(PropertyIds.CHANGE_TOKEN, PropertyIds.LAST_MODIFICATION_DATE,
+                    PropertyIds.CONTENT_STREAM_ID);
+    private static final OperationContext CONTENT_CACHE_REVALIDATE_CONTEXT = OperationContextUtils
+            .createMinimumOperationContext(PropertyIds.CHANGE_TOKEN, PropertyIds.LAST_MODIFICATION_DATE,
+                    PropertyIds.CONTENT_STREAM_ID);
+
+    /*
+     * getObject() calls of getObjects() run on the current thread and on this
+     * pool, which is shared by all sessions. The threads end when they are
+     * idle.
+     */
+    private static final int GET_OBJECTS_POOL_SIZE = 16;
+    private static final ExecutorService GET_OBJECTS_EXECUTOR = ThreadUtils.createDaemonThreadPool(
+            "OpenCMIS getObjects", GET_OBJECTS_POOL_SIZE);
+
     private static final Set<Updatability> CREATE_UPDATABILITY = EnumSet.noneOf(Updatability.class);
     private static final Set<Updatability> CREATE_AND_CHECKOUT_UPDATABILITY = EnumSet.noneOf(Updatability.class);
 
@@ -118,12 +153,14 @@ public class SessionImpl implements Session {
         CREATE_AND_CHECKOUT_UPDATABILITY.add(Updatability.ONCREATE);
         CREATE_AND_CHECKOUT_UPDATABILITY.add(Updatability.READWRITE);
         CREATE_AND_CHECKOUT_UPDATABILITY.add(Updatability.WHENCHECKEDOUT);
+
+        CONTENT_CACHE_REVALIDATE_CONTEXT.setCacheEnabled(false);
     }
 
     // private static Logger log = LoggerFactory.getLogger(SessionImpl.class);
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private transient LinkedHashMap<String, ObjectType> objectTypeCache;
+    private transient LinkedHashMap<String, CachedObjectType> objectTypeCache;
 
     /*
      * default session context (serializable)
@@ -161,6 +198,23 @@ public class SessionImpl implements Session {
     private Cache cache;
     private final boolean cachePathOmit;
 
+    /*
+     * getObjects() settings.
+     */
+    private final int getObjectsBatchSize;
+    private final int getObjectsThreads;
+
+    /*
+     * Content cache (created on first use)
+     */
+    private transient DiskContentCache contentCache;
+    private transient boolean contentCacheInitialized;
+
+    /*
+     * Change log cache invalidation.
+     */
+    private transient ChangeLogCacheInvalidator cacheInvalidator;
+
     /*
      * Type cache.
      */
@@ -194,6 +248,24 @@ public class SessionImpl implements Session {
         this.typeDefCache = typeDefCache;
 
         cachePathOmit = Boolean.parseBoolean(parameters.get(SessionParameter.CACHE_PATH_OMIT));
+
+        getObjectsBatchSize = getPositiveIntParameter(parameters, SessionParameter.GET_OBJECTS_BATCH_SIZE,
+                SessionParameterDefaults.GET_OBJECTS_BATCH_SIZE);
+        getObjectsThreads = getPositiveIntParameter(parameters, SessionParameter.GET_OBJECTS_THREADS,
+                SessionParameterDefaults.GET_OBJECTS_THREADS);
+    }
+
+    private static long getPositiveLongParameter(Map<String, String> parameters, String key, long defaultValue) {
+        try {
+            long value = Long.parseLong(parameters.get(key));
+            return value < 1 ? defaultValue : value;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    private static int getPositiveIntParameter(Map<String, String> parameters, String key, int defaultValue) {
+        return (int) Math.min(Integer.MAX_VALUE, getPositiveLongParameter(parameters, key, defaultValue));
     }
 
     private Locale determineLocale(Map<String, String> parameters) {
@@ -312,7 +384,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<Document> fetchPage(long skipCount) {
@@ -544,6 +617,205 @@ public class SessionImpl implements Session {
         return result;
     }
 
+    @Override
+    public List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds) {
+        return getObjects(objectIds, getDefaultContext());
+    }
+
+    @Override
+    public List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context) {
+        if (objectIds == null) {
+            throw new IllegalArgumentException("Object IDs must be set!");
+        }
+        checkContext(context);
+
+        Map<String, CmisObject> objects = new HashMap<String, CmisObject>();
+        Set<String> missingIds = new LinkedHashSet<String>();
+
+        // ask the cache first
+        for (ObjectId objectId : objectIds) {
+            checkObjectId(objectId);
+
+            String id = objectId.getId();
+            if (objects.containsKey(id) || missingIds.contains(id)) {
+                continue;
+            }
+
+            CmisObject object = null;
+            if (context.isCacheEnabled()) {
+                object = cache.getById(id, context.getCacheKey());
+            }
+
+            if (object != null) {
+                objects.put(id, object);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        // query the missing objects in batches
+        if (!missingIds.isEmpty() && isQueryCapable(context)) {
+            getObjectsByQuery(BaseTypeId.CMIS_DOCUMENT, missingIds, objects, context);
+            getObjectsByQuery(BaseTypeId.CMIS_FOLDER, missingIds, objects, context);
+        }
+
+        // get the remaining objects one by one
+        if (!missingIds.isEmpty()) {
+            getObjectsInParallel(missingIds, objects, context);
+        }
+
+        List<CmisObject> result = new ArrayList<CmisObject>(objectIds.size());
+        for (ObjectId objectId : objectIds) {
+            result.add(objects.get(objectId.getId()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether objects can be loaded with a query for the given
+     * operation context.
+     */
+    private boolean isQueryCapable(OperationContext context) {
+        // queries don't return ACLs, policies and secondary type properties
+        if (context.isIncludeAcls() || context.isIncludePolicies() || context.loadSecondaryTypeProperties()) {
+            return false;
+        }
+
+        // a base type query doesn't return the properties of subtypes
+        String filter = context.getFilterString();
+        if (filter == null || filter.equals(OperationContextImpl.PROPERTIES_STAR)) {
+            return false;
+        }
+
+        RepositoryCapabilities capabilities = getRepositoryInfo().getCapabilities();
+        if (capabilities == null || capabilities.getQueryCapability() == null) {
+            return false;
+        }
+
+        return capabilities.getQueryCapability() != CapabilityQuery.NONE
+                && capabilities.getQueryCapability() != CapabilityQuery.FULLTEXTONLY;
+    }
+
+    /**
+     * Loads objects of the given base type with {@code IN} queries and removes
+     * the IDs of the found objects from {@code objectIds}.
+     */
+    private void getObjectsByQuery(BaseTypeId baseTypeId, Set<String> objectIds, Map<String, CmisObject> objects,
+            OperationContext context) {
+        ObjectType type = getTypeDefinition(baseTypeId.value());
+        if (!Boolean.TRUE.equals(type.isQueryable()) || type.getPropertyDefinitions() == null) {
+            return;
+        }
+
+        PropertyDefinition<?> objectIdDefinition = type.getPropertyDefinitions().get(PropertyIds.OBJECT_ID);
+        if (objectIdDefinition == null) {
+            return;
+        }
+
+        // all selected properties must be defined by the base type
+        String filter = context.getFilterString();
+        Set<String> queryNames = new HashSet<String>();
+        for (PropertyDefinition<?> propertyDefinition : type.getPropertyDefinitions().values()) {
+            queryNames.add(propertyDefinition.getQueryName());
+        }
+        if (!queryNames.containsAll(Arrays.asList(filter.split(",")))) {
+            return;
+        }
+
+        boolean searchAllVersions = baseTypeId == BaseTypeId.CMIS_DOCUMENT
+                && Boolean.TRUE.equals(getRepositoryInfo().getCapabilities().isAllVersionsSearchableSupported());
+
+        DiscoveryService discoveryService = getBinding().getDiscoveryService();
+        ObjectFactory of = getObjectFactory();
+
+        List<String> ids = new ArrayList<String>(objectIds);
+        for (int i = 0; i < ids.size(); i += getObjectsBatchSize) {
+            List<String> batch = ids.subList(i, Math.min(ids.size(), i + getObjectsBatchSize));
+
+            ObjectId[] batchIds = new ObjectId[batch.size()];
+            for (int j = 0; j < batchIds.length; j++) {
+                batchIds[j] = createObjectId(batch.get(j));
+            }
+
+            QueryStatement statement = createQueryStatement("SELECT " + filter + " FROM ? WHERE ? IN (?)");
+            statement.setType(1, type);
+            statement.setProperty(2, objectIdDefinition);
+            statement.setId(3, batchIds);
+
+            ObjectList resultList;
+            try {
+                resultList = discoveryService.query(getRepositoryId(), statement.toQueryString(), searchAllVersions,
+                        context.isIncludeAllowableActions(), context.getIncludeRelationships(),
+                        context.getRenditionFilterString(), BigInteger.valueOf(batch.size()), null, null);
+            } catch (CmisBaseException e) {
+                // the repository didn't accept the query, these objects are
+                // loaded one by one
+                continue;
+            }
+
+            if (resultList.getObjects() == null) {
+                continue;
+            }
+
+            for (ObjectData objectData : resultList.getObjects()) {
+                if (objectData == null) {
+                    continue;
+                }
+
+                CmisObject object = of.convertObject(objectData, context);
+                if (object == null || !objectIds.remove(object.getId())) {
+                    continue;
+                }
+
+                objects.put(object.getId(), object);
+
+                if (context.isCacheEnabled()) {
+                    cache.put(object, context.getCacheKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads objects with parallel {@code getObject} calls. Objects that don't
+     * exist are skipped.
+     */
+    private void getObjectsInParallel(Set<String> objectIds, Map<String, CmisObject> objects,
+            final OperationContext context) {
+        final List<String> ids = new ArrayList<String>(objectIds);
+        final AtomicInteger next = new AtomicInteger();
+        final Map<String, CmisObject> fetched = new ConcurrentHashMap<String, CmisObject>();
+
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < ids.size()) {
+                    String id = ids.get(i);
+                    try {
+                        fetched.put(id, getObject(id, context));
+                    } catch (CmisObjectNotFoundException e) {
+                        // the result list contains null for this object
+                    }
+                }
+            }
+        };
+
+        boolean success = false;
+        try {
+            ThreadUtils.runInParallel(worker, Math.min(getObjectsThreads, ids.size()), GET_OBJECTS_EXECUTOR);
+            success = true;
+        } finally {
+            if (!success) {
+                // stop the other workers
+                next.set(ids.size());
+            }
+        }
+
+        objects.putAll(fetched);
+    }
+
     @Override
     public CmisObject getObjectByPath(String path) {
         return getObjectByPath(path, getDefaultContext());
@@ -915,25 +1187,26 @@ public class SessionImpl implements Session {
 
                 final int maxEntries = cacheSize;
 
-                objectTypeCache = new LinkedHashMap<String, ObjectType>(maxEntries + 1, 0.70f, true) {
+                objectTypeCache = new LinkedHashMap<String, CachedObjectType>(maxEntries + 1, 0.70f, true) {
                     private static final long serialVersionUID = 1L;
 
                     @Override
-                    public boolean removeEldestEntry(Map.Entry<String, ObjectType> eldest) {
+                    public boolean removeEldestEntry(Map.Entry<String, CachedObjectType> eldest) {
                         return size() > maxEntries;
                     }
                 };
             }
 
-            if (!useCache) {
-                result = objectFactory.convertTypeDefinition(typeDefinition);
-                objectTypeCache.put(result.getId(), result);
+            // the type definition is compared by identity: if the binding
+            // cache returns a different object, the type definition has been
+            // reloaded or updated (possibly by another session sharing the
+            // binding cache)
+            CachedObjectType cached = useCache ? objectTypeCache.get(typeDefinition.getId()) : null;
+            if (cached != null && cached.typeDefinition == typeDefinition) {
+                result = cached.objectType;
             } else {
-                result = objectTypeCache.get(typeDefinition.getId());
-                if (result == null) {
-                    result = objectFactory.convertTypeDefinition(typeDefinition);
-                    objectTypeCache.put(result.getId(), result);
-                }
+                result = objectFactory.convertTypeDefinition(typeDefinition);
+                objectTypeCache.put(result.getId(), new CachedObjectType(typeDefinition, result));
             }
 
             return result;
@@ -942,6 +1215,19 @@ public class SessionImpl implements Session {
         }
     }
 
+    /**
+     * An object type and the type definition it has been created from.
+     */
+    private static class CachedObjectType {
+        final TypeDefinition typeDefinition;
+        final ObjectType objectType;
+
+        CachedObjectType(TypeDefinition typeDefinition, ObjectType objectType) {
+            this.typeDefinition = typeDefinition;
+            this.objectType = objectType;
+        }
+    }
+
     /**
      * Removes the object type object with the given type ID from the cache.
      */
@@ -997,7 +1283,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<QueryResult> fetchPage(long skipCount) {
@@ -1064,7 +1351,8 @@ public class SessionImpl implements Session {
             statement.append(orderBy);
         }
 
-        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<CmisObject> fetchPage(long skipCount) {
@@ -1083,7 +1371,9 @@ public class SessionImpl implements Session {
                             continue;
                         }
 
-                        page.add(of.convertObject(objectData, ctxt));
+                        CmisObject object = of.convertObject(objectData, ctxt);
+                        cacheListObject(object, null, ctxt);
+                        page.add(object);
                     }
                 }
 
@@ -1124,11 +1414,30 @@ public class SessionImpl implements Session {
 
             repositoryInfo = objectFactory.convertRepositoryInfo(getBinding().getRepositoryService().getRepositoryInfo(
                     repositoryId, null));
+
+            startCacheInvalidator();
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Starts polling the change log if cache invalidation is turned on.
+     */
+    private void startCacheInvalidator() {
+        if (cacheInvalidator != null) {
+            cacheInvalidator.stop();
+            cacheInvalidator = null;
+        }
+
+        long interval = getPositiveLongParameter(parameters, SessionParameter.CACHE_INVALIDATION_INTERVAL, 0);
+        if (interval > 0) {
+            int maxChanges = getPositiveIntParameter(parameters, SessionParameter.CACHE_INVALIDATION_MAX_CHANGES,
+                    SessionParameterDefaults.CACHE_INVALIDATION_MAX_CHANGES);
+            cacheInvalidator = ChangeLogCacheInvalidator.start(this, interval, maxChanges);
+        }
+    }
+
     @Override
     public CmisBinding getBinding() {
         lock.readLock().lock();
@@ -1148,6 +1457,29 @@ public class SessionImpl implements Session {
         }
     }
 
+    /**
+     * Adds an object returned by a list operation to the cache if the
+     * operation context asks for it. Caches that implement
+     * {@link LowPriorityCache} only admit the object if they have free room.
+     * 
+     * @param path
+     *            the path of the object or {@code null} if it is unknown
+     */
+    void cacheListObject(CmisObject object, String path, OperationContext context) {
+        if (object == null || !context.isCacheThroughEnabled()) {
+            return;
+        }
+
+        Cache c = getCache();
+        if (c instanceof LowPriorityCache) {
+            ((LowPriorityCache) c).putLowPriority(object, path, context.getCacheKey());
+        } else if (path != null) {
+            c.putPath(path, object, context.getCacheKey());
+        } else {
+            c.put(object, context.getCacheKey());
+        }
+    }
+
     /**
      * Returns the repository id.
      */
@@ -1324,7 +1656,8 @@ public class SessionImpl implements Session {
         final RelationshipService relationshipService = getBinding().getRelationshipService();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchDepth()) {
 
             @Override
             protected AbstractPageFetcher.Page<Relationship> fetchPage(long skipCount) {
@@ -1448,6 +1781,19 @@ public class SessionImpl implements Session {
     public ContentStream getContentStream(ObjectId docId, String streamId, BigInteger offset, BigInteger length) {
         checkDocumentId(docId);
 
+        // check the content cache
+        DiskContentCache contentCache = getContentCache();
+        String cacheKey = null;
+        if (contentCache != null) {
+            cacheKey = getContentCacheKey(docId, streamId);
+            if (cacheKey != null) {
+                ContentStream cached = contentCache.get(cacheKey, offset, length);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
         // get the stream
         ContentStream contentStream = null;
         try {
@@ -1458,9 +1804,80 @@ public class SessionImpl implements Session {
             return null;
         }
 
+        // only complete streams can be cached
+        if (cacheKey != null && contentStream != null && offset == null && length == null
+                && !(contentStream instanceof PartialContentStream)) {
+            InputStream stream = contentCache.store(cacheKey, contentStream.getStream(), contentStream.getLength(),
+                    contentStream.getFileName(), contentStream.getMimeType());
+            if (contentStream instanceof MutableContentStream) {
+                ((MutableContentStream) contentStream).setStream(stream);
+            } else {
+                contentStream = new ContentStreamImpl(contentStream.getFileName(), contentStream.getBigLength(),
+                        contentStream.getMimeType(), stream);
+            }
+        }
+
         return contentStream;
     }
 
+    /**
+     * Returns the content cache or {@code null} if the content cache is not
+     * configured.
+     */
+    private synchronized DiskContentCache getContentCache() {
+        if (!contentCacheInitialized) {
+            String directory = parameters.get(SessionParameter.CONTENT_CACHE_DIRECTORY);
+            if (directory != null && directory.trim().length() > 0) {
+                long size = getPositiveLongParameter(parameters, SessionParameter.CONTENT_CACHE_SIZE,
+                        SessionParameterDefaults.CONTENT_CACHE_SIZE);
+                long maxDocumentSize = getPositiveLongParameter(parameters,
+                        SessionParameter.CONTENT_CACHE_MAX_DOCUMENT_SIZE,
+                        SessionParameterDefaults.CONTENT_CACHE_MAX_DOCUMENT_SIZE);
+                contentCache = DiskContentCache.getInstance(new File(directory.trim()), size, maxDocumentSize);
+            }
+            contentCacheInitialized = true;
+        }
+
+        return contentCache;
+    }
+
+    /**
+     * Builds the content cache key from the change token (or the last
+     * modification date) of the document. Returns {@code null} if the
+     * content must not be cached.
+     */
+    private String getContentCacheKey(ObjectId docId, String streamId) {
+        boolean revalidate = Boolean.parseBoolean(parameters.get(SessionParameter.CONTENT_CACHE_REVALIDATE));
+
+        Document doc;
+        if (docId instanceof Document && !revalidate) {
+            doc = (Document) docId;
+        } else {
+            try {
+                CmisObject object = getObject(docId, revalidate ? CONTENT_CACHE_REVALIDATE_CONTEXT
+                        : CONTENT_CACHE_CONTEXT);
+                if (!(object instanceof Document)) {
+                    return null;
+                }
+                doc = (Document) object;
+            } catch (CmisObjectNotFoundException e) {
+                return null;
+            }
+        }
+
+        String version = doc.getChangeToken();
+        if (version == null) {
+            GregorianCalendar lastModified = doc.getLastModificationDate();
+            if (lastModified == null) {
+                return null;
+            }
+            version = String.valueOf(lastModified.getTimeInMillis());
+        }
+
+        return DiskContentCache.createKey(getRepositoryId(), doc.getId(), streamId,
+                version + "/" + doc.getContentStreamId());
+    }
+
     // --- ACL ---
 
     @Override
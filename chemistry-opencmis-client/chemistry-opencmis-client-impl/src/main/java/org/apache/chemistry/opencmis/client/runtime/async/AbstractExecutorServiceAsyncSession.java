@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.client.runtime.async;
 
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import org.apache.chemistry.opencmis.client.api.ObjectId;
 import org.apache.chemistry.opencmis.client.api.ObjectType;
 import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Policy;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -521,6 +523,63 @@ public abstract class AbstractExecutorServiceAsyncSession<E extends ExecutorServ
         return submit(new CreateRelationshipCallable(session, properties, policies, addAces, removeAces));
     }
 
+    // --- query ---
+
+    protected static class QueryCallable extends SessionCallable<List<QueryResult>> {
+        private String statement;
+        private boolean searchAllVersions;
+        private OperationContext context;
+
+        public QueryCallable(Session session, String statement, boolean searchAllVersions, OperationContext context) {
+            super(session);
+            this.statement = statement;
+            this.searchAllVersions = searchAllVersions;
+            this.context = context;
+        }
+
+        @Override
+        public List<QueryResult> call() throws Exception {
+            List<QueryResult> result = new ArrayList<QueryResult>();
+            for (QueryResult queryResult : session.query(statement, searchAllVersions, context).getPage()) {
+                result.add(queryResult);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Sends a query to the repository and returns the first page of the
+     * results. The page size is the max items per page value of the operation
+     * context.
+     * <p>
+     * This method is not part of the
+     * {@link org.apache.chemistry.opencmis.client.api.AsyncSession} interface,
+     * adding it there would break existing implementations.
+     * 
+     * @param statement
+     *            the query statement (CMIS query language)
+     * @param searchAllVersions
+     *            specifies whether non-latest document versions should be
+     *            included or not
+     * @param context
+     *            the operation context
+     * 
+     * @return the first page of the query results
+     */
+    public Future<List<QueryResult>> query(String statement, boolean searchAllVersions, OperationContext context) {
+        return submit(new QueryCallable(session, statement, searchAllVersions, context));
+    }
+
+    /**
+     * Sends a query to the repository and returns the first page of the
+     * results, using the default operation context of the session.
+     * 
+     * @see #query(String, boolean, OperationContext)
+     */
+    public Future<List<QueryResult>> query(String statement, boolean searchAllVersions) {
+        return query(statement, searchAllVersions, session.getDefaultContext());
+    }
+
     // --- content ---
 
     protected static class GetContentStreamCallable extends SessionCallable<ContentStream> {
@@ -49,6 +49,6 @@ public class AsyncSessionFactoryImpl implements AsyncSessionFactory {
             throw new IllegalArgumentException("maxParallelRequests must be >0!");
         }
 
-        return new ThreadPoolExecutorAsyncSession(session, maxParallelRequests);
+        return new NonBlockingAsyncSession(session, maxParallelRequests);
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.async;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Policy;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.AsyncBrowserBindingService;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.AsyncCallback;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.CallbackFuture;
+import org.apache.chemistry.opencmis.client.runtime.SessionImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.commons.data.Ace;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+
+/**
+ * An implementation of the {@link org.apache.chemistry.opencmis.client.api.AsyncSession}
+ * interface that doesn't need a thread per request for {@code getObject},
+ * {@code query} and {@code createDocument}.
+ * <p>
+ * If the session uses the Browser Binding and an asynchronous HTTP invoker
+ * (for example
+ * {@link org.apache.chemistry.opencmis.client.bindings.spi.http.NioHttpInvoker}
+ * ) that reaches the endpoint without occupying a thread, these operations
+ * send their requests without blocking and their futures are completed by the
+ * conversion threads of the Browser Binding. All other operations, and all
+ * operations of other bindings and of endpoints the invoker can't reach
+ * without a thread (for example HTTPS or proxied endpoints), run on the thread
+ * pool of {@link ThreadPoolExecutorAsyncSession} and are limited by its size.
+ */
+public class NonBlockingAsyncSession extends ThreadPoolExecutorAsyncSession {
+
+    private static final Set<Updatability> CREATE_AND_CHECKOUT_UPDATABILITY = EnumSet.of(Updatability.ONCREATE,
+            Updatability.READWRITE, Updatability.WHENCHECKEDOUT);
+
+    private final AsyncBrowserBindingService browserService;
+
+    public NonBlockingAsyncSession(Session session) {
+        this(session, 5);
+    }
+
+    public NonBlockingAsyncSession(Session session, int maxThreads) {
+        super(session, maxThreads);
+
+        AsyncBrowserBindingService service = null;
+        CmisBinding binding = session.getBinding();
+        if (binding instanceof CmisBindingImpl) {
+            service = ((CmisBindingImpl) binding).getAsyncBrowserBindingService();
+        }
+        browserService = (service != null && service.isNonBlocking() ? service : null);
+    }
+
+    /**
+     * Returns whether {@code getObject}, {@code query} and
+     * {@code createDocument} are non-blocking in this session.
+     */
+    public boolean isNonBlocking() {
+        return browserService != null;
+    }
+
+    @Override
+    public Future<CmisObject> getObject(ObjectId objectId, OperationContext context) {
+        if (browserService == null || objectId == null) {
+            return super.getObject(objectId, context);
+        }
+
+        return getObject(objectId.getId(), context);
+    }
+
+    @Override
+    public Future<CmisObject> getObject(String objectId, final OperationContext context) {
+        if (browserService == null || objectId == null || context == null) {
+            return super.getObject(objectId, context);
+        }
+
+        final Cache cache = (session instanceof SessionImpl ? ((SessionImpl) session).getCache() : null);
+
+        // ask the cache first
+        if (cache != null && context.isCacheEnabled()) {
+            CmisObject cached = cache.getById(objectId, context.getCacheKey());
+            if (cached != null) {
+                CallbackFuture<CmisObject> future = new CallbackFuture<CmisObject>();
+                future.completed(cached);
+                return future;
+            }
+        }
+
+        final CallbackFuture<CmisObject> future = new CallbackFuture<CmisObject>();
+
+        browserService.getObject(session.getRepositoryInfo().getId(), objectId, context.getFilterString(),
+                context.isIncludeAllowableActions(), context.getIncludeRelationships(),
+                context.getRenditionFilterString(), context.isIncludePolicies(), context.isIncludeAcls(),
+                new ConvertingCallback<ObjectData, CmisObject>(future) {
+                    @Override
+                    protected CmisObject convert(ObjectData objectData) {
+                        CmisObject object = session.getObjectFactory().convertObject(objectData, context);
+
+                        // put into cache
+                        if (cache != null && context.isCacheEnabled()) {
+                            cache.put(object, context.getCacheKey());
+                        }
+
+                        return object;
+                    }
+                });
+
+        return future;
+    }
+
+    @Override
+    public Future<List<QueryResult>> query(String statement, boolean searchAllVersions, OperationContext context) {
+        if (browserService == null || context == null) {
+            return super.query(statement, searchAllVersions, context);
+        }
+
+        final CallbackFuture<List<QueryResult>> future = new CallbackFuture<List<QueryResult>>();
+
+        browserService.query(session.getRepositoryInfo().getId(), statement, searchAllVersions,
+                context.isIncludeAllowableActions(), context.getIncludeRelationships(),
+                context.getRenditionFilterString(), BigInteger.valueOf(context.getMaxItemsPerPage()),
+                BigInteger.ZERO, new ConvertingCallback<ObjectList, List<QueryResult>>(future) {
+                    @Override
+                    protected List<QueryResult> convert(ObjectList resultList) {
+                        ObjectFactory of = session.getObjectFactory();
+
+                        List<QueryResult> result = new ArrayList<QueryResult>();
+                        if (resultList.getObjects() != null) {
+                            for (ObjectData objectData : resultList.getObjects()) {
+                                if (objectData == null) {
+                                    continue;
+                                }
+
+                                result.add(of.convertQueryResult(objectData));
+                            }
+                        }
+
+                        return result;
+                    }
+                });
+
+        return future;
+    }
+
+    @Override
+    public Future<ObjectId> createDocument(Map<String, ?> properties, ObjectId folderId, ContentStream contentStream,
+            VersioningState versioningState, List<Policy> policies, List<Ace> addAces, List<Ace> removeAces) {
+        if (browserService == null || properties == null || properties.isEmpty()) {
+            return super.createDocument(properties, folderId, contentStream, versioningState, policies, addAces,
+                    removeAces);
+        }
+
+        ObjectFactory of = session.getObjectFactory();
+        final CallbackFuture<ObjectId> future = new CallbackFuture<ObjectId>();
+
+        try {
+            browserService.createDocument(session.getRepositoryInfo().getId(),
+                    of.convertProperties(properties, null, null, CREATE_AND_CHECKOUT_UPDATABILITY),
+                    (folderId == null ? null : folderId.getId()), of.convertContentStream(contentStream),
+                    versioningState, of.convertPolicies(policies), of.convertAces(addAces),
+                    of.convertAces(removeAces), new ConvertingCallback<String, ObjectId>(future) {
+                        @Override
+                        protected ObjectId convert(String newId) {
+                            return newId == null ? null : session.createObjectId(newId);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // the properties could not be converted
+            future.failed(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Converts the binding result and completes the future of the session
+     * operation.
+     */
+    private abstract static class ConvertingCallback<S, T> implements AsyncCallback<S> {
+
+        private final CallbackFuture<T> future;
+
+        ConvertingCallback(CallbackFuture<T> future) {
+            this.future = future;
+        }
+
+        protected abstract T convert(S result);
+
+        @Override
+        public void completed(S result) {
+            try {
+                future.completed(convert(result));
+            } catch (Exception e) {
+                future.failed(e);
+            }
+        }
+
+        @Override
+        public void failed(Exception exception) {
+            future.failed(exception);
+        }
+    }
+}
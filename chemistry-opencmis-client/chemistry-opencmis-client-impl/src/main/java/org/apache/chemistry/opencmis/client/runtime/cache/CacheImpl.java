@@ -38,7 +38,7 @@ import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
  * Synchronized cache implementation. The cache is limited to a specific size of
  * entries and works in a LRU mode.
  */
-public class CacheImpl implements Cache {
+public class CacheImpl implements LowPriorityCache {
 
     private static final long serialVersionUID = 1L;
 
@@ -302,6 +302,40 @@ public class CacheImpl implements Cache {
         }
     }
 
+    @Override
+    public void putLowPriority(CmisObject object, String path, String cacheKey) {
+        if ((object == null) || (cacheKey == null) || (object.getId() == null)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // only use free space
+            CacheItem<Map<String, CmisObject>> cacheKeyMap = objectMap.get(object.getId());
+            if (cacheKeyMap == null) {
+                if (objectMap.size() >= cacheSize) {
+                    return;
+                }
+                cacheKeyMap = new CacheItem<Map<String, CmisObject>>(new HashMap<String, CmisObject>(), cacheTtl);
+                objectMap.put(object.getId(), cacheKeyMap);
+            }
+
+            Map<String, CmisObject> m = cacheKeyMap.getItem();
+            if (m != null) {
+                m.put(cacheKey, object);
+            }
+
+            if (path == null) {
+                path = object.getPropertyValue(PropertyIds.PATH);
+            }
+            if (path != null && (pathToIdMap.containsKey(path) || pathToIdMap.size() < pathToIdSize)) {
+                pathToIdMap.put(path, new CacheItem<String>(object.getId(), pathToIdTtl));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void remove(String objectId) {
         if (objectId == null) {
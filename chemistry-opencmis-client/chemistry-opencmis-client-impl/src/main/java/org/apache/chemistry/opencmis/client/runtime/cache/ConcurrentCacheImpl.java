@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
+
+/**
+ * Concurrent cache implementation for sessions that are shared by many
+ * threads.
+ * <p>
+ * Lookups don't acquire a lock. The cache is split into segments that are
+ * limited to a specific size of entries. Eviction is frequency-aware
+ * (W-TinyLFU): a new entry only displaces an older entry if it has been
+ * requested more often recently.
+ * <p>
+ * To use this cache, set the session parameter
+ * {@link SessionParameter#CACHE_CLASS} to the name of this class.
+ */
+public class ConcurrentCacheImpl implements LowPriorityCache {
+
+    private static final long serialVersionUID = 1L;
+
+    private int cacheSize;
+    private int cacheTtl;
+    private int pathToIdSize;
+    private int pathToIdTtl;
+
+    private transient volatile TinyLfuMap<ConcurrentMap<String, CmisObject>> objectMap;
+    private transient volatile TinyLfuMap<String> pathToIdMap;
+
+    /**
+     * Default constructor.
+     */
+    public ConcurrentCacheImpl() {
+    }
+
+    @Override
+    public void initialize(Session session, Map<String, String> parameters) {
+        assert parameters != null;
+
+        cacheSize = getSizeParameter(parameters, SessionParameter.CACHE_SIZE_OBJECTS,
+                SessionParameterDefaults.CACHE_SIZE_OBJECTS);
+        cacheTtl = getTtlParameter(parameters, SessionParameter.CACHE_TTL_OBJECTS,
+                SessionParameterDefaults.CACHE_TTL_OBJECTS);
+        pathToIdSize = getSizeParameter(parameters, SessionParameter.CACHE_SIZE_PATHTOID,
+                SessionParameterDefaults.CACHE_SIZE_PATHTOID);
+        pathToIdTtl = getTtlParameter(parameters, SessionParameter.CACHE_TTL_PATHTOID,
+                SessionParameterDefaults.CACHE_TTL_PATHTOID);
+
+        initializeInternals();
+    }
+
+    private static int getSizeParameter(Map<String, String> parameters, String key, int defaultValue) {
+        try {
+            int value = Integer.valueOf(parameters.get(key));
+            return value < 0 ? 0 : value;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    private static int getTtlParameter(Map<String, String> parameters, String key, int defaultValue) {
+        try {
+            int value = Integer.valueOf(parameters.get(key));
+            return value < 0 ? defaultValue : value;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Sets up the internal objects.
+     */
+    private void initializeInternals() {
+        objectMap = new TinyLfuMap<ConcurrentMap<String, CmisObject>>(cacheSize);
+        pathToIdMap = new TinyLfuMap<String>(pathToIdSize);
+    }
+
+    @Override
+    public void clear() {
+        initializeInternals();
+    }
+
+    @Override
+    public boolean containsId(String objectId, String cacheKey) {
+        if (objectId == null) {
+            return false;
+        }
+
+        return objectMap.get(objectId) != null;
+    }
+
+    @Override
+    public boolean containsPath(String path, String cacheKey) {
+        return getObjectIdByPathInternal(path, cacheKey) != null;
+    }
+
+    @Override
+    public CmisObject getById(String objectId, String cacheKey) {
+        if (objectId == null || cacheKey == null) {
+            return null;
+        }
+
+        Map<String, CmisObject> item = objectMap.get(objectId);
+        return item == null ? null : item.get(cacheKey);
+    }
+
+    @Override
+    public CmisObject getByPath(String path, String cacheKey) {
+        String objectId = getObjectIdByPathInternal(path, cacheKey);
+        if (objectId == null) {
+            return null;
+        }
+
+        return getById(objectId, cacheKey);
+    }
+
+    @Override
+    public String getObjectIdByPath(String path) {
+        if (path == null) {
+            return null;
+        }
+
+        return pathToIdMap.get(path);
+    }
+
+    /**
+     * Returns the object ID of the path if the object is also in the cache.
+     */
+    private String getObjectIdByPathInternal(String path, String cacheKey) {
+        if (path == null) {
+            return null;
+        }
+
+        TinyLfuMap<String> paths = pathToIdMap;
+
+        String objectId = paths.get(path);
+        if (objectId == null) {
+            return null;
+        }
+
+        if (!containsId(objectId, cacheKey)) {
+            paths.remove(path);
+            return null;
+        }
+
+        return objectId;
+    }
+
+    @Override
+    public void put(CmisObject object, String cacheKey) {
+        // no object, no cache key - no cache
+        if ((object == null) || (cacheKey == null)) {
+            return;
+        }
+
+        // no id - no cache
+        String objectId = object.getId();
+        if (objectId == null) {
+            return;
+        }
+
+        // get or create the cache key map, this also renews the TTL of an
+        // existing entry
+        ConcurrentMap<String, CmisObject> cacheKeyMap = objectMap.putIfAbsent(objectId,
+                new ConcurrentHashMap<String, CmisObject>(), cacheTtl);
+
+        // put into id cache
+        cacheKeyMap.put(cacheKey, object);
+
+        // folders may have a path, use it!
+        String path = object.getPropertyValue(PropertyIds.PATH);
+        if (path != null) {
+            pathToIdMap.put(path, objectId, pathToIdTtl);
+        }
+    }
+
+    @Override
+    public void putPath(String path, CmisObject object, String cacheKey) {
+        if (path == null) {
+            return;
+        }
+
+        put(object, cacheKey);
+
+        if ((object != null) && (object.getId() != null) && (cacheKey != null)) {
+            pathToIdMap.put(path, object.getId(), pathToIdTtl);
+        }
+    }
+
+    @Override
+    public void putLowPriority(CmisObject object, String path, String cacheKey) {
+        if ((object == null) || (cacheKey == null) || (object.getId() == null)) {
+            return;
+        }
+
+        String objectId = object.getId();
+
+        ConcurrentMap<String, CmisObject> cacheKeyMap = objectMap.putLowPriority(objectId,
+                new ConcurrentHashMap<String, CmisObject>(), cacheTtl, true);
+        if (cacheKeyMap == null) {
+            // no room
+            return;
+        }
+
+        cacheKeyMap.put(cacheKey, object);
+
+        if (path == null) {
+            path = object.getPropertyValue(PropertyIds.PATH);
+        }
+        if (path != null) {
+            pathToIdMap.putLowPriority(path, objectId, pathToIdTtl, false);
+        }
+    }
+
+    @Override
+    public void remove(String objectId) {
+        if (objectId == null) {
+            return;
+        }
+
+        objectMap.remove(objectId);
+    }
+
+    @Override
+    public void removePath(String path) {
+        if (path == null) {
+            return;
+        }
+
+        pathToIdMap.remove(path);
+    }
+
+    @Override
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    // --- serialization ---
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        long now = System.currentTimeMillis();
+
+        List<TinyLfuMap.Node<ConcurrentMap<String, CmisObject>>> objectNodes = objectMap.liveNodes();
+        out.writeInt(objectNodes.size());
+        for (TinyLfuMap.Node<ConcurrentMap<String, CmisObject>> node : objectNodes) {
+            ConcurrentMap<String, CmisObject> value = node.getValue(now);
+            out.writeObject(node.getKey());
+            out.writeLong(node.getExpiresAt() - now);
+            out.writeObject(value == null ? null : new HashMap<String, CmisObject>(value));
+        }
+
+        List<TinyLfuMap.Node<String>> pathNodes = pathToIdMap.liveNodes();
+        out.writeInt(pathNodes.size());
+        for (TinyLfuMap.Node<String> node : pathNodes) {
+            out.writeObject(node.getKey());
+            out.writeLong(node.getExpiresAt() - now);
+            out.writeObject(node.getValue(now));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        initializeInternals();
+
+        int objectCount = in.readInt();
+        for (int i = 0; i < objectCount; i++) {
+            String objectId = (String) in.readObject();
+            long ttl = in.readLong();
+            @SuppressWarnings("unchecked")
+            Map<String, CmisObject> value = (Map<String, CmisObject>) in.readObject();
+
+            if (value != null && ttl >= 0) {
+                objectMap.put(objectId, new ConcurrentHashMap<String, CmisObject>(value), ttl);
+            }
+        }
+
+        int pathCount = in.readInt();
+        for (int i = 0; i < pathCount; i++) {
+            String path = (String) in.readObject();
+            long ttl = in.readLong();
+            String objectId = (String) in.readObject();
+
+            if (objectId != null && ttl >= 0) {
+                pathToIdMap.put(path, objectId, ttl);
+            }
+        }
+    }
+}
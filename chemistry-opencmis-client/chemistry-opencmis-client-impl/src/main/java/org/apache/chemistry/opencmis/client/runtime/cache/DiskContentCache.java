@@ -0,0 +1,533 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+
+/**
+ * LRU cache for content streams in a local directory.
+ * <p>
+ * Content is added while the application reads a stream. A stream is only
+ * kept if it has been read to the end. Cached content is served from
+ * memory-mapped files, complete or in ranges.
+ * <p>
+ * There is one instance per directory and JVM. Each instance keeps its files
+ * in a subdirectory of its own that is locked while the instance exists, so
+ * that several JVMs can share a cache directory. Subdirectories that are not
+ * locked anymore have been left by an instance that is gone, and are deleted
+ * when a new instance is created. Other files in the directory are never
+ * touched.
+ */
+public class DiskContentCache {
+
+    private static final String INSTANCE_PREFIX = "opencmis-cache-";
+    private static final String LOCK_FILE = "cache.lock";
+    private static final String FILE_PREFIX = "content";
+    private static final String CONTENT_SUFFIX = ".content";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final Map<File, DiskContentCache> INSTANCES = new HashMap<File, DiskContentCache>();
+
+    private final File directory;
+    private final FileLock lock;
+    private final long maxSize;
+    private final long maxDocumentSize;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long size;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Returns the cache for the given directory. The size settings of the
+     * first call for a directory apply.
+     *
+     * @param directory
+     *            the cache directory, it is created if it doesn't exist
+     * @param maxSize
+     *            the total size of all cached content streams in bytes
+     * @param maxDocumentSize
+     *            the size of the largest content stream that is cached in
+     *            bytes
+     */
+    public static DiskContentCache getInstance(File directory, long maxSize, long maxDocumentSize) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory must be set!");
+        }
+
+        File dir = directory.getAbsoluteFile();
+
+        synchronized (INSTANCES) {
+            DiskContentCache cache = INSTANCES.get(dir);
+            if (cache == null) {
+                cache = new DiskContentCache(dir, maxSize, maxDocumentSize);
+                INSTANCES.put(dir, cache);
+            }
+
+            return cache;
+        }
+    }
+
+    private DiskContentCache(File directory, long maxSize, long maxDocumentSize) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create content cache directory: " + directory);
+        }
+
+        deleteAbandonedInstances(directory);
+
+        File instanceDirectory;
+        do {
+            instanceDirectory = new File(directory, INSTANCE_PREFIX + UUID.randomUUID());
+        } while (!instanceDirectory.mkdir() && !instanceDirectory.isDirectory());
+
+        this.directory = instanceDirectory;
+        this.lock = lock(instanceDirectory);
+        if (lock == null) {
+            throw new IllegalArgumentException("Cannot lock content cache directory: " + instanceDirectory);
+        }
+
+        this.maxSize = maxSize;
+        this.maxDocumentSize = Math.min(Math.min(maxDocumentSize, maxSize), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Deletes the subdirectories of instances that are gone.
+     */
+    private static void deleteAbandonedInstances(File directory) {
+        File[] instanceDirectories = directory.listFiles();
+        if (instanceDirectories == null) {
+            return;
+        }
+
+        for (File instanceDirectory : instanceDirectories) {
+            if (!instanceDirectory.isDirectory() || !instanceDirectory.getName().startsWith(INSTANCE_PREFIX)) {
+                continue;
+            }
+
+            FileLock abandoned = lock(instanceDirectory);
+            if (abandoned == null) {
+                // the instance is still alive
+                continue;
+            }
+
+            File[] files = instanceDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (name.endsWith(CONTENT_SUFFIX) || name.endsWith(TEMP_SUFFIX)) {
+                        file.delete();
+                    }
+                }
+            }
+
+            release(abandoned);
+            new File(instanceDirectory, LOCK_FILE).delete();
+            instanceDirectory.delete();
+        }
+    }
+
+    /**
+     * Locks an instance directory.
+     *
+     * @return the lock or {@code null} if the directory is locked by another
+     *         instance
+     */
+    private static FileLock lock(File instanceDirectory) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(new File(instanceDirectory, LOCK_FILE), "rw");
+            FileLock result = raf.getChannel().tryLock();
+            if (result != null) {
+                return result;
+            }
+        } catch (OverlappingFileLockException e) {
+            // locked by this JVM
+        } catch (IOException e) {
+            // not accessible
+        }
+
+        IOUtils.closeQuietly(raf);
+        return null;
+    }
+
+    private static void release(FileLock lock) {
+        try {
+            lock.release();
+        } catch (IOException e) {
+            // ignore
+        }
+        IOUtils.closeQuietly(lock.channel());
+    }
+
+    /**
+     * Builds the cache key of a content stream.
+     *
+     * @param version
+     *            a value that changes with the content, usually the change
+     *            token
+     */
+    public static String createKey(String repositoryId, String objectId, String streamId, String version) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(repositoryId).append('\n');
+        sb.append(objectId).append('\n');
+        sb.append(streamId).append('\n');
+        sb.append(version);
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns a cached content stream or {@code null} if the content is not
+     * in the cache.
+     *
+     * @param offset
+     *            the offset or {@code null} to start at the beginning
+     * @param length
+     *            the maximum length or {@code null} to read to the end
+     */
+    public ContentStream get(String key, BigInteger offset, BigInteger length) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        long start = offset == null ? 0 : Math.min(Math.max(offset.longValue(), 0), entry.size);
+        long len = entry.size - start;
+        if (length != null && length.signum() >= 0 && length.longValue() < len) {
+            len = length.longValue();
+        }
+
+        ByteBuffer buffer;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(entry.file, "r");
+            try {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, start, len);
+            } finally {
+                IOUtils.closeQuietly(raf);
+            }
+        } catch (IOException e) {
+            // the file has been evicted in the meantime or is broken
+            remove(key);
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+
+        InputStream stream = new ByteBufferInputStream(buffer);
+        if (offset == null && length == null) {
+            return new ContentStreamImpl(entry.filename, BigInteger.valueOf(len), entry.mimeType, stream);
+        } else {
+            return new PartialContentStreamImpl(entry.filename, BigInteger.valueOf(len), entry.mimeType, stream);
+        }
+    }
+
+    /**
+     * Wraps a stream that delivers the complete content. The content is added
+     * to the cache when the stream has been read to the end and, if the length
+     * is known, the number of bytes read matches it.
+     *
+     * @param length
+     *            the length of the content announced by the repository or -1
+     *            if it is unknown
+     * @return the stream the caller should read instead of the given stream
+     */
+    public InputStream store(String key, InputStream stream, long length, String filename, String mimeType) {
+        if (stream == null || length > maxDocumentSize) {
+            return stream;
+        }
+
+        File tempFile;
+        OutputStream out;
+        try {
+            tempFile = File.createTempFile(FILE_PREFIX, TEMP_SUFFIX, directory);
+            out = new FileOutputStream(tempFile);
+        } catch (IOException e) {
+            return stream;
+        }
+
+        return new StoringInputStream(stream, key, tempFile, out, length, filename, mimeType);
+    }
+
+    /**
+     * Removes a content stream from the cache.
+     */
+    public synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.size;
+            entry.file.delete();
+        }
+    }
+
+    /**
+     * Removes all content streams from the cache.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.file.delete();
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the total size of the cached content streams in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of requests that have been served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of requests that couldn't be served from the cache.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private synchronized void add(String key, File tempFile, long length, String filename, String mimeType) {
+        // the temp file name is unique in the directory
+        String tempName = tempFile.getName();
+        File file = new File(directory, tempName.substring(0, tempName.length() - TEMP_SUFFIX.length())
+                + CONTENT_SUFFIX);
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            return;
+        }
+
+        Entry old = entries.put(key, new Entry(file, length, filename, mimeType));
+        if (old != null) {
+            size -= old.size;
+            old.file.delete();
+        }
+        size += length;
+
+        // evict the least recently used content streams
+        Iterator<Entry> iter = entries.values().iterator();
+        while (size > maxSize && iter.hasNext()) {
+            Entry entry = iter.next();
+            iter.remove();
+            size -= entry.size;
+            entry.file.delete();
+        }
+    }
+
+    private static class Entry {
+        final File file;
+        final long size;
+        final String filename;
+        final String mimeType;
+
+        Entry(File file, long size, String filename, String mimeType) {
+            this.file = file;
+            this.size = size;
+            this.filename = filename;
+            this.mimeType = mimeType;
+        }
+    }
+
+    /**
+     * Copies the content to a temporary file while it is read.
+     */
+    private class StoringInputStream extends FilterInputStream {
+
+        private final String key;
+        private final File tempFile;
+        private final long expectedLength;
+        private final String filename;
+        private final String mimeType;
+        private OutputStream out;
+        private long length;
+
+        StoringInputStream(InputStream in, String key, File tempFile, OutputStream out, long expectedLength,
+                String filename, String mimeType) {
+            super(in);
+            this.key = key;
+            this.tempFile = tempFile;
+            this.out = out;
+            this.expectedLength = expectedLength;
+            this.filename = filename;
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                finish();
+            } else if (out != null) {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                finish();
+            } else if (n > 0 && out != null) {
+                write(b, off, n);
+            }
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes cannot be cached
+            abort();
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            abort();
+            super.close();
+        }
+
+        private void write(byte[] b, int off, int len) {
+            length += len;
+            if (length > maxDocumentSize) {
+                abort();
+                return;
+            }
+
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        private void finish() {
+            if (out == null) {
+                return;
+            }
+
+            // a truncated stream also ends with EOF
+            if (expectedLength >= 0 && length != expectedLength) {
+                abort();
+                return;
+            }
+
+            try {
+                out.close();
+                out = null;
+                add(key, tempFile, length, filename, mimeType);
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        private void abort() {
+            if (out == null) {
+                return;
+            }
+
+            IOUtils.closeQuietly(out);
+            out = null;
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Reads from a (memory-mapped) buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skip = (int) Math.max(Math.min(n, buffer.remaining()), 0);
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+
+/**
+ * A cache that can admit objects without displacing the objects that are
+ * already cached.
+ * <p>
+ * The session uses this for objects returned by list operations. A large
+ * listing therefore only fills free space and doesn't flush the objects an
+ * application actually works with.
+ */
+public interface LowPriorityCache extends Cache {
+
+    /**
+     * Adds an object if there is room for it. An object that is already cached
+     * is updated but not treated as recently used.
+     * 
+     * @param object
+     *            the object
+     * @param path
+     *            the path of the object or {@code null} if it is unknown
+     * @param cacheKey
+     *            the cache key of the operation context
+     */
+    void putLowPriority(CmisObject object, String path, String cacheKey);
+}
@@ -23,7 +23,7 @@ import java.util.Map;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Session;
 
-public class NoCacheImpl implements Cache {
+public class NoCacheImpl implements LowPriorityCache {
 
     private static final long serialVersionUID = 1L;
 
@@ -49,6 +49,10 @@ public class NoCacheImpl implements Cache {
     public void putPath(String path, CmisObject object, String cacheKey) {
     }
 
+    @Override
+    public void putLowPriority(CmisObject object, String path, String cacheKey) {
+    }
+
     @Override
     public CmisObject getById(String objectId, String cacheKey) {
         return null;
@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, segmented map with lock-free reads, a time-to-live per entry and a
+ * W-TinyLFU eviction policy.
+ * <p>
+ * Each segment consists of a small LRU admission window and a main LRU region.
+ * The window holds about one percent of the segment, but at least
+ * {@value #MIN_WINDOW_SIZE} entries, and segments are only split off for large
+ * maps so that the window doesn't degenerate to a single entry. New entries
+ * enter the window. An entry that falls out of the window only
+ * replaces the least recently used entry of the main region if it has been
+ * accessed more frequently. Reads only look up the underlying
+ * {@link ConcurrentHashMap} and record the access in a lossy ring buffer. The
+ * buffer is replayed under the segment lock on the next write or when it is
+ * full.
+ */
+final class TinyLfuMap<V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int WINDOW_PERCENTAGE = 1;
+    private static final int MIN_WINDOW_SIZE = 8;
+    private static final int MIN_SEGMENT_CAPACITY = 1024;
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+    private final int capacity;
+
+    /**
+     * Creates a map that holds up to {@code capacity} entries.
+     */
+    @SuppressWarnings("unchecked")
+    TinyLfuMap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+
+        int segmentCount = 1;
+        while ((segmentCount < MAX_SEGMENTS) && (segmentCount * 2 * MIN_SEGMENT_CAPACITY <= this.capacity)) {
+            segmentCount <<= 1;
+        }
+
+        segments = new Segment[segmentCount];
+        segmentMask = segmentCount - 1;
+
+        int segmentCapacity = this.capacity / segmentCount;
+        int remainder = this.capacity % segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<V>(segmentCapacity + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the value of the given key or {@code null} if the key is unknown
+     * or the entry has expired.
+     */
+    V get(String key) {
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+
+        Node<V> node = segment.map.get(key);
+        if (node == null) {
+            return null;
+        }
+
+        V value = node.getValue(System.currentTimeMillis());
+        if (value != null) {
+            segment.recordRead(node);
+        }
+
+        return value;
+    }
+
+    /**
+     * Adds or replaces an entry.
+     */
+    void put(String key, V value, long ttl) {
+        int hash = hash(key);
+        segmentFor(hash).put(key, hash, value, System.currentTimeMillis() + ttl, false, false);
+    }
+
+    /**
+     * Adds an entry if there is no live entry for the key. If there is a live
+     * entry, its time-to-live is renewed.
+     *
+     * @return the value that is now associated with the key
+     */
+    V putIfAbsent(String key, V value, long ttl) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, System.currentTimeMillis() + ttl, true, false);
+    }
+
+    /**
+     * Adds or updates an entry without displacing other entries and without
+     * counting as an access. A new entry is only admitted if its segment has
+     * free room and it is the first candidate for eviction.
+     *
+     * @param onlyIfAbsent
+     *            if {@code true}, a live entry is kept as it is
+     * @return the value that is now associated with the key or {@code null}
+     *         if the entry has not been admitted
+     */
+    V putLowPriority(String key, V value, long ttl, boolean onlyIfAbsent) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, System.currentTimeMillis() + ttl, onlyIfAbsent, true);
+    }
+
+    /**
+     * Removes an entry.
+     */
+    void remove(String key) {
+        int hash = hash(key);
+        segmentFor(hash).remove(key);
+    }
+
+    /**
+     * Returns the number of entries, including expired entries that haven't
+     * been evicted yet.
+     */
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of all live entries.
+     */
+    List<Node<V>> liveNodes() {
+        long now = System.currentTimeMillis();
+
+        List<Node<V>> result = new ArrayList<Node<V>>();
+        for (Segment<V> segment : segments) {
+            for (Node<V> node : segment.map.values()) {
+                if (node.getValue(now) != null) {
+                    result.add(node);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        // short keys only differ in the low bits, spread them first
+        return segments[((hash * 0x9E3779B9) >>> 16) & segmentMask];
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // --- node ---
+
+    /**
+     * Map entry. Value and expiration are replaced in place, the list links
+     * are only touched under the segment lock.
+     */
+    static final class Node<V> {
+
+        static final int NONE = 0;
+        static final int WINDOW = 1;
+        static final int MAIN = 2;
+
+        final String key;
+        final int hash;
+        private volatile SoftReference<V> value;
+        private volatile long expiresAt;
+
+        // guarded by the segment lock
+        int queue = NONE;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(String key, int hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
+        }
+
+        V getValue(long now) {
+            if (expiresAt < now) {
+                return null;
+            }
+
+            SoftReference<V> ref = value;
+            return ref == null ? null : ref.get();
+        }
+
+        void setValue(V value, long expiresAt) {
+            this.value = new SoftReference<V>(value);
+            this.expiresAt = expiresAt;
+        }
+
+        void setExpiresAt(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // --- segment ---
+
+    private static final class Segment<V> extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        final ConcurrentHashMap<String, Node<V>> map;
+
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final FrequencySketch sketch;
+
+        private final Node<V> windowHead = new Node<V>(null, 0);
+        private final Node<V> mainHead = new Node<V>(null, 0);
+        private int windowSize;
+        private int mainSize;
+
+        private final AtomicReferenceArray<Node<V>> readBuffer = new AtomicReferenceArray<Node<V>>(
+                READ_BUFFER_SIZE);
+        private final AtomicInteger readCounter = new AtomicInteger();
+
+        Segment(int capacity) {
+            windowCapacity = Math.min(capacity, Math.max(MIN_WINDOW_SIZE, capacity * WINDOW_PERCENTAGE / 100));
+            mainCapacity = capacity - windowCapacity;
+            map = new ConcurrentHashMap<String, Node<V>>(Math.max(16, (int) (capacity / 0.75f) + 1));
+            sketch = new FrequencySketch(capacity);
+
+            windowHead.prev = windowHead;
+            windowHead.next = windowHead;
+            mainHead.prev = mainHead;
+            mainHead.next = mainHead;
+        }
+
+        void recordRead(Node<V> node) {
+            int index = readCounter.getAndIncrement() & READ_BUFFER_MASK;
+            readBuffer.lazySet(index, node);
+
+            if (index == READ_BUFFER_MASK && tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    unlock();
+                }
+            }
+        }
+
+        V put(String key, int hash, V value, long expiresAt, boolean onlyIfAbsent, boolean lowPriority) {
+            if (windowCapacity == 0) {
+                return lowPriority ? null : value;
+            }
+
+            lock();
+            try {
+                drainReadBuffer();
+
+                Node<V> node = map.get(key);
+                if (node != null) {
+                    V current = node.getValue(System.currentTimeMillis());
+                    if (onlyIfAbsent && current != null) {
+                        if (!lowPriority) {
+                            node.setExpiresAt(expiresAt);
+                            onAccess(node);
+                        }
+                        return current;
+                    }
+
+                    node.setValue(value, expiresAt);
+                    if (!lowPriority) {
+                        onAccess(node);
+                    }
+                    return value;
+                }
+
+                if (lowPriority) {
+                    return admitLowPriority(key, hash, value, expiresAt);
+                }
+
+                node = new Node<V>(key, hash);
+                node.setValue(value, expiresAt);
+                map.put(key, node);
+                sketch.increment(hash);
+
+                link(windowHead, node);
+                node.queue = Node.WINDOW;
+                windowSize++;
+
+                evict();
+
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Adds a node at the eviction end of a region that has free room.
+         */
+        private V admitLowPriority(String key, int hash, V value, long expiresAt) {
+            Node<V> node = new Node<V>(key, hash);
+            node.setValue(value, expiresAt);
+
+            if (mainSize < mainCapacity) {
+                linkFirst(mainHead, node);
+                node.queue = Node.MAIN;
+                mainSize++;
+            } else if (windowSize < windowCapacity) {
+                linkFirst(windowHead, node);
+                node.queue = Node.WINDOW;
+                windowSize++;
+            } else {
+                return null;
+            }
+
+            map.put(key, node);
+            return value;
+        }
+
+        void remove(String key) {
+            lock();
+            try {
+                drainReadBuffer();
+
+                Node<V> node = map.remove(key);
+                if (node != null) {
+                    unlinkNode(node);
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Moves the oldest window entries into the main region and lets them
+         * compete with the main region's LRU entry.
+         */
+        private void evict() {
+            long now = System.currentTimeMillis();
+
+            while (windowSize > windowCapacity) {
+                Node<V> candidate = windowHead.next;
+                unlink(candidate);
+                windowSize--;
+
+                if (mainSize < mainCapacity) {
+                    link(mainHead, candidate);
+                    candidate.queue = Node.MAIN;
+                    mainSize++;
+                    continue;
+                }
+
+                Node<V> victim = mainHead.next;
+                if (candidate.getValue(now) == null) {
+                    discard(candidate);
+                } else if (victim == mainHead) {
+                    // no main region
+                    discard(candidate);
+                } else if (victim.getValue(now) == null
+                        || sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                    unlink(victim);
+                    mainSize--;
+                    discard(victim);
+
+                    link(mainHead, candidate);
+                    candidate.queue = Node.MAIN;
+                    mainSize++;
+                } else {
+                    discard(candidate);
+                }
+            }
+        }
+
+        private void discard(Node<V> node) {
+            node.queue = Node.NONE;
+            map.remove(node.key, node);
+        }
+
+        private void drainReadBuffer() {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                Node<V> node = readBuffer.getAndSet(i, null);
+                if (node != null) {
+                    onAccess(node);
+                }
+            }
+        }
+
+        private void onAccess(Node<V> node) {
+            if (node.queue == Node.NONE) {
+                // already evicted
+                return;
+            }
+
+            sketch.increment(node.hash);
+
+            unlink(node);
+            link(node.queue == Node.WINDOW ? windowHead : mainHead, node);
+        }
+
+        private void unlinkNode(Node<V> node) {
+            if (node.queue == Node.WINDOW) {
+                unlink(node);
+                windowSize--;
+            } else if (node.queue == Node.MAIN) {
+                unlink(node);
+                mainSize--;
+            }
+            node.queue = Node.NONE;
+        }
+
+        private static <V> void link(Node<V> head, Node<V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+        }
+
+        private static <V> void linkFirst(Node<V> head, Node<V> node) {
+            node.prev = head;
+            node.next = head.next;
+            head.next.prev = node;
+            head.next = node;
+        }
+
+        private static <V> void unlink(Node<V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+}
@@ -18,18 +18,47 @@
  */
 package org.apache.chemistry.opencmis.client.runtime.util;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher.Page;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 
 /**
  * Abstract <code>Iterator</code> implementation.
+ * <p>
+ * If the page fetcher has a prefetch depth greater than 0, the iterator
+ * requests the following pages in the background while the current page is
+ * consumed. The pages are fetched one after the other, and before each page
+ * the background task checks that the iterator is still in use. Pending
+ * requests are dropped when the iterator skips to an unexpected position, when
+ * {@link #cancelPrefetch()} is called or when the iterator is garbage
+ * collected. A request that is already running is completed.
+ * <p>
+ * All iterators of the JVM share one pool of eight prefetch threads, so the
+ * prefetching of one list competes with the prefetching of all other lists of
+ * all sessions.
  *
  * @param <T> the type returned by the iterator
  */
 public abstract class AbstractIterator<T> implements Iterator<T> {
 
+    private static final int PREFETCH_THREADS = 8;
+
+    private static final ExecutorService PREFETCH_EXECUTOR = ThreadUtils.createDaemonThreadPool(
+            "OpenCMIS Prefetch", PREFETCH_THREADS);
+
     private long skipCount;
     private int skipOffset;
     private final AbstractPageFetcher<T> pageFetcher;
@@ -38,6 +67,13 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
     private Long totalNumItems;
     private Boolean hasMoreItems;
 
+    private final Map<Long, Future<Page<T>>> prefetched = new LinkedHashMap<Long, Future<Page<T>>>();
+    private AtomicBoolean prefetchCancelled = new AtomicBoolean(false);
+    private int fetchedPages;
+    private int prefetchedPages;
+    private int overlappedPages;
+    private long fetchWaitTime;
+
     /**
      * Construct
      *
@@ -96,6 +132,51 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns the number of pages this iterator has consumed so far.
+     */
+    public int getFetchedPageCount() {
+        return fetchedPages;
+    }
+
+    /**
+     * Returns the number of consumed pages that have been requested in the
+     * background.
+     */
+    public int getPrefetchedPageCount() {
+        return prefetchedPages;
+    }
+
+    /**
+     * Returns the number of consumed pages that had been completely fetched
+     * in the background when the iterator reached them.
+     */
+    public int getOverlappedPageCount() {
+        return overlappedPages;
+    }
+
+    /**
+     * Returns the total time in milliseconds this iterator has been waiting
+     * for pages.
+     */
+    public long getFetchWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(fetchWaitTime);
+    }
+
+    /**
+     * Cancels all pending background requests.
+     */
+    public void cancelPrefetch() {
+        // stops the background tasks before they fetch their next page
+        prefetchCancelled.set(true);
+        prefetchCancelled = new AtomicBoolean(false);
+
+        for (Future<Page<T>> future : prefetched.values()) {
+            future.cancel(false);
+        }
+        prefetched.clear();
+    }
+
     /**
      * Gets current skip count
      *
@@ -130,7 +211,7 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
      */
     protected Page<T> getCurrentPage() {
         if (page == null) {
-            page = pageFetcher.fetchPage(skipCount);
+            page = fetchPage(skipCount);
         }
         return page;
     }
@@ -145,8 +226,168 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
         skipOffset = 0;
         totalNumItems = null;
         hasMoreItems = null;
-        page = pageFetcher.fetchPage(skipCount);
+        page = fetchPage(skipCount);
         return page;
     }
 
+    /**
+     * Returns the number of pages that should be fetched in the background.
+     *
+     * @return prefetch depth, 0 if prefetching is off
+     */
+    protected int getPrefetchDepth() {
+        return pageFetcher.getPrefetchDepth();
+    }
+
+    /**
+     * Fetches the page at the given position and schedules the following
+     * pages.
+     */
+    private Page<T> fetchPage(long skip) {
+        long start = System.nanoTime();
+
+        // requests for pages before this position are obsolete
+        Future<Page<T>> future = null;
+        Iterator<Map.Entry<Long, Future<Page<T>>>> iter = prefetched.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Long, Future<Page<T>>> entry = iter.next();
+            if (entry.getKey().longValue() < skip) {
+                entry.getValue().cancel(false);
+                iter.remove();
+            } else if (entry.getKey().longValue() == skip) {
+                future = entry.getValue();
+                iter.remove();
+            }
+        }
+
+        Page<T> result;
+        if (future == null) {
+            cancelPrefetch();
+            result = pageFetcher.fetchPage(skip);
+        } else {
+            prefetchedPages++;
+            if (future.isDone()) {
+                overlappedPages++;
+            }
+            result = getPrefetchedPage(skip, future);
+        }
+
+        fetchedPages++;
+        fetchWaitTime += System.nanoTime() - start;
+
+        schedulePrefetch(skip, result);
+
+        return result;
+    }
+
+    /**
+     * Requests the pages following the given page in the background.
+     */
+    private void schedulePrefetch(long skip, Page<T> current) {
+        int depth = getPrefetchDepth();
+        if (depth < 1 || current == null || current.getItems() == null || current.getItems().isEmpty()) {
+            return;
+        }
+
+        // the iterator stops if the repository doesn't confirm more items
+        if (!Boolean.TRUE.equals(current.getHasMoreItems())) {
+            return;
+        }
+
+        Long total = current.getTotalNumItems();
+
+        int pageSize = current.getItems().size();
+        List<FutureTask<Page<T>>> tasks = new ArrayList<FutureTask<Page<T>>>(depth);
+        for (int i = 1; i <= depth; i++) {
+            Long nextSkip = Long.valueOf(skip + (long) i * pageSize);
+            if (total != null && total.longValue() >= 0 && nextSkip.longValue() >= total.longValue()) {
+                break;
+            }
+            if (!prefetched.containsKey(nextSkip)) {
+                FutureTask<Page<T>> task = new FutureTask<Page<T>>(new PrefetchTask<T>(this, prefetchCancelled,
+                        pageFetcher, nextSkip.longValue()));
+                prefetched.put(nextSkip, task);
+                tasks.add(task);
+            }
+        }
+
+        if (!tasks.isEmpty()) {
+            PREFETCH_EXECUTOR.execute(new PrefetchChain<T>(tasks));
+        }
+    }
+
+    private Page<T> getPrefetchedPage(long skip, Future<Page<T>> future) {
+        try {
+            Page<T> result = future.get();
+            if (result == null) {
+                // the task has been skipped
+                result = pageFetcher.fetchPage(skip);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Interrupted while fetching page: " + e.toString(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CmisRuntimeException("Could not fetch page: " + cause, cause);
+        }
+    }
+
+    /**
+     * Runs the prefetch tasks of one schedule one after the other in a single
+     * pool thread. Cancelled tasks are skipped.
+     */
+    private static class PrefetchChain<T> implements Runnable {
+
+        private final List<FutureTask<Page<T>>> tasks;
+
+        public PrefetchChain(List<FutureTask<Page<T>>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void run() {
+            for (FutureTask<Page<T>> task : tasks) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Fetches a page in the background unless the iterator that requested it
+     * has cancelled the request or has been garbage collected in the
+     * meantime.
+     */
+    private static class PrefetchTask<T> implements Callable<Page<T>> {
+
+        private final WeakReference<AbstractIterator<T>> iterator;
+        private final AtomicBoolean cancelled;
+        private final AbstractPageFetcher<T> pageFetcher;
+        private final long skipCount;
+
+        public PrefetchTask(AbstractIterator<T> iterator, AtomicBoolean cancelled,
+                AbstractPageFetcher<T> pageFetcher, long skipCount) {
+            this.iterator = new WeakReference<AbstractIterator<T>>(iterator);
+            this.cancelled = cancelled;
+            this.pageFetcher = pageFetcher;
+            this.skipCount = skipCount;
+        }
+
+        @Override
+        public Page<T> call() {
+            if (cancelled.get() || iterator.get() == null) {
+                return null;
+            }
+
+            return pageFetcher.fetchPage(skipCount);
+        }
+    }
+
 }
@@ -29,9 +29,32 @@ import java.util.List;
 public abstract class AbstractPageFetcher<T> {
 
     protected long maxNumItems;
+    private final int prefetchDepth;
 
     protected AbstractPageFetcher(long maxNumItems) {
+        this(maxNumItems, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxNumItems max number of items per page
+     * @param prefetchDepth number of pages iterators should fetch in the
+     *            background, 0 turns prefetching off
+     */
+    protected AbstractPageFetcher(long maxNumItems, int prefetchDepth) {
         this.maxNumItems = maxNumItems;
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Returns the number of pages iterators should fetch in the background.
+     * <p>
+     * Prefetching calls {@link #fetchPage(long)} from a background thread.
+     * Fetchers that enable it must not depend on the calling thread.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
     }
 
     /**
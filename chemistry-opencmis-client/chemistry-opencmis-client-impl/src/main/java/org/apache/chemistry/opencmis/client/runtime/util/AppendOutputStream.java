@@ -183,6 +183,37 @@ public class AppendOutputStream extends OutputStream {
         }
     }
 
+    /**
+     * Sends the current buffer and the provided bytes to the repository in one
+     * call.
+     * 
+     * @param b
+     *            the data
+     * @param off
+     *            the start offset in the data
+     * @param len
+     *            the number of bytes to send
+     * @param isLastChunk
+     *            indicates if this is the last chunk of the content
+     * @throws IOException
+     *             if an error occurs
+     */
+    public void writeChunk(byte[] b, int off, int len, boolean isLastChunk) throws IOException {
+        if (isClosed) {
+            throw new IOException("Stream is already closed!");
+        }
+
+        if (b == null) {
+            throw new IllegalArgumentException("Data must not be null!");
+        } else if (off < 0 || off > b.length) {
+            throw new IndexOutOfBoundsException("Invalid offset!");
+        } else if (len < 0 || (off + len) > b.length || (off + len) < 0) {
+            throw new IndexOutOfBoundsException("Invalid length!");
+        }
+
+        send(b, off, len, isLastChunk);
+    }
+
     @Override
     public void flush() throws IOException {
         flush(false);
@@ -275,6 +306,22 @@ public class AppendOutputStream extends OutputStream {
         pos = 0;
     }
 
+    /**
+     * Returns the ID of the document. It may change with each call to the
+     * repository if the document is auto-versioned.
+     */
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * Returns the current change token of the document or {@code null} if
+     * change tokens are not used.
+     */
+    public String getChangeToken() {
+        return changeToken;
+    }
+
     @Override
     public void close() throws IOException {
         close(true);
@@ -78,4 +78,12 @@ public class CollectionPageIterator<T> extends AbstractIterator<T> {
 
         return items.get(incrementSkipOffset());
     }
+
+    /**
+     * A page iterator never leaves its page, so there is nothing to prefetch.
+     */
+    @Override
+    protected int getPrefetchDepth() {
+        return 0;
+    }
 }
@@ -0,0 +1,503 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Uploads a file in chunks with {@link AppendOutputStream} and recovers from
+ * failed chunks.
+ * <p>
+ * The next chunk is read from the file (and added to the digest) while the
+ * current chunk is sent to the repository. If sending a chunk fails, the
+ * content stream length of the document is checked to find out how much of
+ * the chunk the repository has received, and the rest of the chunk is sent
+ * again. An upload that has been aborted can be continued with
+ * {@link #resume(Document, File)}.
+ * <p>
+ * Before the upload continues from a length that has been reported by the
+ * repository, the end of the document content is compared with the file. If
+ * the repository supports range requests, this detects content that doesn't
+ * belong to the file, for example a chunk that the repository has stored
+ * only partly and incorrectly.
+ * <p>
+ * The chunk size adapts to the measured throughput so that sending a chunk
+ * takes about the configured target time.
+ * <p>
+ * This class is not thread safe.
+ */
+public class ResumableUploader {
+
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 256 * 1024;
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 32 * 1024 * 1024;
+    public static final int DEFAULT_INITIAL_CHUNK_SIZE = 4 * 1024 * 1024;
+    public static final long DEFAULT_TARGET_CHUNK_TIME = 2000;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final int DIGEST_BLOCK_SIZE = 1024 * 1024;
+    private static final int VERIFY_SIZE = 64 * 1024;
+
+    private static final OperationContext DOCUMENT_CONTEXT;
+    static {
+        DOCUMENT_CONTEXT = OperationContextUtils.createMinimumOperationContext(PropertyIds.CONTENT_STREAM_FILE_NAME,
+                PropertyIds.CONTENT_STREAM_MIME_TYPE, PropertyIds.CONTENT_STREAM_LENGTH, PropertyIds.CHANGE_TOKEN);
+        DOCUMENT_CONTEXT.setCacheEnabled(false);
+    }
+
+    /**
+     * Receives progress notifications.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after each chunk that the repository has acknowledged.
+         *
+         * @param uploaded
+         *            the number of bytes the document content has now
+         * @param total
+         *            the size of the file
+         * @param bytesPerSecond
+         *            the throughput of the last chunk
+         */
+        void progress(long uploaded, long total, long bytesPerSecond);
+    }
+
+    private final Session session;
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+    private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+    private int initialChunkSize = DEFAULT_INITIAL_CHUNK_SIZE;
+    private long targetChunkTime = DEFAULT_TARGET_CHUNK_TIME;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private String digestAlgorithm;
+    private ProgressListener listener;
+
+    private long uploaded;
+    private int chunkSize;
+    private byte[] digest;
+
+    /**
+     * Constructor.
+     *
+     * @param session
+     *            the session object, must not be {@code null}
+     */
+    public ResumableUploader(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+
+        this.session = session;
+    }
+
+    /**
+     * Sets the range of the chunk size.
+     */
+    public void setChunkSizes(int minChunkSize, int initialChunkSize, int maxChunkSize) {
+        if (minChunkSize < 1 || initialChunkSize < minChunkSize || maxChunkSize < initialChunkSize) {
+            throw new IllegalArgumentException("Invalid chunk sizes!");
+        }
+
+        this.minChunkSize = minChunkSize;
+        this.initialChunkSize = initialChunkSize;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    /**
+     * Sets the time in milliseconds sending a chunk should take.
+     */
+    public void setTargetChunkTime(long targetChunkTime) {
+        if (targetChunkTime < 1) {
+            throw new IllegalArgumentException("Target chunk time must be positive!");
+        }
+
+        this.targetChunkTime = targetChunkTime;
+    }
+
+    /**
+     * Sets how often a failed chunk is sent again.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative!");
+        }
+
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the algorithm of the digest that is calculated over the whole file,
+     * for example "SHA-256", or {@code null} to calculate no digest.
+     */
+    public void setDigestAlgorithm(String digestAlgorithm) {
+        this.digestAlgorithm = digestAlgorithm;
+    }
+
+    /**
+     * Sets the progress listener.
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the number of bytes of the file the document content has. After
+     * a failed upload this is where {@link #resume(Document, File)} continues.
+     */
+    public long getUploadedBytes() {
+        return uploaded;
+    }
+
+    /**
+     * Returns the current chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the digest of the file after a successful upload or
+     * {@code null} if no digest algorithm is set.
+     */
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    /**
+     * Uploads a file.
+     *
+     * @param doc
+     *            the document
+     * @param file
+     *            the file
+     * @param overwrite
+     *            if {@code true} the file replaces the document content, if
+     *            {@code false} the file is appended to the document content
+     * @return the ID of the document, which may differ from the ID of the
+     *         provided document if the document is auto-versioned
+     * @throws IOException
+     *             if the file could not be read or the upload failed
+     * @throws CmisBaseException
+     */
+    public String upload(Document doc, File file, boolean overwrite) throws IOException {
+        if (doc == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+
+        Document current = getDocument(doc.getId());
+        long offset = overwrite ? 0 : Math.max(current.getContentStreamLength(), 0);
+
+        return upload(current, file, 0, offset, overwrite);
+    }
+
+    /**
+     * Continues an upload that has been aborted. The upload continues with the
+     * first byte of the file the document content doesn't have, that is, the
+     * document content must be a prefix of the file.
+     *
+     * @param doc
+     *            the document
+     * @param file
+     *            the file
+     * @return the ID of the document, which may differ from the ID of the
+     *         provided document if the document is auto-versioned
+     * @throws IOException
+     *             if the file could not be read or the upload failed
+     * @throws CmisBaseException
+     */
+    public String resume(Document doc, File file) throws IOException {
+        if (doc == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+
+        Document current = getDocument(doc.getId());
+        long length = Math.max(current.getContentStreamLength(), 0);
+
+        return upload(current, file, length, length, false);
+    }
+
+    private String upload(Document doc, File file, long start, long contentOffset, boolean overwrite)
+            throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File must be set!");
+        }
+
+        FileInputStream in = new FileInputStream(file);
+        ExecutorService executor = Executors.newSingleThreadExecutor(ThreadUtils
+                .createDaemonThreadFactory("OpenCMIS Upload"));
+        try {
+            FileChannel source = in.getChannel();
+            long total = source.size();
+            if (start > total) {
+                throw new IOException("Document content is longer than the file!");
+            }
+
+            if (start > 0) {
+                verifyContent(doc, source, start, contentOffset, Math.min(VERIFY_SIZE, start));
+            }
+
+            MessageDigest md = createDigest();
+            if (md != null) {
+                // the digest covers the whole file
+                for (long pos = 0; pos < start; pos += DIGEST_BLOCK_SIZE) {
+                    new ChunkReader(source, pos, Math.min(DIGEST_BLOCK_SIZE, start - pos), md).call();
+                }
+            }
+
+            uploaded = start;
+            chunkSize = initialChunkSize;
+            digest = null;
+
+            AppendOutputStream out = new AppendOutputStream(session, doc, overwrite, null, null, 0);
+            boolean overwritePending = overwrite;
+
+            long position = start;
+            Future<ByteBuffer> next = executor.submit(new ChunkReader(source, position, chunkSize, md));
+
+            do {
+                ByteBuffer chunk = getChunk(next);
+                int chunkLength = chunk.remaining();
+                long chunkEnd = position + chunkLength;
+                boolean isLastChunk = (chunkEnd >= total);
+                if (!chunk.hasRemaining() && !isLastChunk) {
+                    throw new IOException("File has been truncated!");
+                }
+
+                if (!isLastChunk) {
+                    // read the next chunk while this one is on its way
+                    next = executor.submit(new ChunkReader(source, chunkEnd, chunkSize, md));
+                }
+
+                long startTime = System.currentTimeMillis();
+                int attempt = 0;
+                while (true) {
+                    try {
+                        out.writeChunk(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining(),
+                                isLastChunk);
+                        break;
+                    } catch (IOException e) {
+                        if (attempt++ >= maxRetries) {
+                            throw e;
+                        }
+
+                        // find out what the repository has received
+                        Document current = getDocument(out.getDocumentId());
+                        out = new AppendOutputStream(session, current, overwritePending, null, null, 0);
+                        if (overwritePending) {
+                            continue;
+                        }
+
+                        long length = current.getContentStreamLength() - contentOffset + start;
+                        if (length < position || length > chunkEnd) {
+                            throw new IOException("Unexpected content length: " + length, e);
+                        }
+
+                        if (length > position) {
+                            // the repository has received the chunk or a part
+                            // of it
+                            verifyContent(current, source, length, contentOffset - start + length, length
+                                    - position);
+                            chunk.position(chunk.position() + (int) (length - position));
+                            position = length;
+                            uploaded = length;
+                        }
+
+                        if (length == chunkEnd) {
+                            // only the response got lost
+                            break;
+                        }
+                    }
+                }
+
+                overwritePending = false;
+                position = chunkEnd;
+                uploaded = chunkEnd;
+
+                long time = Math.max(System.currentTimeMillis() - startTime, 1);
+                long bytesPerSecond = chunkLength * 1000L / time;
+                adjustChunkSize(chunkLength, time);
+
+                if (listener != null) {
+                    listener.progress(uploaded, total, bytesPerSecond);
+                }
+            } while (position < total);
+
+            if (md != null) {
+                digest = md.digest();
+            }
+
+            return out.getDocumentId();
+        } finally {
+            executor.shutdownNow();
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Scales the chunk size so that the next chunk takes the target time.
+     */
+    private void adjustChunkSize(int size, long time) {
+        long newSize = size * targetChunkTime / time;
+
+        // change the size by a factor of 2 at most per chunk
+        newSize = Math.min(newSize, 2L * chunkSize);
+        newSize = Math.max(newSize, chunkSize / 2);
+
+        chunkSize = (int) Math.max(minChunkSize, Math.min(maxChunkSize, newSize));
+    }
+
+    private Document getDocument(String id) {
+        CmisObject object = session.getObject(id, DOCUMENT_CONTEXT);
+        if (!(object instanceof Document)) {
+            throw new IllegalArgumentException("Object is not a document!");
+        }
+
+        return (Document) object;
+    }
+
+    /**
+     * Compares the end of the document content with the file. The check is
+     * skipped if the repository doesn't support range requests.
+     *
+     * @param filePosition
+     *            the position in the file that corresponds to
+     *            {@code contentPosition}
+     * @param contentPosition
+     *            the position in the document content up to which the
+     *            content is compared
+     * @param length
+     *            the number of bytes that are compared
+     */
+    private void verifyContent(Document doc, FileChannel source, long filePosition, long contentPosition,
+            long length) throws IOException {
+        ContentStream stream = session.getContentStream(doc, null, BigInteger.valueOf(contentPosition - length),
+                BigInteger.valueOf(length));
+        try {
+            if (stream == null || stream.getStream() == null
+                    || (!(stream instanceof PartialContentStream) && contentPosition > length)) {
+                // no range support
+                return;
+            }
+
+            ByteBuffer expected = new ChunkReader(source, filePosition - length, length, null).call();
+            byte[] actual = new byte[(int) length];
+            int read = 0;
+            while (read < actual.length) {
+                int b = stream.getStream().read(actual, read, actual.length - read);
+                if (b == -1) {
+                    break;
+                }
+                read += b;
+            }
+
+            if (read != expected.remaining()
+                    || !ByteBuffer.wrap(actual, 0, read).equals(expected)) {
+                throw new IOException("Document content doesn't match the file at offset "
+                        + (filePosition - length) + "!");
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private MessageDigest createDigest() throws IOException {
+        if (digestAlgorithm == null) {
+            return null;
+        }
+
+        try {
+            return MessageDigest.getInstance(digestAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Unknown digest algorithm: " + digestAlgorithm, e);
+        }
+    }
+
+    private static ByteBuffer getChunk(Future<ByteBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload interrupted!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not read file: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Reads a part of the file and adds it to the digest.
+     */
+    private static class ChunkReader implements Callable<ByteBuffer> {
+
+        private final FileChannel source;
+        private final long position;
+        private final long length;
+        private final MessageDigest md;
+
+        ChunkReader(FileChannel source, long position, long length, MessageDigest md) {
+            this.source = source;
+            this.position = position;
+            this.length = length;
+            this.md = md;
+        }
+
+        @Override
+        public ByteBuffer call() throws IOException {
+            long remaining = Math.max(Math.min(length, source.size() - position), 0);
+            ByteBuffer result = ByteBuffer.allocate((int) remaining);
+
+            while (result.hasRemaining()) {
+                if (source.read(result, position + result.position()) == -1) {
+                    break;
+                }
+            }
+            result.flip();
+
+            if (md != null) {
+                md.update(result.array(), result.arrayOffset(), result.limit());
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Thread helpers for the background work of the client.
+ */
+public final class ThreadUtils {
+
+    private ThreadUtils() {
+    }
+
+    /**
+     * Creates a thread factory for daemon threads. The threads are named
+     * after the given name and a running number.
+     */
+    public static ThreadFactory createDaemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Creates a thread pool of daemon threads. Idle threads end after a minute,
+     * so an unused pool doesn't keep any threads.
+     */
+    public static ExecutorService createDaemonThreadPool(String name, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), createDaemonThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs a worker on the current thread and on up to {@code threads - 1}
+     * threads of a new thread pool that is shut down afterwards.
+     * 
+     * @see #runInParallel(Runnable, int, ExecutorService)
+     */
+    public static void runInParallel(Runnable worker, int threads, String name) {
+        if (threads < 2) {
+            worker.run();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads - 1, createDaemonThreadFactory(name));
+        try {
+            runInParallel(worker, threads, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a worker on the current thread and on up to {@code threads - 1}
+     * threads of the given executor and waits until all of them are done.
+     * <p>
+     * All threads run the same worker instance, which takes its work from a
+     * shared source. The worker must only return when no work is left for
+     * the other threads. Copies that haven't been started by the executor
+     * when the current thread is done are dropped. This keeps a busy shared
+     * executor from delaying the caller.
+     * <p>
+     * If a worker throws an exception, it is rethrown. Workers that are still
+     * running are not stopped; a worker should check a shared failure flag.
+     */
+    public static void runInParallel(Runnable worker, int threads, ExecutorService executor) {
+        List<WorkerTask> tasks = new ArrayList<WorkerTask>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 1; i < threads; i++) {
+            WorkerTask task = new WorkerTask(worker);
+            tasks.add(task);
+            futures.add(executor.submit(task));
+        }
+
+        try {
+            // the current thread is one of the workers
+            worker.run();
+
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).skip()) {
+                    // there is nothing left for a worker that hasn't started
+                    futures.get(i).cancel(false);
+                } else {
+                    futures.get(i).get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Interrupted while waiting for worker threads!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CmisRuntimeException("Worker thread failed: " + cause, cause);
+        } finally {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).skip()) {
+                    futures.get(i).cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the worker unless the task has been skipped before it started.
+     */
+    private static class WorkerTask implements Runnable {
+        private static final int NEW = 0;
+        private static final int STARTED = 1;
+        private static final int SKIPPED = 2;
+
+        private final Runnable worker;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        WorkerTask(Runnable worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public void run() {
+            if (state.compareAndSet(NEW, STARTED)) {
+                worker.run();
+            }
+        }
+
+        /**
+         * Returns {@code true} if the worker has not been started and won't
+         * be started anymore.
+         */
+        boolean skip() {
+            return state.compareAndSet(NEW, SKIPPED) || state.get() == SKIPPED;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.client.runtime.util.ThreadUtils;
+import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Walks a folder tree with several threads and hands each object to a
+ * {@link Visitor} as soon as it has been fetched.
+ * <p>
+ * Unlike {@link Folder#getDescendants(int)} and
+ * {@link Folder#getFolderTree(int)}, the tree is never materialized. Folders
+ * that still have to be walked are kept in a queue that all threads take
+ * from. The queue is processed last-in-first-out, which walks the tree depth
+ * first and keeps the queue small. If the queue is full, the thread that found
+ * a folder walks it right away.
+ * <p>
+ * Children are fetched page by page with {@link Folder#getChildren()}. If the
+ * repository supports {@code getDescendants} and the descendants depth is
+ * greater than 1, each folder is fetched with {@code getDescendants} of that
+ * depth instead, which reduces the number of requests. Folders at the deepest
+ * level of such a subtree are queued again.
+ * <p>
+ * Instances are thread-safe as long as the settings are not changed while a
+ * walk is running.
+ */
+public class FolderTreeWalker {
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_MAX_QUEUED_FOLDERS = 1000;
+    public static final int DEFAULT_DESCENDANTS_DEPTH = 2;
+
+    /**
+     * Receives the objects of a folder tree.
+     */
+    public interface Visitor {
+
+        /**
+         * Called for each object below the root folder. This method is called
+         * from several threads at the same time.
+         * <p>
+         * A runtime exception thrown by this method stops the walk and is
+         * rethrown by {@link FolderTreeWalker#walk(Folder, Visitor)}.
+         *
+         * @param parent
+         *            the parent folder
+         * @param object
+         *            the object
+         * @param depth
+         *            the depth of the object, the children of the root folder
+         *            have the depth 1
+         * @return for folders: {@code true} if the walker should walk into
+         *         the folder, {@code false} if the subtree should be skipped;
+         *         ignored for all other objects
+         */
+        boolean visit(Folder parent, FileableCmisObject object, int depth);
+    }
+
+    private final Session session;
+    private OperationContext context;
+    private int threads = DEFAULT_THREADS;
+    private int maxQueuedFolders = DEFAULT_MAX_QUEUED_FOLDERS;
+    private int descendantsDepth = DEFAULT_DESCENDANTS_DEPTH;
+
+    /**
+     * Constructor.
+     *
+     * @param session
+     *            the session
+     */
+    public FolderTreeWalker(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+
+        this.session = session;
+    }
+
+    /**
+     * Returns the operation context that is used to fetch the objects, or
+     * {@code null} if the default context of the session is used.
+     */
+    public OperationContext getOperationContext() {
+        return context;
+    }
+
+    /**
+     * Sets the operation context that is used to fetch the objects.
+     *
+     * @param context
+     *            the operation context or {@code null} to use the default
+     *            context of the session
+     */
+    public void setOperationContext(OperationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the number of concurrent requests.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of concurrent requests.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive!");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the maximum number of folders that wait to be walked.
+     */
+    public int getMaxQueuedFolders() {
+        return maxQueuedFolders;
+    }
+
+    /**
+     * Sets the maximum number of folders that wait to be walked.
+     */
+    public void setMaxQueuedFolders(int maxQueuedFolders) {
+        if (maxQueuedFolders < 1) {
+            throw new IllegalArgumentException("Max queued folders must be positive!");
+        }
+
+        this.maxQueuedFolders = maxQueuedFolders;
+    }
+
+    /**
+     * Returns the depth of the subtrees that are fetched with
+     * {@code getDescendants}.
+     */
+    public int getDescendantsDepth() {
+        return descendantsDepth;
+    }
+
+    /**
+     * Sets the depth of the subtrees that are fetched with
+     * {@code getDescendants}. A depth of 1 turns {@code getDescendants} off.
+     */
+    public void setDescendantsDepth(int descendantsDepth) {
+        if (descendantsDepth < 1) {
+            throw new IllegalArgumentException("Descendants depth must be positive!");
+        }
+
+        this.descendantsDepth = descendantsDepth;
+    }
+
+    /**
+     * Walks the tree below a folder. The root folder itself is not visited.
+     *
+     * @param root
+     *            the root folder
+     * @param visitor
+     *            the visitor
+     * @return the number of visited objects
+     */
+    public long walk(Folder root, Visitor visitor) {
+        if (root == null) {
+            throw new IllegalArgumentException("Root folder must be set!");
+        }
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor must be set!");
+        }
+
+        Walk walk = new Walk(visitor, useDescendants(), threads);
+        walk.schedule(root, 0);
+
+        // the walk records its failures, it doesn't throw
+        ThreadUtils.runInParallel(walk, threads, "OpenCMIS Folder Tree Walker");
+
+        walk.throwFailure();
+
+        return walk.count.get();
+    }
+
+    private boolean useDescendants() {
+        if (descendantsDepth < 2) {
+            return false;
+        }
+
+        RepositoryCapabilities caps = session.getRepositoryInfo().getCapabilities();
+        return caps != null && Boolean.TRUE.equals(caps.isGetDescendantsSupported());
+    }
+
+    /**
+     * A folder that waits to be walked.
+     */
+    private static class QueuedFolder {
+
+        /** Tells a worker thread that the walk is over. */
+        static final QueuedFolder END = new QueuedFolder(null, -1);
+
+        final Folder folder;
+        final int depth;
+
+        QueuedFolder(Folder folder, int depth) {
+            this.folder = folder;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * The state of one walk. Each worker thread runs the same instance.
+     */
+    private class Walk implements Runnable {
+
+        private final Visitor visitor;
+        private final boolean useDescendants;
+        private final int workers;
+        private final OperationContext walkContext;
+        private final LinkedBlockingDeque<QueuedFolder> queue = new LinkedBlockingDeque<QueuedFolder>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private final AtomicBoolean ended = new AtomicBoolean();
+        final AtomicLong count = new AtomicLong();
+
+        Walk(Visitor visitor, boolean useDescendants, int workers) {
+            this.visitor = visitor;
+            this.useDescendants = useDescendants;
+            this.workers = workers;
+            this.walkContext = context == null ? session.getDefaultContext() : context;
+        }
+
+        @Override
+        public void run() {
+            while (failure.get() == null) {
+                QueuedFolder next;
+                try {
+                    next = queue.takeFirst();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(new CmisRuntimeException("Walk interrupted!", e));
+                    return;
+                }
+
+                if (next == QueuedFolder.END) {
+                    return;
+                }
+
+                try {
+                    walkFolder(next.folder, next.depth);
+                } catch (Throwable t) {
+                    fail(t);
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        // all folders are done
+                        end();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Wakes up all worker threads waiting for a folder and lets them
+         * finish.
+         */
+        private void end() {
+            if (ended.compareAndSet(false, true)) {
+                for (int i = 0; i < workers; i++) {
+                    queue.offerFirst(QueuedFolder.END);
+                }
+            }
+        }
+
+        /**
+         * Queues a folder or, if the queue is full, walks it right away.
+         */
+        void schedule(Folder folder, int depth) {
+            if (queue.size() < maxQueuedFolders) {
+                pending.incrementAndGet();
+                queue.offerFirst(new QueuedFolder(folder, depth));
+            } else {
+                walkFolder(folder, depth);
+            }
+        }
+
+        private void walkFolder(Folder folder, int depth) {
+            if (useDescendants) {
+                walkTrees(folder, folder.getDescendants(descendantsDepth, walkContext), depth + 1, 1);
+                return;
+            }
+
+            for (CmisObject child : folder.getChildren(walkContext)) {
+                if (failure.get() != null) {
+                    return;
+                }
+
+                if (visit(folder, (FileableCmisObject) child, depth + 1)) {
+                    schedule((Folder) child, depth + 1);
+                }
+            }
+        }
+
+        private void walkTrees(Folder parent, List<Tree<FileableCmisObject>> trees, int depth, int level) {
+            if (trees == null) {
+                return;
+            }
+
+            for (Tree<FileableCmisObject> tree : trees) {
+                if (failure.get() != null) {
+                    return;
+                }
+
+                FileableCmisObject object = tree.getItem();
+                if (visit(parent, object, depth)) {
+                    if (level < descendantsDepth) {
+                        // the children of this folder have been fetched
+                        // with the subtree
+                        walkTrees((Folder) object, tree.getChildren(), depth + 1, level + 1);
+                    } else {
+                        schedule((Folder) object, depth);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Visits an object and returns whether the walker should walk into
+         * it.
+         */
+        private boolean visit(Folder parent, FileableCmisObject object, int depth) {
+            count.incrementAndGet();
+            boolean descend = visitor.visit(parent, object, depth);
+
+            return descend && object instanceof Folder;
+        }
+
+        void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+            end();
+        }
+
+        void throwFailure() {
+            Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+
+            throw new CmisRuntimeException("Walk failed: " + t.getMessage(), t);
+        }
+    }
+}
@@ -232,6 +232,16 @@ public final class OperationContextUtils {
                 throw new UnsupportedOperationException();
             }
 
+            @Override
+            public boolean isCacheThroughEnabled() {
+                return context.isCacheThroughEnabled();
+            }
+
+            @Override
+            public void setCacheThroughEnabled(boolean cacheThroughEnabled) {
+                throw new UnsupportedOperationException();
+            }
+
             @Override
             public String getCacheKey() {
                 return context.getCacheKey();
@@ -247,6 +257,16 @@ public final class OperationContextUtils {
                 return context.getMaxItemsPerPage();
             }
 
+            @Override
+            public void setPrefetchDepth(int prefetchDepth) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int getPrefetchDepth() {
+                return context.getPrefetchDepth();
+            }
+
             @Override
             public String toString() {
                 return context.toString();
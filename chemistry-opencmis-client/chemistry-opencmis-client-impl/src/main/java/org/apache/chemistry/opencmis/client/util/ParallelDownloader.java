@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.util.ThreadUtils;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Downloads a content stream over several connections at the same time.
+ * <p>
+ * The content is split into segments that are requested with range requests
+ * and written directly to their positions in a {@link FileChannel}. A segment
+ * that fails is requested again from the last written byte. If the repository
+ * doesn't support range requests, the content is downloaded as a single
+ * stream.
+ * <p>
+ * Instances are thread-safe as long as the settings are not changed while a
+ * download is running.
+ */
+public class ParallelDownloader {
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final long DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Session session;
+    private int threads = DEFAULT_THREADS;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /**
+     * Constructor.
+     *
+     * @param session
+     *            the session
+     */
+    public ParallelDownloader(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+
+        this.session = session;
+    }
+
+    /**
+     * Returns the number of concurrent requests.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of concurrent requests.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive!");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the size of a segment in bytes.
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the size of a segment in bytes.
+     */
+    public void setSegmentSize(long segmentSize) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size must be positive!");
+        }
+
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Returns how often a failed segment is requested again.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how often a failed segment is requested again.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative!");
+        }
+
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Downloads the main content stream of a document to a file.
+     *
+     * @param doc
+     *            the document
+     * @param file
+     *            the destination file, an existing file is overwritten
+     * @return the number of bytes written
+     * @throws IOException
+     *             if the content could not be written or doesn't match the
+     *             content stream length of the document
+     * @throws CmisBaseException
+     */
+    public long download(Document doc, File file) throws IOException {
+        if (doc == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("File must be set!");
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = download(doc, null, doc.getContentStreamLength(), channel);
+            channel.truncate(length);
+            return length;
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    /**
+     * Downloads a content stream to a file channel. The content is written
+     * from position 0 on.
+     *
+     * @param docId
+     *            the ID of the document
+     * @param streamId
+     *            the stream ID or {@code null} for the main content stream
+     * @param length
+     *            the expected length of the content stream or -1 if it is
+     *            unknown, only streams with a known length are split
+     * @param channel
+     *            the destination channel
+     * @return the number of bytes written
+     * @throws IOException
+     *             if the content could not be written or doesn't match the
+     *             expected length
+     * @throws CmisBaseException
+     */
+    public long download(ObjectId docId, String streamId, long length, FileChannel channel) throws IOException {
+        if (docId == null) {
+            throw new IllegalArgumentException("Document ID must be set!");
+        }
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel must be set!");
+        }
+
+        if (length <= segmentSize || threads < 2) {
+            return downloadSingle(docId, streamId, length, channel);
+        }
+
+        // the first segment tells us if the repository supports ranges
+        ContentStream first = session.getContentStream(docId, streamId, BigInteger.ZERO,
+                BigInteger.valueOf(segmentSize));
+        if (!(first instanceof PartialContentStream)) {
+            // a complete stream may cover only the requested range
+            // (local binding) or the whole content (server ignored the
+            // range) -> start over without a range
+            IOUtils.closeQuietly(first);
+            return downloadSingle(docId, streamId, length, channel);
+        }
+
+        List<Segment> segments = new ArrayList<Segment>();
+        for (long offset = 0; offset < length; offset += segmentSize) {
+            segments.add(new Segment(offset, Math.min(segmentSize, length - offset)));
+        }
+
+        SegmentWorker worker = new SegmentWorker(docId, streamId, segments, channel, first);
+
+        // the worker records its failures, it doesn't throw
+        ThreadUtils.runInParallel(worker, Math.min(threads, segments.size()), "OpenCMIS Download");
+
+        worker.throwFailure();
+
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.written;
+        }
+        checkLength(length, total);
+
+        return total;
+    }
+
+    /**
+     * Downloads the whole content stream with one request.
+     */
+    private long downloadSingle(ObjectId docId, String streamId, long length, FileChannel channel)
+            throws IOException {
+        ContentStream stream = session.getContentStream(docId, streamId, null, null);
+
+        long total = 0;
+        try {
+            if (stream != null && stream.getStream() != null) {
+                total = copy(stream.getStream(), channel, 0, Long.MAX_VALUE);
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        if (length >= 0) {
+            checkLength(length, total);
+        }
+
+        return total;
+    }
+
+    private static void checkLength(long expected, long actual) throws IOException {
+        if (expected != actual) {
+            throw new IOException("Content length mismatch! Expected " + expected + " bytes but got " + actual
+                    + " bytes.");
+        }
+    }
+
+    /**
+     * Copies at most {@code max} bytes from the stream to the channel.
+     *
+     * @return the number of bytes copied
+     */
+    private static long copy(InputStream in, FileChannel channel, long position, long max) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+
+        while (total < max) {
+            int b = in.read(buffer, 0, (int) Math.min(buffer.length, max - total));
+            if (b == -1) {
+                break;
+            }
+
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, b);
+            while (bb.hasRemaining()) {
+                channel.write(bb, position + total + bb.position());
+            }
+
+            total += b;
+        }
+
+        return total;
+    }
+
+    /**
+     * A part of the content.
+     */
+    private static class Segment {
+        final long offset;
+        final long length;
+        volatile long written;
+
+        Segment(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Takes segments from the list and downloads them until all segments are
+     * done or one segment has failed.
+     */
+    private class SegmentWorker implements Runnable {
+
+        private final ObjectId docId;
+        private final String streamId;
+        private final List<Segment> segments;
+        private final FileChannel channel;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private final AtomicReference<ContentStream> firstStream;
+
+        SegmentWorker(ObjectId docId, String streamId, List<Segment> segments, FileChannel channel,
+                ContentStream firstStream) {
+            this.docId = docId;
+            this.streamId = streamId;
+            this.segments = segments;
+            this.channel = channel;
+            this.firstStream = new AtomicReference<ContentStream>(firstStream);
+        }
+
+        @Override
+        public void run() {
+            int index;
+            while (failure.get() == null && (index = next.getAndIncrement()) < segments.size()) {
+                try {
+                    download(segments.get(index), index == 0 ? firstStream.getAndSet(null) : null);
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }
+
+            IOUtils.closeQuietly(firstStream.getAndSet(null));
+        }
+
+        void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        void throwFailure() throws IOException {
+            Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+
+            throw new CmisRuntimeException("Download failed: " + t.getMessage(), t);
+        }
+
+        private void download(Segment segment, ContentStream stream) throws IOException {
+            int attempt = 0;
+
+            while (true) {
+                try {
+                    if (stream == null) {
+                        long offset = segment.offset + segment.written;
+                        stream = session.getContentStream(docId, streamId, BigInteger.valueOf(offset),
+                                BigInteger.valueOf(segment.length - segment.written));
+                        if (!(stream instanceof PartialContentStream)) {
+                            throw new CmisRuntimeException("Repository ignored the range request for offset "
+                                    + offset + "!");
+                        }
+                    }
+
+                    segment.written += copy(stream.getStream(), channel, segment.offset + segment.written,
+                            segment.length - segment.written);
+                    if (segment.written < segment.length) {
+                        throw new IOException("Premature end of stream at offset "
+                                + (segment.offset + segment.written) + "!");
+                    }
+
+                    return;
+                } catch (IOException e) {
+                    if (attempt++ >= maxRetries) {
+                        throw e;
+                    }
+                } catch (CmisConnectionException e) {
+                    if (attempt++ >= maxRetries) {
+                        throw e;
+                    }
+                } finally {
+                    IOUtils.closeQuietly(stream);
+                    stream = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.ConcurrentCacheImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+/**
+ * Compares {@link CacheImpl} and {@link ConcurrentCacheImpl}.
+ * <p>
+ * This is not a unit test. Run it with
+ * {@code java -cp ... CacheBenchmark [threads] [seconds]}. It prints the
+ * read throughput of a fully populated cache that is shared by several
+ * threads and the hit rates for a skewed (Zipf) and a scan-polluted workload.
+ */
+public class CacheBenchmark {
+
+    private static final String CACHE_KEY = "key";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.println("Read throughput, " + threads + " threads, " + seconds + " s");
+        for (int round = 0; round < 2; round++) {
+            // first round is the warm-up
+            long legacy = throughput(createCache(CacheImpl.class, 1000), threads, seconds);
+            long concurrent = throughput(createCache(ConcurrentCacheImpl.class, 1000), threads, seconds);
+            if (round > 0) {
+                System.out.println("  CacheImpl:           " + legacy + " ops/s");
+                System.out.println("  ConcurrentCacheImpl: " + concurrent + " ops/s");
+            }
+        }
+
+        System.out.println("Hit rate, Zipf(0.9) over 100000 ids, 1000000 requests");
+        for (int size : new int[] { 1000, 10000 }) {
+            System.out.println("  size " + size + ": CacheImpl "
+                    + format(hitRate(createCache(CacheImpl.class, size), new ZipfGenerator(100000, 0.9, 42), 1000000))
+                    + ", ConcurrentCacheImpl "
+                    + format(hitRate(createCache(ConcurrentCacheImpl.class, size), new ZipfGenerator(100000, 0.9,
+                            42), 1000000)));
+        }
+
+        System.out.println("Hit rate, Zipf(0.9) over 100000 ids mixed with a sequential scan");
+        for (int size : new int[] { 1000, 10000 }) {
+            System.out.println("  size " + size + ": CacheImpl "
+                    + format(scanHitRate(createCache(CacheImpl.class, size), 1000000)) + ", ConcurrentCacheImpl "
+                    + format(scanHitRate(createCache(ConcurrentCacheImpl.class, size), 1000000)));
+        }
+    }
+
+    /**
+     * Returns the number of {@code getById} calls per second.
+     */
+    static long throughput(final Cache cache, int threads, int seconds) throws InterruptedException {
+        final int size = cache.getCacheSize();
+        for (int i = 0; i < size; i++) {
+            cache.put(new CmisObjectMock("id" + i), CACHE_KEY);
+        }
+
+        final AtomicLong operations = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long end = System.currentTimeMillis() + seconds * 1000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    Random random = new Random(seed);
+                    long count = 0;
+                    while ((count & 0x3FF) != 0 || System.currentTimeMillis() < end) {
+                        cache.getById("id" + random.nextInt(size), CACHE_KEY);
+                        count++;
+                    }
+                    operations.addAndGet(count);
+                }
+            });
+            workers[t].start();
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        return operations.get() / seconds;
+    }
+
+    /**
+     * Returns the hit rate of a read-through workload.
+     */
+    static double hitRate(Cache cache, ZipfGenerator generator, int requests) {
+        int hits = 0;
+        for (int i = 0; i < requests; i++) {
+            String id = "id" + generator.next();
+            if (cache.getById(id, CACHE_KEY) != null) {
+                hits++;
+            } else {
+                cache.put(new CmisObjectMock(id), CACHE_KEY);
+            }
+        }
+
+        return (double) hits / requests;
+    }
+
+    /**
+     * Returns the hit rate of a skewed workload where every other request is
+     * part of a sequential scan over ids that are never requested again.
+     */
+    static double scanHitRate(Cache cache, int requests) {
+        ZipfGenerator generator = new ZipfGenerator(100000, 0.9, 42);
+
+        int hits = 0;
+        for (int i = 0; i < requests; i++) {
+            String id = (i % 2 == 0) ? "id" + generator.next() : "scan" + i;
+            if (cache.getById(id, CACHE_KEY) != null) {
+                hits++;
+            } else {
+                cache.put(new CmisObjectMock(id), CACHE_KEY);
+            }
+        }
+
+        return (double) hits / (requests / 2);
+    }
+
+    static Cache createCache(Class<? extends Cache> cacheClass, int cacheSize) {
+        Cache cache;
+        try {
+            cache = cacheClass.newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, "" + cacheSize);
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "" + (3600 * 1000));
+
+        cache.initialize(null, parameters);
+
+        return cache;
+    }
+
+    private static String format(double rate) {
+        return String.format("%.1f%%", rate * 100);
+    }
+
+    /**
+     * Draws numbers from {@code 0} to {@code n - 1} following a Zipf
+     * distribution.
+     */
+    static class ZipfGenerator {
+        private final double[] cdf;
+        private final Random random;
+
+        ZipfGenerator(int n, double exponent, long seed) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cdf[i] /= sum;
+            }
+            random = new Random(seed);
+        }
+
+        int next() {
+            double value = random.nextDouble();
+            int low = 0;
+            int high = cdf.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cdf[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
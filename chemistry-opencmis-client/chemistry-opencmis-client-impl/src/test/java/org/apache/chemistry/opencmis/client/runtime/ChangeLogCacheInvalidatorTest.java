@@ -0,0 +1,422 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ChangeEventInfoDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeLogCacheInvalidatorTest {
+
+    private static final String REPOSITORY_ID = "test";
+    private static final long INTERVAL = 60 * 60 * 1000;
+
+    private static volatile Repository repository;
+
+    private SessionImpl session;
+    private ChangeLogCacheInvalidator invalidator;
+
+    @Before
+    public void setUp() {
+        repository = new Repository();
+        session = createSession();
+
+        // the tests run the invalidator themselves
+        invalidator = ChangeLogCacheInvalidator.start(session, INTERVAL, 10);
+        assertNotNull(invalidator);
+
+        session.getObject("doc1");
+        session.getObject("doc2");
+        assertEquals(2, repository.getObjectCalls.size());
+    }
+
+    @After
+    public void tearDown() {
+        invalidator.stop();
+        repository = null;
+    }
+
+    @Test
+    public void testRemovesChangedObjects() {
+        repository.changes.add(new Changes("2", "doc1"));
+        invalidator.run();
+
+        assertEquals("1", repository.tokens.get(0));
+        assertReloaded("doc1");
+        assertCached("doc2");
+
+        // the next poll continues with the new token
+        invalidator.run();
+        assertEquals("2", repository.tokens.get(1));
+    }
+
+    @Test
+    public void testChangesIncomplete() {
+        // the repository info that has been read when the session was
+        // connected doesn't know this yet
+        repository.changesIncomplete = true;
+
+        repository.changes.add(new Changes("2", "doc1"));
+        invalidator.run();
+
+        assertReloaded("doc1");
+        assertReloaded("doc2");
+    }
+
+    @Test
+    public void testExpiredToken() {
+        repository.latestToken = "5";
+        repository.changes.add(new CmisConstraintException("Token expired!"));
+        invalidator.run();
+
+        assertReloaded("doc1");
+        assertReloaded("doc2");
+
+        // the next poll continues with the latest token
+        invalidator.run();
+        assertEquals("5", repository.tokens.get(1));
+    }
+
+    @Test
+    public void testFailingClear() {
+        repository.repositoryInfosAvailable = false;
+        repository.changes.add(new CmisConstraintException("Token expired!"));
+        invalidator.run();
+
+        assertCached("doc1");
+
+        // one round is skipped
+        repository.repositoryInfosAvailable = true;
+        invalidator.run();
+        assertEquals(1, repository.tokens.size());
+        invalidator.run();
+        assertEquals(2, repository.tokens.size());
+    }
+
+    @Test
+    public void testBackOff() {
+        repository.changes.add(new CmisRuntimeException("Failed!"));
+        repository.changes.add(new CmisRuntimeException("Failed!"));
+
+        // polls 1, 3 and 7 reach the repository
+        for (int i = 0; i < 7; i++) {
+            invalidator.run();
+        }
+        assertEquals(3, repository.tokens.size());
+
+        // a successful poll resets the back-off
+        invalidator.run();
+        assertEquals(4, repository.tokens.size());
+        assertCached("doc1");
+    }
+
+    @Test
+    public void testPermissionDenied() {
+        repository.changes.add(new CmisPermissionDeniedException("Denied!"));
+        invalidator.run();
+        invalidator.run();
+
+        assertEquals(1, repository.tokens.size());
+        assertCached("doc1");
+    }
+
+    private void assertCached(String id) {
+        int calls = repository.getObjectCalls.size();
+        session.getObject(id);
+        assertEquals(calls, repository.getObjectCalls.size());
+    }
+
+    private void assertReloaded(String id) {
+        int calls = repository.getObjectCalls.size();
+        session.getObject(id);
+        assertEquals(calls + 1, repository.getObjectCalls.size());
+    }
+
+    private static ObjectDataImpl createObject(String id) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, id));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        return object;
+    }
+
+    private static SessionImpl createSession() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_TYPE, BindingType.CUSTOM.value());
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, MockSpi.class.getName());
+        parameters.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        parameters.put(SessionParameter.REPOSITORY_ID, REPOSITORY_ID);
+
+        SessionImpl session = new SessionImpl(parameters, null, null, null, null);
+        session.connect();
+        return session;
+    }
+
+    /**
+     * A page of the change log.
+     */
+    private static class Changes {
+
+        final String latestToken;
+        final String[] ids;
+
+        Changes(String latestToken, String... ids) {
+            this.latestToken = latestToken;
+            this.ids = ids;
+        }
+
+        ObjectListImpl toObjectList() {
+            List<ObjectData> objects = new ArrayList<ObjectData>();
+            for (String id : ids) {
+                ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
+                changeEventInfo.setChangeType(ChangeType.UPDATED);
+
+                ObjectDataImpl object = createObject(id);
+                object.setChangeEventInfo(changeEventInfo);
+                objects.add(object);
+            }
+
+            ObjectListImpl result = new ObjectListImpl();
+            result.setObjects(objects);
+            result.setHasMoreItems(Boolean.FALSE);
+            result.setNumItems(BigInteger.valueOf(objects.size()));
+            return result;
+        }
+    }
+
+    /**
+     * Knows documents and hands out queued change log pages and errors.
+     */
+    private static class Repository implements InvocationHandler {
+
+        final List<String> getObjectCalls = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> tokens = Collections.synchronizedList(new ArrayList<String>());
+        final List<Object> changes = Collections.synchronizedList(new LinkedList<Object>());
+        volatile String latestToken = "1";
+        volatile boolean changesIncomplete;
+        volatile boolean repositoryInfosAvailable = true;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getRepositoryInfo")) {
+                return createRepositoryInfo(false);
+            } else if (name.equals("getRepositoryInfos")) {
+                if (!repositoryInfosAvailable) {
+                    throw new CmisRuntimeException("Not available!");
+                }
+                return Collections.singletonList(createRepositoryInfo(changesIncomplete));
+            } else if (name.equals("getTypeDefinition")) {
+                return createType((String) args[1]);
+            } else if (name.equals("getObject")) {
+                getObjectCalls.add((String) args[1]);
+                return createObject((String) args[1]);
+            } else if (name.equals("getContentChanges")) {
+                Holder<String> token = (Holder<String>) args[1];
+                tokens.add(token.getValue());
+
+                Object result = changes.isEmpty() ? new Changes(token.getValue()) : changes.remove(0);
+                if (result instanceof RuntimeException) {
+                    throw (RuntimeException) result;
+                }
+                token.setValue(((Changes) result).latestToken);
+                return ((Changes) result).toObjectList();
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+
+        private RepositoryInfoImpl createRepositoryInfo(boolean incomplete) {
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityChanges(CapabilityChanges.OBJECTIDSONLY);
+
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId(REPOSITORY_ID);
+            info.setName(REPOSITORY_ID);
+            info.setCmisVersion(CmisVersion.CMIS_1_1);
+            info.setCapabilities(capabilities);
+            info.setLatestChangeLogToken(latestToken);
+            info.setChangesIncomplete(incomplete);
+            return info;
+        }
+
+        private static DocumentTypeDefinitionImpl createType(String typeId) {
+            if (!BaseTypeId.CMIS_DOCUMENT.value().equals(typeId)) {
+                throw new CmisObjectNotFoundException("Unknown type: " + typeId);
+            }
+
+            DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+            type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            type.setId(typeId);
+            type.setLocalName(typeId);
+            type.setQueryName(typeId);
+            for (String id : new String[] { PropertyIds.OBJECT_ID, PropertyIds.BASE_TYPE_ID,
+                    PropertyIds.OBJECT_TYPE_ID }) {
+                type.addPropertyDefinition(createPropertyDefinition(new PropertyIdDefinitionImpl(), id,
+                        PropertyType.ID));
+            }
+            for (String id : new String[] { PropertyIds.NAME, PropertyIds.DESCRIPTION, PropertyIds.CREATED_BY,
+                    PropertyIds.LAST_MODIFIED_BY, PropertyIds.CHANGE_TOKEN, PropertyIds.PATH }) {
+                type.addPropertyDefinition(createPropertyDefinition(new PropertyStringDefinitionImpl(), id,
+                        PropertyType.STRING));
+            }
+            return type;
+        }
+
+        private static AbstractPropertyDefinition<?> createPropertyDefinition(
+                AbstractPropertyDefinition<?> propDef, String id, PropertyType propertyType) {
+            propDef.setId(id);
+            propDef.setLocalName(id);
+            propDef.setQueryName(id);
+            propDef.setPropertyType(propertyType);
+            propDef.setCardinality(Cardinality.SINGLE);
+            return propDef;
+        }
+    }
+
+    /**
+     * Binding SPI that hands all calls to the current {@link Repository}.
+     */
+    public static class MockSpi implements CmisSpi {
+
+        public MockSpi(BindingSession session) {
+        }
+
+        private static <T> T createService(Class<T> serviceInterface) {
+            return serviceInterface.cast(Proxy.newProxyInstance(ChangeLogCacheInvalidatorTest.class
+                    .getClassLoader(), new Class<?>[] { serviceInterface }, repository));
+        }
+
+        @Override
+        public RepositoryService getRepositoryService() {
+            return createService(RepositoryService.class);
+        }
+
+        @Override
+        public NavigationService getNavigationService() {
+            return createService(NavigationService.class);
+        }
+
+        @Override
+        public ObjectService getObjectService() {
+            return createService(ObjectService.class);
+        }
+
+        @Override
+        public VersioningService getVersioningService() {
+            return createService(VersioningService.class);
+        }
+
+        @Override
+        public RelationshipService getRelationshipService() {
+            return createService(RelationshipService.class);
+        }
+
+        @Override
+        public DiscoveryService getDiscoveryService() {
+            return createService(DiscoveryService.class);
+        }
+
+        @Override
+        public MultiFilingService getMultiFilingService() {
+            return createService(MultiFilingService.class);
+        }
+
+        @Override
+        public AclService getAclService() {
+            return createService(AclService.class);
+        }
+
+        @Override
+        public PolicyService getPolicyService() {
+            return createService(PolicyService.class);
+        }
+
+        @Override
+        public void clearAllCaches() {
+        }
+
+        @Override
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
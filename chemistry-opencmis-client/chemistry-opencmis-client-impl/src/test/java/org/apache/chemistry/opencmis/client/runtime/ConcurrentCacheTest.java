@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.ConcurrentCacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.LowPriorityCache;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+    @Test
+    public void cacheSingleObjectTest() {
+        Cache cache = createCache(100, 3600 * 1000);
+
+        String id = "1";
+        String cacheKey = "key";
+
+        CmisObject obj1 = new CmisObjectMock(id);
+        cache.put(obj1, cacheKey);
+
+        assertTrue(cache.containsId(id, cacheKey));
+        assertEquals(obj1, cache.getById(id, cacheKey));
+        assertNull(cache.getById(id, "otherKey"));
+
+        cache.remove(id);
+        assertFalse(cache.containsId(id, cacheKey));
+
+        cache.put(obj1, cacheKey);
+        cache.clear();
+        assertFalse(cache.containsId(id, cacheKey));
+        assertNull(cache.getById(id, cacheKey));
+    }
+
+    @Test
+    public void cachePathObjectTest() {
+        Cache cache = createCache(100, 3600 * 1000);
+
+        String id = "1";
+        String path = "/1";
+        String cacheKey = "key";
+
+        CmisObject obj1 = new CmisObjectMock(id);
+        cache.putPath(path, obj1, cacheKey);
+
+        assertTrue(cache.containsPath(path, cacheKey));
+        assertEquals(obj1, cache.getById(id, cacheKey));
+        assertEquals(obj1, cache.getByPath(path, cacheKey));
+        assertEquals(id, cache.getObjectIdByPath(path));
+
+        // the path entry is dropped if the object is gone
+        cache.remove(id);
+        assertFalse(cache.containsPath(path, cacheKey));
+        assertNull(cache.getObjectIdByPath(path));
+
+        cache.putPath(path, obj1, cacheKey);
+        cache.removePath(path);
+        assertNull(cache.getObjectIdByPath(path));
+        assertTrue(cache.containsId(id, cacheKey));
+    }
+
+    @Test
+    public void sizeLimitTest() {
+        int cacheSize = 1000;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+        assertEquals(cacheSize, cache.getCacheSize());
+
+        String cacheKey = "key";
+
+        for (int i = 0; i < 10 * cacheSize; i++) {
+            cache.put(new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        int count = 0;
+        for (int i = 0; i < 10 * cacheSize; i++) {
+            if (cache.containsId("id" + i, cacheKey)) {
+                count++;
+            }
+        }
+
+        assertTrue(count > 0);
+        assertTrue(count <= cacheSize);
+    }
+
+    @Test
+    public void fillTest() {
+        int cacheSize = 5000;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        // similar ids must be spread over all segments
+        for (int i = 0; i < cacheSize; i++) {
+            cache.put(new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        int count = 0;
+        for (int i = 0; i < cacheSize; i++) {
+            if (cache.containsId("id" + i, cacheKey)) {
+                count++;
+            }
+        }
+
+        assertTrue(count >= cacheSize * 9 / 10);
+    }
+
+    @Test
+    public void frequentObjectsSurviveScanTest() {
+        int cacheSize = 100;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        // a few popular objects
+        for (int i = 0; i < 10; i++) {
+            cache.put(new CmisObjectMock("hot" + i), cacheKey);
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(cache.getById("hot" + i, cacheKey));
+            }
+        }
+
+        // a large scan of objects that are only seen once
+        for (int i = 0; i < 10 * cacheSize; i++) {
+            cache.put(new CmisObjectMock("cold" + i), cacheKey);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.getById("hot" + i, cacheKey));
+        }
+    }
+
+    @Test
+    public void lowPriorityTest() {
+        int cacheSize = 100;
+        LowPriorityCache cache = (LowPriorityCache) createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        // low priority objects fill free space
+        cache.putLowPriority(new CmisObjectMock("list0"), "/list0", cacheKey);
+        assertTrue(cache.containsId("list0", cacheKey));
+        assertEquals("list0", cache.getObjectIdByPath("/list0"));
+
+        cache.clear();
+
+        List<String> cached = new ArrayList<String>();
+        for (int i = 0; i < cacheSize; i++) {
+            cache.put(new CmisObjectMock("hot" + i), cacheKey);
+        }
+        for (int i = 0; i < cacheSize; i++) {
+            if (cache.containsId("hot" + i, cacheKey)) {
+                cached.add("hot" + i);
+            }
+        }
+
+        // ... but don't displace other objects
+        for (int i = 0; i < 10 * cacheSize; i++) {
+            cache.putLowPriority(new CmisObjectMock("cold" + i), null, cacheKey);
+        }
+
+        for (String id : cached) {
+            assertTrue(cache.containsId(id, cacheKey));
+        }
+
+        int count = 0;
+        for (int i = 0; i < 10 * cacheSize; i++) {
+            if (cache.containsId("cold" + i, cacheKey)) {
+                count++;
+            }
+        }
+        assertTrue(cached.size() + count <= cacheSize);
+    }
+
+    @Test
+    public void ttlTest() throws InterruptedException {
+        Cache cache = createCache(10, 500);
+
+        String cacheKey = "key";
+        String id = "id";
+
+        cache.put(new CmisObjectMock(id), cacheKey);
+        assertNotNull(cache.getById(id, cacheKey));
+
+        Thread.sleep(750);
+
+        assertNull(cache.getById(id, cacheKey));
+        assertFalse(cache.containsId(id, cacheKey));
+    }
+
+    @Test
+    public void ttlRenewedByPutTest() throws InterruptedException {
+        Cache cache = createCache(10, 500);
+
+        String cacheKey = "key";
+        String id = "id";
+
+        cache.put(new CmisObjectMock(id), cacheKey);
+        Thread.sleep(300);
+
+        // refreshing the object must extend its lifetime
+        cache.put(new CmisObjectMock(id), cacheKey);
+        Thread.sleep(300);
+
+        assertNotNull(cache.getById(id, cacheKey));
+    }
+
+    @Test
+    public void hitRateTest() {
+        for (int cacheSize : new int[] { 100, 1000 }) {
+            double lru = CacheBenchmark.hitRate(CacheBenchmark.createCache(CacheImpl.class, cacheSize),
+                    new CacheBenchmark.ZipfGenerator(10000, 0.9, 42), 100000);
+            double tinyLfu = CacheBenchmark.hitRate(
+                    CacheBenchmark.createCache(ConcurrentCacheImpl.class, cacheSize),
+                    new CacheBenchmark.ZipfGenerator(10000, 0.9, 42), 100000);
+
+            assertTrue("LRU: " + lru + ", W-TinyLFU: " + tinyLfu, tinyLfu > lru);
+        }
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        int cacheSize = 10;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        for (int i = 0; i < cacheSize; i++) {
+            cache.put(new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(buffer);
+        out.writeObject(cache);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        Cache cache2 = (Cache) in.readObject();
+        in.close();
+
+        assertEquals(cacheSize, cache2.getCacheSize());
+        for (int k = 0; k < cacheSize; k++) {
+            CmisObject o1 = cache.getById("id" + k, cacheKey);
+            CmisObject o2 = cache2.getById("id" + k, cacheKey);
+            assertEquals(o1.getId(), o2.getId());
+        }
+    }
+
+    @Test
+    public void concurrentAccessTest() throws Exception {
+        final int cacheSize = 500;
+        final Cache cache = createCache(cacheSize, 3600 * 1000);
+        final String cacheKey = "key";
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int i = 0; i < 20000; i++) {
+                            String id = "id" + ((i * 31 + thread) % (2 * cacheSize));
+                            CmisObject obj = cache.getById(id, cacheKey);
+                            if (obj == null) {
+                                cache.put(new CmisObjectMock(id), cacheKey);
+                            } else if (!id.equals(obj.getId())) {
+                                return Boolean.FALSE;
+                            }
+                            if (i % 1000 == 0) {
+                                cache.remove(id);
+                            }
+                        }
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int count = 0;
+        for (int i = 0; i < 2 * cacheSize; i++) {
+            if (cache.containsId("id" + i, cacheKey)) {
+                count++;
+            }
+        }
+        assertTrue(count <= cacheSize);
+    }
+
+    private static Cache createCache(int cacheSize, int ttl) {
+        Cache cache = new ConcurrentCacheImpl();
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, "" + cacheSize);
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "" + ttl);
+
+        cache.initialize(null, parameters);
+
+        return cache;
+    }
+}
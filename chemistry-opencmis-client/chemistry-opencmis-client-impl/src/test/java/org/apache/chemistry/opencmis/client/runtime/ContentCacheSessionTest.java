@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the content cache through {@link SessionImpl#getContentStream}.
+ */
+public class ContentCacheSessionTest {
+
+    private static final String REPOSITORY_ID = "test";
+    private static final String DOC_ID = "doc1";
+
+    private static volatile Repository repository;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        repository = new Repository();
+
+        dir = File.createTempFile("contentcache", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        repository = null;
+        delete(dir);
+    }
+
+    @Test
+    public void testRevalidate() throws IOException {
+        Session session = createSession(true);
+        ObjectId id = session.createObjectId(DOC_ID);
+
+        // the first call fetches the content, the second is served from the
+        // cache
+        repository.setContent("1", "first");
+        assertEquals("first", read(session.getContentStream(id)));
+        assertEquals("first", read(session.getContentStream(id)));
+        assertEquals(1, repository.contentCalls);
+
+        // a new change token leads to a new cache key
+        repository.setContent("2", "second");
+        assertEquals("second", read(session.getContentStream(id)));
+        assertEquals("second", read(session.getContentStream(id)));
+        assertEquals(2, repository.contentCalls);
+
+        // ranges are served from the cached content
+        ContentStream range = session.getContentStream(id, null, BigInteger.ONE, BigInteger.valueOf(3));
+        assertEquals("eco", read(range));
+        assertEquals(2, repository.contentCalls);
+    }
+
+    @Test
+    public void testWithoutRevalidate() throws IOException {
+        Session session = createSession(false);
+        ObjectId id = session.createObjectId(DOC_ID);
+
+        repository.setContent("1", "first");
+        assertEquals("first", read(session.getContentStream(id)));
+        assertEquals(1, repository.contentCalls);
+
+        // the change token is taken from the object cache of the session,
+        // which doesn't know the new version yet
+        repository.setContent("2", "second");
+        assertEquals("first", read(session.getContentStream(id)));
+        assertEquals(1, repository.contentCalls);
+
+        // a new document object carries the new change token
+        session.clear();
+        assertEquals("second", read(session.getContentStream(id)));
+        assertEquals(2, repository.contentCalls);
+    }
+
+    private Session createSession(boolean revalidate) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_TYPE, BindingType.CUSTOM.value());
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, MockSpi.class.getName());
+        parameters.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        parameters.put(SessionParameter.REPOSITORY_ID, REPOSITORY_ID);
+        parameters.put(SessionParameter.CONTENT_CACHE_DIRECTORY, dir.getAbsolutePath());
+        parameters.put(SessionParameter.CONTENT_CACHE_REVALIDATE, String.valueOf(revalidate));
+
+        SessionImpl session = new SessionImpl(parameters, null, null, null, null);
+        session.connect();
+        return session;
+    }
+
+    private static String read(ContentStream contentStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(contentStream.getStream(), out);
+        contentStream.getStream().close();
+        return new String(out.toByteArray(), "UTF-8");
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Knows one document.
+     */
+    private static class Repository implements InvocationHandler {
+
+        volatile String changeToken;
+        volatile byte[] content;
+        volatile int contentCalls;
+
+        void setContent(String changeToken, String content) throws IOException {
+            this.changeToken = changeToken;
+            this.content = content.getBytes("UTF-8");
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getRepositoryInfo")) {
+                return createRepositoryInfo();
+            } else if (name.equals("getTypeDefinition")) {
+                return createType((String) args[1]);
+            } else if (name.equals("getObject")) {
+                return createObject((String) args[1]);
+            } else if (name.equals("getContentStream")) {
+                contentCalls++;
+                return new ContentStreamImpl("doc.txt", BigInteger.valueOf(content.length), "text/plain",
+                        new ByteArrayInputStream(content));
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+
+        private static RepositoryInfoImpl createRepositoryInfo() {
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId(REPOSITORY_ID);
+            info.setName(REPOSITORY_ID);
+            info.setCmisVersion(CmisVersion.CMIS_1_1);
+            info.setCapabilities(new RepositoryCapabilitiesImpl());
+            return info;
+        }
+
+        private static DocumentTypeDefinitionImpl createType(String typeId) {
+            if (!BaseTypeId.CMIS_DOCUMENT.value().equals(typeId)) {
+                throw new CmisObjectNotFoundException("Unknown type: " + typeId);
+            }
+
+            DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+            type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            type.setId(typeId);
+            type.setLocalName(typeId);
+            type.setQueryName(typeId);
+            for (String id : new String[] { PropertyIds.OBJECT_ID, PropertyIds.BASE_TYPE_ID,
+                    PropertyIds.OBJECT_TYPE_ID, PropertyIds.CONTENT_STREAM_ID }) {
+                type.addPropertyDefinition(createPropertyDefinition(new PropertyIdDefinitionImpl(), id,
+                        PropertyType.ID));
+            }
+            for (String id : new String[] { PropertyIds.NAME, PropertyIds.DESCRIPTION, PropertyIds.CREATED_BY,
+                    PropertyIds.LAST_MODIFIED_BY, PropertyIds.CHANGE_TOKEN }) {
+                type.addPropertyDefinition(createPropertyDefinition(new PropertyStringDefinitionImpl(), id,
+                        PropertyType.STRING));
+            }
+            return type;
+        }
+
+        private static AbstractPropertyDefinition<?> createPropertyDefinition(
+                AbstractPropertyDefinition<?> propDef, String id, PropertyType propertyType) {
+            propDef.setId(id);
+            propDef.setLocalName(id);
+            propDef.setQueryName(id);
+            propDef.setPropertyType(propertyType);
+            propDef.setCardinality(Cardinality.SINGLE);
+            return propDef;
+        }
+
+        private ObjectDataImpl createObject(String id) {
+            if (!DOC_ID.equals(id)) {
+                throw new CmisObjectNotFoundException("Not found: " + id);
+            }
+
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, id));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.CHANGE_TOKEN, changeToken));
+
+            ObjectDataImpl object = new ObjectDataImpl();
+            object.setProperties(properties);
+            return object;
+        }
+    }
+
+    /**
+     * Binding SPI that hands all calls to the current {@link Repository}.
+     */
+    public static class MockSpi implements CmisSpi {
+
+        public MockSpi(BindingSession session) {
+        }
+
+        private static <T> T createService(Class<T> serviceInterface) {
+            return serviceInterface.cast(Proxy.newProxyInstance(ContentCacheSessionTest.class.getClassLoader(),
+                    new Class<?>[] { serviceInterface }, repository));
+        }
+
+        @Override
+        public RepositoryService getRepositoryService() {
+            return createService(RepositoryService.class);
+        }
+
+        @Override
+        public NavigationService getNavigationService() {
+            return createService(NavigationService.class);
+        }
+
+        @Override
+        public ObjectService getObjectService() {
+            return createService(ObjectService.class);
+        }
+
+        @Override
+        public VersioningService getVersioningService() {
+            return createService(VersioningService.class);
+        }
+
+        @Override
+        public RelationshipService getRelationshipService() {
+            return createService(RelationshipService.class);
+        }
+
+        @Override
+        public DiscoveryService getDiscoveryService() {
+            return createService(DiscoveryService.class);
+        }
+
+        @Override
+        public MultiFilingService getMultiFilingService() {
+            return createService(MultiFilingService.class);
+        }
+
+        @Override
+        public AclService getAclService() {
+            return createService(AclService.class);
+        }
+
+        @Override
+        public PolicyService getPolicyService() {
+            return createService(PolicyService.class);
+        }
+
+        @Override
+        public void clearAllCaches() {
+        }
+
+        @Override
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
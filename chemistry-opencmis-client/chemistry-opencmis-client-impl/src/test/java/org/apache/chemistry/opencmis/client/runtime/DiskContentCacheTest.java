@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+
+import org.apache.chemistry.opencmis.client.runtime.cache.DiskContentCache;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.junit.Test;
+
+public class DiskContentCacheTest {
+
+    @Test
+    public void testCache() throws IOException {
+        File dir = createDirectory();
+        try {
+            DiskContentCache cache = DiskContentCache.getInstance(dir, 250, 100);
+            byte[] content = createContent(100);
+
+            // a stream that hasn't been read to the end is not cached
+            InputStream stream = cache.store("a", new ByteArrayInputStream(content), 100, "a.bin", "x/y");
+            assertEquals(3, stream.read(new byte[3]));
+            stream.close();
+            assertNull(cache.get("a", null, null));
+
+            // a stream that ends before the announced length is not cached
+            read(cache.store("a", new ByteArrayInputStream(content, 0, 60), 100, "a.bin", "x/y"));
+            assertNull(cache.get("a", null, null));
+
+            // a complete stream is cached
+            assertArrayEquals(content, read(cache.store("a", new ByteArrayInputStream(content), -1, "a.bin", "x/y")));
+            ContentStream cached = cache.get("a", null, null);
+            assertNotNull(cached);
+            assertEquals("a.bin", cached.getFileName());
+            assertEquals("x/y", cached.getMimeType());
+            assertEquals(100, cached.getLength());
+            assertArrayEquals(content, read(cached.getStream()));
+
+            // ranges
+            cached = cache.get("a", BigInteger.valueOf(10), BigInteger.valueOf(5));
+            assertTrue(cached instanceof PartialContentStream);
+            byte[] range = new byte[5];
+            System.arraycopy(content, 10, range, 0, 5);
+            assertArrayEquals(range, read(cached.getStream()));
+            assertEquals(0, read(cache.get("a", BigInteger.valueOf(1000), null).getStream()).length);
+
+            // too large
+            read(cache.store("big", new ByteArrayInputStream(createContent(101)), -1, null, null));
+            assertNull(cache.get("big", null, null));
+
+            // the least recently used stream is evicted
+            read(cache.store("b", new ByteArrayInputStream(content), 100, null, null));
+            assertNotNull(cache.get("a", null, null));
+            read(cache.store("c", new ByteArrayInputStream(content), 100, null, null));
+            assertNotNull(cache.get("a", null, null));
+            assertNull(cache.get("b", null, null));
+            assertEquals(200, cache.getSize());
+
+            cache.clear();
+            assertEquals(0, cache.getSize());
+
+            // only the lock file of the instance is left
+            File[] instanceDirs = dir.listFiles();
+            assertEquals(1, instanceDirs.length);
+            assertEquals(1, instanceDirs[0].listFiles().length);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testSharedDirectory() throws IOException {
+        File dir = createDirectory();
+        RandomAccessFile lockFile = null;
+        try {
+            // a file that doesn't belong to a cache
+            File foreign = new File(dir, "foreign.content");
+            assertTrue(foreign.createNewFile());
+
+            // an instance that is gone
+            File abandoned = new File(dir, "opencmis-cache-abandoned");
+            assertTrue(abandoned.mkdir());
+            assertTrue(new File(abandoned, "cache.lock").createNewFile());
+            assertTrue(new File(abandoned, "content1.content").createNewFile());
+
+            // an instance that is alive
+            File alive = new File(dir, "opencmis-cache-alive");
+            assertTrue(alive.mkdir());
+            File aliveContent = new File(alive, "content1.content");
+            assertTrue(aliveContent.createNewFile());
+            lockFile = new RandomAccessFile(new File(alive, "cache.lock"), "rw");
+            assertNotNull(lockFile.getChannel().tryLock());
+
+            DiskContentCache cache = DiskContentCache.getInstance(dir, 250, 100);
+            read(cache.store("a", new ByteArrayInputStream(createContent(10)), 10, null, null));
+            assertNotNull(cache.get("a", null, null));
+
+            assertTrue(foreign.exists());
+            assertFalse(abandoned.exists());
+            assertTrue(aliveContent.exists());
+            assertEquals(3, dir.listFiles().length);
+
+            cache.clear();
+            assertTrue(foreign.exists());
+            assertTrue(aliveContent.exists());
+        } finally {
+            IOUtils.closeQuietly(lockFile);
+            delete(dir);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static File createDirectory() throws IOException {
+        File dir = File.createTempFile("contentcache", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        return dir;
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) i;
+        }
+        return result;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(stream, out);
+        stream.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.client.runtime.util.TreeImpl;
+import org.apache.chemistry.opencmis.client.util.FolderTreeWalker;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.junit.Test;
+
+public class FolderTreeWalkerTest {
+
+    private static final String THREAD_NAME = "OpenCMIS Folder Tree Walker";
+
+    /** 3 folders and 2 documents per folder, 4 levels deep. */
+    private static final int TREE_SIZE = 5 + 3 * (5 + 3 * (5 + 3 * 5));
+
+    @Test(timeout = 10000)
+    public void testChildren() {
+        MockRepository repository = new MockRepository(false);
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        long count = createWalker(repository, 4).walk(repository.createFolder("root", 0), visitor);
+
+        assertEquals(TREE_SIZE, count);
+        visitor.assertComplete();
+        assertTrue(repository.childrenCalls.get() > 0);
+        assertEquals(0, repository.descendantsCalls.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testDescendants() {
+        MockRepository repository = new MockRepository(true);
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        long count = createWalker(repository, 4).walk(repository.createFolder("root", 0), visitor);
+
+        assertEquals(TREE_SIZE, count);
+        visitor.assertComplete();
+        assertEquals(0, repository.childrenCalls.get());
+        // the root and the folders on level 2
+        assertEquals(1 + 9, repository.descendantsCalls.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testSkipSubtree() {
+        MockRepository repository = new MockRepository(false);
+        final Map<String, Integer> visited = new ConcurrentHashMap<String, Integer>();
+
+        createWalker(repository, 4).walk(repository.createFolder("root", 0), new FolderTreeWalker.Visitor() {
+            @Override
+            public boolean visit(Folder parent, FileableCmisObject object, int depth) {
+                visited.put(object.getId(), depth);
+                return !object.getId().equals("root/f0");
+            }
+        });
+
+        assertTrue(visited.containsKey("root/f0"));
+        assertTrue(visited.containsKey("root/f1/f0"));
+        for (String id : visited.keySet()) {
+            assertFalse(id, id.startsWith("root/f0/"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testVisitorFailure() {
+        MockRepository repository = new MockRepository(false);
+        final IllegalStateException failure = new IllegalStateException("Visitor failed!");
+
+        try {
+            createWalker(repository, 4).walk(repository.createFolder("root", 0), new FolderTreeWalker.Visitor() {
+                @Override
+                public boolean visit(Folder parent, FileableCmisObject object, int depth) {
+                    if (object.getId().equals("root/f1/f2/d0")) {
+                        throw failure;
+                    }
+                    return true;
+                }
+            });
+            fail("Walk should fail!");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+
+        assertNoWorkerThreads();
+    }
+
+    @Test(timeout = 10000)
+    public void testFetchFailure() {
+        MockRepository repository = new MockRepository(false);
+        repository.failingFolder = "root/f2/f0";
+
+        try {
+            createWalker(repository, 4).walk(repository.createFolder("root", 0), new RecordingVisitor());
+            fail("Walk should fail!");
+        } catch (CmisRuntimeException e) {
+            assertEquals("Cannot fetch root/f2/f0", e.getMessage());
+        }
+
+        assertNoWorkerThreads();
+    }
+
+    @Test(timeout = 10000)
+    public void testInterrupt() throws Exception {
+        final MockRepository repository = new MockRepository(false);
+        final CountDownLatch visiting = new CountDownLatch(1);
+        final CountDownLatch never = new CountDownLatch(1);
+        final AtomicReference<Throwable> result = new AtomicReference<Throwable>();
+
+        Thread walker = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    createWalker(repository, 2).walk(repository.createFolder("root", 0),
+                            new FolderTreeWalker.Visitor() {
+                                @Override
+                                public boolean visit(Folder parent, FileableCmisObject object, int depth) {
+                                    visiting.countDown();
+                                    try {
+                                        // blocks until the walk is cancelled
+                                        never.await();
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                        throw new CmisRuntimeException("Visitor interrupted!", e);
+                                    }
+                                    return true;
+                                }
+                            });
+                } catch (Throwable t) {
+                    result.set(t);
+                }
+            }
+        };
+        walker.start();
+
+        visiting.await();
+        walker.interrupt();
+        walker.join();
+
+        assertNotNull(result.get());
+        assertTrue(result.get() instanceof CmisRuntimeException);
+        assertNoWorkerThreads();
+    }
+
+    private static FolderTreeWalker createWalker(MockRepository repository, int threads) {
+        FolderTreeWalker walker = new FolderTreeWalker(repository.createSession());
+        walker.setThreads(threads);
+        walker.setMaxQueuedFolders(4);
+        return walker;
+    }
+
+    private static void assertNoWorkerThreads() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            boolean alive = false;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith(THREAD_NAME) && thread.isAlive()) {
+                    alive = true;
+                }
+            }
+            if (!alive) {
+                return;
+            }
+            assertTrue("Worker threads are still running!", System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Records the visited objects and checks that each parent is visited
+     * before its children.
+     */
+    private static class RecordingVisitor implements FolderTreeWalker.Visitor {
+
+        final Map<String, Integer> visited = new ConcurrentHashMap<String, Integer>();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public boolean visit(Folder parent, FileableCmisObject object, int depth) {
+            String id = object.getId();
+            if (!id.startsWith(parent.getId() + "/")) {
+                errors.add(id + " has the wrong parent " + parent.getId());
+            }
+            if (!parent.getId().equals("root") && !visited.containsKey(parent.getId())) {
+                errors.add(id + " has been visited before its parent");
+            }
+            if (id.split("/").length - 1 != depth) {
+                errors.add(id + " has the wrong depth " + depth);
+            }
+            if (visited.put(id, depth) != null) {
+                errors.add(id + " has been visited twice");
+            }
+            return true;
+        }
+
+        void assertComplete() {
+            assertEquals(Collections.emptyList(), errors);
+            assertEquals(TREE_SIZE, visited.size());
+        }
+    }
+
+    /**
+     * A folder tree with 3 folders and 2 documents in each folder, 4 levels
+     * deep. Object ids are paths.
+     */
+    private static class MockRepository {
+
+        private static final int DEPTH = 4;
+
+        final boolean descendantsSupported;
+        final AtomicInteger childrenCalls = new AtomicInteger();
+        final AtomicInteger descendantsCalls = new AtomicInteger();
+        volatile String failingFolder;
+
+        MockRepository(boolean descendantsSupported) {
+            this.descendantsSupported = descendantsSupported;
+        }
+
+        Session createSession() {
+            final RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setSupportsGetDescendants(descendantsSupported);
+            final RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setCapabilities(capabilities);
+
+            return (Session) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                    new Class<?>[] { Session.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("getRepositoryInfo")) {
+                                return info;
+                            } else if (method.getName().equals("getDefaultContext")) {
+                                return new OperationContextImpl();
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        Folder createFolder(final String id, final int depth) {
+            return (Folder) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                    new Class<?>[] { Folder.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            String name = method.getName();
+                            if (name.equals("getId")) {
+                                return id;
+                            } else if (name.equals("getChildren")) {
+                                childrenCalls.incrementAndGet();
+                                checkFailure(id);
+                                return createItemIterable(getChildren(id, depth));
+                            } else if (name.equals("getDescendants")) {
+                                descendantsCalls.incrementAndGet();
+                                checkFailure(id);
+                                return getDescendants(id, depth, (Integer) args[0]);
+                            }
+                            throw new UnsupportedOperationException(name);
+                        }
+                    });
+        }
+
+        private void checkFailure(String id) {
+            if (id.equals(failingFolder)) {
+                throw new CmisRuntimeException("Cannot fetch " + id);
+            }
+        }
+
+        private List<FileableCmisObject> getChildren(String id, int depth) {
+            List<FileableCmisObject> children = new ArrayList<FileableCmisObject>();
+            if (depth >= DEPTH) {
+                return children;
+            }
+
+            for (int i = 0; i < 3; i++) {
+                children.add(depth + 1 < DEPTH ? createFolder(id + "/f" + i, depth + 1) : createDocument(id + "/f"
+                        + i));
+            }
+            for (int i = 0; i < 2; i++) {
+                children.add(createDocument(id + "/d" + i));
+            }
+            return children;
+        }
+
+        private List<Tree<FileableCmisObject>> getDescendants(String id, int depth, int levels) {
+            List<Tree<FileableCmisObject>> result = new ArrayList<Tree<FileableCmisObject>>();
+            for (FileableCmisObject child : getChildren(id, depth)) {
+                List<Tree<FileableCmisObject>> children = null;
+                if (levels > 1 && child instanceof Folder) {
+                    children = getDescendants(child.getId(), depth + 1, levels - 1);
+                }
+                result.add(new TreeImpl<FileableCmisObject>(child, children));
+            }
+            return result;
+        }
+
+        private static FileableCmisObject createDocument(final String id) {
+            return (FileableCmisObject) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                    new Class<?>[] { Document.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("getId")) {
+                                return id;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ItemIterable<CmisObject> createItemIterable(final List<? extends CmisObject> objects) {
+            return (ItemIterable<CmisObject>) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                    new Class<?>[] { ItemIterable.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("iterator")) {
+                                return objects.iterator();
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractTypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+import org.junit.After;
+import org.junit.Test;
+
+public class GetObjectsTest {
+
+    private static final String REPOSITORY_ID = "test";
+
+    private static volatile Repository repository;
+
+    @After
+    public void tearDown() {
+        repository = null;
+    }
+
+    @Test
+    public void testBatches() {
+        repository = new Repository(CapabilityQuery.METADATAONLY);
+        Session session = createSession(10, 4);
+
+        List<ObjectId> ids = new ArrayList<ObjectId>();
+        for (int i = 24; i >= 0; i--) {
+            ids.add(session.createObjectId("doc" + i));
+        }
+        ids.add(session.createObjectId("folder1"));
+
+        List<CmisObject> objects = session.getObjects(ids, createContext(session));
+
+        // all 26 IDs are asked for documents in 3 batches, the folder that is
+        // left is asked for in 1 batch
+        assertEquals(4, repository.queries.size());
+        assertEquals(Integer.valueOf(10), repository.queries.get(0));
+        assertEquals(Integer.valueOf(10), repository.queries.get(1));
+        assertEquals(Integer.valueOf(6), repository.queries.get(2));
+        assertEquals(Integer.valueOf(1), repository.queries.get(3));
+        assertEquals(0, repository.getObjectCalls.size());
+
+        assertOrder(ids, objects);
+    }
+
+    @Test
+    public void testMissingIds() {
+        repository = new Repository(CapabilityQuery.METADATAONLY);
+        Session session = createSession(10, 4);
+
+        List<ObjectId> ids = new ArrayList<ObjectId>();
+        ids.add(session.createObjectId("doc1"));
+        ids.add(session.createObjectId("missing1"));
+        ids.add(session.createObjectId("doc2"));
+        ids.add(session.createObjectId("doc1"));
+        ids.add(session.createObjectId("missing2"));
+
+        List<CmisObject> objects = session.getObjects(ids, createContext(session));
+
+        assertEquals(5, objects.size());
+        assertEquals("doc1", objects.get(0).getId());
+        assertNull(objects.get(1));
+        assertEquals("doc2", objects.get(2).getId());
+        assertEquals("doc1", objects.get(3).getId());
+        assertNull(objects.get(4));
+
+        // IDs that no query has found are looked up one by one
+        Collections.sort(repository.getObjectCalls);
+        assertEquals(2, repository.getObjectCalls.size());
+        assertEquals("missing1", repository.getObjectCalls.get(0));
+        assertEquals("missing2", repository.getObjectCalls.get(1));
+    }
+
+    @Test
+    public void testFallbackToGetObject() {
+        repository = new Repository(CapabilityQuery.NONE);
+        Session session = createSession(10, 4);
+
+        List<ObjectId> ids = new ArrayList<ObjectId>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(session.createObjectId((i % 2 == 0 ? "doc" : "folder") + i));
+        }
+
+        List<CmisObject> objects = session.getObjects(ids, createContext(session));
+
+        assertEquals(0, repository.queries.size());
+        assertEquals(20, repository.getObjectCalls.size());
+        assertOrder(ids, objects);
+    }
+
+    @Test
+    public void testRejectedQuery() {
+        repository = new Repository(CapabilityQuery.METADATAONLY);
+        repository.rejectQueries = true;
+        Session session = createSession(10, 1);
+
+        List<ObjectId> ids = new ArrayList<ObjectId>();
+        for (int i = 0; i < 15; i++) {
+            ids.add(session.createObjectId("doc" + i));
+        }
+
+        List<CmisObject> objects = session.getObjects(ids, createContext(session));
+
+        assertTrue(repository.queries.size() > 0);
+        assertEquals(15, repository.getObjectCalls.size());
+        assertOrder(ids, objects);
+    }
+
+    private static void assertOrder(List<ObjectId> ids, List<CmisObject> objects) {
+        assertEquals(ids.size(), objects.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(ids.get(i).getId(), objects.get(i).getId());
+        }
+    }
+
+    private static OperationContext createContext(Session session) {
+        OperationContext context = OperationContextUtils.createMinimumOperationContext(PropertyIds.NAME);
+        context.setCacheEnabled(false);
+        return context;
+    }
+
+    private static Session createSession(int batchSize, int threads) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_TYPE, BindingType.CUSTOM.value());
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, MockSpi.class.getName());
+        parameters.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        parameters.put(SessionParameter.REPOSITORY_ID, REPOSITORY_ID);
+        parameters.put(SessionParameter.GET_OBJECTS_BATCH_SIZE, String.valueOf(batchSize));
+        parameters.put(SessionParameter.GET_OBJECTS_THREADS, String.valueOf(threads));
+
+        SessionImpl session = new SessionImpl(parameters, null, null, null, null);
+        session.connect();
+        return session;
+    }
+
+    /**
+     * Knows documents with IDs starting with "doc" and folders with IDs
+     * starting with "folder".
+     */
+    private static class Repository implements InvocationHandler {
+
+        private static final Pattern ID_PATTERN = Pattern.compile("'([^']*)'");
+
+        final CapabilityQuery queryCapability;
+        final List<Integer> queries = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<String> getObjectCalls = Collections.synchronizedList(new ArrayList<String>());
+        volatile boolean rejectQueries;
+
+        Repository(CapabilityQuery queryCapability) {
+            this.queryCapability = queryCapability;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getRepositoryInfo")) {
+                return createRepositoryInfo();
+            } else if (name.equals("getTypeDefinition")) {
+                return createType((String) args[1]);
+            } else if (name.equals("query")) {
+                return query((String) args[1]);
+            } else if (name.equals("getObject")) {
+                getObjectCalls.add((String) args[1]);
+                ObjectData object = createObject((String) args[1]);
+                if (object == null) {
+                    throw new CmisObjectNotFoundException("Not found: " + args[1]);
+                }
+                return object;
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+
+        private Object query(String statement) {
+            List<ObjectData> objects = new ArrayList<ObjectData>();
+            String prefix = statement.contains("FROM cmis:folder") ? "folder" : "doc";
+
+            Matcher matcher = ID_PATTERN.matcher(statement);
+            int count = 0;
+            while (matcher.find()) {
+                count++;
+                String id = matcher.group(1);
+                if (id.startsWith(prefix)) {
+                    objects.add(createObject(id));
+                }
+            }
+            queries.add(count);
+
+            if (rejectQueries) {
+                throw new CmisInvalidArgumentException("Query not supported!");
+            }
+
+            ObjectListImpl result = new ObjectListImpl();
+            result.setObjects(objects);
+            return result;
+        }
+
+        private RepositoryInfoImpl createRepositoryInfo() {
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityQuery(queryCapability);
+            capabilities.setAllVersionsSearchable(Boolean.FALSE);
+
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId(REPOSITORY_ID);
+            info.setName(REPOSITORY_ID);
+            info.setCmisVersion(CmisVersion.CMIS_1_1);
+            info.setCapabilities(capabilities);
+            return info;
+        }
+
+        private static TypeDefinition createType(String typeId) {
+            AbstractTypeDefinition type;
+            if (BaseTypeId.CMIS_DOCUMENT.value().equals(typeId)) {
+                type = new DocumentTypeDefinitionImpl();
+                type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            } else if (BaseTypeId.CMIS_FOLDER.value().equals(typeId)) {
+                type = new FolderTypeDefinitionImpl();
+                type.setBaseTypeId(BaseTypeId.CMIS_FOLDER);
+            } else {
+                throw new CmisObjectNotFoundException("Unknown type: " + typeId);
+            }
+
+            type.setId(typeId);
+            type.setLocalName(typeId);
+            type.setQueryName(typeId);
+            type.setIsQueryable(Boolean.TRUE);
+            type.addPropertyDefinition(createPropertyDefinition(new PropertyIdDefinitionImpl(),
+                    PropertyIds.OBJECT_ID, PropertyType.ID));
+            type.addPropertyDefinition(createPropertyDefinition(new PropertyIdDefinitionImpl(),
+                    PropertyIds.BASE_TYPE_ID, PropertyType.ID));
+            type.addPropertyDefinition(createPropertyDefinition(new PropertyIdDefinitionImpl(),
+                    PropertyIds.OBJECT_TYPE_ID, PropertyType.ID));
+            for (String id : new String[] { PropertyIds.NAME, PropertyIds.DESCRIPTION, PropertyIds.CREATED_BY,
+                    PropertyIds.LAST_MODIFIED_BY, PropertyIds.CHANGE_TOKEN }) {
+                type.addPropertyDefinition(createPropertyDefinition(new PropertyStringDefinitionImpl(), id,
+                        PropertyType.STRING));
+            }
+            for (String id : new String[] { PropertyIds.CREATION_DATE, PropertyIds.LAST_MODIFICATION_DATE }) {
+                type.addPropertyDefinition(createPropertyDefinition(new PropertyDateTimeDefinitionImpl(), id,
+                        PropertyType.DATETIME));
+            }
+            return type;
+        }
+
+        private static AbstractPropertyDefinition<?> createPropertyDefinition(
+                AbstractPropertyDefinition<?> propDef, String id, PropertyType propertyType) {
+            propDef.setId(id);
+            propDef.setLocalName(id);
+            propDef.setQueryName(id);
+            propDef.setPropertyType(propertyType);
+            propDef.setCardinality(Cardinality.SINGLE);
+            return propDef;
+        }
+
+        private static ObjectData createObject(String id) {
+            BaseTypeId baseTypeId;
+            if (id.startsWith("doc")) {
+                baseTypeId = BaseTypeId.CMIS_DOCUMENT;
+            } else if (id.startsWith("folder")) {
+                baseTypeId = BaseTypeId.CMIS_FOLDER;
+            } else {
+                return null;
+            }
+
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, baseTypeId.value()));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, baseTypeId.value()));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, id));
+
+            ObjectDataImpl object = new ObjectDataImpl();
+            object.setProperties(properties);
+            return object;
+        }
+    }
+
+    /**
+     * Binding SPI that hands all calls to the current {@link Repository}.
+     */
+    public static class MockSpi implements CmisSpi {
+
+        public MockSpi(BindingSession session) {
+        }
+
+        private static <T> T createService(Class<T> serviceInterface) {
+            return serviceInterface.cast(Proxy.newProxyInstance(GetObjectsTest.class.getClassLoader(),
+                    new Class<?>[] { serviceInterface }, repository));
+        }
+
+        @Override
+        public RepositoryService getRepositoryService() {
+            return createService(RepositoryService.class);
+        }
+
+        @Override
+        public NavigationService getNavigationService() {
+            return createService(NavigationService.class);
+        }
+
+        @Override
+        public ObjectService getObjectService() {
+            return createService(ObjectService.class);
+        }
+
+        @Override
+        public VersioningService getVersioningService() {
+            return createService(VersioningService.class);
+        }
+
+        @Override
+        public RelationshipService getRelationshipService() {
+            return createService(RelationshipService.class);
+        }
+
+        @Override
+        public DiscoveryService getDiscoveryService() {
+            return createService(DiscoveryService.class);
+        }
+
+        @Override
+        public MultiFilingService getMultiFilingService() {
+            return createService(MultiFilingService.class);
+        }
+
+        @Override
+        public AclService getAclService() {
+            return createService(AclService.class);
+        }
+
+        @Override
+        public PolicyService getPolicyService() {
+            return createService(PolicyService.class);
+        }
+
+        @Override
+        public void clearAllCaches() {
+        }
+
+        @Override
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -21,15 +21,22 @@ package org.apache.chemistry.opencmis.client.runtime;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractIterator;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
 import org.junit.Test;
@@ -54,7 +61,11 @@ public class ItemIterableTest {
     private final String[] data0 = {};
 
     private ItemIterable<String> getIterable(final String[] data, long pageSize) {
-        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize) {
+        return getIterable(data, pageSize, 0);
+    }
+
+    private ItemIterable<String> getIterable(final String[] data, long pageSize, int prefetchDepth) {
+        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize, prefetchDepth) {
 
             @Override
             protected Page<String> fetchPage(long skipCount) {
@@ -219,6 +230,78 @@ public class ItemIterableTest {
         assertEquals(this.data10.length - pageSize, p.getPageNumItems());
     }
 
+    @Test
+    public void prefetch() {
+        for (int depth = 1; depth <= 3; depth++) {
+            for (int pageSize : new int[] { 1, 3, 10, 100 }) {
+                ItemIterable<String> p = this.getIterable(this.data10, pageSize, depth);
+                AbstractIterator<String> i = (AbstractIterator<String>) p.iterator();
+
+                int count = 0;
+                while (i.hasNext()) {
+                    assertEquals("A" + count, i.next());
+                    count++;
+                }
+                assertEquals(this.data10.length, count);
+
+                int pages = (this.data10.length + pageSize - 1) / pageSize;
+                assertEquals(pages, i.getFetchedPageCount());
+                assertEquals(pages - 1, i.getPrefetchedPageCount());
+                assertTrue(i.getOverlappedPageCount() <= i.getPrefetchedPageCount());
+            }
+        }
+
+        // skipping ahead drops the pending pages
+        ItemIterable<String> p = this.getIterable(this.data10, 2, 2).skipTo(5);
+        int count = 0;
+        for (String s : p) {
+            assertEquals("A" + (count + 5), s);
+            count++;
+        }
+        assertEquals(5, count);
+    }
+
+    @Test
+    public void abandonedIteratorStopsPrefetch() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Long> fetched = Collections.synchronizedList(new ArrayList<Long>());
+
+        ItemIterable<String> p = new CollectionIterable<String>(new AbstractPageFetcher<String>(1, 3) {
+            @Override
+            protected Page<String> fetchPage(long skipCount) {
+                fetched.add(skipCount);
+                if (skipCount == 1) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new AbstractPageFetcher.Page<String>(Collections.singletonList("A" + skipCount), 10, true);
+            }
+        });
+
+        Iterator<String> i = p.iterator();
+        assertEquals("A0", i.next());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // abandon the iterator while the first prefetched page is fetched
+        WeakReference<Iterator<String>> ref = new WeakReference<Iterator<String>>(i);
+        p = null;
+        i = null;
+        for (int n = 0; n < 100 && ref.get() != null; n++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+
+        release.countDown();
+        Thread.sleep(200);
+        assertEquals(Arrays.asList(Long.valueOf(0), Long.valueOf(1)), fetched);
+    }
+
     private void loopSubPage(String[] data, int skipCount, int maxItems, int pageSize) {
         ItemIterableTest.LOG.info("loopSubPage (" + skipCount + ", " + maxItems + ", " + pageSize + ")");
         String msg = "";
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.util.ParallelDownloader;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.junit.Test;
+
+public class ParallelDownloaderTest {
+
+    private static final byte[] CONTENT = new byte[100 * 1000];
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) (i % 251);
+        }
+    }
+
+    @Test
+    public void testRanges() throws IOException {
+        ContentSession content = new ContentSession(true);
+        ParallelDownloader downloader = new ParallelDownloader(content.createSession());
+        downloader.setSegmentSize(7000);
+        downloader.setThreads(4);
+
+        assertArrayEquals(CONTENT, download(downloader, CONTENT.length));
+        assertEquals(15, content.requests.get());
+    }
+
+    @Test
+    public void testRetry() throws IOException {
+        ContentSession content = new ContentSession(true);
+        content.failures.set(3);
+        ParallelDownloader downloader = new ParallelDownloader(content.createSession());
+        downloader.setSegmentSize(30000);
+
+        assertArrayEquals(CONTENT, download(downloader, CONTENT.length));
+
+        content.failures.set(100);
+        downloader.setMaxRetries(1);
+        try {
+            download(downloader, CONTENT.length);
+            fail("Download should have failed!");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoRangeSupport() throws IOException {
+        ContentSession content = new ContentSession(false);
+        ParallelDownloader downloader = new ParallelDownloader(content.createSession());
+        downloader.setSegmentSize(7000);
+
+        assertArrayEquals(CONTENT, download(downloader, CONTENT.length));
+        assertEquals(2, content.requests.get());
+    }
+
+    @Test
+    public void testLengthMismatch() throws IOException {
+        ParallelDownloader downloader = new ParallelDownloader(new ContentSession(true).createSession());
+        downloader.setSegmentSize(7000);
+
+        // the content is shorter than announced
+        try {
+            download(downloader, CONTENT.length + 1);
+            fail("Length mismatch not detected!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // without range support
+        downloader = new ParallelDownloader(new ContentSession(false).createSession());
+        downloader.setSegmentSize(7000);
+
+        try {
+            download(downloader, CONTENT.length - 1);
+            fail("Length mismatch not detected!");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("mismatch"));
+        }
+    }
+
+    private static byte[] download(ParallelDownloader downloader, long length) throws IOException {
+        File file = File.createTempFile("download", ".bin");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            long written = downloader.download(new ObjectIdImpl("doc"), null, length, channel);
+
+            byte[] result = new byte[(int) written];
+            raf.seek(0);
+            raf.readFully(result);
+            return result;
+        } finally {
+            IOUtils.closeQuietly(raf);
+            assertTrue(file.delete());
+        }
+    }
+
+    /**
+     * Serves the content through a {@link Session} proxy.
+     */
+    private static class ContentSession implements InvocationHandler {
+
+        final boolean supportsRanges;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+
+        ContentSession(boolean supportsRanges) {
+            this.supportsRanges = supportsRanges;
+        }
+
+        Session createSession() {
+            return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!method.getName().equals("getContentStream") || args.length != 4) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            requests.incrementAndGet();
+
+            if (!supportsRanges || args[2] == null) {
+                return new ContentStreamImpl("test", BigInteger.valueOf(CONTENT.length), "application/octet-stream",
+                        new ByteArrayInputStream(CONTENT));
+            }
+
+            int offset = ((BigInteger) args[2]).intValue();
+            int length = Math.min(((BigInteger) args[3]).intValue(), CONTENT.length - offset);
+
+            InputStream stream = new ByteArrayInputStream(CONTENT, offset, length);
+            if (failures.getAndDecrement() > 0) {
+                // the connection breaks after a few bytes
+                stream = new ByteArrayInputStream(CONTENT, offset, Math.min(10, length));
+            }
+
+            return new PartialContentStreamImpl("test", BigInteger.valueOf(length), "application/octet-stream",
+                    stream);
+        }
+    }
+}
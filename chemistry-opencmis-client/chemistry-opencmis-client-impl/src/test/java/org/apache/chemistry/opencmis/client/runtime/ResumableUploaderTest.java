@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.util.ResumableUploader;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResumableUploaderTest {
+
+    private static final int CHUNK_SIZE = 10000;
+
+    private static final byte[] CONTENT = new byte[10 * CHUNK_SIZE + 500];
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) (i % 253);
+        }
+    }
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("upload", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(CONTENT);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        Repository repository = new Repository();
+        // call 2 (offset 20000): nothing is received, call 4 (offset 30000):
+        // only the response is lost, call 6 (offset 50000): the first 3000
+        // bytes are received
+        repository.failures.put(2, 0);
+        repository.failures.put(4, CHUNK_SIZE);
+        repository.failures.put(6, 3000);
+
+        ResumableUploader uploader = createUploader(repository);
+        uploader.setDigestAlgorithm("SHA-256");
+        uploader.upload(repository.getDocument(), file, true);
+
+        assertArrayEquals(CONTENT, repository.content.toByteArray());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(CONTENT), uploader.getDigest());
+        assertEquals(CONTENT.length, uploader.getUploadedBytes());
+
+        // the rest of the partly received chunk is sent again
+        assertEquals(2, count(repository.offsets, 2L * CHUNK_SIZE));
+        assertEquals(1, count(repository.offsets, 3L * CHUNK_SIZE));
+        assertEquals(1, count(repository.offsets, 4L * CHUNK_SIZE));
+        assertEquals(1, count(repository.offsets, 5L * CHUNK_SIZE));
+        assertEquals(1, count(repository.offsets, 5L * CHUNK_SIZE + 3000));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Repository repository = new Repository();
+        // call 3 (offset 30000): the first 4000 bytes are received
+        repository.failures.put(3, 4000);
+
+        ResumableUploader uploader = createUploader(repository);
+        uploader.setMaxRetries(0);
+        try {
+            uploader.upload(repository.getDocument(), file, true);
+            fail("Upload should have failed!");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(3L * CHUNK_SIZE, uploader.getUploadedBytes());
+        assertEquals(3 * CHUNK_SIZE + 4000, repository.content.size());
+
+        // the upload continues where the repository has stopped
+        repository.offsets.clear();
+        uploader.setDigestAlgorithm("SHA-256");
+        uploader.resume(repository.getDocument(), file);
+
+        assertEquals(Long.valueOf(3L * CHUNK_SIZE + 4000), repository.offsets.get(0));
+        assertArrayEquals(CONTENT, repository.content.toByteArray());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(CONTENT), uploader.getDigest());
+    }
+
+    @Test
+    public void testResumeWithForeignContent() throws Exception {
+        Repository repository = new Repository();
+        repository.content.write(CONTENT, 0, 2 * CHUNK_SIZE);
+        repository.content.write(new byte[3000], 0, 3000);
+
+        ResumableUploader uploader = createUploader(repository);
+        try {
+            uploader.resume(repository.getDocument(), file);
+            fail("Foreign content not detected!");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("doesn't match"));
+        }
+
+        assertTrue(repository.offsets.isEmpty());
+    }
+
+    private static ResumableUploader createUploader(Repository repository) {
+        ResumableUploader uploader = new ResumableUploader(repository.createSession());
+        uploader.setChunkSizes(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE);
+        return uploader;
+    }
+
+    private static int count(List<Long> list, long value) {
+        int result = 0;
+        for (Long l : list) {
+            if (l.longValue() == value) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the content of one document and serves it through proxies of the
+     * session and binding interfaces.
+     */
+    private static class Repository implements InvocationHandler {
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        /** Call number -> number of bytes that are stored before it fails. */
+        final Map<Integer, Integer> failures = new HashMap<Integer, Integer>();
+        /** Content length before each append call. */
+        final List<Long> offsets = new ArrayList<Long>();
+        int chunks;
+
+        Session createSession() {
+            return createProxy(Session.class);
+        }
+
+        Document getDocument() {
+            return createProxy(Document.class);
+        }
+
+        private <T> T createProxy(Class<T> iface) {
+            return iface.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { iface }, this));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+            String name = method.getName();
+            if (proxy instanceof Document) {
+                if (name.equals("getId")) {
+                    return "doc";
+                } else if (name.equals("getContentStreamLength")) {
+                    return Long.valueOf(content.size());
+                } else if (name.startsWith("getContentStream") || name.equals("getChangeToken")) {
+                    return null;
+                }
+            } else if (name.equals("getObject")) {
+                return getDocument();
+            } else if (name.equals("getRepositoryInfo")) {
+                RepositoryInfoImpl info = new RepositoryInfoImpl();
+                info.setId("repo");
+                return info;
+            } else if (name.equals("getBinding")) {
+                return createProxy(CmisBinding.class);
+            } else if (name.equals("getObjectService")) {
+                return createProxy(ObjectService.class);
+            } else if (name.equals("getObjectFactory")) {
+                return createProxy(ObjectFactory.class);
+            } else if (name.equals("convertContentStream")) {
+                return args[0];
+            } else if (name.equals("setContentStream")) {
+                content.reset();
+                return store((ContentStream) args[4]);
+            } else if (name.equals("appendContentStream")) {
+                offsets.add(Long.valueOf(content.size()));
+                ((Holder<?>) args[1]).setValue(null);
+                return store((ContentStream) args[3]);
+            } else if (name.equals("getContentStream") && args.length == 4) {
+                int offset = ((BigInteger) args[2]).intValue();
+                int length = Math.min(((BigInteger) args[3]).intValue(), content.size() - offset);
+                return new PartialContentStreamImpl("test", BigInteger.valueOf(length), "application/octet-stream",
+                        new ByteArrayInputStream(content.toByteArray(), offset, length));
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+
+        private Object store(ContentStream stream) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            IOUtils.copy(stream.getStream(), buffer);
+            byte[] bytes = buffer.toByteArray();
+            Integer stored = failures.remove(chunks++);
+            if (stored != null) {
+                content.write(bytes, 0, Math.min(stored.intValue(), bytes.length));
+                throw new IOException("Connection reset!");
+            }
+
+            content.write(bytes, 0, bytes.length);
+            return null;
+        }
+    }
+}
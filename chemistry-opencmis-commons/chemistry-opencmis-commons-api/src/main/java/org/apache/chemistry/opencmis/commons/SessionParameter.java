@@ -166,6 +166,22 @@ package org.apache.chemistry.opencmis.commons;
  * <td>false</td>
  * </tr>
  * <tr>
+ * <td>{@link #CLIENT_COMPRESSION_THRESHOLD}</td>
+ * <td>Request bodies smaller than this are not compressed</td>
+ * <td>AtomPub, Browser</td>
+ * <td>bytes</td>
+ * <td>no</td>
+ * <td>1024</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CLIENT_COMPRESSION_LEVEL}</td>
+ * <td>Deflate level of the HTTP request compression</td>
+ * <td>AtomPub, Browser</td>
+ * <td>0 - 9, -1 for the zlib default</td>
+ * <td>no</td>
+ * <td>-1</td>
+ * </tr>
+ * <tr>
  * <td>{@link #COOKIES}</td>
  * <td>Switch to turn cookie support on or off</td>
  * <td>AtomPub, Web Services, Browser</td>
@@ -174,6 +190,23 @@ package org.apache.chemistry.opencmis.commons;
  * <td>false</td>
  * </tr>
  * <tr>
+ * <td>{@link #COALESCE_REQUESTS}</td>
+ * <td>Operations whose identical concurrent requests are coalesced</td>
+ * <td>AtomPub, Web Services, Browser, Local</td>
+ * <td>comma separated list of "getObject", "getObjectByPath",
+ * "getTypeDefinition"</td>
+ * <td>no</td>
+ * <td>-</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #COALESCE_TIMEOUT}</td>
+ * <td>Time a coalesced request waits for the identical request in flight</td>
+ * <td>AtomPub, Web Services, Browser, Local</td>
+ * <td>milliseconds</td>
+ * <td>no</td>
+ * <td>30000</td>
+ * </tr>
+ * <tr>
  * <td>{@link #HEADER}</td>
  * <td>HTTP header</td>
  * <td>AtomPub, Web Services, Browser</td>
@@ -290,6 +323,57 @@ package org.apache.chemistry.opencmis.commons;
  * <td>false</td>
  * </tr>
  * <tr>
+ * <td>{@link #CONTENT_CACHE_DIRECTORY}</td>
+ * <td>Directory of the content cache, turns the content cache on</td>
+ * <td>all</td>
+ * <td>path</td>
+ * <td>no</td>
+ * <td>-</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CONTENT_CACHE_SIZE}</td>
+ * <td>Content cache size</td>
+ * <td>all</td>
+ * <td>bytes</td>
+ * <td>no</td>
+ * <td>268435456 (256 MiB)</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CONTENT_CACHE_MAX_DOCUMENT_SIZE}</td>
+ * <td>Size of the largest content stream the content cache keeps</td>
+ * <td>all</td>
+ * <td>bytes</td>
+ * <td>no</td>
+ * <td>16777216 (16 MiB)</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CONTENT_CACHE_REVALIDATE}</td>
+ * <td>Check the change token of the document before a cached content stream
+ * is served</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_INVALIDATION_INTERVAL}</td>
+ * <td>Interval of the change log polls that remove changed objects from the
+ * object cache, turns change log invalidation on</td>
+ * <td>all</td>
+ * <td>milliseconds</td>
+ * <td>no</td>
+ * <td>-</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_INVALIDATION_MAX_CHANGES}</td>
+ * <td>Number of changes per poll up to which objects are removed one by one,
+ * the object cache is cleared if there are more changes</td>
+ * <td>all</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>1000</td>
+ * </tr>
+ * <tr>
  * <td>{@link #CACHE_SIZE_REPOSITORIES}</td>
  * <td>Repository info cache size</td>
  * <td>all</td>
@@ -306,6 +390,35 @@ package org.apache.chemistry.opencmis.commons;
  * <td>100</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_SHARED}</td>
+ * <td>Share the type definition and repository info caches with all sessions
+ * of this JVM that connect to the same endpoint with the same CMIS version,
+ * locale and cache settings</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_SHARED_PER_USER}</td>
+ * <td>Only share the caches with sessions of the same user, for repositories
+ * that return different type definitions or repository infos to different
+ * users</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_SNAPSHOT_DIRECTORY}</td>
+ * <td>Directory of the repository info and type definition snapshots that
+ * speed up the start of new sessions, turns snapshots on</td>
+ * <td>all</td>
+ * <td>path</td>
+ * <td>no</td>
+ * <td>-</td>
+ * </tr>
+ * <tr>
  * <td>{@link #CACHE_SIZE_LINKS}</td>
  * <td>AtomPub link cache size</td>
  * <td>AtomPub</td>
@@ -524,6 +637,41 @@ package org.apache.chemistry.opencmis.commons;
  * <td>"false"</td>
  * </tr>
  * <tr>
+ * <td>{@link #WEBSERVICES_PORT_POOL_MIN_SIZE}</td>
+ * <td>Number of port objects per service that are created at session
+ * creation and kept when idle</td>
+ * <td>Web Services</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>0</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #WEBSERVICES_PORT_POOL_MAX_SIZE}</td>
+ * <td>Maximum number of port objects per service</td>
+ * <td>Web Services</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>32</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #WEBSERVICES_PORT_POOL_MAX_WAIT}</td>
+ * <td>Time a call waits for a port object if all are in use. If 0, an
+ * additional port object is created and discarded after the call.</td>
+ * <td>Web Services</td>
+ * <td>milliseconds</td>
+ * <td>no</td>
+ * <td>0</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #WEBSERVICES_PORT_POOL_IDLE_TIMEOUT}</td>
+ * <td>Time after which an unused port object is discarded. Values below
+ * 1000 are raised to 1000.</td>
+ * <td>Web Services</td>
+ * <td>milliseconds</td>
+ * <td>no</td>
+ * <td>600000</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>Browser Binding</b></td>
  * </tr>
  * <tr>
@@ -646,6 +794,11 @@ public final class SessionParameter {
     public static final String WEBSERVICES_TEMP_DIRECTORY = "org.apache.chemistry.opencmis.binding.webservices.tempDirectory";
     public static final String WEBSERVICES_TEMP_ENCRYPT = "org.apache.chemistry.opencmis.binding.webservices.tempEncrypt";
 
+    public static final String WEBSERVICES_PORT_POOL_MIN_SIZE = "org.apache.chemistry.opencmis.binding.webservices.portPool.minSize";
+    public static final String WEBSERVICES_PORT_POOL_MAX_SIZE = "org.apache.chemistry.opencmis.binding.webservices.portPool.maxSize";
+    public static final String WEBSERVICES_PORT_POOL_MAX_WAIT = "org.apache.chemistry.opencmis.binding.webservices.portPool.maxWait";
+    public static final String WEBSERVICES_PORT_POOL_IDLE_TIMEOUT = "org.apache.chemistry.opencmis.binding.webservices.portPool.idleTimeout";
+
     public static final String WEBSERVICES_PORT_PROVIDER_CLASS = "org.apache.chemistry.opencmis.binding.webservices.portprovider.classname";
 
     public static final String WEBSERVICES_JAXWS_IMPL = "org.apache.chemistry.opencmis.binding.webservices.jaxws.impl";
@@ -701,9 +854,14 @@ public final class SessionParameter {
 
     public static final String COMPRESSION = "org.apache.chemistry.opencmis.binding.compression";
     public static final String CLIENT_COMPRESSION = "org.apache.chemistry.opencmis.binding.clientcompression";
+    public static final String CLIENT_COMPRESSION_THRESHOLD = "org.apache.chemistry.opencmis.binding.clientcompression.threshold";
+    public static final String CLIENT_COMPRESSION_LEVEL = "org.apache.chemistry.opencmis.binding.clientcompression.level";
 
     public static final String COOKIES = "org.apache.chemistry.opencmis.binding.cookies";
 
+    public static final String COALESCE_REQUESTS = "org.apache.chemistry.opencmis.binding.coalesce.requests";
+    public static final String COALESCE_TIMEOUT = "org.apache.chemistry.opencmis.binding.coalesce.timeout";
+
     public static final String HEADER = "org.apache.chemistry.opencmis.binding.header";
 
     public static final String CONNECT_TIMEOUT = "org.apache.chemistry.opencmis.binding.connecttimeout";
@@ -724,8 +882,19 @@ public final class SessionParameter {
     public static final String CACHE_TTL_PATHTOID = "org.apache.chemistry.opencmis.cache.pathtoid.ttl";
     public static final String CACHE_PATH_OMIT = "org.apache.chemistry.opencmis.cache.path.omit";
 
+    public static final String CONTENT_CACHE_DIRECTORY = "org.apache.chemistry.opencmis.cache.content.directory";
+    public static final String CONTENT_CACHE_SIZE = "org.apache.chemistry.opencmis.cache.content.size";
+    public static final String CONTENT_CACHE_MAX_DOCUMENT_SIZE = "org.apache.chemistry.opencmis.cache.content.maxdocumentsize";
+    public static final String CONTENT_CACHE_REVALIDATE = "org.apache.chemistry.opencmis.cache.content.revalidate";
+
+    public static final String CACHE_INVALIDATION_INTERVAL = "org.apache.chemistry.opencmis.cache.invalidation.interval";
+    public static final String CACHE_INVALIDATION_MAX_CHANGES = "org.apache.chemistry.opencmis.cache.invalidation.maxchanges";
+
     public static final String CACHE_SIZE_REPOSITORIES = "org.apache.chemistry.opencmis.binding.cache.repositories.size";
     public static final String CACHE_SIZE_TYPES = "org.apache.chemistry.opencmis.binding.cache.types.size";
+    public static final String CACHE_SHARED = "org.apache.chemistry.opencmis.binding.cache.shared";
+    public static final String CACHE_SHARED_PER_USER = "org.apache.chemistry.opencmis.binding.cache.shared.peruser";
+    public static final String CACHE_SNAPSHOT_DIRECTORY = "org.apache.chemistry.opencmis.binding.cache.snapshot.directory";
     public static final String CACHE_SIZE_LINKS = "org.apache.chemistry.opencmis.binding.cache.links.size";
 
     // --- session control ---
@@ -740,6 +909,9 @@ public final class SessionParameter {
 
     public static final String REPOSITORY_ID = "org.apache.chemistry.opencmis.session.repository.id";
 
+    public static final String GET_OBJECTS_BATCH_SIZE = "org.apache.chemistry.opencmis.session.getobjects.batchsize";
+    public static final String GET_OBJECTS_THREADS = "org.apache.chemistry.opencmis.session.getobjects.threads";
+
     // --- workarounds ---
 
     public static final String INCLUDE_OBJECTID_URL_PARAM_ON_CHECKOUT = "org.apache.chemistry.opencmis.workaround.includeObjectIdOnCheckout";
@@ -25,10 +25,26 @@ public final class SessionParameterDefaults {
     public static final int CACHE_SIZE_PATHTOID = 1000;
     public static final int CACHE_TTL_PATHTOID = 30 * 60 * 1000;
 
+    public static final long CONTENT_CACHE_SIZE = 256L * 1024 * 1024;
+    public static final long CONTENT_CACHE_MAX_DOCUMENT_SIZE = 16L * 1024 * 1024;
+
+    public static final int CACHE_INVALIDATION_MAX_CHANGES = 1000;
+
     public static final int CACHE_SIZE_REPOSITORIES = 10;
     public static final int CACHE_SIZE_TYPES = 100;
     public static final int CACHE_SIZE_LINKS = 400;
 
+    public static final int GET_OBJECTS_BATCH_SIZE = 100;
+    public static final int GET_OBJECTS_THREADS = 4;
+
+    public static final int CLIENT_COMPRESSION_THRESHOLD = 1024;
+    public static final int CLIENT_COMPRESSION_LEVEL = -1;
+
+    public static final int WEBSERVICES_PORT_POOL_MIN_SIZE = 0;
+    public static final int WEBSERVICES_PORT_POOL_MAX_SIZE = 32;
+    public static final int WEBSERVICES_PORT_POOL_MAX_WAIT = 0;
+    public static final int WEBSERVICES_PORT_POOL_IDLE_TIMEOUT = 10 * 60 * 1000;
+
     // utility class
     private SessionParameterDefaults() {
     }
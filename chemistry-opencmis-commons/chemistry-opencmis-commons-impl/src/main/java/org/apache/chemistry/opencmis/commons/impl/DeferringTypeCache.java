@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+
+/**
+ * Type cache for the JSON stream converters that doesn't fetch type
+ * definitions while a response is read.
+ * <p>
+ * Lookups are answered from {@link #getCachedTypeDefinition(String)} only.
+ * A list entry that needs a type definition that is not cached, a reload of
+ * a type definition or the type of another object is kept as JSON and is converted by
+ * {@link #convertDeferred()} after the response has been consumed. This
+ * avoids opening a second connection while the first one is still busy.
+ */
+public abstract class DeferringTypeCache implements TypeCache {
+
+    private final TypeCache typeCache;
+    private final Set<String> missingTypeIds = new LinkedHashSet<String>();
+    private final List<DeferredEntry<?>> deferredEntries = new ArrayList<DeferredEntry<?>>();
+
+    /**
+     * Constructor.
+     * 
+     * @param typeCache
+     *            the type cache that is used to convert the deferred entries
+     */
+    public DeferringTypeCache(TypeCache typeCache) {
+        this.typeCache = typeCache;
+    }
+
+    /**
+     * Returns the type definition if it is available without a round trip to
+     * the repository, {@code null} otherwise.
+     */
+    protected abstract TypeDefinition getCachedTypeDefinition(String typeId);
+
+    @Override
+    public TypeDefinition getTypeDefinition(String typeId) {
+        TypeDefinition type = getCachedTypeDefinition(typeId);
+        if (type == null) {
+            missingTypeIds.add(typeId);
+            throw new TypeDefinitionDeferredException();
+        }
+
+        return type;
+    }
+
+    @Override
+    public TypeDefinition reloadTypeDefinition(String typeId) {
+        throw new TypeDefinitionDeferredException();
+    }
+
+    @Override
+    public TypeDefinition getTypeDefinitionForObject(String objectId) {
+        throw new TypeDefinitionDeferredException();
+    }
+
+    @Override
+    public PropertyDefinition<?> getPropertyDefinition(String propId) {
+        return typeCache.getPropertyDefinition(propId);
+    }
+
+    /**
+     * Returns whether there are entries that haven't been converted yet.
+     */
+    public boolean hasDeferredEntries() {
+        return !deferredEntries.isEmpty();
+    }
+
+    /**
+     * Fetches the missing type definitions and converts the deferred entries.
+     * Must be called after the response has been consumed.
+     */
+    public void convertDeferred() {
+        for (String typeId : missingTypeIds) {
+            typeCache.getTypeDefinition(typeId);
+        }
+        missingTypeIds.clear();
+
+        for (DeferredEntry<?> entry : deferredEntries) {
+            entry.convert(typeCache);
+        }
+        deferredEntries.clear();
+    }
+
+    /**
+     * Converts a list entry and adds it to the list. If the entry cannot be
+     * converted yet, a {@code null} placeholder is added that is replaced by
+     * {@link #convertDeferred()}.
+     */
+    <T> void add(List<T> list, Map<String, Object> json, EntryConverter<T> converter) {
+        try {
+            list.add(converter.convert(json, this));
+        } catch (TypeDefinitionDeferredException e) {
+            list.add(null);
+            deferredEntries.add(new DeferredEntry<T>(list, list.size() - 1, json, converter));
+        }
+    }
+
+    /**
+     * Converts a JSON list entry.
+     */
+    interface EntryConverter<T> {
+        T convert(Map<String, Object> json, TypeCache typeCache);
+    }
+
+    private static class DeferredEntry<T> {
+        private final List<T> list;
+        private final int index;
+        private final Map<String, Object> json;
+        private final EntryConverter<T> converter;
+
+        DeferredEntry(List<T> list, int index, Map<String, Object> json, EntryConverter<T> converter) {
+            this.list = list;
+            this.index = index;
+            this.json = json;
+            this.converter = converter;
+        }
+
+        void convert(TypeCache typeCache) {
+            list.set(index, converter.convert(json, typeCache));
+        }
+    }
+
+    /**
+     * Signals that a type definition is not at hand.
+     */
+    private static class TypeDefinitionDeferredException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TypeDefinitionDeferredException() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
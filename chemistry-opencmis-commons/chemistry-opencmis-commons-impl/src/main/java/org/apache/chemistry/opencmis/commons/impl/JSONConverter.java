@@ -22,6 +22,8 @@ import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNot
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNullOrEmpty;
 import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.*;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -166,6 +168,12 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionList
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeMutabilityImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamWriter;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONStreamReader;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.Yytoken;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 
 /**
  * OpenCMIS objects to JSON converter.
@@ -1134,15 +1142,7 @@ public final class JSONConverter {
 
         // change event info
         if (object.getChangeEventInfo() != null && propertyMode == PropertyMode.CHANGE) {
-            JSONObject changeEventInfo = new JSONObject();
-
-            ChangeEventInfo cei = object.getChangeEventInfo();
-            changeEventInfo.put(JSON_CHANGE_EVENT_TYPE, getJSONEnumValue(cei.getChangeType()));
-            changeEventInfo.put(JSON_CHANGE_EVENT_TIME, getJSONValue(cei.getChangeTime(), dateTimeFormat));
-
-            convertExtension(object.getChangeEventInfo(), changeEventInfo);
-
-            result.put(JSON_OBJECT_CHANGE_EVENT_INFO, changeEventInfo);
+            result.put(JSON_OBJECT_CHANGE_EVENT_INFO, convert(object.getChangeEventInfo(), dateTimeFormat));
         }
 
         // ACL
@@ -1156,17 +1156,7 @@ public final class JSONConverter {
         // policy ids
         if (object.getPolicyIds() != null && object.getPolicyIds().getPolicyIds() != null
                 && propertyMode != PropertyMode.QUERY) {
-            JSONObject policyIds = new JSONObject();
-            JSONArray ids = new JSONArray();
-            policyIds.put(JSON_OBJECT_POLICY_IDS_IDS, ids);
-
-            for (String pi : object.getPolicyIds().getPolicyIds()) {
-                ids.add(pi);
-            }
-
-            convertExtension(object.getPolicyIds(), policyIds);
-
-            result.put(JSON_OBJECT_POLICY_IDS, policyIds);
+            result.put(JSON_OBJECT_POLICY_IDS, convert(object.getPolicyIds()));
         }
 
         // renditions
@@ -1185,6 +1175,37 @@ public final class JSONConverter {
         return result;
     }
 
+    /**
+     * Converts change event info.
+     */
+    private static JSONObject convert(final ChangeEventInfo changeEventInfo, final DateTimeFormat dateTimeFormat) {
+        JSONObject result = new JSONObject();
+
+        result.put(JSON_CHANGE_EVENT_TYPE, getJSONEnumValue(changeEventInfo.getChangeType()));
+        result.put(JSON_CHANGE_EVENT_TIME, getJSONValue(changeEventInfo.getChangeTime(), dateTimeFormat));
+
+        convertExtension(changeEventInfo, result);
+
+        return result;
+    }
+
+    /**
+     * Converts a policy id list.
+     */
+    private static JSONObject convert(final PolicyIdList policyIdList) {
+        JSONObject result = new JSONObject();
+        JSONArray ids = new JSONArray();
+        result.put(JSON_OBJECT_POLICY_IDS_IDS, ids);
+
+        for (String pi : policyIdList.getPolicyIds()) {
+            ids.add(pi);
+        }
+
+        convertExtension(policyIdList, result);
+
+        return result;
+    }
+
     /**
      * Converts a bag of properties.
      */
@@ -1194,47 +1215,63 @@ public final class JSONConverter {
             return null;
         }
 
-        // get the type
-        TypeDefinition type = null;
+        TypeDefinition type = getTypeDefinition(properties, typeCache);
+
+        JSONObject result = new JSONObject();
+
+        for (PropertyData<?> property : properties.getPropertyList()) {
+            assert property != null;
+            assert property.getId() != null;
+
+            PropertyDefinition<?> propDef = getPropertyDefinition(property, type, objectId, typeCache, propertyMode);
+            result.put(getPropertyKey(property, propertyMode), convert(property, propDef, succinct, dateTimeFormat));
+        }
+
+        return result;
+    }
+
+    private static TypeDefinition getTypeDefinition(final Properties properties, final TypeCache typeCache) {
         if (typeCache != null) {
             PropertyData<?> typeProp = properties.getProperties().get(PropertyIds.OBJECT_TYPE_ID);
             if (typeProp instanceof PropertyId) {
                 String typeId = ((PropertyId) typeProp).getFirstValue();
                 if (typeId != null) {
-                    type = typeCache.getTypeDefinition(typeId);
+                    return typeCache.getTypeDefinition(typeId);
                 }
             }
         }
 
-        JSONObject result = new JSONObject();
+        return null;
+    }
 
-        for (PropertyData<?> property : properties.getPropertyList()) {
-            assert property != null;
-            assert property.getId() != null;
+    private static PropertyDefinition<?> getPropertyDefinition(final PropertyData<?> property,
+            final TypeDefinition type, final String objectId, final TypeCache typeCache,
+            final PropertyMode propertyMode) {
+        PropertyDefinition<?> propDef = null;
+        if (property instanceof PropertyDataWithDefinition) {
+            propDef = ((PropertyDataWithDefinition<?>) property).getPropertyDefinition();
+        }
+        if (propDef == null && typeCache != null) {
+            propDef = typeCache.getPropertyDefinition(property.getId());
+        }
+        if (propDef == null && type != null) {
+            propDef = type.getPropertyDefinitions().get(property.getId());
+        }
+        if (propDef == null && typeCache != null && objectId != null && propertyMode != PropertyMode.CHANGE) {
+            typeCache.getTypeDefinitionForObject(objectId);
+            propDef = typeCache.getPropertyDefinition(property.getId());
+        }
 
-            PropertyDefinition<?> propDef = null;
-            if (property instanceof PropertyDataWithDefinition) {
-                propDef = ((PropertyDataWithDefinition<?>) property).getPropertyDefinition();
-            }
-            if (propDef == null && typeCache != null) {
-                propDef = typeCache.getPropertyDefinition(property.getId());
-            }
-            if (propDef == null && type != null) {
-                propDef = type.getPropertyDefinitions().get(property.getId());
-            }
-            if (propDef == null && typeCache != null && objectId != null && propertyMode != PropertyMode.CHANGE) {
-                typeCache.getTypeDefinitionForObject(objectId);
-                propDef = typeCache.getPropertyDefinition(property.getId());
-            }
+        return propDef;
+    }
 
-            String propId = (propertyMode == PropertyMode.QUERY ? property.getQueryName() : property.getId());
-            if (propId == null) {
-                throw new CmisRuntimeException("No query name or alias for property '" + property.getId() + "'!");
-            }
-            result.put(propId, convert(property, propDef, succinct, dateTimeFormat));
+    private static String getPropertyKey(final PropertyData<?> property, final PropertyMode propertyMode) {
+        String propId = (propertyMode == PropertyMode.QUERY ? property.getQueryName() : property.getId());
+        if (propId == null) {
+            throw new CmisRuntimeException("No query name or alias for property '" + property.getId() + "'!");
         }
 
-        return result;
+        return propId;
     }
 
     /**
@@ -1521,6 +1558,302 @@ public final class JSONConverter {
         return result;
     }
 
+    // -----------------------------------------------------------------
+
+    /**
+     * Returns a writer for a query object list that streams the list
+     * instead of building the JSON tree in memory. The output is the same as
+     * the output of {@link #convert(ObjectList, TypeCache, PropertyMode, boolean, DateTimeFormat)}.
+     */
+    public static JSONStreamAware stream(final ObjectList list, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return new JSONStreamAware() {
+            @Override
+            public void writeJSONString(Writer out) throws IOException {
+                write(list, typeCache, propertyMode, succinct, dateTimeFormat, new JSONStreamWriter(out));
+            }
+        };
+    }
+
+    /**
+     * Returns a writer for a folder list that streams the list instead of
+     * building the JSON tree in memory. The output is the same as the output
+     * of {@link #convert(ObjectInFolderList, TypeCache, boolean, DateTimeFormat)}.
+     */
+    public static JSONStreamAware stream(final ObjectInFolderList objectInFolderList, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return new JSONStreamAware() {
+            @Override
+            public void writeJSONString(Writer out) throws IOException {
+                write(objectInFolderList, typeCache, succinct, dateTimeFormat, new JSONStreamWriter(out));
+            }
+        };
+    }
+
+    /**
+     * Returns a writer for a list of folder containers that streams the trees
+     * instead of building the JSON tree in memory. The output is the same as
+     * the output of a JSON array of
+     * {@link #convert(ObjectInFolderContainer, TypeCache, boolean, DateTimeFormat)}
+     * results.
+     */
+    public static JSONStreamAware stream(final List<ObjectInFolderContainer> containers, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        return new JSONStreamAware() {
+            @Override
+            public void writeJSONString(Writer out) throws IOException {
+                JSONStreamWriter writer = new JSONStreamWriter(out);
+                if (containers == null) {
+                    writer.value(null);
+                    return;
+                }
+
+                writer.beginArray();
+                for (ObjectInFolderContainer container : containers) {
+                    write(container, typeCache, succinct, dateTimeFormat, writer);
+                }
+                writer.endArray();
+            }
+        };
+    }
+
+    /**
+     * Writes an object.
+     * <p>
+     * Only the properties and the small parts of the object (allowable
+     * actions, ACL, ...) are converted to JSON objects before they are
+     * written. Extensions must not reuse the names of the standard members.
+     */
+    public static void write(final ObjectData object, final TypeCache typeCache, final PropertyMode propertyMode,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final JSONStreamWriter writer)
+            throws IOException {
+        if (object == null) {
+            writer.value(null);
+            return;
+        }
+
+        writer.beginObject();
+
+        // properties
+        if (object.getProperties() != null) {
+            writer.name(succinct ? JSON_OBJECT_SUCCINCT_PROPERTIES : JSON_OBJECT_PROPERTIES);
+            write(object.getProperties(), object.getId(), typeCache, propertyMode, succinct, dateTimeFormat, writer);
+
+            JSONObject propertiesExtension = new JSONObject();
+            convertExtension(object.getProperties(), propertiesExtension);
+            if (!propertiesExtension.isEmpty()) {
+                writer.property(JSON_OBJECT_PROPERTIES_EXTENSION, propertiesExtension);
+            }
+        }
+
+        // allowable actions
+        if (object.getAllowableActions() != null) {
+            writer.property(JSON_OBJECT_ALLOWABLE_ACTIONS, convert(object.getAllowableActions()));
+        }
+
+        // relationships
+        if (isNotEmpty(object.getRelationships())) {
+            writer.name(JSON_OBJECT_RELATIONSHIPS).beginArray();
+            for (ObjectData relationship : object.getRelationships()) {
+                write(relationship, typeCache, propertyMode, succinct, dateTimeFormat, writer);
+            }
+            writer.endArray();
+        }
+
+        // change event info
+        if (object.getChangeEventInfo() != null && propertyMode == PropertyMode.CHANGE) {
+            writer.property(JSON_OBJECT_CHANGE_EVENT_INFO, convert(object.getChangeEventInfo(), dateTimeFormat));
+        }
+
+        // ACL
+        if (object.getAcl() != null && object.getAcl().getAces() != null && propertyMode != PropertyMode.QUERY) {
+            writer.property(JSON_OBJECT_ACL, convert(object.getAcl()));
+        }
+        if (propertyMode != PropertyMode.QUERY) {
+            writer.propertyIfNotNull(JSON_OBJECT_EXACT_ACL, object.isExactAcl());
+        }
+
+        // policy ids
+        if (object.getPolicyIds() != null && object.getPolicyIds().getPolicyIds() != null
+                && propertyMode != PropertyMode.QUERY) {
+            writer.property(JSON_OBJECT_POLICY_IDS, convert(object.getPolicyIds()));
+        }
+
+        // renditions
+        if (isNotEmpty(object.getRenditions())) {
+            writer.name(JSON_OBJECT_RENDITIONS).beginArray();
+            for (RenditionData rendition : object.getRenditions()) {
+                writer.value(convert(rendition));
+            }
+            writer.endArray();
+        }
+
+        writeExtension(object, writer);
+
+        writer.endObject();
+    }
+
+    /**
+     * Writes a bag of properties.
+     * <p>
+     * If two properties map to the same name, the last one is written at the
+     * position of the first one.
+     */
+    public static void write(final Properties properties, final String objectId, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct, final DateTimeFormat dateTimeFormat,
+            final JSONStreamWriter writer) throws IOException {
+        if (properties == null) {
+            writer.value(null);
+            return;
+        }
+
+        TypeDefinition type = getTypeDefinition(properties, typeCache);
+
+        Map<String, PropertyData<?>> propertyMap = new LinkedHashMap<String, PropertyData<?>>();
+        for (PropertyData<?> property : properties.getPropertyList()) {
+            assert property != null;
+            assert property.getId() != null;
+
+            propertyMap.put(getPropertyKey(property, propertyMode), property);
+        }
+
+        writer.beginObject();
+        for (Map.Entry<String, PropertyData<?>> entry : propertyMap.entrySet()) {
+            PropertyData<?> property = entry.getValue();
+            PropertyDefinition<?> propDef = getPropertyDefinition(property, type, objectId, typeCache, propertyMode);
+            writer.property(entry.getKey(), convert(property, propDef, succinct, dateTimeFormat));
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Writes a query object list.
+     */
+    public static void write(final ObjectList list, final TypeCache typeCache, final PropertyMode propertyMode,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final JSONStreamWriter writer)
+            throws IOException {
+        if (list == null) {
+            writer.value(null);
+            return;
+        }
+
+        boolean query = (propertyMode == PropertyMode.QUERY);
+
+        writer.beginObject();
+
+        writer.name(query ? JSON_QUERYRESULTLIST_RESULTS : JSON_OBJECTLIST_OBJECTS).beginArray();
+        if (list.getObjects() != null) {
+            for (ObjectData object : list.getObjects()) {
+                write(object, typeCache, propertyMode, succinct, dateTimeFormat, writer);
+            }
+        }
+        writer.endArray();
+
+        writer.propertyIfNotNull(query ? JSON_QUERYRESULTLIST_HAS_MORE_ITEMS : JSON_OBJECTLIST_HAS_MORE_ITEMS,
+                list.hasMoreItems());
+        writer.propertyIfNotNull(query ? JSON_QUERYRESULTLIST_NUM_ITEMS : JSON_OBJECTLIST_NUM_ITEMS,
+                list.getNumItems());
+
+        writeExtension(list, writer);
+
+        writer.endObject();
+    }
+
+    /**
+     * Writes an object in a folder list.
+     */
+    public static void write(final ObjectInFolderData objectInFolder, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final JSONStreamWriter writer)
+            throws IOException {
+        if ((objectInFolder == null) || (objectInFolder.getObject() == null)) {
+            writer.value(null);
+            return;
+        }
+
+        writer.beginObject();
+
+        writer.name(JSON_OBJECTINFOLDER_OBJECT);
+        write(objectInFolder.getObject(), typeCache, PropertyMode.OBJECT, succinct, dateTimeFormat, writer);
+        writer.propertyIfNotNull(JSON_OBJECTINFOLDER_PATH_SEGMENT, objectInFolder.getPathSegment());
+
+        writeExtension(objectInFolder, writer);
+
+        writer.endObject();
+    }
+
+    /**
+     * Writes a folder list.
+     */
+    public static void write(final ObjectInFolderList objectInFolderList, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final JSONStreamWriter writer)
+            throws IOException {
+        if (objectInFolderList == null) {
+            writer.value(null);
+            return;
+        }
+
+        writer.beginObject();
+
+        if (objectInFolderList.getObjects() != null) {
+            writer.name(JSON_OBJECTINFOLDERLIST_OBJECTS).beginArray();
+            for (ObjectInFolderData object : objectInFolderList.getObjects()) {
+                write(object, typeCache, succinct, dateTimeFormat, writer);
+            }
+            writer.endArray();
+        }
+
+        writer.propertyIfNotNull(JSON_OBJECTINFOLDERLIST_HAS_MORE_ITEMS, objectInFolderList.hasMoreItems());
+        writer.propertyIfNotNull(JSON_OBJECTINFOLDERLIST_NUM_ITEMS, objectInFolderList.getNumItems());
+
+        writeExtension(objectInFolderList, writer);
+
+        writer.endObject();
+    }
+
+    /**
+     * Writes a folder container.
+     */
+    public static void write(final ObjectInFolderContainer container, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat, final JSONStreamWriter writer)
+            throws IOException {
+        if (container == null) {
+            writer.value(null);
+            return;
+        }
+
+        writer.beginObject();
+
+        writer.name(JSON_OBJECTINFOLDERCONTAINER_OBJECT);
+        write(container.getObject(), typeCache, succinct, dateTimeFormat, writer);
+
+        if (isNotEmpty(container.getChildren())) {
+            writer.name(JSON_OBJECTINFOLDERCONTAINER_CHILDREN).beginArray();
+            for (ObjectInFolderContainer descendant : container.getChildren()) {
+                write(descendant, typeCache, succinct, dateTimeFormat, writer);
+            }
+            writer.endArray();
+        }
+
+        writeExtension(container, writer);
+
+        writer.endObject();
+    }
+
+    private static void writeExtension(final ExtensionsData source, final JSONStreamWriter writer)
+            throws IOException {
+        if (source == null || source.getExtensions() == null) {
+            return;
+        }
+
+        JSONObject extensions = new JSONObject();
+        convertExtension(source, extensions);
+        for (Map.Entry<String, Object> entry : extensions.entrySet()) {
+            writer.property(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // -----------------------------------------------------------------
+
     /**
      * Converts an object parent.
      */
@@ -2444,16 +2777,82 @@ public final class JSONConverter {
             return null;
         }
 
+        return convertObjectInFolderList(json, new ArrayList<ObjectInFolderData>(), typeCache);
+    }
+
+    private static final DeferringTypeCache.EntryConverter<ObjectData> OBJECT_CONVERTER = new DeferringTypeCache.EntryConverter<ObjectData>() {
+        @Override
+        public ObjectData convert(Map<String, Object> json, TypeCache typeCache) {
+            return convertObject(json, typeCache);
+        }
+    };
+
+    private static final DeferringTypeCache.EntryConverter<ObjectInFolderData> OBJECT_IN_FOLDER_CONVERTER = new DeferringTypeCache.EntryConverter<ObjectInFolderData>() {
+        @Override
+        public ObjectInFolderData convert(Map<String, Object> json, TypeCache typeCache) {
+            return convertObjectInFolder(json, typeCache);
+        }
+    };
+
+    /**
+     * Converts a list entry. A {@link DeferringTypeCache} may postpone the
+     * conversion until the missing type definitions have been fetched.
+     */
+    private static <T> void addEntry(final List<T> list, final Map<String, Object> json, final TypeCache typeCache,
+            final DeferringTypeCache.EntryConverter<T> converter) {
+        if (typeCache instanceof DeferringTypeCache) {
+            ((DeferringTypeCache) typeCache).add(list, json, converter);
+        } else {
+            list.add(converter.convert(json, typeCache));
+        }
+    }
+
+    /**
+     * Converts a folder list directly from a JSON stream. The entries of the
+     * list are converted one by one while they are read, so that the JSON
+     * tree of the whole list is never held in memory.
+     */
+    public static ObjectInFolderList convertObjectInFolderList(final JSONStreamReader reader,
+            final TypeCache typeCache) throws IOException, JSONParseException {
+        if (reader.peek() != Yytoken.TYPE_LEFT_BRACE) {
+            return convertObjectInFolderList(getMap(reader.readValue()), typeCache);
+        }
+
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (JSON_OBJECTINFOLDERLIST_OBJECTS.equals(key) && reader.peek() == Yytoken.TYPE_LEFT_SQUARE) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Map<String, Object> jsonObject = getMap(reader.readValue());
+                    if (jsonObject != null) {
+                        addEntry(objects, jsonObject, typeCache, OBJECT_IN_FOLDER_CONVERTER);
+                    }
+                }
+                reader.endArray();
+            } else {
+                json.put(key, reader.readValue());
+            }
+        }
+        reader.endObject();
+
+        return convertObjectInFolderList(json, objects, typeCache);
+    }
+
+    private static ObjectInFolderList convertObjectInFolderList(final Map<String, Object> json,
+            final List<ObjectInFolderData> objects, final TypeCache typeCache) {
         ObjectInFolderListImpl result = new ObjectInFolderListImpl();
 
         List<Object> jsonChildren = getList(json.get(JSON_OBJECTINFOLDERLIST_OBJECTS));
-        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
 
         if (jsonChildren != null) {
             for (Object obj : jsonChildren) {
                 Map<String, Object> jsonObject = getMap(obj);
                 if (jsonObject != null) {
-                    objects.add(convertObjectInFolder(jsonObject, typeCache));
+                    addEntry(objects, jsonObject, typeCache, OBJECT_IN_FOLDER_CONVERTER);
                 }
             }
         }
@@ -2571,17 +2970,69 @@ public final class JSONConverter {
             return null;
         }
 
+        return convertObjectList(json, new ArrayList<ObjectData>(), typeCache, isQueryResult);
+    }
+
+    /**
+     * Converts an object list directly from a JSON stream. The objects are
+     * converted one by one while they are read, so that the JSON tree of the
+     * whole list is never held in memory.
+     * 
+     * @param changeLogToken
+     *            if not {@code null}, receives the change log token of a
+     *            content changes list
+     */
+    public static ObjectList convertObjectList(final JSONStreamReader reader, final TypeCache typeCache,
+            final boolean isQueryResult, final Holder<String> changeLogToken) throws IOException,
+            JSONParseException {
+        if (reader.peek() != Yytoken.TYPE_LEFT_BRACE) {
+            return convertObjectList(getMap(reader.readValue()), typeCache, isQueryResult);
+        }
+
+        String objectsKey = (isQueryResult ? JSON_QUERYRESULTLIST_RESULTS : JSON_OBJECTLIST_OBJECTS);
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (objectsKey.equals(key) && reader.peek() == Yytoken.TYPE_LEFT_SQUARE) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Map<String, Object> jsonObject = getMap(reader.readValue());
+                    if (jsonObject != null) {
+                        addEntry(objects, jsonObject, typeCache, OBJECT_CONVERTER);
+                    }
+                }
+                reader.endArray();
+            } else {
+                json.put(key, reader.readValue());
+            }
+        }
+        reader.endObject();
+
+        if (changeLogToken != null) {
+            Object token = json.get(JSON_OBJECTLIST_CHANGE_LOG_TOKEN);
+            if (token instanceof String) {
+                changeLogToken.setValue((String) token);
+            }
+        }
+
+        return convertObjectList(json, objects, typeCache, isQueryResult);
+    }
+
+    private static ObjectList convertObjectList(final Map<String, Object> json, final List<ObjectData> objects,
+            final TypeCache typeCache, final boolean isQueryResult) {
         ObjectListImpl result = new ObjectListImpl();
 
         List<Object> jsonChildren = getList(json.get(isQueryResult ? JSON_QUERYRESULTLIST_RESULTS
                 : JSON_OBJECTLIST_OBJECTS));
-        List<ObjectData> objects = new ArrayList<ObjectData>();
 
         if (jsonChildren != null) {
             for (Object obj : jsonChildren) {
                 Map<String, Object> jsonObject = getMap(obj);
                 if (jsonObject != null) {
-                    objects.add(convertObject(jsonObject, typeCache));
+                    addEntry(objects, jsonObject, typeCache, OBJECT_CONVERTER);
                 }
             }
         }
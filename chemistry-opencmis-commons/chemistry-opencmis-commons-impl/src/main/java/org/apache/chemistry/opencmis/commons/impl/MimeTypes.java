@@ -20,8 +20,10 @@ package org.apache.chemistry.opencmis.commons.impl;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.activation.MimetypesFileTypeMap;
 
@@ -29,12 +31,20 @@ import javax.activation.MimetypesFileTypeMap;
 public final class MimeTypes {
 
     private static final String OCTET_STREAM = "application/octet-stream";
-    private static final MimetypesFileTypeMap TYPE_MAP = new MimetypesFileTypeMap();
     private static final Map<String, String> MIME2EXT = new HashMap<String, String>();
+    private static final Set<String> COMPRESSED = new HashSet<String>();
 
     private MimeTypes() {
     }
 
+    /**
+     * Creates the type map on first use, so that {@link #isCompressible(String)}
+     * doesn't depend on the Java Activation Framework.
+     */
+    private static final class TypeMapHolder {
+        static final MimetypesFileTypeMap TYPE_MAP = new MimetypesFileTypeMap();
+    }
+
     static {
         // MIME type to extension
         MIME2EXT.put("application/octet-stream", "");
@@ -213,6 +223,28 @@ public final class MimeTypes {
         MIME2EXT.put("video/x-msvideo", "avi");
         MIME2EXT.put("video/x-sgi-movie", "movie");
         MIME2EXT.put("x-world/x-vrml", "vrml");
+
+        // MIME types of formats that are already compressed
+        COMPRESSED.add("application/epub+zip");
+        COMPRESSED.add("application/gzip");
+        COMPRESSED.add("application/java-archive");
+        COMPRESSED.add("application/pdf");
+        COMPRESSED.add("application/vnd.android.package-archive");
+        COMPRESSED.add("application/vnd.rar");
+        COMPRESSED.add("application/x-7z-compressed");
+        COMPRESSED.add("application/x-bzip");
+        COMPRESSED.add("application/x-bzip2");
+        COMPRESSED.add("application/x-compress");
+        COMPRESSED.add("application/x-compressed");
+        COMPRESSED.add("application/x-gzip");
+        COMPRESSED.add("application/x-rar-compressed");
+        COMPRESSED.add("application/x-shockwave-flash");
+        COMPRESSED.add("application/x-xz");
+        COMPRESSED.add("application/x-zip-compressed");
+        COMPRESSED.add("application/zip");
+        COMPRESSED.add("application/zstd");
+        COMPRESSED.add("font/woff");
+        COMPRESSED.add("font/woff2");
     }
 
     /**
@@ -228,7 +260,7 @@ public final class MimeTypes {
             ext = ext.substring(x + 1);
         }
 
-        return TYPE_MAP.getContentType("x." + ext.toLowerCase(Locale.ENGLISH));
+        return TypeMapHolder.TYPE_MAP.getContentType("x." + ext.toLowerCase(Locale.ENGLISH));
     }
 
     /**
@@ -239,7 +271,42 @@ public final class MimeTypes {
             return OCTET_STREAM;
         }
 
-        return TYPE_MAP.getContentType(file);
+        return TypeMapHolder.TYPE_MAP.getContentType(file);
+    }
+
+    /**
+     * Returns whether content of the given MIME type is worth compressing.
+     * <p>
+     * Images, audio and video formats, archives, PDF and office formats that
+     * are ZIP containers are already compressed. All other types, including
+     * unknown types, are considered compressible. SVG and BMP images and WAV
+     * audio are not compressed formats and therefore compressible, too.
+     */
+    public static boolean isCompressible(String mimeType) {
+        if (mimeType == null) {
+            return true;
+        }
+
+        int x = mimeType.indexOf(';');
+        if (x > -1) {
+            mimeType = mimeType.substring(0, x);
+        }
+        mimeType = mimeType.trim().toLowerCase(Locale.ENGLISH);
+
+        if (mimeType.startsWith("image/")) {
+            return mimeType.equals("image/svg+xml") || mimeType.equals("image/bmp")
+                    || mimeType.equals("image/x-ms-bmp");
+        }
+        if (mimeType.startsWith("audio/") || mimeType.startsWith("video/")) {
+            return mimeType.equals("audio/wav") || mimeType.equals("audio/x-wav");
+        }
+        if (mimeType.startsWith("application/vnd.openxmlformats-officedocument.")
+                || mimeType.startsWith("application/vnd.oasis.opendocument.")
+                || (mimeType.startsWith("application/vnd.ms-") && mimeType.endsWith(".macroenabled.12"))) {
+            return false;
+        }
+
+        return !COMPRESSED.contains(mimeType);
     }
 
     /**
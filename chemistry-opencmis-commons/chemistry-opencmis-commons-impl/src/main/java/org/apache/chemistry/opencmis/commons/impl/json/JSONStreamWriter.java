@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON text token by token to a writer without building a
+ * {@link JSONObject} or {@link JSONArray} tree first.
+ * <p>
+ * The output is the same as {@link JSONValue#writeJSONString(Object, Writer)}
+ * would produce for the equivalent tree. Values can be mixed freely: a value
+ * may be any object supported by {@link JSONValue}, including small
+ * {@link JSONObject} and {@link JSONArray} sub trees.
+ * <p>
+ * The writer does not validate the structure. The caller is responsible for
+ * balancing {@code begin} and {@code end} calls and for calling
+ * {@link #name(String)} before each value inside of an object.
+ */
+public class JSONStreamWriter {
+
+    private final Writer out;
+    private boolean needsComma = false;
+    private boolean afterName = false;
+
+    public JSONStreamWriter(Writer out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Writer must be set!");
+        }
+
+        this.out = out;
+    }
+
+    /**
+     * Starts a JSON object.
+     */
+    public JSONStreamWriter beginObject() throws IOException {
+        beginValue();
+        out.write('{');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     */
+    public JSONStreamWriter endObject() throws IOException {
+        out.write('}');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Starts a JSON array.
+     */
+    public JSONStreamWriter beginArray() throws IOException {
+        beginValue();
+        out.write('[');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     */
+    public JSONStreamWriter endArray() throws IOException {
+        out.write(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current JSON object.
+     */
+    public JSONStreamWriter name(String name) throws IOException {
+        if (needsComma) {
+            out.write(',');
+        }
+
+        out.write('\"');
+        if (name == null) {
+            out.write("null");
+        } else {
+            out.write(JSONValue.escape(name));
+        }
+        out.write('\"');
+        out.write(':');
+
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a value.
+     */
+    public JSONStreamWriter value(Object value) throws IOException {
+        beginValue();
+        JSONValue.writeJSONString(value, out);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a member of the current JSON object.
+     */
+    public JSONStreamWriter property(String name, Object value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a member of the current JSON object if the value is not
+     * {@code null}.
+     */
+    public JSONStreamWriter propertyIfNotNull(String name, Object value) throws IOException {
+        if (value != null) {
+            property(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void beginValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (needsComma) {
+            out.write(',');
+        }
+    }
+}
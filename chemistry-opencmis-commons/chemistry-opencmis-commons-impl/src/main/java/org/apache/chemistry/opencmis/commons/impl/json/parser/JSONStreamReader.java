@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+
+/**
+ * Pull parser for JSON text.
+ * <p>
+ * The caller walks through the document with {@link #beginObject()},
+ * {@link #nextName()}, {@link #beginArray()}, {@link #hasNext()} and so on and
+ * decides for each value whether it should be read as a whole with
+ * {@link #readValue()}. That allows processing large arrays element by element
+ * without building a tree for the whole document.
+ * <p>
+ * Like {@link JSONParser}, the reader is lenient about commas.
+ */
+public class JSONStreamReader {
+
+    private final Yylex lexer;
+    private final ContainerFactory containerFactory;
+    private Yytoken peeked = null;
+
+    /**
+     * Creates a reader that creates {@link JSONObject} and {@link JSONArray}
+     * containers.
+     */
+    public JSONStreamReader(Reader in) {
+        this(in, null);
+    }
+
+    /**
+     * Creates a reader that creates the containers for
+     * {@link #readValue()} with the given factory.
+     */
+    public JSONStreamReader(Reader in, ContainerFactory containerFactory) {
+        this.lexer = new Yylex(in);
+        this.containerFactory = containerFactory;
+    }
+
+    /**
+     * Returns the type of the next token without consuming it.
+     *
+     * @return one of the {@code Yytoken.TYPE_*} constants, but never
+     *         {@link Yytoken#TYPE_COMMA}
+     */
+    public int peek() throws IOException, JSONParseException {
+        if (peeked == null) {
+            do {
+                peeked = lexer.yylex();
+                if (peeked == null) {
+                    peeked = new Yytoken(Yytoken.TYPE_EOF, null);
+                }
+            } while (peeked.type == Yytoken.TYPE_COMMA);
+        }
+
+        return peeked.type;
+    }
+
+    /**
+     * Returns {@code true} if the current object or array has more members.
+     */
+    public boolean hasNext() throws IOException, JSONParseException {
+        int type = peek();
+        return type != Yytoken.TYPE_RIGHT_BRACE && type != Yytoken.TYPE_RIGHT_SQUARE && type != Yytoken.TYPE_EOF;
+    }
+
+    /**
+     * Consumes the start of an object.
+     */
+    public void beginObject() throws IOException, JSONParseException {
+        expect(Yytoken.TYPE_LEFT_BRACE);
+    }
+
+    /**
+     * Consumes the end of an object.
+     */
+    public void endObject() throws IOException, JSONParseException {
+        expect(Yytoken.TYPE_RIGHT_BRACE);
+    }
+
+    /**
+     * Consumes the start of an array.
+     */
+    public void beginArray() throws IOException, JSONParseException {
+        expect(Yytoken.TYPE_LEFT_SQUARE);
+    }
+
+    /**
+     * Consumes the end of an array.
+     */
+    public void endArray() throws IOException, JSONParseException {
+        expect(Yytoken.TYPE_RIGHT_SQUARE);
+    }
+
+    /**
+     * Consumes the name of the next object member.
+     */
+    public String nextName() throws IOException, JSONParseException {
+        Yytoken token = expect(Yytoken.TYPE_VALUE);
+        if (!(token.value instanceof String)) {
+            throw unexpected(token);
+        }
+        expect(Yytoken.TYPE_COLON);
+
+        return (String) token.value;
+    }
+
+    /**
+     * Consumes the next value, including all nested objects and arrays.
+     *
+     * @return a {@code Map}, a {@code List}, a {@code String}, a
+     *         {@code Number}, a {@code Boolean} or {@code null}
+     */
+    public Object readValue() throws IOException, JSONParseException {
+        Yytoken token = next();
+        switch (token.type) {
+        case Yytoken.TYPE_VALUE:
+            return token.value;
+        case Yytoken.TYPE_LEFT_BRACE:
+            Map<String, Object> map = createObjectContainer();
+            while (hasNext()) {
+                String key = nextName();
+                map.put(key, readValue());
+            }
+            endObject();
+            return map;
+        case Yytoken.TYPE_LEFT_SQUARE:
+            List<Object> list = createArrayContainer();
+            while (hasNext()) {
+                list.add(readValue());
+            }
+            endArray();
+            return list;
+        default:
+            throw unexpected(token);
+        }
+    }
+
+    /**
+     * Consumes the end of the document. Fails if there is more content.
+     */
+    public void endDocument() throws IOException, JSONParseException {
+        expect(Yytoken.TYPE_EOF);
+    }
+
+    /**
+     * @return the position of the beginning of the current token
+     */
+    public int getPosition() {
+        return lexer.getPosition();
+    }
+
+    private Yytoken next() throws IOException, JSONParseException {
+        peek();
+        Yytoken token = peeked;
+        peeked = null;
+        return token;
+    }
+
+    private Yytoken expect(int type) throws IOException, JSONParseException {
+        Yytoken token = next();
+        if (token.type != type) {
+            throw unexpected(token);
+        }
+
+        return token;
+    }
+
+    private JSONParseException unexpected(Yytoken token) {
+        return new JSONParseException(getPosition(), JSONParseException.ERROR_UNEXPECTED_TOKEN, token);
+    }
+
+    private Map<String, Object> createObjectContainer() {
+        Map<String, Object> m = (containerFactory == null ? null : containerFactory.createObjectContainer());
+        return m == null ? new JSONObject() : m;
+    }
+
+    private List<Object> createArrayContainer() {
+        List<Object> l = (containerFactory == null ? null : containerFactory.creatArrayContainer());
+        return l == null ? new JSONArray() : l;
+    }
+}
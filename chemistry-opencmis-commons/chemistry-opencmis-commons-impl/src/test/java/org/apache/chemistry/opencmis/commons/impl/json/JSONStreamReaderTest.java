@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.impl.DeferringTypeCache;
+import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractTypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONStreamReader;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.junit.Test;
+
+public class JSONStreamReaderTest {
+
+    @Test
+    public void testReader() throws Exception {
+        JSONStreamReader reader = new JSONStreamReader(new StringReader(
+                "{\"a\":[1,\"x\",null,{\"b\":true}],\"c\":{}}"));
+
+        reader.beginObject();
+        assertTrue(reader.hasNext());
+        assertEquals("a", reader.nextName());
+        reader.beginArray();
+        assertEquals(BigInteger.ONE, reader.readValue());
+        assertEquals("x", reader.readValue());
+        assertEquals(null, reader.readValue());
+        assertEquals(true, ((Map<?, ?>) reader.readValue()).get("b"));
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("c", reader.nextName());
+        assertTrue(((Map<?, ?>) reader.readValue()).isEmpty());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        reader.endDocument();
+
+        reader = new JSONStreamReader(new StringReader("[1}"));
+        reader.beginArray();
+        reader.readValue();
+        try {
+            reader.endArray();
+            fail("Unbalanced document accepted!");
+        } catch (JSONParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testObjectList() throws Exception {
+        ObjectListImpl list = new ObjectListImpl();
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 3; i++) {
+            objects.add(createObject("id" + i));
+        }
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.TRUE);
+        list.setNumItems(BigInteger.valueOf(3));
+        list.setExtensions(createExtensions());
+
+        for (PropertyMode mode : new PropertyMode[] { PropertyMode.OBJECT, PropertyMode.QUERY }) {
+            boolean isQueryResult = (mode == PropertyMode.QUERY);
+            JSONObject json = JSONConverter.convert(list, null, mode, false, DateTimeFormat.SIMPLE);
+            if (!isQueryResult) {
+                json.put(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN, "token");
+            }
+            String text = json.toJSONString();
+
+            ObjectList expected = JSONConverter.convertObjectList(parse(text), null, isQueryResult);
+            Holder<String> token = new Holder<String>();
+            ObjectList actual = JSONConverter.convertObjectList(new JSONStreamReader(new StringReader(text)), null,
+                    isQueryResult, token);
+
+            assertEquals(JSONConverter.convert(expected, null, mode, false, DateTimeFormat.SIMPLE).toJSONString(),
+                    JSONConverter.convert(actual, null, mode, false, DateTimeFormat.SIMPLE).toJSONString());
+            assertEquals(isQueryResult ? null : "token", token.getValue());
+        }
+    }
+
+    @Test
+    public void testObjectInFolderList() throws Exception {
+        ObjectInFolderListImpl list = new ObjectInFolderListImpl();
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        for (int i = 0; i < 3; i++) {
+            ObjectInFolderDataImpl object = new ObjectInFolderDataImpl(createObject("id" + i));
+            object.setPathSegment("segment" + i);
+            objects.add(object);
+        }
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.FALSE);
+        list.setExtensions(createExtensions());
+
+        String text = JSONConverter.convert(list, null, false, DateTimeFormat.SIMPLE).toJSONString();
+
+        ObjectInFolderList expected = JSONConverter.convertObjectInFolderList(parse(text), null);
+        ObjectInFolderList actual = JSONConverter.convertObjectInFolderList(new JSONStreamReader(new StringReader(
+                text)), null);
+
+        assertEquals(3, actual.getObjects().size());
+        assertEquals(JSONConverter.convert(expected, null, false, DateTimeFormat.SIMPLE).toJSONString(),
+                JSONConverter.convert(actual, null, false, DateTimeFormat.SIMPLE).toJSONString());
+    }
+
+    @Test
+    public void testDeferredTypeDefinitions() throws Exception {
+        final Map<String, TypeDefinition> repositoryTypes = new HashMap<String, TypeDefinition>();
+        repositoryTypes.put("cmis:document", createType(new DocumentTypeDefinitionImpl(), "cmis:document"));
+        repositoryTypes.put("cmis:folder", createType(new FolderTypeDefinitionImpl(), "cmis:folder"));
+        repositoryTypes.put("custom", createType(new DocumentTypeDefinitionImpl(), "custom"));
+
+        final Map<String, TypeDefinition> cachedTypes = new HashMap<String, TypeDefinition>();
+        cachedTypes.put("cmis:document", repositoryTypes.get("cmis:document"));
+        cachedTypes.put("cmis:folder", repositoryTypes.get("cmis:folder"));
+
+        final List<String> fetched = new ArrayList<String>();
+        TypeCache typeCache = new TypeCache() {
+            @Override
+            public TypeDefinition getTypeDefinition(String typeId) {
+                TypeDefinition type = cachedTypes.get(typeId);
+                if (type == null) {
+                    fetched.add(typeId);
+                    type = repositoryTypes.get(typeId);
+                    cachedTypes.put(typeId, type);
+                }
+                return type;
+            }
+
+            @Override
+            public TypeDefinition reloadTypeDefinition(String typeId) {
+                fetched.add(typeId);
+                return repositoryTypes.get(typeId);
+            }
+
+            @Override
+            public TypeDefinition getTypeDefinitionForObject(String objectId) {
+                return null;
+            }
+
+            @Override
+            public PropertyDefinition<?> getPropertyDefinition(String propId) {
+                return null;
+            }
+        };
+
+        DeferringTypeCache deferringTypeCache = new DeferringTypeCache(typeCache) {
+            @Override
+            protected TypeDefinition getCachedTypeDefinition(String typeId) {
+                return cachedTypes.get(typeId);
+            }
+        };
+
+        String text = "{\"objects\":[" + createSuccinctEntry("id0", "cmis:document") + ","
+                + createSuccinctEntry("id1", "custom") + "," + createSuccinctEntry("id2", "custom") + ","
+                + createSuccinctEntry("id3", "cmis:document") + "],\"hasMoreItems\":false}";
+
+        ObjectInFolderList list = JSONConverter.convertObjectInFolderList(new JSONStreamReader(new StringReader(
+                text)), deferringTypeCache);
+
+        // nothing is fetched while the stream is read
+        assertTrue(fetched.isEmpty());
+        assertTrue(deferringTypeCache.hasDeferredEntries());
+        assertEquals(4, list.getObjects().size());
+        assertNotNull(list.getObjects().get(0));
+        assertNull(list.getObjects().get(1));
+        assertNull(list.getObjects().get(2));
+        assertNotNull(list.getObjects().get(3));
+
+        deferringTypeCache.convertDeferred();
+
+        assertEquals(Collections.singletonList("custom"), fetched);
+        assertFalse(deferringTypeCache.hasDeferredEntries());
+        for (int i = 0; i < 4; i++) {
+            ObjectInFolderData entry = list.getObjects().get(i);
+            assertEquals("id" + i, entry.getObject().getId());
+            assertEquals("segment" + i, entry.getPathSegment());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parse(String text) throws JSONParseException {
+        return (Map<String, Object>) new JSONParser().parse(text);
+    }
+
+    private static ObjectData createObject(String id) {
+        PropertiesImpl properties = new PropertiesImpl();
+        PropertyIdImpl idProperty = new PropertyIdImpl(PropertyIds.OBJECT_ID, id);
+        idProperty.setQueryName(PropertyIds.OBJECT_ID);
+        properties.addProperty(idProperty);
+        PropertyStringImpl nameProperty = new PropertyStringImpl(PropertyIds.NAME, "name " + id);
+        nameProperty.setQueryName(PropertyIds.NAME);
+        properties.addProperty(nameProperty);
+
+        ObjectDataImpl result = new ObjectDataImpl();
+        result.setProperties(properties);
+        result.setExtensions(createExtensions());
+        return result;
+    }
+
+    private static TypeDefinition createType(AbstractTypeDefinition type, String id) {
+        type.setId(id);
+        for (String propId : new String[] { PropertyIds.OBJECT_ID, PropertyIds.OBJECT_TYPE_ID }) {
+            PropertyIdDefinitionImpl propDef = new PropertyIdDefinitionImpl();
+            propDef.setId(propId);
+            propDef.setPropertyType(PropertyType.ID);
+            propDef.setCardinality(Cardinality.SINGLE);
+            type.addPropertyDefinition(propDef);
+        }
+        return type;
+    }
+
+    private static String createSuccinctEntry(String id, String typeId) {
+        return "{\"object\":{\"succinctProperties\":{\"" + PropertyIds.OBJECT_ID + "\":\"" + id + "\",\""
+                + PropertyIds.OBJECT_TYPE_ID + "\":\"" + typeId + "\"}},\"pathSegment\":\"segment"
+                + id.substring(2) + "\"}";
+    }
+
+    private static List<CmisExtensionElement> createExtensions() {
+        List<CmisExtensionElement> result = new ArrayList<CmisExtensionElement>();
+        result.add(new CmisExtensionElementImpl(null, "ext", null, "value"));
+        return result;
+    }
+}
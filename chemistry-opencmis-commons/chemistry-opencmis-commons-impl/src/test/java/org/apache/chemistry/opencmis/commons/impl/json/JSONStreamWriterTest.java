@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.RenditionData;
+import org.apache.chemistry.opencmis.commons.enums.Action;
+import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AllowableActionsImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderContainerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PolicyIdListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDecimalImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RenditionDataImpl;
+import org.junit.Test;
+
+public class JSONStreamWriterTest {
+
+    @Test
+    public void testWriter() throws IOException {
+        StringWriter sw = new StringWriter();
+        JSONStreamWriter writer = new JSONStreamWriter(sw);
+
+        writer.beginObject();
+        writer.property("a", "x\"/\n");
+        writer.name("b").beginArray().value(1).value(null).beginObject().endObject().beginArray().endArray()
+                .endArray();
+        writer.propertyIfNotNull("c", null);
+        writer.property("d", Double.NaN);
+        writer.endObject();
+
+        assertEquals("{\"a\":\"x\\\"\\/\\n\",\"b\":[1,null,{},[]],\"d\":null}", sw.toString());
+    }
+
+    @Test
+    public void testObjectList() throws IOException {
+        ObjectListImpl list = new ObjectListImpl();
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        objects.add(createObject("1"));
+        objects.add(null);
+        objects.add(createObject("2"));
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.TRUE);
+        list.setNumItems(BigInteger.valueOf(42));
+        list.setExtensions(createExtensions());
+
+        for (PropertyMode mode : PropertyMode.values()) {
+            for (DateTimeFormat dateTimeFormat : DateTimeFormat.values()) {
+                for (boolean succinct : new boolean[] { false, true }) {
+                    assertEquals(
+                            JSONConverter.convert(list, null, mode, succinct, dateTimeFormat).toJSONString(),
+                            toString(JSONConverter.stream(list, null, mode, succinct, dateTimeFormat)));
+                }
+            }
+        }
+
+        // an empty list and a list without objects
+        ObjectListImpl emptyList = new ObjectListImpl();
+        assertEquals(JSONConverter.convert(emptyList, null, PropertyMode.OBJECT, false, DateTimeFormat.SIMPLE)
+                .toJSONString(),
+                toString(JSONConverter.stream(emptyList, null, PropertyMode.OBJECT, false, DateTimeFormat.SIMPLE)));
+    }
+
+    @Test
+    public void testDuplicateQueryNames() throws IOException {
+        ObjectDataImpl object = new ObjectDataImpl();
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(createString("p1", "a", "first"));
+        properties.addProperty(createString("p2", "b", "other"));
+        properties.addProperty(createString("p3", "a", "last"));
+        object.setProperties(properties);
+
+        ObjectListImpl list = new ObjectListImpl();
+        list.setObjects(Collections.<ObjectData> singletonList(object));
+
+        assertEquals(JSONConverter.convert(list, null, PropertyMode.QUERY, true, DateTimeFormat.SIMPLE)
+                .toJSONString(),
+                toString(JSONConverter.stream(list, null, PropertyMode.QUERY, true, DateTimeFormat.SIMPLE)));
+    }
+
+    @Test
+    public void testChildrenAndDescendants() throws IOException {
+        ObjectInFolderListImpl children = new ObjectInFolderListImpl();
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        objects.add(createObjectInFolder("1"));
+        objects.add(new ObjectInFolderDataImpl());
+        objects.add(createObjectInFolder("2"));
+        children.setObjects(objects);
+        children.setHasMoreItems(Boolean.FALSE);
+        children.setNumItems(BigInteger.valueOf(3));
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            assertEquals(JSONConverter.convert(children, null, succinct, DateTimeFormat.EXTENDED).toJSONString(),
+                    toString(JSONConverter.stream(children, null, succinct, DateTimeFormat.EXTENDED)));
+        }
+
+        ObjectInFolderContainerImpl leaf = new ObjectInFolderContainerImpl();
+        leaf.setObject(createObjectInFolder("3"));
+        ObjectInFolderContainerImpl root = new ObjectInFolderContainerImpl();
+        root.setObject(createObjectInFolder("4"));
+        root.setChildren(Collections.<ObjectInFolderContainer> singletonList(leaf));
+        root.setExtensions(createExtensions());
+        List<ObjectInFolderContainer> containers = new ArrayList<ObjectInFolderContainer>();
+        containers.add(root);
+        containers.add(new ObjectInFolderContainerImpl());
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            JSONArray expected = new JSONArray();
+            for (ObjectInFolderContainer container : containers) {
+                expected.add(JSONConverter.convert(container, null, succinct, DateTimeFormat.SIMPLE));
+            }
+            assertEquals(expected.toJSONString(),
+                    toString(JSONConverter.stream(containers, null, succinct, DateTimeFormat.SIMPLE)));
+        }
+    }
+
+    private static String toString(JSONStreamAware json) throws IOException {
+        StringWriter sw = new StringWriter();
+        json.writeJSONString(sw);
+        return sw.toString();
+    }
+
+    private static ObjectInFolderData createObjectInFolder(String id) {
+        ObjectInFolderDataImpl result = new ObjectInFolderDataImpl();
+        result.setObject(createObject(id));
+        result.setPathSegment("segment " + id);
+        return result;
+    }
+
+    private static ObjectData createObject(String id) {
+        ObjectDataImpl result = new ObjectDataImpl();
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(createString(PropertyIds.NAME, PropertyIds.NAME, "name\t" + id));
+        properties.addProperty(new PropertyIntegerImpl("test:int", BigInteger.TEN));
+        properties.addProperty(new PropertyDecimalImpl("test:decimal", new BigDecimal("1.50")));
+        properties.addProperty(new PropertyDateTimeImpl("test:date", new GregorianCalendar(TimeZone
+                .getTimeZone("GMT+01:00"))));
+        properties.addProperty(new PropertyStringImpl("test:empty", (String) null));
+        for (PropertyData<?> property : properties.getPropertyList()) {
+            if (property.getQueryName() == null) {
+                ((AbstractPropertyData<?>) property).setQueryName(property.getId());
+            }
+        }
+        properties.setExtensions(createExtensions());
+        result.setProperties(properties);
+
+        AllowableActionsImpl allowableActions = new AllowableActionsImpl();
+        allowableActions.setAllowableActions(EnumSet.of(Action.CAN_GET_PROPERTIES, Action.CAN_DELETE_OBJECT));
+        result.setAllowableActions(allowableActions);
+
+        PolicyIdListImpl policyIds = new PolicyIdListImpl();
+        policyIds.setPolicyIds(Collections.singletonList("policy"));
+        result.setPolicyIds(policyIds);
+
+        RenditionDataImpl rendition = new RenditionDataImpl("stream", "image/png", BigInteger.ONE, "thumbnail",
+                null, null, null, null);
+        result.setRenditions(Collections.<RenditionData> singletonList(rendition));
+        result.setIsExactAcl(Boolean.TRUE);
+        result.setExtensions(createExtensions());
+
+        return result;
+    }
+
+    private static PropertyStringImpl createString(String id, String queryName, String value) {
+        PropertyStringImpl result = new PropertyStringImpl(id, value);
+        result.setQueryName(queryName);
+        return result;
+    }
+
+    private static List<CmisExtensionElement> createExtensions() {
+        List<CmisExtensionElement> result = new ArrayList<CmisExtensionElement>();
+        result.add(new CmisExtensionElementImpl(null, "ext", null, "one"));
+        result.add(new CmisExtensionElementImpl(null, "ext", null, "two"));
+        result.add(new CmisExtensionElementImpl(null, "other", null, "three"));
+        return result;
+    }
+}
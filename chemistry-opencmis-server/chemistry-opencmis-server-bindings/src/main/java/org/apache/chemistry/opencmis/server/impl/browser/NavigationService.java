@@ -48,6 +48,7 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
@@ -101,7 +102,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChildren = JSONConverter.convert(children, typeCache, succinct, dateTimeFormat);
+            JSONStreamAware jsonChildren = JSONConverter.stream(children, typeCache, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonChildren, request, response);
@@ -150,10 +151,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONArray jsonDescendants = new JSONArray();
-            for (ObjectInFolderContainer descendant : descendants) {
-                jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
-            }
+            JSONStreamAware jsonDescendants = JSONConverter.stream(descendants, typeCache, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonDescendants, request, response);
@@ -202,10 +200,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONArray jsonDescendants = new JSONArray();
-            for (ObjectInFolderContainer descendant : folderTree) {
-                jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
-            }
+            JSONStreamAware jsonDescendants = JSONConverter.stream(folderTree, typeCache, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonDescendants, request, response);
@@ -349,8 +344,8 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonCheckedOut = JSONConverter.convert(checkedout, typeCache, JSONConverter.PropertyMode.OBJECT,
-                    succinct, dateTimeFormat);
+            JSONStreamAware jsonCheckedOut = JSONConverter.stream(checkedout, typeCache,
+                    JSONConverter.PropertyMode.OBJECT, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonCheckedOut, request, response);
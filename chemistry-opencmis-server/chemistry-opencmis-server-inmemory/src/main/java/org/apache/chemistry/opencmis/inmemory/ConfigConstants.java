@@ -48,6 +48,16 @@ public final class ConfigConstants {
     public static final String CLEAN_REPOSITORY_INTERVAL = "InMemoryServer.CleanIntervalMinutes";
     public static final String DEPLOYMENT_TIME = "InMemoryServer.DeploymentTime";
 
+    // secondary indexes used by queries, property ids are configured as
+    // InMemoryServer.HashIndex.0=cmis:objectTypeId, ...
+    public static final String HASH_INDEX = "InMemoryServer.HashIndex.";
+    public static final String SORTED_INDEX = "InMemoryServer.SortedIndex.";
+
+    // change log: max number of retained events (0 disables the change log)
+    // and whether events contain the properties of the changed objects
+    public static final String CHANGE_LOG_SIZE = "InMemoryServer.ChangeLogSize";
+    public static final String CHANGE_LOG_INCLUDE_PROPERTIES = "InMemoryServer.ChangeLogIncludeProperties";
+
     private ConfigConstants() {
     }
 
@@ -26,11 +26,14 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.antlr.runtime.tree.Tree;
@@ -56,6 +59,7 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.PropertyIndex;
 import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
 import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
@@ -73,9 +77,10 @@ import org.slf4j.LoggerFactory;
 /**
  * A processor for a CMIS query for the In-Memory server. During tree traversal
  * conditions are checked against the data contained in the central hash map
- * with all objects. In a first pass one time setup is performed, in a custom
- * walk across the query expression tree an object is checked if it matches. In
- * case of a match it is appended to a list of matching objects.
+ * with all objects. In a first pass one time setup is performed and the where
+ * clause is compiled into predicates (see {@link WhereClauseCompiler}), then
+ * each object is checked if it matches. In case of a match it is appended to a
+ * list of matching objects.
  */
 public class InMemoryQueryProcessor {
 
@@ -84,6 +89,8 @@ public class InMemoryQueryProcessor {
     private List<StoredObject> matches = new ArrayList<StoredObject>();
     private QueryObject queryObj;
     private Tree whereTree;
+    private WhereClauseCompiler.Predicate wherePredicate;
+    private TextSearchResult textSearchResult;
     private ObjectStoreImpl objStore;
     private List<TypeDefinition> secondaryTypeIds;
     private CallContext callContext;
@@ -126,10 +133,27 @@ public class InMemoryQueryProcessor {
 
         processQueryAndCatchExc(statement, tm); // calls query processor
 
-        // iterate over all the objects and check for each if the query matches
-        for (String objectId : ((ObjectStoreImpl) objectStore).getIds()) {
+        // as we don't support joins take first type
+        String queryName = queryObj.getTypes().values().iterator().next();
+        TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
+        boolean allVersions = searchAllVersions == null ? true : searchAllVersions.booleanValue();
+
+        // use the indexes to limit the objects to check if possible
+        ObjectStoreImpl objectStoreImpl = (ObjectStoreImpl) objectStore;
+        Collection<String> objectIds = null;
+        if (null != whereTree) {
+            objectIds = getIndexPlanner().getCandidateIds(whereTree);
+        }
+        if (null == objectIds) {
+            objectIds = objectStoreImpl.getIds();
+        }
+
+        // iterate over the objects and check for each if the query matches
+        for (String objectId : objectIds) {
             StoredObject so = objectStore.getObjectById(objectId);
-            match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            if (null != so) {
+                match(td, so, user, allVersions);
+            }
         }
 
         ObjectList objList = buildResultList(tm, user, includeAllowableActions, includeRelationships, renditionFilter,
@@ -152,6 +176,8 @@ public class InMemoryQueryProcessor {
         CmisQueryWalker walker = queryUtil.getWalker();
         queryObj = queryUtil.getQueryObject();
         whereTree = walker.getWherePredicateTree();
+        wherePredicate = null;
+        textSearchResult = null;
         secondaryTypeIds = queryObj.getJoinedSecondaryTypes();
         doAdditionalChecks(walker);
     }
@@ -220,6 +246,14 @@ public class InMemoryQueryProcessor {
         return res;
     }
 
+    /**
+     * Returns the where clause of the last processed query, or {@code null}
+     * if it has none.
+     */
+    Tree getWhereTree() {
+        return whereTree;
+    }
+
     private boolean typeMatches(TypeDefinition td, StoredObject so) {
         String typeId = so.getTypeId();
         while (typeId != null) {
@@ -285,24 +319,98 @@ public class InMemoryQueryProcessor {
             }
         }
 
-        if (orderBy.size() > 0) {
+        if (orderBy.size() > 0 && !sortMatchesUsingIndex(orderBy.get(0))) {
             Collections.sort(matches, new ResultComparator());
         }
 
     }
 
+    /*
+     * Sort the matches in the order of a sorted index on the ORDER BY column.
+     * Returns false if there is no such index or if sorting the matches
+     * directly is cheaper than iterating over the index.
+     */
+    private boolean sortMatchesUsingIndex(SortSpec s) {
+        CmisSelector sel = s.getSelector();
+        if (!(sel instanceof ColumnReference) || queryObj.isPredfinedQueryName(sel.getName())) {
+            return false;
+        }
+
+        PropertyIndex index = getIndexPlanner().getIndex((ColumnReference) sel, true);
+        int n = matches.size();
+        if (null == index || n * (32 - Integer.numberOfLeadingZeros(n)) < index.size()) {
+            return false;
+        }
+
+        Map<String, Integer> positions = new HashMap<String, Integer>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            positions.put(matches.get(i).getId(), i);
+        }
+
+        // matches with equal values keep their order, as with Collections.sort()
+        List<StoredObject> sorted = new ArrayList<StoredObject>(n);
+        boolean[] placed = new boolean[n];
+        List<Integer> group = new ArrayList<Integer>();
+        for (Set<String> ids : index.getSortedIdGroups(s.isAscending())) {
+            for (String id : ids) {
+                Integer pos = positions.get(id);
+                if (null != pos) {
+                    group.add(pos);
+                }
+            }
+            if (group.size() > 1) {
+                Collections.sort(group);
+            }
+            for (Integer pos : group) {
+                sorted.add(matches.get(pos));
+                placed[pos] = true;
+            }
+            group.clear();
+        }
+
+        // objects without a value come first in ascending order
+        List<StoredObject> unsorted = new ArrayList<StoredObject>(n - sorted.size());
+        for (int i = 0; i < n; i++) {
+            if (!placed[i]) {
+                unsorted.add(matches.get(i));
+            }
+        }
+        if (s.isAscending()) {
+            sorted.addAll(0, unsorted);
+        } else {
+            sorted.addAll(unsorted);
+        }
+
+        matches = sorted;
+        return true;
+    }
+
+    private IndexPlanner getIndexPlanner() {
+        boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
+        return new IndexPlanner(this, objStore, queryObj, cmis11);
+    }
+
+    /**
+     * Evaluates the search expression of the CONTAINS node with the full-text
+     * index. A query has at most one CONTAINS clause, the result is computed
+     * once per query.
+     */
+    TextSearchResult getTextSearchResult(Tree containsNode) {
+        if (null == textSearchResult) {
+            // the search expression follows the optional qualifier
+            Tree searchExpr = containsNode.getChild(containsNode.getChildCount() - 1);
+            textSearchResult = TextSearchResult.evaluate(searchExpr, objStore.getFullTextIndex());
+        }
+        return textSearchResult;
+    }
+
     /*
      * Check for each object contained in the in-memory repository if it matches
      * the current query expression. If yes add it to the list of matched
      * objects.
      */
-    private void match(StoredObject so, String user, boolean searchAllVersions) {
+    private void match(TypeDefinition td, StoredObject so, String user, boolean searchAllVersions) {
         // first check if type is matching...
-        // as we don't support joins take first type
-        String queryName = queryObj.getTypes().values().iterator().next();
-
-        TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
-
         // we are only interested in versions not in the series
         boolean skip = so instanceof VersionedDocument;
 
@@ -329,13 +437,28 @@ public class InMemoryQueryProcessor {
 
     /*
      * For each object check if it matches and append it to match-list if it
-     * does. We do here our own walking mechanism so that we can pass additional
-     * parameters and define the return types.
+     * does. The where clause is compiled when the first object is checked and
+     * the compiled predicate is reused for all other objects.
      */
     private boolean evalWhereNode(StoredObject so, String user, Tree node) {
-        return new InMemoryWhereClauseWalker(so, user).walkPredicate(node);
+        if (wherePredicate == null) {
+            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
+            wherePredicate = new WhereClauseCompiler(this, cmis11).compile(node);
+        }
+        return wherePredicate.matches(so, user);
     }
 
+    /**
+     * Walker that evaluates the where clause against a single object. The
+     * query itself uses the equivalent predicates built by
+     * {@link WhereClauseCompiler}.
+     * 
+     * @deprecated The query no longer uses this walker. Unlike the query, it
+     *             answers CONTAINS() with a substring match of the content
+     *             instead of the full-text index. It will be removed in a
+     *             future release.
+     */
+    @Deprecated
     public class InMemoryWhereClauseWalker extends AbstractPredicateWalker {
 
         protected final StoredObject so;
@@ -698,7 +821,7 @@ public class InMemoryQueryProcessor {
 
     }
 
-    private boolean hasParent(StoredObject objInFolder, String folderId, String user) {
+    boolean hasParent(StoredObject objInFolder, String folderId, String user) {
         List<String> parents = objStore.getParentIds(objInFolder, user);
 
         for (String parentId : parents) {
@@ -709,7 +832,7 @@ public class InMemoryQueryProcessor {
         return false;
     }
 
-    private boolean hasAncestor(StoredObject objInFolder, String folderId, String user) {
+    boolean hasAncestor(StoredObject objInFolder, String folderId, String user) {
         List<String> parents = objStore.getParentIds(objInFolder, user);
 
         for (String parentId : parents) {
@@ -785,7 +908,7 @@ public class InMemoryQueryProcessor {
         return 0;
     }
 
-    private ColumnReference getColumnReference(Tree columnNode) {
+    ColumnReference getColumnReference(Tree columnNode) {
         CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
         if (null == sel) {
             throw new IllegalStateException("Unknown property query name " + columnNode.getChild(0));
@@ -796,7 +919,7 @@ public class InMemoryQueryProcessor {
         }
     }
 
-    private String getTableReference(Tree tableNode) {
+    String getTableReference(Tree tableNode) {
         String typeQueryName = queryObj.getTypeQueryName(tableNode.getText());
         if (null == typeQueryName) {
             throw new IllegalStateException("Inavlid type in IN_FOLDER() or IN_TREE(), must be in FROM list: "
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.PropertyIndex;
+import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
+import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.QueryObject;
+import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+
+/**
+ * Chooses the objects that have to be checked for a query using the secondary
+ * property indexes and the full-text index of the object store.
+ * <p>
+ * The result is always a superset of the matching objects, each candidate is
+ * still checked against the complete WHERE clause. If a condition can't be
+ * answered by an index all objects are candidates.
+ */
+final class IndexPlanner {
+
+    /** Used to evaluate literals, it has no state. */
+    private static final AbstractPredicateWalker LITERAL_WALKER = new AbstractPredicateWalker() {
+    };
+
+    private final InMemoryQueryProcessor processor;
+    private final ObjectStoreImpl objStore;
+    private final QueryObject queryObj;
+    private final boolean cmis11;
+
+    IndexPlanner(InMemoryQueryProcessor processor, ObjectStoreImpl objStore, QueryObject queryObj, boolean cmis11) {
+        this.processor = processor;
+        this.objStore = objStore;
+        this.queryObj = queryObj;
+        this.cmis11 = cmis11;
+    }
+
+    /**
+     * Returns the ids of the objects that can match the given predicate or
+     * {@code null} if all objects have to be checked.
+     */
+    Set<String> getCandidateIds(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.AND:
+            return intersect(getCandidateIds(node.getChild(0)), getCandidateIds(node.getChild(1)));
+        case CmisQlStrictLexer.OR:
+            return union(getCandidateIds(node.getChild(0)), getCandidateIds(node.getChild(1)));
+        case CmisQlStrictLexer.EQ:
+            return getEqualIds(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IN:
+            return getInIds(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.GT:
+            return getRangeIds(node.getChild(0), node.getChild(1), false, false);
+        case CmisQlStrictLexer.GTEQ:
+            return getRangeIds(node.getChild(0), node.getChild(1), false, true);
+        case CmisQlStrictLexer.LT:
+            return getRangeIds(node.getChild(0), node.getChild(1), true, false);
+        case CmisQlStrictLexer.LTEQ:
+            return getRangeIds(node.getChild(0), node.getChild(1), true, true);
+        case CmisQlStrictLexer.CONTAINS:
+            return processor.getTextSearchResult(node).getIds();
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index that can be used for the given column or {@code null}
+     * if there is none.
+     */
+    PropertyIndex getIndex(ColumnReference colRef, boolean sorted) {
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (null == pd || pd.getCardinality() != Cardinality.SINGLE) {
+            return null;
+        }
+
+        String propertyId = colRef.getPropertyId();
+        if (!cmis11 && PropertyIds.DESCRIPTION.equals(propertyId)) {
+            // the index always contains the CMIS 1.1 value
+            return null;
+        }
+
+        PropertyIndex index = objStore.getPropertyIndex(propertyId);
+        if (null == index || (sorted && !index.isSorted())) {
+            return null;
+        }
+        return index;
+    }
+
+    private Set<String> getEqualIds(Tree colNode, Tree literalNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef || !isLiteral(literalNode)) {
+            return null;
+        }
+
+        PropertyIndex index = getIndex(colRef, false);
+        Object key = toKey(colRef.getPropertyDefinition(), LITERAL_WALKER.walkExpr(literalNode));
+        if (null == index || null == key) {
+            return null;
+        }
+
+        return index.getIds(Collections.singleton(key));
+    }
+
+    private Set<String> getInIds(Tree colNode, Tree listNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef || listNode.getType() != CmisQlStrictLexer.IN_LIST) {
+            return null;
+        }
+
+        PropertyIndex index = getIndex(colRef, false);
+        if (null == index) {
+            return null;
+        }
+
+        // IN compares the values without conversion, so the keys of the
+        // literals are sufficient
+        List<Object> keys = new ArrayList<Object>();
+        for (Object literal : (List<?>) LITERAL_WALKER.walkExpr(listNode)) {
+            Object key = PropertyIndex.normalize(literal);
+            if (null != key) {
+                keys.add(key);
+            }
+        }
+
+        return index.getIds(keys);
+    }
+
+    private Set<String> getRangeIds(Tree colNode, Tree literalNode, boolean upperBound, boolean inclusive) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef || !isLiteral(literalNode)) {
+            return null;
+        }
+
+        PropertyIndex index = getIndex(colRef, true);
+        Object key = toKey(colRef.getPropertyDefinition(), LITERAL_WALKER.walkExpr(literalNode));
+        if (null == index || null == key) {
+            return null;
+        }
+
+        if (upperBound) {
+            return index.getIds(null, false, key, inclusive);
+        } else {
+            return index.getIds(key, inclusive, null, false);
+        }
+    }
+
+    private ColumnReference getColumnReference(Tree columnNode) {
+        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
+        return sel instanceof ColumnReference ? (ColumnReference) sel : null;
+    }
+
+    private static boolean isLiteral(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.BOOL_LIT:
+        case CmisQlStrictLexer.NUM_LIT:
+        case CmisQlStrictLexer.STRING_LIT:
+        case CmisQlStrictLexer.TIME_LIT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Converts a literal to the index key of the property values it is equal
+     * to when compared by the query processor. Returns {@code null} if the
+     * literal can't be compared with values of this property.
+     */
+    private static Object toKey(PropertyDefinition<?> pd, Object literal) {
+        switch (pd.getPropertyType()) {
+        case BOOLEAN:
+            return literal instanceof Boolean ? literal : null;
+        case INTEGER:
+            return literal instanceof Long ? PropertyIndex.normalize(literal) : null;
+        case DECIMAL:
+            if (literal instanceof Double || literal instanceof Long) {
+                return Double.valueOf(((Number) literal).doubleValue());
+            }
+            return null;
+        case DATETIME:
+            return literal instanceof GregorianCalendar ? PropertyIndex.normalize(literal) : null;
+        case STRING:
+            return literal instanceof String ? StringUtil.unescape((String) literal, null) : null;
+        case HTML:
+        case URI:
+        case ID:
+            return literal instanceof String ? literal : null;
+        default:
+            return null;
+        }
+    }
+
+    private static Set<String> intersect(Set<String> left, Set<String> right) {
+        if (null == left) {
+            return right;
+        } else if (null == right) {
+            return left;
+        }
+
+        Set<String> smaller = left.size() <= right.size() ? left : right;
+        Set<String> larger = smaller == left ? right : left;
+        Set<String> result = new HashSet<String>();
+        for (String id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> union(Set<String> left, Set<String> right) {
+        if (null == left || null == right) {
+            return null;
+        }
+
+        Set<String> result = new HashSet<String>(left);
+        result.addAll(right);
+        return result;
+    }
+}
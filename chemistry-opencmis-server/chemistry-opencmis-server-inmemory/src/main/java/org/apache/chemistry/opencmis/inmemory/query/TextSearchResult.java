@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.FullTextIndex;
+import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+import org.apache.chemistry.opencmis.server.support.query.TextSearchLexer;
+
+/**
+ * The objects matching the search expression of a CONTAINS() predicate.
+ * <p>
+ * The search expression is evaluated with the posting lists of the
+ * {@link FullTextIndex}: AND is an intersection, OR a union and a negated term
+ * a difference. A result is either a set of ids or, if it was negated, the
+ * complement of a set of ids. The complement is never materialized.
+ */
+final class TextSearchResult {
+
+    private final Set<String> ids;
+    private final boolean excluded;
+
+    private TextSearchResult(Set<String> ids, boolean excluded) {
+        this.ids = ids;
+        this.excluded = excluded;
+    }
+
+    /**
+     * Evaluates a search expression of the text search grammar.
+     */
+    static TextSearchResult evaluate(Tree node, FullTextIndex index) {
+        switch (node.getType()) {
+        case TextSearchLexer.TEXT_AND:
+            TextSearchResult and = evaluate(node.getChild(0), index);
+            for (int i = 1; i < node.getChildCount(); i++) {
+                and = and.and(evaluate(node.getChild(i), index));
+            }
+            return and;
+        case TextSearchLexer.TEXT_OR:
+            TextSearchResult or = evaluate(node.getChild(0), index);
+            for (int i = 1; i < node.getChildCount(); i++) {
+                or = or.or(evaluate(node.getChild(i), index));
+            }
+            return or;
+        case TextSearchLexer.TEXT_MINUS:
+            return evaluate(node.getChild(0), index).not();
+        case TextSearchLexer.TEXT_SEARCH_WORD_LIT:
+            return new TextSearchResult(index.getIds(unescape(node.getText())), false);
+        case TextSearchLexer.TEXT_SEARCH_PHRASE_STRING_LIT:
+            String phrase = node.getText();
+            return new TextSearchResult(index.getIds(unescape(phrase.substring(1, phrase.length() - 1))), false);
+        default:
+            throw new CmisRuntimeException("Unknown node type: " + node.getType() + " (" + node.getText() + ")");
+        }
+    }
+
+    private static String unescape(String nodeText) {
+        String text = StringUtil.unescape(nodeText, "\\'-");
+        if (null == text) {
+            throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + nodeText);
+        }
+        return text;
+    }
+
+    /**
+     * Returns {@code true} if the object with the given id matches.
+     */
+    boolean matches(String id) {
+        return ids.contains(id) != excluded;
+    }
+
+    /**
+     * Returns the ids of all matching objects or {@code null} if the result
+     * is a complement and can't be enumerated.
+     */
+    Set<String> getIds() {
+        return excluded ? null : ids;
+    }
+
+    private TextSearchResult not() {
+        return new TextSearchResult(ids, !excluded);
+    }
+
+    private TextSearchResult and(TextSearchResult other) {
+        if (!excluded && !other.excluded) {
+            return new TextSearchResult(intersect(ids, other.ids), false);
+        } else if (!excluded) {
+            return new TextSearchResult(subtract(ids, other.ids), false);
+        } else if (!other.excluded) {
+            return new TextSearchResult(subtract(other.ids, ids), false);
+        } else {
+            // not a and not b = not (a or b)
+            return new TextSearchResult(union(ids, other.ids), true);
+        }
+    }
+
+    private TextSearchResult or(TextSearchResult other) {
+        // a or b = not (not a and not b)
+        return not().and(other.not()).not();
+    }
+
+    private static Set<String> intersect(Set<String> left, Set<String> right) {
+        Set<String> smaller = left.size() <= right.size() ? left : right;
+        Set<String> larger = smaller == left ? right : left;
+        Set<String> result = new HashSet<String>();
+        for (String id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> subtract(Set<String> left, Set<String> right) {
+        Set<String> result = new HashSet<String>(left);
+        result.removeAll(right);
+        return result;
+    }
+
+    private static Set<String> union(Set<String> left, Set<String> right) {
+        Set<String> result = new HashSet<String>(left);
+        result.addAll(right);
+        return result;
+    }
+}
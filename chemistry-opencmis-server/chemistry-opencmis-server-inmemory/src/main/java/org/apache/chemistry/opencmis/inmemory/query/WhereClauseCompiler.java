@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+
+/**
+ * Translates the WHERE clause of a query into a tree of {@link Predicate}
+ * objects. Everything that does not depend on the object being checked
+ * (column references, literals, LIKE patterns, the result of CONTAINS) is resolved
+ * once when the query is compiled, so that evaluating the predicate for each
+ * object of the repository does not need to walk the parse tree again.
+ * <p>
+ * The predicates evaluate the conditions in the same way as
+ * {@link InMemoryQueryProcessor.InMemoryWhereClauseWalker}, except for
+ * CONTAINS() which is answered by the full-text index of the object store.
+ */
+final class WhereClauseCompiler {
+
+    /**
+     * A compiled condition.
+     */
+    interface Predicate {
+        boolean matches(StoredObject so, String user);
+    }
+
+    private static final Predicate FALSE = new Predicate() {
+        @Override
+        public boolean matches(StoredObject so, String user) {
+            return false;
+        }
+    };
+
+    /** Used to evaluate literals, it has no state. */
+    private static final AbstractPredicateWalker LITERAL_WALKER = new AbstractPredicateWalker() {
+    };
+
+    private final InMemoryQueryProcessor processor;
+    private final boolean cmis11;
+
+    WhereClauseCompiler(InMemoryQueryProcessor processor, boolean cmis11) {
+        this.processor = processor;
+        this.cmis11 = cmis11;
+    }
+
+    /**
+     * Compiles a predicate node of the WHERE clause.
+     */
+    Predicate compile(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.NOT:
+            return compileNot(node.getChild(0));
+        case CmisQlStrictLexer.AND:
+            return compileAnd(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.OR:
+            return compileOr(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.EQ:
+        case CmisQlStrictLexer.NEQ:
+        case CmisQlStrictLexer.GT:
+        case CmisQlStrictLexer.GTEQ:
+        case CmisQlStrictLexer.LT:
+        case CmisQlStrictLexer.LTEQ:
+            return compileComparison(node.getType(), node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IN:
+            return compileIn(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_IN:
+            return compileIn(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.IN_ANY:
+            return compileInAny(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_IN_ANY:
+            return compileInAny(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.EQ_ANY:
+            return compileEqAny(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IS_NULL:
+            return compileIsNull(node.getChild(0), false);
+        case CmisQlStrictLexer.IS_NOT_NULL:
+            return compileIsNull(node.getChild(0), true);
+        case CmisQlStrictLexer.LIKE:
+            return compileLike(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_LIKE:
+            return compileLike(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.CONTAINS:
+            return compileContains(node);
+        case CmisQlStrictLexer.IN_FOLDER:
+            return compileInFolder(node, false);
+        case CmisQlStrictLexer.IN_TREE:
+            return compileInFolder(node, true);
+        case CmisQlStrictLexer.BOOL_LIT:
+        case CmisQlStrictLexer.NUM_LIT:
+        case CmisQlStrictLexer.STRING_LIT:
+        case CmisQlStrictLexer.TIME_LIT:
+        case CmisQlStrictLexer.IN_LIST:
+        case CmisQlStrictLexer.COL:
+        case CmisQlStrictLexer.ID:
+        case CmisQlStrictLexer.SCORE:
+            return FALSE;
+        default:
+            throw new CmisRuntimeException("Unknown node type: " + node.getType() + " (" + node.getText() + ")");
+        }
+    }
+
+    private Predicate compileNot(Tree node) {
+        final Predicate p = compile(node);
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                return !p.matches(so, user);
+            }
+        };
+    }
+
+    private Predicate compileAnd(Tree leftNode, Tree rightNode) {
+        final Predicate left = compile(leftNode);
+        final Predicate right = compile(rightNode);
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                return left.matches(so, user) && right.matches(so, user);
+            }
+        };
+    }
+
+    private Predicate compileOr(Tree leftNode, Tree rightNode) {
+        final Predicate left = compile(leftNode);
+        final Predicate right = compile(rightNode);
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                return left.matches(so, user) || right.matches(so, user);
+            }
+        };
+    }
+
+    private Predicate compileComparison(final int op, Tree leftNode, Tree rightNode) {
+        final Object rVal = LITERAL_WALKER.walkExpr(rightNode);
+        ColumnReference colRef = processor.getColumnReference(leftNode);
+        final String propId = colRef.getPropertyId();
+        final PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+
+        // string literals are unescaped only once
+        final String unescaped = (pd.getPropertyType() == PropertyType.STRING && rVal instanceof String) ? StringUtil
+                .unescape((String) rVal, null) : null;
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                Object val = PropertyQueryUtil.getProperty(so, propId, pd, cmis11);
+                if (val == null) {
+                    return false;
+                } else if (val instanceof List<?>) {
+                    throw new IllegalStateException(
+                            "You can't query operators <, <=, ==, !=, >=, > on multi-value properties ");
+                }
+
+                int cmp;
+                if (unescaped != null) {
+                    cmp = ((String) val).compareTo(unescaped);
+                } else {
+                    cmp = processor.compareTo(pd, val, rVal);
+                }
+
+                switch (op) {
+                case CmisQlStrictLexer.EQ:
+                    return cmp == 0;
+                case CmisQlStrictLexer.NEQ:
+                    return cmp != 0;
+                case CmisQlStrictLexer.GT:
+                    return cmp > 0;
+                case CmisQlStrictLexer.GTEQ:
+                    return cmp >= 0;
+                case CmisQlStrictLexer.LT:
+                    return cmp < 0;
+                default:
+                    return cmp <= 0;
+                }
+            }
+        };
+    }
+
+    private Predicate compileIn(Tree colNode, Tree listNode, final boolean negate) {
+        ColumnReference colRef = processor.getColumnReference(colNode);
+        final String propId = colRef.getPropertyId();
+        final PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        final Set<Object> literals = getLiteralSet(listNode);
+
+        if (pd.getCardinality() != Cardinality.SINGLE) {
+            throw new IllegalStateException("Operator IN only is allowed on single-value properties ");
+        }
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                // Note: NOT IN is false for null values (not set properties)
+                Object prop = PropertyQueryUtil.getProperty(so, propId, pd, cmis11);
+                if (prop == null) {
+                    return false;
+                }
+                return literals.contains(prop) != negate;
+            }
+        };
+    }
+
+    private Predicate compileInAny(Tree colNode, Tree listNode, final boolean negate) {
+        ColumnReference colRef = processor.getColumnReference(colNode);
+        final String propId = colRef.getPropertyId();
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        final Set<Object> literals = getLiteralSet(listNode);
+
+        if (pd.getCardinality() != Cardinality.MULTI) {
+            throw new IllegalStateException("Operator ANY...IN only is allowed on multi-value properties ");
+        }
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                PropertyData<?> lVal = so.getProperties().get(propId);
+                if (lVal == null) {
+                    return false;
+                }
+                for (Object prop : lVal.getValues()) {
+                    if (literals.contains(prop)) {
+                        return !negate;
+                    }
+                }
+                return negate;
+            }
+        };
+    }
+
+    private Predicate compileEqAny(Tree literalNode, Tree colNode) {
+        ColumnReference colRef = processor.getColumnReference(colNode);
+        final String propId = colRef.getPropertyId();
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        final Object literal = LITERAL_WALKER.walkExpr(literalNode);
+
+        if (pd.getCardinality() != Cardinality.MULTI) {
+            throw new IllegalStateException("Operator = ANY only is allowed on multi-value properties ");
+        }
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                PropertyData<?> lVal = so.getProperties().get(propId);
+                return lVal != null && lVal.getValues().contains(literal);
+            }
+        };
+    }
+
+    private Predicate compileIsNull(Tree colNode, final boolean negate) {
+        ColumnReference colRef = processor.getColumnReference(colNode);
+        final String propId = colRef.getPropertyId();
+        final PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                Object propVal = PropertyQueryUtil.getProperty(so, propId, pd, cmis11);
+                return (propVal == null) != negate;
+            }
+        };
+    }
+
+    private Predicate compileLike(Tree colNode, Tree stringNode, final boolean negate) {
+        Object rVal = LITERAL_WALKER.walkExpr(stringNode);
+        if (!(rVal instanceof String)) {
+            throw new IllegalStateException("LIKE operator requires String literal on right hand side.");
+        }
+
+        ColumnReference colRef = processor.getColumnReference(colNode);
+        final String propId = colRef.getPropertyId();
+        final PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        PropertyType propType = pd.getPropertyType();
+        if (propType != PropertyType.STRING && propType != PropertyType.HTML && propType != PropertyType.ID
+                && propType != PropertyType.URI) {
+            throw new IllegalStateException("Property type " + propType.value() + " is not allowed FOR LIKE");
+        }
+        if (pd.getCardinality() != Cardinality.SINGLE) {
+            throw new IllegalStateException("LIKE is not allowed for multi-value properties ");
+        }
+
+        // SQL to Java regex syntax
+        final Pattern pattern = Pattern.compile(InMemoryQueryProcessor.translatePattern((String) rVal));
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                String propVal = (String) PropertyQueryUtil.getProperty(so, propId, pd, cmis11);
+                // Note: NOT LIKE is true for null values
+                boolean like = propVal != null && pattern.matcher(propVal).matches();
+                return like != negate;
+            }
+        };
+    }
+
+    private Predicate compileInFolder(Tree node, final boolean inTree) {
+        Tree paramNode;
+        if (node.getChildCount() == 1) {
+            paramNode = node.getChild(0);
+        } else {
+            // just for error checking we do not evaluate this, there is
+            // only one from without join support
+            processor.getTableReference(node.getChild(0));
+            paramNode = node.getChild(1);
+        }
+
+        Object lit = LITERAL_WALKER.walkExpr(paramNode);
+        if (!(lit instanceof String)) {
+            throw new IllegalStateException("Folder id in IN_FOLDER must be of type String");
+        }
+        final String folderId = (String) lit;
+
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                // check if object is in folder
+                if (!(so instanceof Filing)) {
+                    return false;
+                }
+                return inTree ? processor.hasAncestor(so, folderId, user) : processor.hasParent(so, folderId, user);
+            }
+        };
+    }
+
+    private Predicate compileContains(Tree node) {
+        final TextSearchResult result = processor.getTextSearchResult(node);
+        return new Predicate() {
+            @Override
+            public boolean matches(StoredObject so, String user) {
+                return result.matches(so.getId());
+            }
+        };
+    }
+
+    // --- helpers ---
+
+    @SuppressWarnings("unchecked")
+    private static Set<Object> getLiteralSet(Tree listNode) {
+        return new HashSet<Object>((List<Object>) LITERAL_WALKER.walkExpr(listNode));
+    }
+}
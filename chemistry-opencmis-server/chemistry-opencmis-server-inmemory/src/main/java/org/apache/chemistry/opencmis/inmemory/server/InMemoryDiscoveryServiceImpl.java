@@ -28,11 +28,11 @@ import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
-import org.apache.chemistry.opencmis.commons.data.PolicyIdList;
-import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ChangeEventInfoDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
@@ -42,7 +42,14 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.inmemory.DataObjectCreator;
+import org.apache.chemistry.opencmis.inmemory.FilterParser;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ChangeLog;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ChangeLog.ChangeEvent;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,73 +64,98 @@ public class InMemoryDiscoveryServiceImpl extends InMemoryAbstractServiceImpl {
     public ObjectList getContentChanges(CallContext context, String repositoryId, Holder<String> changeLogToken,
             Boolean includeProperties, String filter, Boolean includePolicyIds, Boolean includeAcl,
             BigInteger maxItems, ExtensionsData extension, ObjectInfoHandler objectInfos) {
-        // dummy implementation using hard coded values
-        final int ITEMS_AVAILABLE = 25;
 
-        int token = 0;
-        if (changeLogToken != null && changeLogToken.getValue() != null) {
-            if (!changeLogToken.getValue().startsWith("token-")) {
-                throw new CmisInvalidArgumentException("Unknown change log token!");
-            }
+        LOG.debug("start getContentChanges()");
+        validator.getContentChanges(context, repositoryId, extension);
+
+        ObjectStoreImpl objStore = (ObjectStoreImpl) fStoreManager.getObjectStore(repositoryId);
+        ChangeLog changeLog = objStore.getChangeLog();
+        if (null == changeLog) {
+            throw new CmisNotSupportedException("The change log is disabled for this repository.");
+        }
 
+        // the event of the given token is the first event returned
+        long token = changeLog.getFirstToken();
+        if (changeLogToken != null && changeLogToken.getValue() != null) {
             try {
-                token = Integer.parseInt(changeLogToken.getValue().substring(6));
+                token = Long.parseLong(changeLogToken.getValue());
             } catch (NumberFormatException nfe) {
                 throw new CmisInvalidArgumentException("Unknown change log token!", nfe);
             }
 
-            if (token < 0 || token > ITEMS_AVAILABLE) {
+            if (token < 0 || token > changeLog.getLatestToken()) {
                 throw new CmisInvalidArgumentException("Unknown change log token!");
             }
+            if (token == 0 && !changeLog.isIncomplete()) {
+                token = changeLog.getFirstToken();
+            }
         }
 
-        ObjectListImpl objList = new ObjectListImpl();
-        long timestamp = System.currentTimeMillis() - 60 * 1000;
-        // convert ObjectInFolderContainerList to objectList
-        List<ObjectData> lod = new ArrayList<ObjectData>();
-        if (null == maxItems) {
-            maxItems = BigInteger.valueOf(ITEMS_AVAILABLE);
+        int max = (null == maxItems || maxItems.signum() <= 0) ? Integer.MAX_VALUE : maxItems.min(
+                BigInteger.valueOf(Integer.MAX_VALUE)).intValue();
+        List<ChangeEvent> events = token < changeLog.getFirstToken() ? null : changeLog.getEvents(token, max);
+        if (null == events) {
+            throw new CmisInvalidArgumentException("Change log token " + token
+                    + " is no longer available, the change log is incomplete.");
         }
-        int last = Math.min(ITEMS_AVAILABLE, token + maxItems.intValue());
-
-        for (int i = token; i < last; i++) {
-            // add a dummy delete event
-            ObjectDataImpl odImpl = new ObjectDataImpl();
-            PropertiesImpl props = new PropertiesImpl();
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "cl-" + i));
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            odImpl.setProperties(props);
-            ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
-            changeEventInfo.setChangeType(ChangeType.DELETED);
-            GregorianCalendar eventTimestamp = new GregorianCalendar();
-            eventTimestamp.setTimeInMillis(timestamp + i * 1000);
-            changeEventInfo.setChangeTime(eventTimestamp);
-            odImpl.setChangeEventInfo(changeEventInfo);
-            if (includePolicyIds != null && includePolicyIds) {
-                PolicyIdList policies = new PolicyIdListImpl();
-                odImpl.setPolicyIds(policies);
-            }
-            lod.add(odImpl);
+
+        boolean withProperties = includeProperties != null && includeProperties && changeLog.isRecordingProperties();
+        List<String> requestedIds = FilterParser.getRequestedIdsFromFilter(filter);
+        boolean withPolicyIds = includePolicyIds != null && includePolicyIds;
+        List<ObjectData> lod = new ArrayList<ObjectData>(events.size());
+        for (ChangeEvent event : events) {
+            lod.add(convertChangeEvent(objStore, event, withProperties, requestedIds, withPolicyIds));
         }
 
+        long latest = changeLog.getLatestToken();
+        long last = events.isEmpty() ? latest : events.get(events.size() - 1).getToken();
+        ObjectListImpl objList = new ObjectListImpl();
         objList.setObjects(lod);
-        objList.setNumItems(BigInteger.valueOf(ITEMS_AVAILABLE - token));
-        objList.setHasMoreItems(false);
+        objList.setNumItems(BigInteger.valueOf(Math.max(0, latest - token + 1)));
+        objList.setHasMoreItems(last < latest);
 
-        String changeToken = "token-" + (token + lod.size() - 1);
-        if(changeLogToken != null) {
-            changeLogToken.setValue(changeToken);
+        if (changeLogToken != null) {
+            changeLogToken.setValue(Long.toString(last));
         }
-        
+
         // To be able to provide all Atom links in the response we need
         // additional information:
         if (objectInfos != null) {
             fAtomLinkProvider.fillInformationForAtomLinks(context, repositoryId, null, objectInfos, objList);
         }
+        LOG.debug("stop getContentChanges()");
         return objList;
     }
 
+    private static ObjectData convertChangeEvent(ObjectStore objStore, ChangeEvent event, boolean withProperties,
+            List<String> requestedIds, boolean withPolicyIds) {
+        ObjectDataImpl odImpl = new ObjectDataImpl();
+        PropertiesImpl props = new PropertiesImpl();
+        props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, event.getObjectId()));
+        props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, event.getTypeId()));
+        props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, event.getBaseTypeId().value()));
+        if (withProperties && null != event.getProperties()) {
+            for (PropertyData<?> pd : event.getProperties().values()) {
+                if (!props.getProperties().containsKey(pd.getId())
+                        && FilterParser.isContainedInFilter(pd.getId(), requestedIds)) {
+                    props.addProperty(pd);
+                }
+            }
+        }
+        odImpl.setProperties(props);
+
+        ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
+        changeEventInfo.setChangeType(event.getChangeType());
+        changeEventInfo.setChangeTime(event.getChangeTime());
+        odImpl.setChangeEventInfo(changeEventInfo);
+
+        if (withPolicyIds) {
+            StoredObject so = objStore.getObjectById(event.getObjectId());
+            odImpl.setPolicyIds(null == so ? new PolicyIdListImpl() : DataObjectCreator.fillPolicyIds(so));
+        }
+        return odImpl;
+    }
+
     private void convertList(List<ObjectData> lod, ObjectInFolderContainer obj) {
         lod.add(obj.getObject().getObject());
         // add dummy event info
@@ -604,8 +604,8 @@ public class InMemoryObjectServiceImpl extends InMemoryAbstractServiceImpl {
         }
 
         ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
-        objStore.setContent(so, contentStream);
         so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
+        objStore.setContent(so, contentStream);
         if (null != changeToken) {
             String changeTokenVal = so.getChangeToken();
             LOG.debug("setContentStream(), new change token is: " + changeTokenVal);
@@ -805,8 +805,8 @@ public class InMemoryObjectServiceImpl extends InMemoryAbstractServiceImpl {
         }
 
         ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
-        objStore.appendContent(so, contentStream);
         so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
+        objStore.appendContent(so, contentStream);
         if (null != changeToken) {
             String changeTokenVal = so.getChangeToken();
             LOG.debug("appendContentStream(), new change token is: " + changeTokenVal);
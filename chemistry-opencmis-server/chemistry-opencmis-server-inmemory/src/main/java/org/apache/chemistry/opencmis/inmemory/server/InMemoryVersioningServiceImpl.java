@@ -124,6 +124,7 @@ public class InMemoryVersioningServiceImpl extends InMemoryAbstractServiceImpl {
             }
         }
         so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
+        objStore.versionSeriesModified(verDoc);
         // To be able to provide all Atom links in the response we need
         // additional information:
         if (context.isObjectInfoRequired()) {
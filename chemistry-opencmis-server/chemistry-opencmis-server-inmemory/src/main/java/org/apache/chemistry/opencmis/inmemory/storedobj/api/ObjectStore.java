@@ -297,7 +297,11 @@ public interface ObjectStore {
     void move(StoredObject so, Folder oldParent, Folder newParent, String user);
 
     /**
-     * Rename an object.
+     * Rename an object. The rename is not recorded in the change log, the
+     * caller records the modification of the object with
+     * {@link #updateObject(StoredObject, Map, String)} or
+     * {@link #objectModified(StoredObject)}, so that a property update with a
+     * new name results in a single change event.
      * 
      * @param so
      *            object to be renamed
@@ -324,6 +328,18 @@ public interface ObjectStore {
      */
     void deleteVersion(DocumentVersion version);
 
+    /**
+     * Notify the object store that a version series was checked in. The
+     * version related properties of the series and of all its versions have
+     * changed. (Check-out and cancelling a check-out are recorded by
+     * {@link #storeVersion(DocumentVersion)} and
+     * {@link #deleteVersion(DocumentVersion)}.)
+     * 
+     * @param verDoc
+     *            modified version series
+     */
+    void versionSeriesModified(VersionedDocument verDoc);
+
     /**
      * Modify and store the properties of an object.
      * 
@@ -334,6 +350,26 @@ public interface ObjectStore {
      */
     void updateObject(StoredObject so, Map<String, PropertyData<?>> properties, String user);
 
+    /**
+     * Notify the object store that an object was modified without using one
+     * of the methods of the object store, for example when the system
+     * properties are updated after the content has changed.
+     * 
+     * @param so
+     *            modified object
+     */
+    void objectModified(StoredObject so);
+
+    /**
+     * Notify the object store that the ACL or the applied policies of an
+     * object were changed without using one of the methods of the object
+     * store.
+     * 
+     * @param so
+     *            modified object
+     */
+    void objectSecurityChanged(StoredObject so);
+
     /**
      * get the path of this folder (for folder in CMIS path is unique).
      * 
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+
+/**
+ * Bounded, append-only journal of the changes of a repository. Used to
+ * implement getContentChanges.
+ * <p>
+ * Each event gets a token from a monotonic counter. The events are kept in a
+ * ring buffer, when it is full the oldest events are overwritten. Appending
+ * and reading do not lock: a writer reserves its token with an atomic
+ * increment and then publishes the event in its slot, a reader stops at the
+ * first slot that does not (yet) contain the expected token.
+ */
+public class ChangeLog {
+
+    /**
+     * A single change event.
+     */
+    public static class ChangeEvent {
+        private final long token;
+        private final String objectId;
+        private final String typeId;
+        private final BaseTypeId baseTypeId;
+        private final ChangeType changeType;
+        private final GregorianCalendar changeTime;
+        private final Map<String, PropertyData<?>> properties;
+
+        ChangeEvent(long token, String objectId, String typeId, BaseTypeId baseTypeId, ChangeType changeType,
+                Map<String, PropertyData<?>> properties) {
+            this.token = token;
+            this.objectId = objectId;
+            this.typeId = typeId;
+            this.baseTypeId = baseTypeId;
+            this.changeType = changeType;
+            this.changeTime = new GregorianCalendar();
+            this.properties = properties;
+        }
+
+        public long getToken() {
+            return token;
+        }
+
+        public String getObjectId() {
+            return objectId;
+        }
+
+        public String getTypeId() {
+            return typeId;
+        }
+
+        public BaseTypeId getBaseTypeId() {
+            return baseTypeId;
+        }
+
+        public ChangeType getChangeType() {
+            return changeType;
+        }
+
+        public GregorianCalendar getChangeTime() {
+            return changeTime;
+        }
+
+        /**
+         * Returns the properties of the object at the time of the change or
+         * {@code null} if properties are not recorded.
+         */
+        public Map<String, PropertyData<?>> getProperties() {
+            return properties;
+        }
+    }
+
+    private final AtomicReferenceArray<ChangeEvent> fEvents;
+    private final AtomicLong fNextToken = new AtomicLong(1);
+    private final boolean fRecordProperties;
+    private volatile long fClearedBefore = 1;
+
+    /**
+     * @param capacity
+     *            max number of retained events
+     * @param recordProperties
+     *            {@code true} if events contain a snapshot of the properties
+     */
+    public ChangeLog(int capacity, boolean recordProperties) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        fEvents = new AtomicReferenceArray<ChangeEvent>(capacity);
+        fRecordProperties = recordProperties;
+    }
+
+    /**
+     * Returns {@code true} if the events contain a snapshot of the properties
+     * of the changed objects.
+     */
+    public boolean isRecordingProperties() {
+        return fRecordProperties;
+    }
+
+    /**
+     * Appends an event and returns its token.
+     */
+    long append(String objectId, String typeId, BaseTypeId baseTypeId, ChangeType changeType,
+            Map<String, PropertyData<?>> properties) {
+        long token = fNextToken.getAndIncrement();
+        Map<String, PropertyData<?>> snapshot = fRecordProperties && null != properties ? Collections
+                .unmodifiableMap(properties) : null;
+        fEvents.set(slot(token), new ChangeEvent(token, objectId, typeId, baseTypeId, changeType, snapshot));
+        return token;
+    }
+
+    /**
+     * Returns the token of the latest event or 0 if there are no events.
+     */
+    public long getLatestToken() {
+        return fNextToken.get() - 1;
+    }
+
+    /**
+     * Returns the token of the oldest retained event.
+     */
+    public long getFirstToken() {
+        return Math.max(fClearedBefore, fNextToken.get() - fEvents.length());
+    }
+
+    /**
+     * Returns {@code true} if events have been dropped because the journal
+     * was full or has been cleared.
+     */
+    public boolean isIncomplete() {
+        return getFirstToken() > 1;
+    }
+
+    /**
+     * Returns up to {@code maxItems} events starting with the event with the
+     * given token. Returns {@code null} if the token is no longer retained.
+     */
+    public List<ChangeEvent> getEvents(long fromToken, int maxItems) {
+        List<ChangeEvent> result = new ArrayList<ChangeEvent>(Math.min(maxItems, fEvents.length()));
+        long latest = getLatestToken();
+        for (long token = fromToken; token <= latest && result.size() < maxItems; token++) {
+            ChangeEvent event = fEvents.get(slot(token));
+            if (null == event || event.getToken() < token) {
+                // not yet published by its writer
+                break;
+            } else if (event.getToken() > token) {
+                // overwritten by a newer event
+                return null;
+            }
+            result.add(event);
+        }
+        return result;
+    }
+
+    void clear() {
+        fClearedBefore = fNextToken.get();
+        for (int i = 0; i < fEvents.length(); i++) {
+            fEvents.set(i, null);
+        }
+    }
+
+    private int slot(long token) {
+        return (int) (token % fEvents.length());
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+
+/**
+ * Inverted index on the content of all documents with a text MIME type. Used
+ * to evaluate the CONTAINS() predicate of queries.
+ * <p>
+ * The content is split into tokens (sequences of letters and digits, compared
+ * case insensitive). For each token the index holds the ids of the documents
+ * containing it together with the positions of the token in the document, so
+ * that phrases can be found without reading the content again.
+ */
+public class FullTextIndex {
+
+    /** token -> (object id -> positions of the token in the content) */
+    private final Map<String, Map<String, int[]>> fPostings = new ConcurrentHashMap<String, Map<String, int[]>>();
+
+    /** object id -> indexed content and its tokens, used for updates */
+    private final Map<String, IndexedContent> fIndexed = new HashMap<String, IndexedContent>();
+
+    private static class IndexedContent {
+        private final byte[] bytes;
+        private final Set<String> tokens;
+
+        IndexedContent(byte[] bytes, Set<String> tokens) {
+            this.bytes = bytes;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * Returns the number of indexed documents.
+     */
+    public synchronized int size() {
+        return fIndexed.size();
+    }
+
+    /**
+     * Adds or updates the entry of an object. The content is only tokenized
+     * again if it has been replaced or appended to since the last update.
+     */
+    synchronized void update(String id, StoredObject so) {
+        byte[] bytes = getTextContent(so);
+        IndexedContent indexed = fIndexed.get(id);
+        if (null != indexed && indexed.bytes == bytes) {
+            return;
+        }
+
+        remove(id);
+        if (null == bytes) {
+            return;
+        }
+
+        Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+        List<String> tokens = tokenize(toString(bytes));
+        for (int i = 0; i < tokens.size(); i++) {
+            List<Integer> tokenPositions = positions.get(tokens.get(i));
+            if (null == tokenPositions) {
+                tokenPositions = new ArrayList<Integer>();
+                positions.put(tokens.get(i), tokenPositions);
+            }
+            tokenPositions.add(i);
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            Map<String, int[]> posting = fPostings.get(entry.getKey());
+            if (null == posting) {
+                posting = new ConcurrentHashMap<String, int[]>();
+                fPostings.put(entry.getKey(), posting);
+            }
+            posting.put(id, toArray(entry.getValue()));
+        }
+        fIndexed.put(id, new IndexedContent(bytes, positions.keySet()));
+    }
+
+    /**
+     * Removes the entry of an object.
+     */
+    synchronized void remove(String id) {
+        IndexedContent indexed = fIndexed.remove(id);
+        if (null == indexed) {
+            return;
+        }
+
+        for (String token : indexed.tokens) {
+            Map<String, int[]> posting = fPostings.get(token);
+            if (null != posting) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    fPostings.remove(token);
+                }
+            }
+        }
+    }
+
+    synchronized void clear() {
+        fPostings.clear();
+        fIndexed.clear();
+    }
+
+    /**
+     * Returns the ids of all documents containing the given text. If the text
+     * consists of more than one token the tokens must appear in this order
+     * without other tokens in between.
+     */
+    public Set<String> getIds(String text) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        List<Map<String, int[]>> postings = new ArrayList<Map<String, int[]>>(tokens.size());
+        Map<String, int[]> smallest = null;
+        for (String token : tokens) {
+            Map<String, int[]> posting = fPostings.get(token);
+            if (null == posting) {
+                return Collections.emptySet();
+            }
+            postings.add(posting);
+            if (null == smallest || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+
+        Set<String> result = new HashSet<String>();
+        if (tokens.size() == 1) {
+            result.addAll(smallest.keySet());
+            return result;
+        }
+
+        // check the phrase only for the documents containing the rarest token
+        for (String id : smallest.keySet()) {
+            if (containsPhrase(id, postings)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsPhrase(String id, List<Map<String, int[]>> postings) {
+        int[][] positions = new int[postings.size()][];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = postings.get(i).get(id);
+            if (null == positions[i]) {
+                return false;
+            }
+        }
+
+        for (int start : positions[0]) {
+            boolean found = true;
+            for (int i = 1; i < positions.length && found; i++) {
+                found = contains(positions[i], start + i);
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] sortedPositions, int position) {
+        return Arrays.binarySearch(sortedPositions, position) >= 0;
+    }
+
+    /**
+     * Splits a text into lower case tokens. Every character that is not a
+     * letter or a digit separates tokens.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static byte[] getTextContent(StoredObject so) {
+        if (!(so instanceof Content) || !((Content) so).hasContent()) {
+            return null;
+        }
+
+        ContentStream content = ((Content) so).getContent();
+        if (!(content instanceof ContentStreamDataImpl) || null == content.getMimeType()
+                || !content.getMimeType().startsWith("text/")) {
+            return null;
+        }
+
+        return ((ContentStreamDataImpl) content).getBytes();
+    }
+
+    private static String toString(byte[] bytes) {
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new CmisRuntimeException("Internal error: Unsupported encoding UTF-8", e);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+}
@@ -20,13 +20,16 @@ package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -38,6 +41,7 @@ import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -48,6 +52,8 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundExcept
 import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
 import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
 import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
@@ -58,6 +64,7 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.MultiFiling;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Policy;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Relationship;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
@@ -101,6 +108,8 @@ public class ObjectStoreImpl implements ObjectStore {
     private static final int FIRST_ID = 100;
     private static final Long MAX_CONTENT_SIZE_KB = ConfigurationSettings
             .getConfigurationValueAsLong(ConfigConstants.MAX_CONTENT_SIZE_KB);
+    private static final int DEFAULT_CHANGE_LOG_SIZE = 10000;
+    private static final BindingsObjectFactory OBJECT_FACTORY = new BindingsObjectFactoryImpl();
 
     /**
      * User id for administrator always having all rights.
@@ -118,6 +127,35 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     private final Map<String, StoredObject> fStoredObjectMap = new ConcurrentHashMap<String, StoredObject>();
 
+    /**
+     * Index from a folder id to the ids of the objects filed in this folder.
+     * Versioned documents are registered with the id of the version series.
+     */
+    private final ConcurrentMap<String, Set<String>> fChildrenMap = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Index from a folder id to the names of the objects filed in this folder
+     * and their ids. Used to resolve paths and to check name uniqueness.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> fNameMap =
+            new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+
+    /**
+     * Secondary indexes on property values used by queries, mapped by property
+     * id.
+     */
+    private final Map<String, PropertyIndex> fPropertyIndexes = new ConcurrentHashMap<String, PropertyIndex>();
+
+    /**
+     * Inverted index on the text content of documents used by CONTAINS().
+     */
+    private final FullTextIndex fFullTextIndex = new FullTextIndex();
+
+    /**
+     * Journal of the changes in this repository, {@code null} if disabled.
+     */
+    private final ChangeLog fChangeLog = createChangeLog();
+
     /**
      * A concurrent HashMap to hold all Acls in the repository.
      */
@@ -132,6 +170,7 @@ public class ObjectStoreImpl implements ObjectStore {
 
     public ObjectStoreImpl(String repositoryId) {
         fRepositoryId = repositoryId;
+        readIndexConfiguration();
         createRootFolder();
     }
 
@@ -158,29 +197,28 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public StoredObject getObjectByPath(String path, String user) {
-        StoredObject so = findObjectWithPathInDescendents(path, user, Filing.PATH_SEPARATOR, fRootFolder);
-        return so;
-    }
+        if (null == path || !path.startsWith(Filing.PATH_SEPARATOR)) {
+            return null;
+        }
 
-    private Fileable findObjectWithPathInDescendents(String path, String user, String prefix, Fileable fo) {
-        if (path.equals(prefix)) {
-            return fo;
-        } else if (fo instanceof Folder) {
-            List<Fileable> children = getChildren((Folder) fo);
-            for (Fileable child : children) {
-                String foundPath = prefix.length() == 1 ? prefix + child.getName() : prefix + Filing.PATH_SEPARATOR
-                        + child.getName();
-                if (path.startsWith(foundPath)) {
-                    Fileable found = findObjectWithPathInDescendents(path, user, foundPath, child);
-                    if (null != found) {
-                        return found; // note that there can be multiple folders
-                                      // with the same prefix like folder1,
-                                      // folder10
-                    }
-                }
+        StoredObject so = fRootFolder;
+        if (path.length() == Filing.PATH_SEPARATOR.length()) {
+            return so;
+        }
+
+        String[] segments = path.substring(Filing.PATH_SEPARATOR.length()).split(Filing.PATH_SEPARATOR, -1);
+        for (String segment : segments) {
+            if (!(so instanceof Folder) || segment.length() == 0) {
+                return null;
             }
+            String childId = getChildIdByName(so.getId(), segment);
+            so = null == childId ? null : getObject(childId);
         }
-        return null;
+
+        if (so instanceof VersionedDocument) {
+            return ((VersionedDocument) so).getLatestVersion(false);
+        }
+        return so;
     }
 
     @Override
@@ -210,27 +248,48 @@ public class ObjectStoreImpl implements ObjectStore {
                 List<DocumentVersion> allVers = parentDoc.getAllVersions();
                 for (DocumentVersion ver : allVers) {
                     fStoredObjectMap.remove(ver.getId());
+                    objectRemoved(ver.getId(), ver);
                 }
             } else {
+                boolean isPwc = parentDoc.isCheckedOut() && parentDoc.getPwc() == vers;
                 fStoredObjectMap.remove(objectId);
+                objectRemoved(objectId, vers);
                 otherVersionsExists = parentDoc.deleteVersion(vers);
+                if (otherVersionsExists && isPwc) {
+                    restoreVersionSeriesName(parentDoc);
+                    versionSeriesModified(parentDoc, null);
+                }
             }
 
             if (!otherVersionsExists) {
                 fStoredObjectMap.remove(parentDoc.getId());
+                objectRemoved(parentDoc.getId(), parentDoc);
+                removeFromChildrenIndex(parentDoc);
             }
         } else {
             fStoredObjectMap.remove(objectId);
+            objectRemoved(objectId, obj);
+            removeFromChildrenIndex(obj);
         }
     }
 
     public String storeObject(StoredObject so) {
         String id = so.getId();
         // check if update or create
-        if (null == id) {
+        boolean created = null == id;
+        if (created) {
             id = getNextId().toString();
         }
         fStoredObjectMap.put(id, so);
+        updateIndexes(id, so);
+        if (created) {
+            recordChange(id, so, ChangeType.CREATED);
+        }
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                addToChildrenIndex(parentId, id, so.getName());
+            }
+        }
         return id;
     }
 
@@ -239,7 +298,11 @@ public class ObjectStoreImpl implements ObjectStore {
     }
 
     void removeObject(String id) {
-        fStoredObjectMap.remove(id);
+        StoredObject so = fStoredObjectMap.remove(id);
+        if (null != so) {
+            objectRemoved(id, so);
+            removeFromChildrenIndex(so);
+        }
     }
 
     public Set<String> getIds() {
@@ -254,6 +317,15 @@ public class ObjectStoreImpl implements ObjectStore {
     public void clear() {
         lock();
         fStoredObjectMap.clear();
+        fChildrenMap.clear();
+        fNameMap.clear();
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.clear();
+        }
+        fFullTextIndex.clear();
+        if (null != fChangeLog) {
+            fChangeLog.clear();
+        }
         storeObject(fRootFolder);
         unlock();
     }
@@ -263,9 +335,140 @@ public class ObjectStoreImpl implements ObjectStore {
         return fStoredObjectMap.size();
     }
 
+    /**
+     * Creates a secondary index on a property. Queries use the index for
+     * conditions and ORDER BY clauses on this property if possible.
+     * 
+     * @param propertyId
+     *            id of a single-value property
+     * @param sorted
+     *            {@code true} for an index that supports ranges and ordering,
+     *            {@code false} for a hash index that only supports equality
+     */
+    public void addPropertyIndex(String propertyId, boolean sorted) {
+        PropertyIndex index = new PropertyIndex(propertyId, sorted);
+        fPropertyIndexes.put(propertyId, index);
+        for (Map.Entry<String, StoredObject> entry : fStoredObjectMap.entrySet()) {
+            index.update(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the secondary index on a property or {@code null} if the
+     * property is not indexed.
+     */
+    public PropertyIndex getPropertyIndex(String propertyId) {
+        return fPropertyIndexes.get(propertyId);
+    }
+
+    /**
+     * Returns the index on the text content of the documents.
+     */
+    public FullTextIndex getFullTextIndex() {
+        return fFullTextIndex;
+    }
+
+    /**
+     * Returns the change log of the repository or {@code null} if changes are
+     * not recorded.
+     */
+    public ChangeLog getChangeLog() {
+        return fChangeLog;
+    }
+
     // /////////////////////////////////////////
     // private helper methods
 
+    private void readIndexConfiguration() {
+        readIndexConfiguration(ConfigConstants.HASH_INDEX, false);
+        readIndexConfiguration(ConfigConstants.SORTED_INDEX, true);
+    }
+
+    private void readIndexConfiguration(String keyPrefix, boolean sorted) {
+        for (int i = 0;; ++i) {
+            String propertyId = ConfigurationSettings.getConfigurationValueAsString(keyPrefix + Integer.toString(i));
+            if (null == propertyId) {
+                break;
+            }
+            addPropertyIndex(propertyId.trim(), sorted);
+        }
+    }
+
+    private void updateIndexes(String id, StoredObject so) {
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.update(id, so);
+        }
+        fFullTextIndex.update(id, so);
+    }
+
+    private void removeFromIndexes(String id) {
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.remove(id);
+        }
+        fFullTextIndex.remove(id);
+    }
+
+    private void objectRemoved(String id, StoredObject so) {
+        removeFromIndexes(id);
+        recordChange(id, so, ChangeType.DELETED);
+    }
+
+    private static ChangeLog createChangeLog() {
+        Long size = ConfigurationSettings.getConfigurationValueAsLong(ConfigConstants.CHANGE_LOG_SIZE);
+        if (null == size) {
+            size = Long.valueOf(DEFAULT_CHANGE_LOG_SIZE);
+        }
+        if (size <= 0) {
+            return null;
+        }
+        String includeProperties = ConfigurationSettings
+                .getConfigurationValueAsString(ConfigConstants.CHANGE_LOG_INCLUDE_PROPERTIES);
+        return new ChangeLog((int) Math.min(size, Integer.MAX_VALUE), Boolean.parseBoolean(includeProperties));
+    }
+
+    private void recordChange(String id, StoredObject so, ChangeType changeType) {
+        if (null == fChangeLog) {
+            return;
+        }
+
+        if (so instanceof VersionedDocument) {
+            // a version series isn't an object of its own, its versions are
+            // created and deleted with their own events and other changes
+            // show up at the latest version
+            if (changeType == ChangeType.CREATED || changeType == ChangeType.DELETED) {
+                return;
+            }
+            so = ((VersionedDocument) so).getLatestVersion(false);
+            if (null == so || null == so.getId()) {
+                return;
+            }
+            id = so.getId();
+        }
+
+        Map<String, PropertyData<?>> properties = null;
+        if (fChangeLog.isRecordingProperties() && changeType != ChangeType.DELETED) {
+            properties = new HashMap<String, PropertyData<?>>();
+            so.fillProperties(properties, OBJECT_FACTORY, Collections.singletonList("*"));
+            // the id is not yet set when a new object is stored
+            properties.put(PropertyIds.OBJECT_ID, OBJECT_FACTORY.createPropertyIdData(PropertyIds.OBJECT_ID, id));
+        }
+        fChangeLog.append(id, so.getTypeId(), getBaseTypeId(so), changeType, properties);
+    }
+
+    private static BaseTypeId getBaseTypeId(StoredObject so) {
+        if (so instanceof Folder) {
+            return BaseTypeId.CMIS_FOLDER;
+        } else if (so instanceof Content || so instanceof VersionedDocument) {
+            return BaseTypeId.CMIS_DOCUMENT;
+        } else if (so instanceof Relationship) {
+            return BaseTypeId.CMIS_RELATIONSHIP;
+        } else if (so instanceof Policy) {
+            return BaseTypeId.CMIS_POLICY;
+        } else {
+            return BaseTypeId.CMIS_ITEM;
+        }
+    }
+
     private void createRootFolder() {
         FolderImpl rootFolder = new FolderImpl();
         rootFolder.setName("RootFolder");
@@ -357,6 +560,7 @@ public class ObjectStoreImpl implements ObjectStore {
                         + " already exists in folder " + getFolderPath(folder.getId()));
             }
             doc.addParentId(folder.getId());
+            addToChildrenIndex(folder.getId(), doc.getId(), name);
         }
         int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
         doc.setAclId(aclId);
@@ -444,6 +648,7 @@ public class ObjectStoreImpl implements ObjectStore {
     public void storeVersion(DocumentVersion version) {
         String id = storeObject(version);
         version.setId(id);
+        versionSeriesModified(version.getParentDocument(), version);
     }
 
     @Override
@@ -454,6 +659,62 @@ public class ObjectStoreImpl implements ObjectStore {
             throw new CmisInvalidArgumentException("Cannot delete object with id  " + version.getId()
                     + ". Object does not exist.");
         }
+        objectRemoved(version.getId(), found);
+        restoreVersionSeriesName(version.getParentDocument());
+        versionSeriesModified(version.getParentDocument(), null);
+    }
+
+    @Override
+    public void versionSeriesModified(VersionedDocument verDoc) {
+        versionSeriesModified(verDoc, null);
+    }
+
+    /**
+     * Records the modification of a version series and of all its versions
+     * except the given one. The version related properties of a version, for
+     * example cmis:isLatestVersion, depend on the state of the whole series.
+     */
+    private void versionSeriesModified(VersionedDocument verDoc, DocumentVersion except) {
+        objectModified(verDoc);
+        for (DocumentVersion ver : verDoc.getAllVersions()) {
+            if (ver != except) {
+                objectModified(ver);
+            }
+        }
+    }
+
+    /**
+     * Gives a version series the name of its latest version again after a
+     * renamed private working copy has been removed. The caller records the
+     * modification of the version series.
+     */
+    private void restoreVersionSeriesName(VersionedDocument verDoc) {
+        DocumentVersion latest = verDoc.getLatestVersion(false);
+        if (null == latest || latest.getName().equals(verDoc.getName())) {
+            return;
+        }
+
+        try {
+            lock();
+            String oldName = verDoc.getName();
+            String newName = latest.getName();
+            for (String folderId : verDoc.getParentIds()) {
+                String childId = getChildIdByName(folderId, newName);
+                if (null != childId && !childId.equals(verDoc.getId())) {
+                    // the name has been taken in the meantime, keep the
+                    // name of the private working copy
+                    return;
+                }
+            }
+
+            verDoc.setName(newName);
+            for (String folderId : verDoc.getParentIds()) {
+                removeFromChildrenIndex(folderId, verDoc.getId(), oldName);
+                addToChildrenIndex(folderId, verDoc.getId(), newName);
+            }
+        } finally {
+            unlock();
+        }
     }
 
     @Override
@@ -475,6 +736,25 @@ public class ObjectStoreImpl implements ObjectStore {
         // update system properties and secondary object type ids
         so.updateSystemBasePropertiesWhenModified(properties, user);
         properties.remove(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+        objectModified(so);
+    }
+
+    @Override
+    public void objectModified(StoredObject so) {
+        String id = so.getId();
+        // objects that are not yet stored are indexed when they are stored
+        if (null != id && fStoredObjectMap.containsKey(id)) {
+            updateIndexes(id, so);
+            recordChange(id, so, ChangeType.UPDATED);
+        }
+    }
+
+    @Override
+    public void objectSecurityChanged(StoredObject so) {
+        String id = so.getId();
+        if (null != id && fStoredObjectMap.containsKey(id)) {
+            recordChange(id, so, ChangeType.SECURITY);
+        }
     }
 
     @Override
@@ -546,7 +826,9 @@ public class ObjectStoreImpl implements ObjectStore {
     public Acl applyAcl(StoredObject so, Acl addAces, Acl removeAces, AclPropagation aclPropagation, 
             String principalId) {
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, addAces, removeAces);
+            Acl result = applyAcl(so, addAces, removeAces);
+            objectSecurityChanged(so);
+            return result;
         } else {
             return applyAclRecursive(((Folder) so), addAces, removeAces, principalId);
         }
@@ -555,7 +837,9 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Acl applyAcl(StoredObject so, Acl acl, AclPropagation aclPropagation, String principalId) {
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, acl);
+            Acl result = applyAcl(so, acl);
+            objectSecurityChanged(so);
+            return result;
         } else {
             return applyAclRecursive(((Folder) so), acl, principalId);
         }
@@ -659,6 +943,10 @@ public class ObjectStoreImpl implements ObjectStore {
         }
 
         fStoredObjectMap.remove(folderId);
+        objectRemoved(folderId, folder);
+        removeFromChildrenIndex(folder);
+        fChildrenMap.remove(folderId);
+        fNameMap.remove(folderId);
     }
 
     @Override
@@ -678,13 +966,9 @@ public class ObjectStoreImpl implements ObjectStore {
         return new ChildrenResult(children, noItems);
     }
 
-    private List<Fileable> getChildren(Folder folder) {
-        return getChildren(folder, null, false);
-    }
-
     private List<Fileable> getChildren(Folder folder, String user, boolean usePwc) {
         List<Fileable> children = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : getChildIds(folder.getId())) {
             StoredObject obj = getObject(id);
             if (obj instanceof Fileable) {
                 Fileable pathObj = (Fileable) obj;
@@ -714,9 +998,9 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public ChildrenResult getFolderChildren(Folder folder, int maxItems, int skipCount, String user) {
         List<Fileable> folderChildren = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : getChildIds(folder.getId())) {
             StoredObject obj = getObject(id);
-            if (hasReadAccess(user, obj) && obj instanceof Folder) {
+            if (obj instanceof Folder && hasReadAccess(user, obj)) {
                 Folder childFolder = (Folder) obj;
                 if (childFolder.getParentIds().contains(folder.getId())) {
                     folderChildren.add(childFolder);
@@ -747,7 +1031,10 @@ public class ObjectStoreImpl implements ObjectStore {
                 removeParentIntern(fi, oldParent);
             } else if (so instanceof FolderImpl) {
                 ((FolderImpl) so).setParentId(newParent.getId());
+                removeFromChildrenIndex(oldParent.getId(), so.getId(), so.getName());
+                addToChildrenIndex(newParent.getId(), so.getId(), so.getName());
             }
+            objectModified(so);
         } finally {
             unlock();
         }
@@ -772,20 +1059,30 @@ public class ObjectStoreImpl implements ObjectStore {
                     }
                 }
             }
+            String oldName = so instanceof Fileable ? getFilingName((Fileable) so) : null;
             so.setName(newName);
+            // the caller records the change
+            updateIndexes(so.getId(), so);
+            if (so instanceof DocumentVersion) {
+                // new versions copy the name of the version series
+                VersionedDocument verDoc = ((DocumentVersion) so).getParentDocument();
+                verDoc.setName(newName);
+                updateIndexes(verDoc.getId(), verDoc);
+            }
+            if (so instanceof Fileable) {
+                String filingId = getFilingId((Fileable) so);
+                for (String folderId : ((Fileable) so).getParentIds()) {
+                    removeFromChildrenIndex(folderId, filingId, oldName);
+                    addToChildrenIndex(folderId, filingId, newName);
+                }
+            }
         } finally {
             unlock();
         }
     }
 
     private boolean hasChild(Folder folder, String name) {
-        List<Fileable> children = getChildren(folder);
-        for (Fileable child : children) {
-            if (child.getName().equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return null != getChildIdByName(folder.getId(), name);
     }
 
     @Override
@@ -916,6 +1213,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl addAces, Acl removeAces, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, addAces, removeAces);
+        objectSecurityChanged(folder);
 
         if (null == children) {
             return result;
@@ -927,6 +1225,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, addAces, removeAces, principalId);
                 } else {
                     applyAcl(child, addAces, removeAces);
+                    objectSecurityChanged(child);
                 }
             }
         }
@@ -937,6 +1236,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl acl, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, acl);
+        objectSecurityChanged(folder);
 
         if (null == children) {
             return result;
@@ -948,6 +1248,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, acl, principalId);
                 } else {
                     applyAcl(child, acl);
+                    objectSecurityChanged(child);
                 }
             }
         }
@@ -1002,6 +1303,7 @@ public class ObjectStoreImpl implements ObjectStore {
             }
 
             addParentIntern(mfi, parent);
+            objectModified(so);
         } finally {
             unlock();
         }
@@ -1019,6 +1321,7 @@ public class ObjectStoreImpl implements ObjectStore {
             }
 
             removeParentIntern(mfi, parent);
+            objectModified(so);
         } finally {
             unlock();
         }
@@ -1026,10 +1329,105 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private void addParentIntern(MultiFiling so, Folder parent) {
         so.addParentId(parent.getId());
+        addToChildrenIndex(parent.getId(), getFilingId(so), getFilingName(so));
     }
 
     private void removeParentIntern(MultiFiling so, Folder parent) {
         so.removeParentId(parent.getId());
+        if (!so.getParentIds().contains(parent.getId())) {
+            removeFromChildrenIndex(parent.getId(), getFilingId(so), getFilingName(so));
+        }
+    }
+
+    /**
+     * Returns the ids of the objects filed in a folder. The result is a live
+     * view of the index and may contain ids of objects that are just being
+     * removed.
+     */
+    private Collection<String> getChildIds(String folderId) {
+        Set<String> childIds = fChildrenMap.get(folderId);
+        if (null == childIds) {
+            return Collections.emptySet();
+        }
+        return childIds;
+    }
+
+    /**
+     * Returns the id of the object with the given name in a folder or
+     * {@code null} if the folder has no such child.
+     */
+    private String getChildIdByName(String folderId, String name) {
+        Map<String, String> names = fNameMap.get(folderId);
+        if (null == names) {
+            return null;
+        }
+        return names.get(name);
+    }
+
+    private void addToChildrenIndex(String folderId, String childId, String name) {
+        Set<String> childIds = fChildrenMap.get(folderId);
+        if (null == childIds) {
+            Set<String> newChildIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            childIds = fChildrenMap.putIfAbsent(folderId, newChildIds);
+            if (null == childIds) {
+                childIds = newChildIds;
+            }
+        }
+        childIds.add(childId);
+
+        if (null != name) {
+            ConcurrentMap<String, String> names = fNameMap.get(folderId);
+            if (null == names) {
+                ConcurrentMap<String, String> newNames = new ConcurrentHashMap<String, String>();
+                names = fNameMap.putIfAbsent(folderId, newNames);
+                if (null == names) {
+                    names = newNames;
+                }
+            }
+            names.put(name, childId);
+        }
+    }
+
+    private void removeFromChildrenIndex(String folderId, String childId, String name) {
+        Set<String> childIds = fChildrenMap.get(folderId);
+        if (null != childIds) {
+            childIds.remove(childId);
+        }
+
+        ConcurrentMap<String, String> names = fNameMap.get(folderId);
+        if (null != names && null != name) {
+            names.remove(name, childId);
+        }
+    }
+
+    private void removeFromChildrenIndex(StoredObject so) {
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                removeFromChildrenIndex(parentId, so.getId(), so.getName());
+            }
+        }
+    }
+
+    /**
+     * Returns the id under which an object is registered in the children
+     * index. Document versions are filed through their version series.
+     */
+    private static String getFilingId(Filing so) {
+        if (so instanceof DocumentVersion) {
+            return ((DocumentVersion) so).getParentDocument().getId();
+        }
+        return ((StoredObject) so).getId();
+    }
+
+    /**
+     * Returns the name under which an object is registered in the name index.
+     * Document versions are filed with the name of their version series.
+     */
+    private static String getFilingName(Filing so) {
+        if (so instanceof DocumentVersion) {
+            return ((DocumentVersion) so).getParentDocument().getName();
+        }
+        return ((StoredObject) so).getName();
     }
 
     private static void sortFolderList(List<? extends StoredObject> list) {
@@ -1094,6 +1492,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             content.setContent(newContent);
+            objectModified(so);
             return newContent;
 
         } else {
@@ -1116,6 +1515,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     throw new CmisStorageException("Failed to append content: IO Exception", e);
                 }
             }
+            objectModified(so);
         } else {
             throw new CmisInvalidArgumentException("Cannot set content, object does not implement interface Content.");
         }
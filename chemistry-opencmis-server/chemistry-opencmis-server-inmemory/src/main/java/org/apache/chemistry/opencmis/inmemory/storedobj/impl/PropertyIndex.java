@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.chemistry.opencmis.inmemory.query.PropertyQueryUtil;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+
+/**
+ * Secondary index from the value of a single-value property to the ids of the
+ * objects having this value. A hash index supports lookups of single values, a
+ * sorted index additionally supports range lookups and ordered iteration.
+ * <p>
+ * Values are stored in a normalized form (see {@link #normalize(Object)}) so
+ * that values which are equal for a query are equal keys in the index.
+ * Objects without a value for the property are not contained in the index.
+ */
+public class PropertyIndex {
+
+    /**
+     * Orders keys of different classes by class name to tolerate properties
+     * with the same id but different types in different object types.
+     */
+    private static final Comparator<Object> KEY_COMPARATOR = new Comparator<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Object o1, Object o2) {
+            if (o1.getClass() != o2.getClass()) {
+                return o1.getClass().getName().compareTo(o2.getClass().getName());
+            }
+            return ((Comparable<Object>) o1).compareTo(o2);
+        }
+    };
+
+    private final String fPropertyId;
+    private final boolean fSorted;
+    private final ConcurrentMap<Object, Set<String>> fEntries;
+    private final Map<String, Object> fValues = new ConcurrentHashMap<String, Object>();
+
+    public PropertyIndex(String propertyId, boolean sorted) {
+        fPropertyId = propertyId;
+        fSorted = sorted;
+        if (sorted) {
+            fEntries = new ConcurrentSkipListMap<Object, Set<String>>(KEY_COMPARATOR);
+        } else {
+            fEntries = new ConcurrentHashMap<Object, Set<String>>();
+        }
+    }
+
+    public String getPropertyId() {
+        return fPropertyId;
+    }
+
+    /**
+     * Returns {@code true} if this index supports range lookups and ordered
+     * iteration.
+     */
+    public boolean isSorted() {
+        return fSorted;
+    }
+
+    /**
+     * Returns the number of indexed objects.
+     */
+    public int size() {
+        return fValues.size();
+    }
+
+    /**
+     * Adds or updates the entry of an object.
+     */
+    synchronized void update(String id, StoredObject so) {
+        Object newValue = normalize(PropertyQueryUtil.getProperty(so, fPropertyId, null, true));
+        Object oldValue = fValues.get(id);
+        if (null != oldValue && oldValue.equals(newValue)) {
+            return;
+        }
+
+        removeEntry(id, oldValue);
+        if (null == newValue) {
+            fValues.remove(id);
+        } else {
+            fValues.put(id, newValue);
+            Set<String> ids = fEntries.get(newValue);
+            if (null == ids) {
+                ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                fEntries.put(newValue, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Removes the entry of an object.
+     */
+    synchronized void remove(String id) {
+        removeEntry(id, fValues.remove(id));
+    }
+
+    synchronized void clear() {
+        fEntries.clear();
+        fValues.clear();
+    }
+
+    private void removeEntry(String id, Object value) {
+        if (null == value) {
+            return;
+        }
+        Set<String> ids = fEntries.get(value);
+        if (null != ids) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                fEntries.remove(value);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of all objects having one of the given (normalized)
+     * values.
+     */
+    public Set<String> getIds(Collection<?> values) {
+        Set<String> result = new HashSet<String>();
+        for (Object value : values) {
+            Set<String> ids = fEntries.get(value);
+            if (null != ids) {
+                result.addAll(ids);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of all objects with a value in the given range. A
+     * {@code null} bound means the range is not limited on this side. Only
+     * supported by sorted indexes.
+     */
+    public Set<String> getIds(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        ConcurrentNavigableMap<Object, Set<String>> range = getSortedEntries();
+        if (null != from) {
+            range = range.tailMap(from, fromInclusive);
+        }
+        if (null != to) {
+            range = range.headMap(to, toInclusive);
+        }
+
+        Set<String> result = new HashSet<String>();
+        for (Set<String> ids : range.values()) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of all indexed objects grouped by their value, the groups
+     * ordered by value. Each group contains the ids of the objects with an
+     * equal value in no particular order. Only supported by sorted indexes.
+     */
+    public Collection<Set<String>> getSortedIdGroups(boolean ascending) {
+        ConcurrentNavigableMap<Object, Set<String>> entries = getSortedEntries();
+        if (!ascending) {
+            entries = entries.descendingMap();
+        }
+        return entries.values();
+    }
+
+    private ConcurrentNavigableMap<Object, Set<String>> getSortedEntries() {
+        if (!fSorted) {
+            throw new UnsupportedOperationException("Index on " + fPropertyId + " is not sorted.");
+        }
+        return (ConcurrentNavigableMap<Object, Set<String>>) fEntries;
+    }
+
+    /**
+     * Converts a property value or a query literal to the form used as key in
+     * the index. Dates are compared by their time, integers are represented as
+     * {@link BigInteger} and decimals as {@link Double} (as the query
+     * processor compares them).
+     */
+    public static Object normalize(Object value) {
+        if (value instanceof Calendar) {
+            return new Date(((Calendar) value).getTimeInMillis());
+        } else if (value instanceof BigDecimal) {
+            return Double.valueOf(((BigDecimal) value).doubleValue());
+        } else if (value instanceof Long || value instanceof Integer) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        } else if (value instanceof Comparable<?>) {
+            return value;
+        } else {
+            // multi-value or unknown values are not indexed
+            return null;
+        }
+    }
+}
@@ -358,8 +358,11 @@ public class StoreManagerImpl implements StoreManager {
         repoInfo.setPrincipalAnonymous(InMemoryAce.getAnonymousUser());
         repoInfo.setPrincipalAnyone(InMemoryAce.getAnyoneUser());
         repoInfo.setThinClientUri("");
-        repoInfo.setChangesIncomplete(Boolean.TRUE);
-        repoInfo.setLatestChangeLogToken("token-24");
+        ChangeLog changeLog = getStore(repositoryId).getChangeLog();
+        if (null != changeLog) {
+            repoInfo.setChangesIncomplete(changeLog.isIncomplete());
+            repoInfo.setLatestChangeLogToken(Long.toString(changeLog.getLatestToken()));
+        }
         repoInfo.setVendorName("Apache Chemistry");
         repoInfo.setProductName(OPENCMIS_SERVER);
         repoInfo.setProductVersion(OPENCMIS_VERSION);
@@ -368,7 +371,13 @@ public class StoreManagerImpl implements StoreManager {
         RepositoryCapabilitiesImpl caps = new RepositoryCapabilitiesImpl();
         caps.setAllVersionsSearchable(false);
         caps.setCapabilityAcl(CapabilityAcl.MANAGE);
-        caps.setCapabilityChanges(CapabilityChanges.OBJECTIDSONLY);
+        if (null == changeLog) {
+            caps.setCapabilityChanges(CapabilityChanges.NONE);
+        } else if (changeLog.isRecordingProperties()) {
+            caps.setCapabilityChanges(CapabilityChanges.ALL);
+        } else {
+            caps.setCapabilityChanges(CapabilityChanges.OBJECTIDSONLY);
+        }
         caps.setCapabilityContentStreamUpdates(CapabilityContentStreamUpdates.ANYTIME);
         caps.setCapabilityJoin(CapabilityJoin.NONE);
         caps.setCapabilityQuery(CapabilityQuery.BOTHCOMBINED);
@@ -460,6 +469,8 @@ public class StoreManagerImpl implements StoreManager {
                 {
                     add(BaseTypeId.CMIS_DOCUMENT);
                     add(BaseTypeId.CMIS_FOLDER);
+                    add(BaseTypeId.CMIS_RELATIONSHIP);
+                    add(BaseTypeId.CMIS_POLICY);
                     add(BaseTypeId.CMIS_ITEM);
                 }
             };
@@ -487,6 +498,8 @@ public class StoreManagerImpl implements StoreManager {
                 {
                     add(BaseTypeId.CMIS_DOCUMENT);
                     add(BaseTypeId.CMIS_FOLDER);
+                    add(BaseTypeId.CMIS_RELATIONSHIP);
+                    add(BaseTypeId.CMIS_POLICY);
                 }
             };
         }
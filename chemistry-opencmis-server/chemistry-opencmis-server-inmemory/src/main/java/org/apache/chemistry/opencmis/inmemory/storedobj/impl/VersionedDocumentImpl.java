@@ -235,12 +235,8 @@ public class VersionedDocumentImpl extends FilingImpl implements VersionedDocume
         fIsCheckedOut = false;
         fCheckedOutUser = null;
         fVersions.remove(pwc);
-        if (fVersions.size() > 0) {
-            String nameLatestVer = getLatestVersion(false).getName();
-            if (!getName().equals(nameLatestVer)) {
-                setName(nameLatestVer);
-            }
-        }
+        // the object store restores the name of the latest version, it has
+        // to update its name index
         if (deleteInObjectStore) {
             // TODO:
         }
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Document;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the child and name indexes of the in-memory object store follow
+ * every operation that changes the name or the parents of an object.
+ */
+public class ChildrenIndexTest extends TestCase {
+
+    private static final String TEST_REPOSITORY_ID = "TestRepositoryId";
+    private static final String USER = "user";
+
+    private ObjectStoreImpl fStore;
+    private Folder fRoot;
+    private Folder fA;
+    private Folder fB;
+
+    @Override
+    @Before
+    protected void setUp() throws Exception {
+        ConfigurationSettings.init(new HashMap<String, String>());
+        fStore = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        fRoot = fStore.getRootFolder();
+        fA = fStore.createFolder("A", null, USER, fRoot, null, null, null);
+        fB = fStore.createFolder("B", null, USER, fRoot, null, null, null);
+    }
+
+    @Test
+    public void testCreate() {
+        Document doc = createDocument("doc", fA);
+        VersionedDocument verDoc = createVersionedDocument("verdoc", fA);
+
+        assertChildren(fA, doc, verDoc);
+        assertPath("/A/doc", doc);
+        assertPath("/A/verdoc", verDoc);
+
+        try {
+            createDocument("verdoc", fA);
+            fail("Name of a version series must be taken");
+        } catch (Exception e) {
+        }
+    }
+
+    @Test
+    public void testRename() {
+        Document doc = createDocument("doc", fA);
+        VersionedDocument verDoc = createVersionedDocument("verdoc", fA);
+
+        fStore.rename(doc, "doc2", USER);
+        fStore.rename(verDoc.getLatestVersion(false), "verdoc2", USER);
+
+        assertChildren(fA, doc, verDoc);
+        assertNull(fStore.getObjectByPath("/A/doc", USER));
+        assertNull(fStore.getObjectByPath("/A/verdoc", USER));
+        assertPath("/A/doc2", doc);
+        assertPath("/A/verdoc2", verDoc);
+
+        // old names are free again
+        createDocument("doc", fA);
+        createDocument("verdoc", fA);
+    }
+
+    @Test
+    public void testMove() {
+        Document doc = createDocument("doc", fA);
+        Folder sub = fStore.createFolder("sub", null, USER, fA, null, null, null);
+
+        fStore.move(doc, fA, fB, USER);
+        fStore.move(sub, fA, fB, USER);
+
+        assertChildren(fA);
+        assertChildren(fB, doc, sub);
+        assertNull(fStore.getObjectByPath("/A/doc", USER));
+        assertPath("/B/doc", doc);
+        assertPath("/B/sub", sub);
+    }
+
+    @Test
+    public void testDelete() {
+        Document doc = createDocument("doc", fA);
+        VersionedDocument verDoc = createVersionedDocument("verdoc", fA);
+
+        fStore.deleteObject(doc.getId(), true, USER);
+        fStore.deleteObject(verDoc.getLatestVersion(false).getId(), true, USER);
+
+        assertChildren(fA);
+        assertNull(fStore.getObjectByPath("/A/doc", USER));
+        assertNull(fStore.getObjectByPath("/A/verdoc", USER));
+    }
+
+    @Test
+    public void testCancelCheckOut() {
+        VersionedDocument verDoc = createVersionedDocument("verdoc", fA);
+
+        DocumentVersion pwc = checkOut(verDoc);
+        fStore.rename(pwc, "renamed", USER);
+        assertPath("/A/renamed", verDoc);
+
+        // as done by the versioning service
+        verDoc.cancelCheckOut(USER);
+        fStore.deleteVersion(pwc);
+
+        assertEquals("verdoc", verDoc.getName());
+        assertChildren(fA, verDoc);
+        assertNull(fStore.getObjectByPath("/A/renamed", USER));
+        assertPath("/A/verdoc", verDoc);
+    }
+
+    @Test
+    public void testDeletePwc() {
+        VersionedDocument verDoc = createVersionedDocument("verdoc", fA);
+
+        DocumentVersion pwc = checkOut(verDoc);
+        fStore.rename(pwc, "renamed", USER);
+
+        // as done by the AtomPub binding
+        fStore.deleteObject(pwc.getId(), false, USER);
+
+        assertFalse(verDoc.isCheckedOut());
+        assertChildren(fA, verDoc);
+        assertNull(fStore.getObjectByPath("/A/renamed", USER));
+        assertPath("/A/verdoc", verDoc);
+    }
+
+    private DocumentVersion checkOut(VersionedDocument verDoc) {
+        DocumentVersion pwc = verDoc.checkOut(USER);
+        fStore.storeVersion(pwc);
+        return pwc;
+    }
+
+    private Document createDocument(String name, Folder folder) {
+        return fStore.createDocument(createProperties(name), USER, folder, null, null, null, null);
+    }
+
+    private VersionedDocument createVersionedDocument(String name, Folder folder) {
+        DocumentVersion version = fStore.createVersionedDocument(name, createProperties(name), USER, folder, null,
+                null, null, null, VersioningState.MAJOR);
+        return version.getParentDocument();
+    }
+
+    private static Map<String, PropertyData<?>> createProperties(String name) {
+        Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+        properties.put(PropertyIds.NAME, new PropertyStringImpl(PropertyIds.NAME, name));
+        properties.put(PropertyIds.OBJECT_TYPE_ID, new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID,
+                BaseTypeId.CMIS_DOCUMENT.value()));
+        return properties;
+    }
+
+    private void assertPath(String path, StoredObject expected) {
+        StoredObject so = fStore.getObjectByPath(path, USER);
+        assertNotNull(path + " not found", so);
+        assertEquals(expected.getId(), getFilingId(so));
+    }
+
+    private void assertChildren(Folder folder, StoredObject... expected) {
+        Set<String> childIds = new HashSet<String>();
+        for (Fileable child : fStore.getChildren(folder, -1, -1, USER, false).getChildren()) {
+            childIds.add(getFilingId(child));
+        }
+
+        assertEquals(expected.length, childIds.size());
+        for (StoredObject so : expected) {
+            assertTrue(so.getName() + " is not a child", childIds.contains(so.getId()));
+        }
+    }
+
+    /**
+     * Versioned documents are returned as their latest version.
+     */
+    private static String getFilingId(StoredObject so) {
+        if (so instanceof DocumentVersion) {
+            return ((DocumentVersion) so).getParentDocument().getId();
+        }
+        return so.getId();
+    }
+}
@@ -19,13 +19,24 @@
 package org.apache.chemistry.opencmis.inmemory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.inmemory.ObjectServiceTest.ObjectTestTypeSystemCreator;
 import org.apache.chemistry.opencmis.util.repository.ObjectGenerator;
 import org.junit.After;
@@ -176,4 +187,91 @@ public class DiscoveryServiceTest extends AbstractServiceTest {
         assertEquals(3, count);
     }
 
+    @Test
+    public void testContentChanges() {
+        log.info("starting testContentChanges() ...");
+
+        RepositoryInfo repoInfo = fRepSvc.getRepositoryInfo(fRepositoryId, null);
+        assertEquals(CapabilityChanges.OBJECTIDSONLY, repoInfo.getCapabilities().getChangesCapability());
+        String startToken = repoInfo.getLatestChangeLogToken();
+
+        String folderId = createFolder("ChangeFolder", fRootFolderId, TEST_FOLDER_TYPE_ID);
+        String docId = createDocument("ChangeDoc", folderId, TEST_DOCUMENT_TYPE_ID, false);
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(fFactory.createPropertyStringData(PropertyIds.NAME, "ChangeDocRenamed"));
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(docId), null,
+                fFactory.createPropertiesData(properties), null);
+        fObjSvc.deleteObject(fRepositoryId, docId, true, null);
+
+        List<ObjectData> events = getContentChanges(startToken);
+
+        List<ChangeType> folderChanges = new ArrayList<ChangeType>();
+        List<ChangeType> docChanges = new ArrayList<ChangeType>();
+        for (ObjectData event : events) {
+            String id = (String) event.getProperties().getProperties().get(PropertyIds.OBJECT_ID).getFirstValue();
+            if (folderId.equals(id)) {
+                folderChanges.add(event.getChangeEventInfo().getChangeType());
+            } else if (docId.equals(id)) {
+                docChanges.add(event.getChangeEventInfo().getChangeType());
+            }
+        }
+        assertEquals(Collections.singletonList(ChangeType.CREATED), folderChanges);
+        assertEquals(Arrays.asList(ChangeType.CREATED, ChangeType.UPDATED, ChangeType.DELETED), docChanges);
+
+        log.info("... testContentChanges() finished.");
+    }
+
+    @Test
+    public void testContentChangesVersioned() {
+        log.info("starting testContentChangesVersioned() ...");
+
+        String startToken = fRepSvc.getRepositoryInfo(fRepositoryId, null).getLatestChangeLogToken();
+
+        String docId = createDocument("VersionedChangeDoc", fRootFolderId,
+                ObjectServiceTest.TEST_VERSION_DOCUMENT_TYPE_ID, VersioningState.MAJOR, false);
+        String versionSeriesId = (String) fObjSvc.getObject(fRepositoryId, docId, null, false,
+                IncludeRelationships.NONE, null, false, false, null).getProperties().getProperties()
+                .get(PropertyIds.VERSION_SERIES_ID).getFirstValue();
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(fFactory.createPropertyStringData(PropertyIds.NAME, "VersionedChangeDocRenamed"));
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(docId), null,
+                fFactory.createPropertiesData(properties), null);
+        fObjSvc.deleteObject(fRepositoryId, docId, true, null);
+
+        // one event per change of the version, none for the version series
+        List<ChangeType> docChanges = new ArrayList<ChangeType>();
+        for (ObjectData event : getContentChanges(startToken)) {
+            String id = (String) event.getProperties().getProperties().get(PropertyIds.OBJECT_ID).getFirstValue();
+            assertFalse(versionSeriesId.equals(id));
+            if (docId.equals(id)) {
+                docChanges.add(event.getChangeEventInfo().getChangeType());
+            }
+        }
+        assertEquals(Arrays.asList(ChangeType.CREATED, ChangeType.UPDATED, ChangeType.DELETED), docChanges);
+
+        log.info("... testContentChangesVersioned() finished.");
+    }
+
+    /**
+     * Pages through the changes after the given token. The first event of a
+     * page repeats the last event of the previous page.
+     */
+    private List<ObjectData> getContentChanges(String startToken) {
+        List<ObjectData> events = new ArrayList<ObjectData>();
+        Holder<String> token = new Holder<String>(startToken);
+        boolean hasMoreItems = true;
+        while (hasMoreItems) {
+            ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, token, false, null, false, false,
+                    BigInteger.valueOf(2), null);
+            events.addAll(res.getObjects().subList(1, res.getObjects().size()));
+            hasMoreItems = res.hasMoreItems();
+        }
+        // no new changes: only the last event is returned again
+        ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, token, false, null, false, false, null, null);
+        assertEquals(1, res.getObjects().size());
+        assertFalse(res.hasMoreItems());
+
+        return events;
+    }
+
 }
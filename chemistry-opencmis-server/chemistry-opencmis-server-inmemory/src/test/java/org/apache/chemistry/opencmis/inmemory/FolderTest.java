@@ -151,6 +151,20 @@ public class FolderTest extends TestCase {
         }
     }
 
+    @Test
+    public void testGetObjectByPathSimilarNames() {
+        Folder f10 = createFolder("Folder 10", fRoot);
+        Folder f101 = createFolder("Folder 1.1", f10);
+        assertEquals(f10, fStore.getObjectByPath("/Folder 10", USER));
+        assertEquals(f101, fStore.getObjectByPath("/Folder 10/Folder 1.1", USER));
+        assertEquals(f11, fStore.getObjectByPath("/Folder 1/Folder 1.1", USER));
+
+        assertNull(fStore.getObjectByPath("/Folder", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/Folder 1.1/Folder 1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/", USER));
+        assertNull(fStore.getObjectByPath("Folder 1", USER));
+    }
+
     @Test
     public void testDeleteFolder() {
         String oldPath = getPath(f2);
@@ -31,6 +31,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
@@ -42,8 +43,10 @@ import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.inmemory.AbstractServiceTest;
 import org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,7 +56,7 @@ import org.slf4j.LoggerFactory;
 public class EvalQueryTest extends AbstractServiceTest {
 
     private static final Logger log = LoggerFactory.getLogger(EvalQueryTest.class);
-    private QueryTestDataCreator dataCreator;
+    protected QueryTestDataCreator dataCreator;
     static int COUNT = 0;
 
     @Override
@@ -1011,6 +1014,34 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testContainsAndScore.");
     }
 
+    @Test
+    public void testContainsFollowsContentChange() throws Exception {
+        log.debug("Start testContainsFollowsContentChange...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('dog') AND cmis:name = 'gamma'";
+        ObjectList res = doQuery(statement);
+        assertEquals(1, res.getObjects().size());
+        String id = (String) res.getObjects().get(0).getProperties().getProperties().get(PropertyIds.OBJECT_ID)
+                .getFirstValue();
+
+        ContentStreamDataImpl content = new ContentStreamDataImpl(-1);
+        content.setFileName("data.txt");
+        content.setMimeType("text/plain");
+        content.setContent(new ByteArrayInputStream("My Cat likes dogs.".getBytes("UTF-8")));
+        fObjSvc.setContentStream(fRepositoryId, new Holder<String>(id), true, null, content, null);
+
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('dog')");
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("delta", res));
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('\"cat likes\"')");
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("gamma", res));
+
+        fObjSvc.deleteObject(fRepositoryId, id, true, null);
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('cat')");
+        assertEquals(3, res.getObjects().size());
+        log.debug("...Stop testContainsFollowsContentChange.");
+    }
+
     @Test
     public void testContainsSyntaxError() {
         log.debug("Start testContainsSyntaxError...");
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.COMPLEX_TYPE;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_BOOLEAN;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_DATETIME;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_DECIMAL;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_ID;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_INT;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_STRING;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.VERSIONED_TYPE;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.junit.Test;
+
+/**
+ * Runs the query tests with secondary property indexes.
+ */
+public class IndexedEvalQueryTest extends EvalQueryTest {
+
+    @Override
+    protected void addParameters(Map<String, String> parameters) {
+        parameters.put(ConfigConstants.HASH_INDEX + "0", PropertyIds.OBJECT_TYPE_ID);
+        parameters.put(ConfigConstants.HASH_INDEX + "1", PROP_ID_BOOLEAN);
+        parameters.put(ConfigConstants.HASH_INDEX + "2", PROP_ID_ID);
+        parameters.put(ConfigConstants.HASH_INDEX + "3", PropertyIds.IS_LATEST_VERSION);
+        parameters.put(ConfigConstants.HASH_INDEX + "4", PropertyIds.IS_VERSION_SERIES_CHECKED_OUT);
+        parameters.put(ConfigConstants.SORTED_INDEX + "0", PropertyIds.NAME);
+        parameters.put(ConfigConstants.SORTED_INDEX + "1", PROP_ID_INT);
+        parameters.put(ConfigConstants.SORTED_INDEX + "2", PROP_ID_DECIMAL);
+        parameters.put(ConfigConstants.SORTED_INDEX + "3", PROP_ID_DATETIME);
+        parameters.put(ConfigConstants.SORTED_INDEX + "4", PROP_ID_STRING);
+        parameters.put(ConfigConstants.SORTED_INDEX + "5", PropertyIds.LAST_MODIFICATION_DATE);
+    }
+
+    @Test
+    public void testIndexFollowsUpdateAndDelete() {
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PropertyIds.NAME + "= 'epsilon'";
+        ObjectList res = doIndexedQuery(statement);
+        assertEquals(1, res.getObjects().size());
+        String id = (String) res.getObjects().get(0).getProperties().getProperties().get(PropertyIds.OBJECT_ID)
+                .getFirstValue();
+
+        BindingsObjectFactory factory = new BindingsObjectFactoryImpl();
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(factory.createPropertyStringData(PropertyIds.NAME, "zeta"));
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(id), null,
+                factory.createPropertiesData(properties), null);
+
+        assertEquals(0, doIndexedQuery(statement).getObjects().size());
+        statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PropertyIds.NAME + " > 'y'";
+        assertEquals(1, doIndexedQuery(statement).getObjects().size());
+
+        fObjSvc.deleteObject(fRepositoryId, id, true, null);
+        assertEquals(0, doIndexedQuery(statement).getObjects().size());
+    }
+
+    @Test
+    public void testOrderByKeepsOrderOfEqualValues() {
+        for (int i = 0; i < 4; i++) {
+            dataCreator.createDocumentWithIntProperty("tie" + i, 42);
+        }
+
+        // the sorted index on the integer property orders the result
+        String statement = "SELECT * FROM " + COMPLEX_TYPE;
+        List<String> ties = getTies(doIndexedQuery(statement));
+        assertEquals(4, ties.size());
+        assertEquals(ties, getTies(doIndexedQuery(statement + " ORDER BY " + PROP_ID_INT)));
+        assertEquals(ties, getTies(doIndexedQuery(statement + " ORDER BY " + PROP_ID_INT + " DESC")));
+    }
+
+    @Test
+    public void testIndexFollowsCheckOutAndCheckIn() {
+        dataCreator.createVersionedDocument();
+        String checkedOut = "SELECT * FROM " + VERSIONED_TYPE + " WHERE " + PropertyIds.IS_VERSION_SERIES_CHECKED_OUT
+                + " = true";
+        String latest = "SELECT * FROM " + VERSIONED_TYPE + " WHERE " + PropertyIds.IS_LATEST_VERSION + " = true";
+        assertEquals(0, doIndexedQueryAllVersions(checkedOut).getObjects().size());
+        assertEquals(1, doIndexedQueryAllVersions(latest).getObjects().size());
+
+        String id = (String) doIndexedQueryAllVersions(latest).getObjects().get(0).getProperties().getProperties()
+                .get(PropertyIds.OBJECT_ID).getFirstValue();
+        Holder<String> idHolder = new Holder<String>(id);
+        fVerSvc.checkOut(fRepositoryId, idHolder, null, new Holder<Boolean>(false));
+        String pwcId = idHolder.getValue();
+        assertEquals(3, doIndexedQueryAllVersions(checkedOut).getObjects().size());
+
+        fVerSvc.cancelCheckOut(fRepositoryId, pwcId, null);
+        assertEquals(0, doIndexedQueryAllVersions(checkedOut).getObjects().size());
+
+        idHolder = new Holder<String>(id);
+        fVerSvc.checkOut(fRepositoryId, idHolder, null, new Holder<Boolean>(false));
+        fVerSvc.checkIn(fRepositoryId, idHolder, true, null, null, "third version", null, null, null, null);
+        assertEquals(0, doIndexedQueryAllVersions(checkedOut).getObjects().size());
+        ObjectList res = doIndexedQueryAllVersions(latest);
+        assertEquals(1, res.getObjects().size());
+        assertEquals("3.0", res.getObjects().get(0).getProperties().getProperties().get(PropertyIds.VERSION_LABEL)
+                .getFirstValue());
+    }
+
+    private ObjectList doIndexedQuery(String statement) {
+        return fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null, null, null,
+                null);
+    }
+
+    private ObjectList doIndexedQueryAllVersions(String statement) {
+        return fDiscSvc.query(fRepositoryId, statement, true, false, IncludeRelationships.NONE, null, null, null,
+                null);
+    }
+
+    private static List<String> getTies(ObjectList res) {
+        List<String> names = new ArrayList<String>();
+        for (ObjectData od : res.getObjects()) {
+            String name = (String) od.getProperties().getProperties().get(PropertyIds.NAME).getFirstValue();
+            if (name.startsWith("tie")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
+import org.apache.chemistry.opencmis.inmemory.DummyCallContext;
+import org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+
+/**
+ * Compares the compiled WHERE clause predicates with the per-object
+ * {@link InMemoryQueryProcessor.InMemoryWhereClauseWalker}.
+ * <p>
+ * This is not a unit test. Run it with
+ * {@code java -Xmx4g -cp ... QueryBenchmark [documents] [rounds]}. It fills a
+ * repository with documents of the unit test type {@code ComplexType}
+ * (1,000,000 by default), evaluates the WHERE clause of a query against every
+ * document, once with the walker and once with the compiled predicate, and
+ * prints the best time of each. Finally it runs the whole query.
+ */
+public class QueryBenchmark {
+
+    private static final String REPOSITORY_ID = "BenchmarkRepository";
+    private static final String USER = "Admin";
+    private static final String STATEMENT = "SELECT * FROM " + UnitTestTypeSystemCreator.COMPLEX_TYPE + " WHERE "
+            + UnitTestTypeSystemCreator.PROP_ID_STRING + " LIKE 'Str1%5' AND "
+            + UnitTestTypeSystemCreator.PROP_ID_INT + " > 500 OR " + UnitTestTypeSystemCreator.PROP_ID_STRING
+            + " IN ('Str7', 'Str77', 'Str777')";
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        ConfigurationSettings.init(new HashMap<String, String>());
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(REPOSITORY_ID, UnitTestTypeSystemCreator.class.getName());
+        ObjectStoreImpl store = storeManager.getStore(REPOSITORY_ID);
+        TypeManager tm = storeManager.getTypeManager(REPOSITORY_ID);
+
+        long start = System.currentTimeMillis();
+        List<StoredObject> objects = createDocuments(store, documents);
+        System.out.println("Created " + documents + " documents in " + (System.currentTimeMillis() - start) + " ms");
+        System.out.println(STATEMENT);
+
+        InMemoryQueryProcessor processor = new InMemoryQueryProcessor(store, new DummyCallContext(USER));
+        processor.processQueryAndCatchExc(STATEMENT, tm);
+        Tree whereTree = processor.getWhereTree();
+
+        long bestWalker = Long.MAX_VALUE;
+        long bestCompiled = Long.MAX_VALUE;
+        int walkerMatches = 0;
+        int compiledMatches = 0;
+        for (int round = 0; round < rounds; round++) {
+            start = System.nanoTime();
+            walkerMatches = walk(processor, whereTree, objects);
+            bestWalker = Math.min(bestWalker, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            compiledMatches = evaluate(processor, whereTree, objects);
+            bestCompiled = Math.min(bestCompiled, System.nanoTime() - start);
+        }
+
+        if (walkerMatches != compiledMatches) {
+            throw new IllegalStateException("Walker matched " + walkerMatches + " documents, compiled predicate "
+                    + compiledMatches + "!");
+        }
+
+        System.out.println("Best of " + rounds + " rounds, " + compiledMatches + " matches");
+        System.out.println("  walker:             " + bestWalker / 1000000 + " ms");
+        System.out.println("  compiled predicate: " + bestCompiled / 1000000 + " ms");
+
+        start = System.currentTimeMillis();
+        BigInteger numItems = new InMemoryQueryProcessor(store, new DummyCallContext(USER)).query(tm, store, USER,
+                REPOSITORY_ID, STATEMENT, false, false, null, null, BigInteger.valueOf(100), null).getNumItems();
+        System.out.println("  whole query:        " + (System.currentTimeMillis() - start) + " ms, " + numItems
+                + " results");
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int walk(InMemoryQueryProcessor processor, Tree whereTree, List<StoredObject> objects) {
+        int matches = 0;
+        for (StoredObject so : objects) {
+            if (processor.new InMemoryWhereClauseWalker(so, USER).walkPredicate(whereTree)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static int evaluate(InMemoryQueryProcessor processor, Tree whereTree, List<StoredObject> objects) {
+        // compiled once per statement, as the query does
+        WhereClauseCompiler.Predicate predicate = new WhereClauseCompiler(processor, true).compile(whereTree);
+
+        int matches = 0;
+        for (StoredObject so : objects) {
+            if (predicate.matches(so, USER)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static List<StoredObject> createDocuments(ObjectStoreImpl store, int documents) {
+        Folder folder = store.createFolder("benchmark", null, USER, store.getRootFolder(), null, null, null);
+
+        List<StoredObject> objects = new ArrayList<StoredObject>(documents);
+        for (int i = 0; i < documents; i++) {
+            Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+            properties.put(PropertyIds.NAME, new PropertyStringImpl(PropertyIds.NAME, "doc" + i));
+            properties.put(PropertyIds.OBJECT_TYPE_ID, new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID,
+                    UnitTestTypeSystemCreator.COMPLEX_TYPE));
+            properties.put(UnitTestTypeSystemCreator.PROP_ID_STRING, new PropertyStringImpl(
+                    UnitTestTypeSystemCreator.PROP_ID_STRING, "Str" + (i % 10000)));
+            properties.put(UnitTestTypeSystemCreator.PROP_ID_INT, new PropertyIntegerImpl(
+                    UnitTestTypeSystemCreator.PROP_ID_INT, BigInteger.valueOf(i % 1000)));
+
+            objects.add(store.createDocument(properties, USER, folder, null, null, null, null));
+        }
+
+        return objects;
+    }
+}
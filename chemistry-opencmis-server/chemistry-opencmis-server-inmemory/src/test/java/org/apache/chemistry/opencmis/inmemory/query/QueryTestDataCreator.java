@@ -282,6 +282,17 @@ public class QueryTestDataCreator {
         createDocument("nulldoc", rootFolderId, COMPLEX_TYPE, propertyMap1);
     }
 
+    @SuppressWarnings("serial")
+    public String createDocumentWithIntProperty(String name, final int value) {
+
+        final Map<String, Object> propertyMap1 = new HashMap<String, Object>() {
+            {
+                put(PROP_ID_INT, Integer.valueOf(value));
+            }
+        };
+        return createDocument(name, rootFolderId, COMPLEX_TYPE, propertyMap1);
+    }
+
     @SuppressWarnings("serial")
     public void createLikeTestDocuments(String folderId) {
 